@@ -17,6 +17,11 @@ public enum CoderConfig {
     public static final byte MISS_GENOTYPE_CODE = 0;
     public static final boolean DEFAULT_PHASED_STATUS = false;
 
+    /**
+     * 仅含等位基因 0, 1, 2 的基因型的编码值个数 (含缺失基因型)，编码值为 0 ~ mapGenotypeTo(2, 0)
+     */
+    public static final int TRIALLELIC_CODE_NUM = 10;
+
     /**
      * 传入基因型数据左右侧数值，获得其编码数值. i | j -> i * allelesNumMax + j, .|. -> 0
      * @param i 左侧基因型
@@ -45,6 +45,15 @@ public interface MBEGDecoder {
         }
     }
 
+    /**
+     * 获取三等位基因组合解码器，每 1 byte 解包为 2 个基因型
+     * @param phased 基因型数据是否有向
+     * @return 对应的三等位基因组合解码器
+     */
+    static MBEGDecoder getTriallelicDecoder(boolean phased) {
+        return TriallelicGroupDecoder.getInstance(phased);
+    }
+
     /**
      * 获取所有的组合解码器
      * @return 组合解码器
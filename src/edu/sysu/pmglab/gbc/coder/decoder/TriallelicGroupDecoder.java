@@ -0,0 +1,48 @@
+package edu.sysu.pmglab.gbc.coder.decoder;
+
+import edu.sysu.pmglab.gbc.coder.CoderConfig;
+
+/**
+ * @Data        :2022/04/02
+ * @Author      :suranyi
+ * @Contact     :suranyi.sysu@gamil.com
+ * @Description :三等位基因组合解码器
+ */
+
+enum TriallelicGroupDecoder implements MBEGDecoder {
+    /**
+     * 单例模式组合解码器
+     */
+    UNPHASED(false),
+    PHASED(true);
+
+    final boolean phased;
+    final byte[][] groupDecoder;
+
+    TriallelicGroupDecoder(boolean phased) {
+        this.phased = phased;
+        this.groupDecoder = new byte[CoderConfig.TRIALLELIC_CODE_NUM * CoderConfig.TRIALLELIC_CODE_NUM][2];
+
+        for (int i = 0; i < CoderConfig.TRIALLELIC_CODE_NUM; i++) {
+            for (int j = 0; j < CoderConfig.TRIALLELIC_CODE_NUM; j++) {
+                int index = CoderConfig.TRIALLELIC_CODE_NUM * i + j;
+                this.groupDecoder[index][0] = (byte) i;
+                this.groupDecoder[index][1] = (byte) j;
+            }
+        }
+    }
+
+    @Override
+    public byte decode(int code, int codeIndex) {
+        return this.groupDecoder[code][codeIndex];
+    }
+
+    @Override
+    public boolean isPhased() {
+        return this.phased;
+    }
+
+    static MBEGDecoder getInstance(boolean phased) {
+        return phased ? PHASED : UNPHASED;
+    }
+}
@@ -115,6 +115,30 @@ public interface BEGEncoder {
         }
     }
 
+    /**
+     * 获取 3 字节基因型 (a|b, a/b) 的查找表
+     * 索引为 (第一个字节的低 4 位) << 4 | (第三个字节的低 4 位)，数字 0~9 与 . 的低 4 位互不相同，分隔符不参与编码
+     * @param encodeDict 编码表
+     * @return 查找表，-1 表示该字节组合需要使用常规编码路径
+     */
+    default byte[] initTokenDict(byte[][] encodeDict) {
+        byte[] tokenDict = new byte[256];
+        for (int i = 0; i < 16; i++) {
+            for (int j = 0; j < 16; j++) {
+                if (i == (ByteCode.PERIOD & 0xF) || (j == (ByteCode.PERIOD & 0xF) && i <= 9)) {
+                    // ./., ./a, a/.
+                    tokenDict[i << 4 | j] = CoderConfig.MISS_GENOTYPE_CODE;
+                } else if (i <= 9 && j <= 9) {
+                    tokenDict[i << 4 | j] = encodeDict[i][j];
+                } else {
+                    tokenDict[i << 4 | j] = -1;
+                }
+            }
+        }
+
+        return tokenDict;
+    }
+
     /**
      * 基因型编码器是否有向
      * @return 编码器向型
@@ -24,6 +24,16 @@ public interface MBEGEncoder {
         }
     }
 
+    /**
+     * 获取三等位基因组合编码器，每 2 个基因型组合为 1 byte
+     *
+     * @param phased 基因型数据是否有向
+     * @return 对应的三等位基因组合编码器
+     */
+    static MBEGEncoder getTriallelicEncoder(boolean phased) {
+        return TriallelicGroupEncoder.getInstance(phased);
+    }
+
     /**
      * 获取所有的组合编码器
      *
@@ -0,0 +1,51 @@
+package edu.sysu.pmglab.gbc.coder.encoder;
+
+import edu.sysu.pmglab.gbc.coder.CoderConfig;
+
+/**
+ * @Data        :2022/04/02
+ * @Author      :suranyi
+ * @Contact     :suranyi.sysu@gamil.com
+ * @Description :三等位基因组合编码器，仅含等位基因 0, 1, 2 的位点的 BEG 编码值小于 10，每 2 个编码组合为 1 byte (有向与无向使用相同的编码表)
+ */
+
+enum TriallelicGroupEncoder implements MBEGEncoder {
+    /**
+     * 单例模式组合编码器
+     */
+    UNPHASED(false),
+    PHASED(true);
+
+    final boolean phased;
+    final byte[][] encoder;
+
+    TriallelicGroupEncoder(boolean phased) {
+        this.phased = phased;
+        this.encoder = new byte[CoderConfig.TRIALLELIC_CODE_NUM][CoderConfig.TRIALLELIC_CODE_NUM];
+
+        for (int i = 0; i < CoderConfig.TRIALLELIC_CODE_NUM; i++) {
+            for (int j = 0; j < CoderConfig.TRIALLELIC_CODE_NUM; j++) {
+                this.encoder[i][j] = (byte) (i * CoderConfig.TRIALLELIC_CODE_NUM + j);
+            }
+        }
+    }
+
+    @Override
+    public byte encode(byte code1) {
+        return this.encoder[code1][code1];
+    }
+
+    @Override
+    public byte encode(byte code1, byte code2) {
+        return this.encoder[code1][code2];
+    }
+
+    @Override
+    public boolean isPhased() {
+        return this.phased;
+    }
+
+    static MBEGEncoder getInstance(boolean phased) {
+        return phased ? PHASED : UNPHASED;
+    }
+}
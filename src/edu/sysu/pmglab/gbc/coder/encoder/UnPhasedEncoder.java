@@ -13,6 +13,7 @@ enum UnPhasedEncoder implements BEGEncoder {
      */
     INSTANCE;
     final byte[][] encodeDict = initEncodeDict(false);
+    final byte[] tokenDict = initTokenDict(this.encodeDict);
 
     @Override
     public boolean isPhased() {
@@ -24,6 +25,19 @@ enum UnPhasedEncoder implements BEGEncoder {
         return this.encodeDict[i][j];
     }
 
+    @Override
+    public byte encode(byte[] variant, int seek, int length) {
+        // 绝大多数基因型为 3 字节，直接查表；多位数的等位基因等情况使用常规编码路径
+        if (length == 3) {
+            byte code = this.tokenDict[(variant[seek - 3] & 0xF) << 4 | (variant[seek - 1] & 0xF)];
+            if (code != -1) {
+                return code;
+            }
+        }
+
+        return BEGEncoder.super.encode(variant, seek, length);
+    }
+
     static BEGEncoder getInstance(){
         return INSTANCE;
     }
@@ -36,6 +36,12 @@ public enum ChromosomeTags {
     private final ChromosomeTag[] default_chromosomes;
     private BiDict<String, Integer> default_indexes;
 
+    /**
+     * 染色体字节序列的开放寻址哈希表 (存储 chromosomeIndex + 1，0 表示空槽)，以及最近一次命中的染色体
+     */
+    private int[] hashTable;
+    private ChromosomeTag lastHit;
+
     public final static int MIN_CHROMOSOME_INDEX = 0;
     public final static int MAX_CHROMOSOME_INDEX = 255;
 
@@ -52,6 +58,7 @@ public enum ChromosomeTags {
             }
 
             this.indexes = BiDict.of(list);
+            initHashTable();
         } catch (IOException ignored) {
         }
 
@@ -241,10 +248,52 @@ public enum ChromosomeTags {
             }
 
             this.indexes = BiDict.of(list);
+            initHashTable();
         }
         return chromosomes.toArray(new ChromosomeTag[0]);
     }
 
+    /**
+     * 根据当前的染色体列表构建哈希表，同名的染色体只保留第一个
+     */
+    private void initHashTable() {
+        int capacity = 16;
+        while (capacity < (this.chromosomes.length << 1)) {
+            capacity <<= 1;
+        }
+
+        int[] hashTable = new int[capacity];
+        out:
+        for (ChromosomeTag chromosome : this.chromosomes) {
+            byte[] chromosomeByteArray = chromosome.chromosomeByteArray;
+            int slot = hashOf(chromosomeByteArray, 0, chromosomeByteArray.length) & (capacity - 1);
+
+            while (hashTable[slot] != 0) {
+                if (Arrays.equals(this.chromosomes[hashTable[slot] - 1].chromosomeByteArray, chromosomeByteArray)) {
+                    continue out;
+                }
+                slot = (slot + 1) & (capacity - 1);
+            }
+
+            hashTable[slot] = chromosome.chromosomeIndex + 1;
+        }
+
+        this.hashTable = hashTable;
+        this.lastHit = null;
+    }
+
+    /**
+     * 字节序列的哈希值 (FNV-1a)
+     */
+    private static int hashOf(byte[] bytes, int offset, int length) {
+        int hash = 0x811C9DC5;
+        for (int i = offset; i < offset + length; i++) {
+            hash = (hash ^ bytes[i]) * 0x01000193;
+        }
+
+        return hash ^ (hash >>> 16);
+    }
+
     /**
      * 根据染色体的字符串值获取对应的染色体信息
      *
@@ -305,8 +354,19 @@ public enum ChromosomeTags {
      * @param length  长度
      */
     public static ChromosomeTag get(VolumeByteStream variant, int offset, int length) {
-        for (ChromosomeTag chromosome : INSTANCE.chromosomes) {
+        // 排序的 VCF 文件中，相邻行几乎总是相同的染色体
+        ChromosomeTag lastHit = INSTANCE.lastHit;
+        if (lastHit != null && variant.equal(offset, length, lastHit.chromosomeByteArray, 0, lastHit.chromosomeByteArray.length)) {
+            return lastHit;
+        }
+
+        ChromosomeTag[] chromosomes = INSTANCE.chromosomes;
+        int[] hashTable = INSTANCE.hashTable;
+        int mask = hashTable.length - 1;
+        for (int slot = hashOf(variant.getCache(), offset, length) & mask; hashTable[slot] != 0; slot = (slot + 1) & mask) {
+            ChromosomeTag chromosome = chromosomes[hashTable[slot] - 1];
             if (variant.equal(offset, length, chromosome.chromosomeByteArray, 0, chromosome.chromosomeByteArray.length)) {
+                INSTANCE.lastHit = chromosome;
                 return chromosome;
             }
         }
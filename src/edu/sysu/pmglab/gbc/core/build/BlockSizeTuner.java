@@ -0,0 +1,308 @@
+package edu.sysu.pmglab.gbc.core.build;
+
+import edu.sysu.pmglab.compressor.IDecompressor;
+import edu.sysu.pmglab.container.Pair;
+import edu.sysu.pmglab.container.ShareCache;
+import edu.sysu.pmglab.container.VolumeByteStream;
+import edu.sysu.pmglab.gbc.constant.ChromosomeTags;
+import edu.sysu.pmglab.gbc.core.gtbcomponent.AlleleCodec;
+import edu.sysu.pmglab.gbc.core.gtbcomponent.GTBCompressor;
+import edu.sysu.pmglab.gbc.core.gtbcomponent.GTBNode;
+import edu.sysu.pmglab.gbc.core.gtbcomponent.GenotypeFrameCodec;
+import edu.sysu.pmglab.gbc.core.gtbcomponent.GenotypeSliceCodec;
+import edu.sysu.pmglab.gbc.core.gtbcomponent.PositionCodec;
+import edu.sysu.pmglab.gbc.core.gtbcomponent.TriallelicGenotypeCodec;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * @Data        :2022/03/16
+ * @Author      :suranyi
+ * @Contact     :suranyi.sysu@gamil.com
+ * @Description :试压缩参数选择器，抽样输入文件每个染色体的前 N 个位点 (至少包含最大候选块大小的一个完整块)，对每一组候选的块大小参数与压缩级别进行试压缩，
+ *               按优化目标选择代价最小的参数。先在基线级别下比较所有块大小参数，再在最优及基线块大小参数下比较所有压缩级别；
+ *               候选参数始终包含不进行试压缩时使用的参数 (基线)，只有代价严格低于基线时才替换基线
+ */
+
+class BlockSizeTuner {
+    /**
+     * 样本 BEG 编码缓冲区的最大大小，样本数较多时减少抽样的位点数 (但至少抽样一个完整块)
+     */
+    static final int MAX_SAMPLE_CACHE_SIZE = 1 << 27;
+
+    /**
+     * 优化目标包含耗时时，每组候选参数重复试压缩的次数，耗时取中位数
+     */
+    static final int TRIAL_REPEATS = 3;
+
+    final BuildKernel kernel;
+    final BuildTask task;
+    final TuneObjective objective;
+
+    /**
+     * 抽样的位点，及其中各染色体的连续区间 {染色体编号, 起点, 终点}
+     */
+    UncompressedBlock sample;
+    List<int[]> runs;
+
+    BlockSizeTuner(BuildKernel kernel) {
+        this.kernel = kernel;
+        this.task = kernel.task;
+        this.objective = kernel.task.getTuneObjective();
+    }
+
+    /**
+     * 试压缩并选择参数，选择的参数将设置到任务中
+     *
+     * @return 试压缩的报告
+     */
+    String tune() throws IOException {
+        int validSubjectNum = this.kernel.validSubjectNum;
+        int compressorIndex = this.task.getCompressor();
+
+        // 基线参数: 不进行试压缩时使用的块大小参数与压缩级别
+        int baseBlockSizeType = BlockSizeParameter.getSuggestBlockSizeType(this.task.getBlockSizeType(), validSubjectNum);
+        int baseLevel = this.task.getCompressionLevel();
+
+        // 候选块大小参数: 用户指定的参数，或不超过基线的所有参数
+        int[] blockSizeTypes = new int[this.task.getBlockSizeType() != -1 ? 1 : baseBlockSizeType + 1];
+        for (int i = 0; i < blockSizeTypes.length; i++) {
+            blockSizeTypes[i] = baseBlockSizeType - blockSizeTypes.length + 1 + i;
+        }
+
+        // 候选压缩级别: 用户指定的级别，或基线级别、默认级别、最大级别及其间的中间级别
+        int[] levels;
+        if (this.task.isTuneCompressionLevel()) {
+            int minLevel = GTBCompressor.getMinCompressionLevel(compressorIndex);
+            int maxLevel = GTBCompressor.getMaxCompressionLevel(compressorIndex);
+            int defaultLevel = GTBCompressor.getDefaultCompressionLevel(compressorIndex);
+            TreeSet<Integer> candidates = new TreeSet<>(Arrays.asList((minLevel + defaultLevel) >> 1, defaultLevel, baseLevel, (defaultLevel + maxLevel) >> 1, maxLevel));
+            levels = candidates.stream().mapToInt(Integer::intValue).toArray();
+        } else {
+            levels = new int[]{baseLevel};
+        }
+
+        // 抽样: 每个染色体至少包含最大候选块的一个完整块，总位点数不超过所有染色体的抽样数，并受缓冲区大小限制 (至少一个完整块)
+        int maxBlockSize = BlockSizeParameter.getBlockSize(blockSizeTypes[blockSizeTypes.length - 1]);
+        int variantsPerChromosome = Math.max(this.task.getTuneVariants(), maxBlockSize);
+        long totalVariants = Math.min((long) variantsPerChromosome * ChromosomeTags.supportedChromosomeList().length, MAX_SAMPLE_CACHE_SIZE / Math.max(validSubjectNum, 1));
+        int sampleSize = (int) Math.max(maxBlockSize, totalVariants);
+        this.runs = new ArrayList<>();
+        this.sample = this.kernel.loadSample(sampleSize, variantsPerChromosome, this.runs);
+        if (this.sample.empty()) {
+            this.sample = null;
+            return "no valid variants for trial compression, use the default parameters";
+        }
+
+        // 只有耗时计入代价时需要重复计时
+        int repeats = this.objective.compressWeight + this.objective.decompressWeight > 0 ? TRIAL_REPEATS : 1;
+
+        // 第一轮: 基线级别下试压缩所有候选块大小参数；第二轮: 第一轮最优的块大小参数与基线块大小参数下试压缩所有候选级别
+        int baseBlockSizeIndex = blockSizeTypes.length - 1;
+        int baseLevelIndex = Arrays.binarySearch(levels, baseLevel);
+        int baseline = baseBlockSizeIndex * levels.length + baseLevelIndex;
+        long[][] measurements = new long[blockSizeTypes.length * levels.length][];
+        String[] failures = new String[measurements.length];
+        double[] costs = new double[measurements.length];
+
+        for (int i = 0; i < blockSizeTypes.length; i++) {
+            tryCandidate(blockSizeTypes, levels, i, baseLevelIndex, compressorIndex, repeats, measurements, failures);
+        }
+
+        int best = select(measurements, baseline, costs);
+        for (int i : new int[]{best == -1 ? baseBlockSizeIndex : best / levels.length, baseBlockSizeIndex}) {
+            for (int j = 0; j < levels.length; j++) {
+                tryCandidate(blockSizeTypes, levels, i, j, compressorIndex, repeats, measurements, failures);
+            }
+        }
+
+        best = select(measurements, baseline, costs);
+        if (best != -1) {
+            this.task.setBlockSizeType(blockSizeTypes[best / levels.length]);
+            this.task.setCompressor(compressorIndex, levels[best % levels.length]);
+        }
+
+        // 生成报告
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("objective: %s, sampled variants: %d (%d chromosomes), repeats: %d, compressor: %s",
+                this.objective.name().toLowerCase(), this.sample.seek, this.runs.size(), repeats, GTBCompressor.getCompressorName(compressorIndex)));
+        for (int i = 0; i < measurements.length; i++) {
+            String mark = i == best ? "*" : i == baseline ? "=" : " ";
+            if (measurements[i] == null && failures[i] == null) {
+                // 未试压缩的候选参数
+                continue;
+            }
+
+            if (measurements[i] == null) {
+                report.append(String.format("%n\t%s -bs %d -l %-2d  failed: %s", mark, blockSizeTypes[i / levels.length], levels[i % levels.length], failures[i]));
+            } else {
+                report.append(String.format("%n\t%s -bs %d -l %-2d  size: %10d B  ratio: %7.2f  compress: %8.3f ms  decompress: %8.3f ms  cost: %.3f",
+                        mark, blockSizeTypes[i / levels.length], levels[i % levels.length], measurements[i][0],
+                        (double) this.sample.seek * validSubjectNum / Math.max(measurements[i][0], 1),
+                        measurements[i][1] / 1e6, measurements[i][2] / 1e6, costs[i]));
+            }
+        }
+
+        if (best == -1) {
+            report.append(String.format("%n\tall candidates failed, use the default parameters"));
+        }
+
+        this.sample = null;
+        this.runs = null;
+        return report.toString();
+    }
+
+    /**
+     * 试压缩第 i 个块大小参数与第 j 个压缩级别 (已试压缩时跳过)，无法完成试压缩的候选参数记录失败原因，不参与选择
+     */
+    void tryCandidate(int[] blockSizeTypes, int[] levels, int i, int j, int compressorIndex, int repeats, long[][] measurements, String[] failures) {
+        int index = i * levels.length + j;
+        if (measurements[index] != null || failures[index] != null) {
+            return;
+        }
+
+        try {
+            measurements[index] = measure(BlockSizeParameter.getBlockSize(blockSizeTypes[i]), compressorIndex, levels[j], repeats);
+        } catch (IOException | RuntimeException | AssertionError e) {
+            // 压缩器库以 AssertionError 报告无法解压的数据流
+            failures[index] = e.getClass().getSimpleName() + (e.getMessage() == null ? "" : ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * 按优化目标计算已试压缩的候选参数的代价，并选择代价最小的参数 (从基线开始，代价严格更低时才替换)
+     *
+     * @return 选择的候选参数，所有候选参数均失败时返回 -1
+     */
+    int select(long[][] measurements, int baseline, double[] costs) {
+        long minSize = Long.MAX_VALUE;
+        long minCompressTime = Long.MAX_VALUE;
+        long minDecompressTime = Long.MAX_VALUE;
+        for (long[] measurement : measurements) {
+            if (measurement != null) {
+                minSize = Math.min(minSize, measurement[0]);
+                minCompressTime = Math.min(minCompressTime, measurement[1]);
+                minDecompressTime = Math.min(minDecompressTime, measurement[2]);
+            }
+        }
+
+        for (int i = 0; i < measurements.length; i++) {
+            if (measurements[i] != null) {
+                costs[i] = this.objective.costOf(measurements[i][0], measurements[i][1], measurements[i][2], minSize, minCompressTime, minDecompressTime);
+            }
+        }
+
+        int best = measurements[baseline] != null ? baseline : -1;
+        for (int i = 0; i < measurements.length; i++) {
+            if (measurements[i] != null && (best == -1 || costs[i] < costs[best])) {
+                best = i;
+            }
+        }
+
+        return best;
+    }
+
+    /**
+     * 重复试压缩，首次试压缩用于预热 (JIT 编译)，不计入耗时
+     *
+     * @return 压缩后大小 (B)、压缩耗时的中位数 (ns)、解压耗时的中位数 (ns)
+     */
+    long[] measure(int blockSize, int compressorIndex, int compressionLevel, int repeats) throws IOException {
+        long[] measurement = trial(blockSize, compressorIndex, compressionLevel);
+        if (repeats == 1) {
+            return measurement;
+        }
+
+        long[] compressTimes = new long[repeats];
+        long[] decompressTimes = new long[repeats];
+        for (int i = 0; i < repeats; i++) {
+            long[] repeat = trial(blockSize, compressorIndex, compressionLevel);
+            compressTimes[i] = repeat[1];
+            decompressTimes[i] = repeat[2];
+        }
+
+        Arrays.sort(compressTimes);
+        Arrays.sort(decompressTimes);
+        return new long[]{measurement[0], compressTimes[repeats >> 1], decompressTimes[repeats >> 1]};
+    }
+
+    /**
+     * 使用指定的块大小与压缩级别试压缩抽样位点 (块不跨越染色体)，并按读取器的流程解压
+     *
+     * @return 压缩后大小 (B)、压缩耗时 (ns)、解压耗时 (ns)
+     */
+    long[] trial(int blockSize, int compressorIndex, int compressionLevel) throws IOException {
+        int validSubjectNum = this.kernel.validSubjectNum;
+        ShareCache caches = new ShareCache(new VolumeByteStream(validSubjectNum * blockSize), new VolumeByteStream((blockSize * Math.max(20, validSubjectNum)) >> 1));
+        GTBCompressionContext ctx = new GTBCompressionContext(this.task, compressorIndex, compressionLevel, validSubjectNum, caches, this.kernel.streamExecutor);
+        IDecompressor decompressor = GTBCompressor.getDecompressor(compressorIndex);
+        VolumeByteStream undecompressedCache = new VolumeByteStream();
+        VolumeByteStream decompressedCache = new VolumeByteStream();
+        VolumeByteStream alleleCache = new VolumeByteStream();
+        GenotypeSliceCodec sliceCodec = new GenotypeSliceCodec(validSubjectNum, this.task.isPhased());
+        TriallelicGenotypeCodec triallelicCodec = new TriallelicGenotypeCodec(validSubjectNum, this.task.isPhased());
+        AlleleCodec alleleCodec = new AlleleCodec();
+        int[] positions = new int[blockSize];
+        int[] alleleOffsets = new int[blockSize + 1];
+
+        long size = 0;
+        long compressTime = 0;
+        long decompressTime = 0;
+        try {
+            for (int[] run : this.runs) {
+                for (int start = run[1]; start < run[2]; start += blockSize) {
+                    int end = Math.min(start + blockSize, run[2]);
+                    UncompressedBlock block = new UncompressedBlock(run[0], Arrays.copyOfRange(this.sample.variants, start, end), this.sample.encodedCache, validSubjectNum);
+
+                    long startTime = System.nanoTime();
+                    Pair<GTBNode, VolumeByteStream> processedBlock = ctx.process(block);
+                    compressTime += System.nanoTime() - startTime;
+                    size += processedBlock.value.size();
+
+                    // 按读取器的顺序解压位置、等位基因、基因型数据
+                    GTBNode node = processedBlock.key;
+                    byte[] compressed = processedBlock.value.getCache();
+                    startTime = System.nanoTime();
+
+                    undecompressedCache.reset();
+                    alleleCache.reset();
+                    undecompressedCache.writeSafety(compressed, node.compressedGenotypesSize, node.compressedPosSize);
+                    decompressor.decompress(undecompressedCache, alleleCache);
+                    PositionCodec.decode(node, alleleCache, positions);
+
+                    undecompressedCache.reset();
+                    alleleCache.reset();
+                    undecompressedCache.writeSafety(compressed, node.compressedGenotypesSize + node.compressedPosSize, node.compressedAlleleSize);
+                    alleleCodec.decompress(decompressor, node, undecompressedCache, decompressedCache, alleleCache, alleleOffsets);
+
+                    undecompressedCache.reset();
+                    decompressedCache.reset();
+                    undecompressedCache.writeSafety(compressed, 0, node.compressedGenotypesSize);
+                    if (node.slicedGenotype) {
+                        sliceCodec.decompress(node, undecompressedCache, decompressor, decompressedCache);
+                    } else {
+                        GenotypeFrameCodec.decompress(node, undecompressedCache, decompressor, decompressedCache);
+                    }
+                    triallelicCodec.expand(node, decompressedCache);
+                    decompressTime += System.nanoTime() - startTime;
+
+                    processedBlock.value.reset();
+                }
+            }
+        } finally {
+            ctx.close();
+            decompressor.close();
+            undecompressedCache.close();
+            decompressedCache.close();
+            alleleCache.close();
+            sliceCodec.close();
+            caches.freeMemory();
+        }
+
+        return new long[]{size, compressTime, decompressTime};
+    }
+}
@@ -8,10 +8,13 @@ import edu.sysu.pmglab.gbc.core.common.block.VariantAbstract;
 import edu.sysu.pmglab.gbc.core.common.qualitycontrol.allele.AlleleQC;
 import edu.sysu.pmglab.gbc.core.common.qualitycontrol.genotype.GenotypeQC;
 import edu.sysu.pmglab.gbc.core.common.qualitycontrol.variant.VariantQC;
+import edu.sysu.pmglab.gbc.core.gtbcomponent.GTBCompressor;
+import edu.sysu.pmglab.gbc.core.gtbcomponent.GTBChecksum;
+import edu.sysu.pmglab.gbc.core.gtbcomponent.GTBConstant;
 import edu.sysu.pmglab.gbc.core.gtbcomponent.GTBNode;
+import edu.sysu.pmglab.gbc.core.gtbcomponent.GTBSubjectOrder;
 import edu.sysu.pmglab.gbc.core.gtbcomponent.GTBTree;
 import edu.sysu.pmglab.check.Assert;
-import edu.sysu.pmglab.compressor.ICompressor;
 import edu.sysu.pmglab.container.Pair;
 import edu.sysu.pmglab.container.ShareCache;
 import edu.sysu.pmglab.container.VolumeByteStream;
@@ -26,7 +29,15 @@ import edu.sysu.pmglab.unifyIO.FileStream;
 import edu.sysu.pmglab.unifyIO.options.FileOptions;
 import edu.sysu.pmglab.unifyIO.partreader.IPartReader;
 
+import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
 
 /**
  * @Data :2021/02/14
@@ -44,7 +55,13 @@ class BuildKernel {
     /**
      * IO 数据管道
      */
-    DynamicPipeline<Boolean, FileStream> uncompressedPipLine;
+    DynamicPipeline<Boolean, Pair<Integer, ILineReader>> uncompressedPipLine;
+
+    /**
+     * 输入文件的分块大小及最大分块个数，多线程时按文件大小细分，以减少等待写出的数据量
+     */
+    static final long PART_SIZE = 64L << 20;
+    static final int MAX_PART_NUM = 100;
 
     /**
      * 文件基本信息
@@ -52,6 +69,11 @@ class BuildKernel {
     int validSubjectNum;
     int blockSize;
 
+    /**
+     * 样本排列，subjectColumns[i] 为 VCF 文件中第 i 个样本的编码位置，为 null 时按样本顺序编码
+     */
+    int[] subjectColumns;
+
     /**
      * 位点控制器
      */
@@ -66,6 +88,12 @@ class BuildKernel {
     final Array<GTBNode> GTBNodeCache = new Array<>(1024, true);
     int maxEstimateSize = 0;
 
+    /**
+     * 分块重排缓冲区，编号为 p 的分块暂存在 reorderBuffer[p % length] 中，分块按编号依次写出，使有序的 VCF 文件得到有序的 GTB 文件
+     */
+    PartBuffer[] reorderBuffer;
+    int committingPart = 0;
+
     /**
      * 输出数据文件
      */
@@ -81,6 +109,11 @@ class BuildKernel {
      */
     final BEGEncoder begEncoder;
 
+    /**
+     * 数据流压缩线程池，所有压缩上下文共享，构建结束时关闭，未启用并行压缩数据流时为 null
+     */
+    final ExecutorService streamExecutor;
+
     /**
      * 对外的提交方法，将任务提交至本类，进行压缩任务
      */
@@ -112,7 +145,12 @@ class BuildKernel {
         this.outputFile = new FileStream(task.getOutputFileName(), FileOptions.CHANNEL_WRITER);
 
         // 开始进行工作
-        startWork();
+        this.streamExecutor = GTBCompressionContext.newStreamExecutor(task);
+        try {
+            startWork();
+        } finally {
+            GTBCompressionContext.shutdown(this.streamExecutor);
+        }
 
         // 生成最后的 gtb 文件
         generateGTBFile();
@@ -126,19 +164,34 @@ class BuildKernel {
         this.uncompressedPipLine = new DynamicPipeline<>(task.getThreads() << 2);
 
         // 创建分块读取器 (只有一个文件，因此通过 index=0 获取)
-        IPartReader partReader = IPartReader.getInstance(this.task.getInputFileName(0));
+        String inputFileName = this.task.getInputFileName(0);
+        IPartReader partReader = openPartReader(inputFileName);
 
         // 检验 VCF 文件的样本名序列是否合法
         checkVcfSubject(partReader);
 
+        // 创建分块重排缓冲区
+        int partNum = getPartNum(inputFileName);
+        this.reorderBuffer = new PartBuffer[this.task.getThreads() << 1];
+        for (int i = 0; i < this.reorderBuffer.length; i++) {
+            this.reorderBuffer[i] = new PartBuffer();
+        }
+
         // 创建线程池
         ThreadPool threadPool = new ThreadPool(this.task.getThreads() + 1);
 
         // 创建 Input 线程
         threadPool.submit(() -> {
             try {
-                for (FileStream fileStream : partReader.part(this.task.getThreads())) {
-                    this.uncompressedPipLine.put(true, fileStream);
+                int partIndex = 0;
+                if (partReader instanceof MappedVCFPartReader) {
+                    for (ILineReader lineReader : ((MappedVCFPartReader) partReader).partition(partNum)) {
+                        this.uncompressedPipLine.put(true, new Pair<>(partIndex++, lineReader));
+                    }
+                } else {
+                    for (FileStream fileStream : partReader.part(partNum)) {
+                        this.uncompressedPipLine.put(true, new Pair<>(partIndex++, ILineReader.of(fileStream)));
+                    }
                 }
 
                 // 发送关闭信号
@@ -162,8 +215,60 @@ class BuildKernel {
         // 关闭线程池，等待任务完成
         threadPool.close();
 
+        // 映射块读取完毕后，关闭文件通道
+        if (partReader instanceof MappedVCFPartReader) {
+            ((MappedVCFPartReader) partReader).close();
+        }
+
         // 清除数据区
         this.uncompressedPipLine.clear();
+        this.reorderBuffer = null;
+    }
+
+    /**
+     * 创建分块读取器，标准输入使用流式读取器，未压缩的文件可以使用内存映射读取
+     *
+     * @param inputFileName 输入文件名
+     */
+    IPartReader openPartReader(String inputFileName) throws IOException {
+        if (BuildTask.STANDARD_INPUT.equals(inputFileName)) {
+            return new StreamVCFPartReader(System.in);
+        }
+
+        if (this.task.isMemoryMapped() && MappedVCFPartReader.support(inputFileName)) {
+            return new MappedVCFPartReader(inputFileName);
+        }
+
+        return IPartReader.getInstance(inputFileName);
+    }
+
+    /**
+     * 按文件头的魔数 (1F 8B) 判断文件是否为 gzip 或 bgzip 格式，不依赖文件扩展名
+     *
+     * @param fileName 文件名
+     */
+    static boolean isGZIPFile(String fileName) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+            ByteBuffer magicCode = ByteBuffer.allocate(2);
+            channel.read(magicCode, 0);
+
+            return magicCode.position() == 2 && (magicCode.get(0) & 0xFF) == 0x1F && (magicCode.get(1) & 0xFF) == 0x8B;
+        }
+    }
+
+    /**
+     * 获取输入文件的分块个数，单线程时不分块
+     *
+     * @param inputFileName 输入文件名
+     */
+    int getPartNum(String inputFileName) {
+        int threads = this.task.getThreads();
+        if (threads == 1) {
+            return 1;
+        }
+
+        long partNum = (new File(inputFileName).length() + PART_SIZE - 1) / PART_SIZE;
+        return (int) Math.max(threads, Math.min(partNum, MAX_PART_NUM));
     }
 
     /**
@@ -209,6 +314,18 @@ class BuildKernel {
         // 关闭本地行缓冲区
         localLineCache.close();
 
+        // 抽样计算样本排列，将相似的样本编码在相邻的位置
+        int[] order = this.task.isSubjectReordering() ? SubjectOrderer.of(this) : null;
+        if (order != null) {
+            this.subjectColumns = GTBSubjectOrder.inverse(order);
+        }
+
+        // 试压缩选择块大小参数与压缩级别
+        if (this.task.getTuneObjective() != null) {
+            this.task.tuneReport = new BlockSizeTuner(this).tune();
+            this.baseInfoManager.setCompressionLevel(this.task.getCompressionLevel());
+        }
+
         // 验证块大小参数
         int blockSizeType = BlockSizeParameter.getSuggestBlockSizeType(task.getBlockSizeType(), validSubjectNum);
         this.blockSize = BlockSizeParameter.getBlockSize(blockSizeType);
@@ -225,18 +342,118 @@ class BuildKernel {
         // 写入换行符
         this.outputFile.write(ByteCode.NEWLINE);
 
-        // 写入样本名
-        VolumeByteStream subjectsSeq = ICompressor.compress(task.getCompressor(), task.getCompressionLevel(), subjectManager.subjects, 0, subjectManager.subjects.length);
-        this.outputFile.writeIntegerValue(subjectsSeq.size());
+        // 写入样本名 (按排列后的顺序) 及样本排列
+        if (order != null) {
+            subjects = GTBSubjectOrder.reorder(subjects, order);
+        }
+
+        VolumeByteStream subjectsSeq = GTBCompressor.compress(task.getCompressor(), task.getCompressionLevel(), subjects, 0, subjects.length);
+        this.outputFile.writeIntegerValue(GTBConstant.toSubjectsSizeField(subjectsSeq.size(), false, task.isChecksum(), order != null));
         this.outputFile.write(subjectsSeq);
+        if (order != null) {
+            this.outputFile.write(GTBSubjectOrder.compress(task.getCompressor(), task.getCompressionLevel(), order));
+        }
+    }
+
+    /**
+     * 读取第一个染色体的前 sampleSize 个有效位点
+     *
+     * @param sampleSize 抽样的位点数
+     * @return 抽样的位点
+     */
+    UncompressedBlock loadSample(int sampleSize) throws IOException {
+        return loadSample(sampleSize, sampleSize, null);
+    }
+
+    /**
+     * 按文件顺序读取每个染色体的前 variantsPerChromosome 个有效位点，直至抽样位点数或读取的位点行数达到 sampleSize，或文件结束
+     * (染色体数较少时不会为凑满抽样位点而扫描整个文件)
+     *
+     * @param sampleSize            抽样的位点数
+     * @param variantsPerChromosome 每个染色体抽样的位点数
+     * @param runs                  记录抽样位点中各染色体的连续区间 {染色体编号, 起点, 终点}，为 null 时只读取第一个染色体
+     * @return 抽样的位点
+     */
+    UncompressedBlock loadSample(int sampleSize, int variantsPerChromosome, List<int[]> runs) throws IOException {
+        String inputFileName = this.task.getInputFileName(0);
+        VolumeByteStream encodedCache = new VolumeByteStream(this.validSubjectNum * sampleSize);
+        UncompressedBlock sample = new UncompressedBlock(this.validSubjectNum, this.task, sampleSize, encodedCache);
+
+        try (FileStream fileStream = new FileStream(inputFileName, isGZIPFile(inputFileName) ? FileOptions.BGZIP_READER : FileOptions.CHANNEL_READER)) {
+            VolumeByteStream lineCache = new VolumeByteStream(2 << 20);
+            ChromosomeTag first = null;
+            HashMap<Integer, Integer> counts = new HashMap<>();
+            int[] run = null;
+            int scannedNum = 0;
+
+            while (sample.remaining() > 0 && scannedNum < sampleSize) {
+                lineCache.reset();
+                if (fileStream.readLine(lineCache) == -1) {
+                    break;
+                }
+
+                // 跳过注释行及标题行
+                if (lineCache.size() == 0 || lineCache.cacheOf(0) == ByteCode.NUMBER_SIGN) {
+                    continue;
+                }
+
+                // 识别对应的染色体类型及编号
+                ChromosomeTag chromosome;
+                int ind = lineCache.indexOf(ByteCode.TAB);
+                if (lineCache.startWith(ByteCode.CHR_STRING)) {
+                    chromosome = ChromosomeTags.get(lineCache, 3, ind - 3);
+                } else {
+                    chromosome = ChromosomeTags.get(lineCache, 0, ind);
+                }
+
+                if (chromosome == null) {
+                    continue;
+                }
+
+                scannedNum++;
+                if (first == null) {
+                    first = chromosome;
+                    sample.chromosomeIndex = chromosome.chromosomeIndex;
+                } else if (runs == null && first != chromosome) {
+                    // 只抽样第一个染色体
+                    break;
+                }
+
+                // 该染色体已抽样足够的位点
+                int count = counts.getOrDefault(chromosome.chromosomeIndex, 0);
+                if (count >= variantsPerChromosome) {
+                    continue;
+                }
+
+                if (runs != null && (run == null || run[0] != chromosome.chromosomeIndex)) {
+                    run = new int[]{chromosome.chromosomeIndex, sample.seek, sample.seek};
+                    runs.add(run);
+                }
+
+                if (formatVariant(lineCache, 0, sample.getCurrentVariant(), encodedCache.getCache(), this.genotypeQC, chromosome.chromosomeIndex)) {
+                    sample.seek++;
+                    counts.put(chromosome.chromosomeIndex, count + 1);
+                    if (run != null) {
+                        run[2] = sample.seek;
+                    }
+                }
+            }
+
+            lineCache.close();
+        }
+
+        return sample;
     }
 
     /**
      * 读取基因组文件
      */
     void processFileStream() {
+        // 当前处理的分块编号
+        int partIndex = -1;
+
         try {
-            Block<Boolean, FileStream> fileStreamBlock = this.uncompressedPipLine.get();
+            Block<Boolean, Pair<Integer, ILineReader>> fileStreamBlock = this.uncompressedPipLine.get();
             // 确认为需要处理的任务块，只有需要这么一些线程的时候，才会创建容器
             if (fileStreamBlock.getStatus()) {
                 // 创建本地 lineCache 缓冲区
@@ -247,7 +464,7 @@ class BuildKernel {
 
                 // 创建压缩上下文
                 ShareCache caches = new ShareCache(encodedCache, new VolumeByteStream((blockSize * Math.max(20, validSubjectNum)) >> 1));
-                GTBCompressionContext ctx = new GTBCompressionContext(this.task, this.validSubjectNum, caches);
+                GTBCompressionContext ctx = new GTBCompressionContext(this.task, this.validSubjectNum, caches, this.streamExecutor);
 
                 // 染色体信息
                 byte[] chromosomeInfo;
@@ -256,28 +473,31 @@ class BuildKernel {
                 UncompressedBlock uncompressedBlock = new UncompressedBlock(this.validSubjectNum, this.task, this.blockSize, encodedCache);
 
                 do {
-                    // 提取要处理的文件块
-                    FileStream fileReader = fileStreamBlock.getData();
+                    // 提取要处理的文件块，超前的分块过多时等待写出
+                    partIndex = fileStreamBlock.getData().key;
+                    ILineReader fileReader = fileStreamBlock.getData().value;
+                    beginPart(partIndex);
 
                     out:
                     while (true) {
                         // 缓冲区没有数据，并且到达了文件末尾
                         boolean continueSearch;
                         do {
-                            if ((localLineCache.size() == 0) && (fileReader.readLine(localLineCache) == -1)) {
+                            if ((localLineCache.size() == 0) && !fileReader.readLine(localLineCache)) {
                                 break out;
                             }
 
                             // 识别对应的染色体类型及编号
                             ChromosomeTag chromosome;
-                            int ind = localLineCache.indexOf(ByteCode.TAB) + 1;
-                            if (localLineCache.startWith(ByteCode.CHR_STRING)) {
+                            int lineStart = fileReader.lineStart();
+                            int ind = localLineCache.indexOf(ByteCode.TAB, lineStart) + 1;
+                            if (localLineCache.startWith(lineStart, ByteCode.CHR_STRING)) {
                                 // 从支持的染色体列表中获取数据
-                                chromosome = ChromosomeTags.get(localLineCache, 3, ind - 4);
+                                chromosome = ChromosomeTags.get(localLineCache, lineStart + 3, ind - lineStart - 4);
                             } else {
-                                chromosome = ChromosomeTags.get(localLineCache, 0, ind - 1);
+                                chromosome = ChromosomeTags.get(localLineCache, lineStart, ind - lineStart - 1);
                             }
-                            chromosomeInfo = localLineCache.cacheOf(0, ind);
+                            chromosomeInfo = localLineCache.cacheOf(lineStart, ind);
 
                             // 跳过该位点
                             if (chromosome == null) {
@@ -285,7 +505,7 @@ class BuildKernel {
                                 continueSearch = true;
                             } else {
                                 uncompressedBlock.chromosomeIndex = chromosome.chromosomeIndex;
-                                continueSearch = !formatVariant(localLineCache, uncompressedBlock.variants[uncompressedBlock.seek], encodedCache.getCache(), genotypeQC, uncompressedBlock.chromosomeIndex);
+                                continueSearch = !formatVariant(localLineCache, lineStart, uncompressedBlock.variants[uncompressedBlock.seek], encodedCache.getCache(), genotypeQC, uncompressedBlock.chromosomeIndex);
                             }
 
                         } while (continueSearch);
@@ -296,18 +516,18 @@ class BuildKernel {
                         // 当 block 未满时，进行填充 2-xxx 位点
                         while (uncompressedBlock.remaining() > 0) {
                             // 获取该行变异位点数据，读取到空行时，该文件结束，跳转至下一个文件
-                            if (fileReader.readLine(localLineCache) == -1) {
+                            if (!fileReader.readLine(localLineCache)) {
                                 // 已经到了文件最后，则处理完成后接受下一个文件任务
-                                processGTBBlock(ctx, uncompressedBlock);
+                                processGTBBlock(ctx, uncompressedBlock, partIndex);
                                 break out;
                             } else {
                                 // 相邻两行染色体不一致时，发送当前数据，并跳转至下一个块数据
-                                if (!localLineCache.startWith(chromosomeInfo)) {
-                                    processGTBBlock(ctx, uncompressedBlock);
+                                if (!localLineCache.startWith(fileReader.lineStart(), chromosomeInfo)) {
+                                    processGTBBlock(ctx, uncompressedBlock, partIndex);
                                     continue out;
                                 } else {
                                     // 进行质控
-                                    if (formatVariant(localLineCache, uncompressedBlock.variants[uncompressedBlock.seek], encodedCache.getCache(), genotypeQC, uncompressedBlock.chromosomeIndex)) {
+                                    if (formatVariant(localLineCache, fileReader.lineStart(), uncompressedBlock.variants[uncompressedBlock.seek], encodedCache.getCache(), genotypeQC, uncompressedBlock.chromosomeIndex)) {
                                         uncompressedBlock.seek++;
                                     }
                                 }
@@ -316,12 +536,14 @@ class BuildKernel {
 
                         // 完整地写入了一个块
                         if (!uncompressedBlock.empty()) {
-                            processGTBBlock(ctx, uncompressedBlock);
+                            processGTBBlock(ctx, uncompressedBlock, partIndex);
                         }
                     }
 
                     // 该文件已经被读取完毕
                     fileReader.close();
+                    finishPart(partIndex);
+                    partIndex = -1;
 
                     // 继续读取下一个文件任务
                     fileStreamBlock = this.uncompressedPipLine.get();
@@ -334,18 +556,25 @@ class BuildKernel {
 
         } catch (Exception e) {
             // e.printStackTrace();
+        } finally {
+            // 异常终止的分块也需要释放写出顺序，避免其他线程阻塞
+            if (partIndex != -1) {
+                finishPart(partIndex);
+            }
         }
     }
 
     /**
      * 编码基因型数据
      *
+     * @param lineCache 行缓冲区，当前行位于 [lineStart, lineCache.size()) 区间
+     * @param lineStart 当前行的起始位置
      * @param formatter 外部格式匹配器
      */
-    boolean formatVariant(final VolumeByteStream lineCache, final VariantAbstract variant, final byte[] encodedCache, final GenotypeQC formatter, final int chromosomeIndex) {
+    boolean formatVariant(final VolumeByteStream lineCache, final int lineStart, final VariantAbstract variant, final byte[] encodedCache, final GenotypeQC formatter, final int chromosomeIndex) {
         try {
             // 提取质控字段
-            int posStart = lineCache.indexOf(ByteCode.TAB, 1) + 1;
+            int posStart = lineCache.indexOf(ByteCode.TAB, lineStart + 1) + 1;
             int posEnd = lineCache.indexOf(ByteCode.TAB, posStart + 1);
             int altStart = lineCache.indexOf(ByteCode.TAB, posEnd + 2) + 1;
             int refStart = lineCache.indexOf(ByteCode.TAB, altStart + 1) + 1;
@@ -381,75 +610,9 @@ class BuildKernel {
 
                 /* 根据是否仅有 GT，决定是否需要进行过滤 */
                 if (indexes == null) {
-                    int length;
-                    int seek = genotypeStart;
-
-                    for (int i = 0; i < this.validSubjectNum - 1; i++) {
-                        length = 1;
-                        seek += 2;
-
-                        while (lineCache.cacheOf(seek) != ByteCode.TAB) {
-                            seek++;
-                            length++;
-                        }
-
-                        encodedCache[variant.encodedStart + i] = this.begEncoder.encode(lineCache.getCache(), seek, length);
-                    }
-
-                    length = lineCache.size() - seek - 1;
-                    seek = lineCache.size();
-                    encodedCache[variant.encodedStart + this.validSubjectNum - 1] = this.begEncoder.encode(lineCache.getCache(), seek, length);
+                    encodeGenotypes(lineCache, genotypeStart, encodedCache, variant.encodedStart, this.subjectColumns, this.validSubjectNum);
                 } else {
-                    int length, mark, genotypeLength;
-                    int seek = genotypeStart;
-
-                    for (int i = 0; i < this.validSubjectNum - 1; i++) {
-                        length = 1;
-                        seek += 2;
-
-                        // 当前基因型是否为 .
-                        if (lineCache.cacheOf(seek - length) == ByteCode.PERIOD) {
-                            encodedCache[variant.encodedStart + i] = this.begEncoder.encodeMiss();
-                            seek = lineCache.indexOf(ByteCode.TAB, seek);
-                        } else {
-                            // 检测 :
-                            while (lineCache.cacheOf(seek) != ByteCode.COLON) {
-                                seek++;
-                                length++;
-                            }
-
-                            mark = seek;
-                            genotypeLength = length;
-
-                            // 检测 tab 分隔符
-                            while (lineCache.cacheOf(seek) != ByteCode.TAB) {
-                                seek++;
-                                length++;
-                            }
-
-                            encodedCache[variant.encodedStart + i] = this.begEncoder.encode(formatter.filter(lineCache, seek, length, indexes), lineCache.getCache(), mark, genotypeLength);
-                        }
-                    }
-
-                    // 最后一个基因型数据
-                    genotypeLength = 1;
-                    mark = seek + 2;
-
-                    // 当前基因型是否为 .
-                    if (lineCache.cacheOf(mark - genotypeLength) == ByteCode.PERIOD) {
-                        encodedCache[variant.encodedStart + this.validSubjectNum - 1] = this.begEncoder.encodeMiss();
-                    } else {
-                        length = lineCache.size() - seek - 1;
-                        seek = lineCache.size();
-
-                        // 检测 :
-                        while (lineCache.cacheOf(mark) != ByteCode.COLON) {
-                            mark++;
-                            genotypeLength++;
-                        }
-
-                        encodedCache[variant.encodedStart + this.validSubjectNum - 1] = this.begEncoder.encode(formatter.filter(lineCache, seek, length, indexes), lineCache.getCache(), mark, genotypeLength);
-                    }
+                    encodeGenotypes(lineCache, genotypeStart, encodedCache, variant.encodedStart, formatter, indexes, this.subjectColumns, this.validSubjectNum);
                 }
             }
 
@@ -499,17 +662,153 @@ class BuildKernel {
 
 
     /**
-     * 处理 基因组 block
+     * 编码仅含有 GT 字段的基因型数据，按字 (8 字节) 扫描 TAB 分隔符，一次遍历得到所有基因型的边界
+     *
+     * @param genotypeStart   第一个基因型之前的 TAB 分隔符位置
+     * @param relativeIndexes 编码的索引顺序，为 null 时按样本顺序编码
+     * @param subjectNum      该行的基因型个数
+     */
+    void encodeGenotypes(final VolumeByteStream lineCache, final int genotypeStart, final byte[] encodedCache, final int encodedStart, final int[] relativeIndexes, final int subjectNum) {
+        byte[] cache = lineCache.getCache();
+        ByteBuffer words = ByteScanner.wrap(cache);
+        int end = lineCache.size();
+        int last = subjectNum - 1;
+        int index = 0;
+        int tokenStart = genotypeStart + 1;
+
+        for (int word = tokenStart; index < last && word + 8 <= end; word += 8) {
+            long tabs = ByteScanner.match(ByteScanner.getLong(words, word), ByteScanner.TAB);
+
+            // 逐个取出该字中的 TAB 分隔符
+            while (tabs != 0 && index < last) {
+                int seek = word + ByteScanner.offsetOf(tabs);
+                encodedCache[encodedStart + (relativeIndexes == null ? index : relativeIndexes[index])] = this.begEncoder.encode(cache, seek, seek - tokenStart);
+                tokenStart = seek + 1;
+                index++;
+                tabs &= tabs - 1;
+            }
+        }
+
+        // 剩余不足 8 字节的数据
+        for (int seek = tokenStart; index < last; seek++) {
+            Assert.that(seek < end, GBCExceptionOptions.FileFormatException, "the number of genotypes does not match the number of subjects");
+
+            if (cache[seek] == ByteCode.TAB) {
+                encodedCache[encodedStart + (relativeIndexes == null ? index : relativeIndexes[index])] = this.begEncoder.encode(cache, seek, seek - tokenStart);
+                tokenStart = seek + 1;
+                index++;
+            }
+        }
+
+        // 最后一个基因型数据
+        encodedCache[encodedStart + (relativeIndexes == null ? last : relativeIndexes[last])] = this.begEncoder.encode(cache, end, end - tokenStart);
+    }
+
+    /**
+     * 编码含有其他 FORMAT 字段的基因型数据，按字 (8 字节) 同时扫描 TAB 和 COLON 分隔符，一次遍历得到所有基因型及其 GT 字段的边界
+     *
+     * @param genotypeStart   第一个基因型之前的 TAB 分隔符位置
+     * @param formatter       外部格式匹配器
+     * @param indexes         格式匹配器的字段索引
+     * @param relativeIndexes 编码的索引顺序，为 null 时按样本顺序编码
+     * @param subjectNum      该行的基因型个数
+     */
+    void encodeGenotypes(final VolumeByteStream lineCache, final int genotypeStart, final byte[] encodedCache, final int encodedStart, final GenotypeQC formatter, final int[] indexes, final int[] relativeIndexes, final int subjectNum) {
+        byte[] cache = lineCache.getCache();
+        ByteBuffer words = ByteScanner.wrap(cache);
+        int end = lineCache.size();
+        int last = subjectNum - 1;
+        int index = 0;
+        int tokenStart = genotypeStart + 1;
+
+        // 当前基因型中第一个 : 的位置
+        int mark = -1;
+
+        for (int word = tokenStart; index < last && word + 8 <= end; word += 8) {
+            long value = ByteScanner.getLong(words, word);
+            long tabs = ByteScanner.match(value, ByteScanner.TAB);
+            long delimiters = tabs | ByteScanner.match(value, ByteScanner.COLON);
+
+            // 按顺序取出该字中的分隔符
+            while (delimiters != 0 && index < last) {
+                long bit = delimiters & -delimiters;
+                int seek = word + ByteScanner.offsetOf(bit);
+
+                if ((tabs & bit) == 0) {
+                    if (mark == -1) {
+                        mark = seek;
+                    }
+                } else {
+                    encodedCache[encodedStart + (relativeIndexes == null ? index : relativeIndexes[index])] = encodeGenotype(lineCache, tokenStart, mark, seek, formatter, indexes);
+                    tokenStart = seek + 1;
+                    mark = -1;
+                    index++;
+                }
+
+                delimiters ^= bit;
+            }
+        }
+
+        // 剩余不足 8 字节的数据
+        for (int seek = tokenStart; index < last; seek++) {
+            Assert.that(seek < end, GBCExceptionOptions.FileFormatException, "the number of genotypes does not match the number of subjects");
+
+            if (cache[seek] == ByteCode.COLON) {
+                if (mark == -1) {
+                    mark = seek;
+                }
+            } else if (cache[seek] == ByteCode.TAB) {
+                encodedCache[encodedStart + (relativeIndexes == null ? index : relativeIndexes[index])] = encodeGenotype(lineCache, tokenStart, mark, seek, formatter, indexes);
+                tokenStart = seek + 1;
+                mark = -1;
+                index++;
+            }
+        }
+
+        // 最后一个基因型数据
+        encodedCache[encodedStart + (relativeIndexes == null ? last : relativeIndexes[last])] = encodeGenotype(lineCache, tokenStart, lineCache.indexOf(ByteCode.COLON, tokenStart, end), end, formatter, indexes);
+    }
+
+    /**
+     * 编码单个含有其他 FORMAT 字段的基因型
+     *
+     * @param tokenStart 基因型的起始位置
+     * @param mark       GT 字段之后的 : 位置，-1 表示该基因型只有 GT 字段
+     * @param tokenEnd   基因型的终止位置 (TAB 分隔符或行尾)
+     */
+    byte encodeGenotype(final VolumeByteStream lineCache, final int tokenStart, int mark, final int tokenEnd, final GenotypeQC formatter, final int[] indexes) {
+        // 当前基因型是否为 .
+        if (lineCache.cacheOf(tokenStart) == ByteCode.PERIOD) {
+            return this.begEncoder.encodeMiss();
+        }
+
+        if (mark == -1) {
+            mark = tokenEnd;
+        }
+
+        return this.begEncoder.encode(formatter.filter(lineCache, tokenEnd, tokenEnd - tokenStart, indexes), lineCache.getCache(), mark, mark - tokenStart);
+    }
+
+    /**
+     * 有序处理 基因组 block，非当前写出分块的数据暂存在重排缓冲区中
+     *
+     * @param partIndex 数据块所在的分块编号
      */
-    void processGTBBlock(GTBCompressionContext ctx, UncompressedBlock uncompressedBlock) throws IOException {
+    void processGTBBlock(GTBCompressionContext ctx, UncompressedBlock uncompressedBlock, int partIndex) throws IOException {
         // 绑定 inputBlock 数据
         Pair<GTBNode, VolumeByteStream> processedBlock = ctx.process(uncompressedBlock);
         int estimateSize = processedBlock.key.getEstimateDecompressedSize(validSubjectNum);
 
         // 写入数据和节点信息
         synchronized (this.GTBNodeCache) {
-            this.outputFile.write(processedBlock.value);
-            this.GTBNodeCache.add(processedBlock.key);
+            if (partIndex == this.committingPart) {
+                this.outputFile.write(processedBlock.value);
+                this.GTBNodeCache.add(processedBlock.key);
+            } else {
+                PartBuffer buffer = this.reorderBuffer[partIndex % this.reorderBuffer.length];
+                buffer.data.writeSafety(processedBlock.value.getCache(), 0, processedBlock.value.size());
+                buffer.nodes.add(processedBlock.key);
+            }
 
             if (estimateSize > maxEstimateSize) {
                 maxEstimateSize = estimateSize;
@@ -520,14 +819,58 @@ class BuildKernel {
         uncompressedBlock.reset();
     }
 
+    /**
+     * 开始处理分块，分块超前当前写出的分块过多时等待，以限制重排缓冲区的大小
+     *
+     * @param partIndex 分块编号
+     */
+    void beginPart(int partIndex) throws InterruptedException {
+        synchronized (this.GTBNodeCache) {
+            while (partIndex - this.committingPart >= this.reorderBuffer.length) {
+                this.GTBNodeCache.wait();
+            }
+        }
+    }
+
+    /**
+     * 标记分块处理完毕，并依次写出已经处理完毕的后续分块
+     *
+     * @param partIndex 分块编号
+     */
+    void finishPart(int partIndex) {
+        synchronized (this.GTBNodeCache) {
+            this.reorderBuffer[partIndex % this.reorderBuffer.length].finished = true;
+
+            try {
+                while (this.reorderBuffer[this.committingPart % this.reorderBuffer.length].finished) {
+                    this.reorderBuffer[this.committingPart % this.reorderBuffer.length].reset();
+                    this.committingPart++;
+
+                    // 写出新的当前分块中已经缓冲的数据
+                    PartBuffer buffer = this.reorderBuffer[this.committingPart % this.reorderBuffer.length];
+                    if (buffer.nodes.size() > 0) {
+                        this.outputFile.write(buffer.data);
+                        this.GTBNodeCache.addAll(buffer.nodes);
+                        buffer.data.reset();
+                        buffer.nodes.clear();
+                    }
+                }
+            } catch (IOException e) {
+                throw new UnsupportedOperationException(e.getMessage());
+            } finally {
+                this.GTBNodeCache.notifyAll();
+            }
+        }
+    }
+
     /**
      * 生成最终的 GTB 文件
      */
     void generateGTBFile() throws IOException {
         // 写入块头信息
-        VolumeByteStream headerInfo = new VolumeByteStream(this.GTBNodeCache.size() * 25);
+        VolumeByteStream headerInfo = new VolumeByteStream(this.GTBNodeCache.size() * GTBChecksum.getNodeInfoSize(this.task.isChecksum()));
         for (GTBNode node : this.GTBNodeCache) {
-            node.toTransFormat(headerInfo);
+            node.toTransFormat(headerInfo, this.task.isChecksum());
         }
 
         this.outputFile.write(headerInfo);
@@ -541,6 +884,21 @@ class BuildKernel {
         this.outputFile.write(ValueUtils.value2ByteArray(this.GTBNodeCache.size(), 3));
         this.outputFile.close();
     }
+
+    /**
+     * 分块重排缓冲区的单元，保存某个分块已压缩但尚未写出的数据
+     */
+    static class PartBuffer {
+        final VolumeByteStream data = new VolumeByteStream();
+        final Array<GTBNode> nodes = new Array<>();
+        boolean finished;
+
+        void reset() {
+            this.data.reset();
+            this.nodes.clear();
+            this.finished = false;
+        }
+    }
 }
 
 
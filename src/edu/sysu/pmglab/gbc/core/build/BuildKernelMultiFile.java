@@ -5,7 +5,6 @@ import edu.sysu.pmglab.gbc.constant.ChromosomeTags;
 import edu.sysu.pmglab.gbc.core.common.block.VariantAbstract;
 import edu.sysu.pmglab.gbc.core.common.qualitycontrol.genotype.GenotypeQC;
 import edu.sysu.pmglab.check.Assert;
-import edu.sysu.pmglab.compressor.ICompressor;
 import edu.sysu.pmglab.container.Pair;
 import edu.sysu.pmglab.container.VolumeByteStream;
 import edu.sysu.pmglab.container.ShareCache;
@@ -14,6 +13,9 @@ import edu.sysu.pmglab.easytools.ByteCode;
 import edu.sysu.pmglab.easytools.ValueUtils;
 import edu.sysu.pmglab.gbc.core.exception.FileFormatException;
 import edu.sysu.pmglab.gbc.core.exception.GBCExceptionOptions;
+import edu.sysu.pmglab.gbc.core.gtbcomponent.GTBCompressor;
+import edu.sysu.pmglab.gbc.core.gtbcomponent.GTBConstant;
+import edu.sysu.pmglab.gbc.core.gtbcomponent.GTBNode;
 import edu.sysu.pmglab.threadPool.Block;
 import edu.sysu.pmglab.threadPool.DynamicPipeline;
 import edu.sysu.pmglab.threadPool.ThreadPool;
@@ -206,8 +208,8 @@ class BuildKernelMultiFile extends BuildKernel {
         this.outputFile.write(ByteCode.NEWLINE);
 
         // 写入样本名
-        VolumeByteStream subjectSeq = ICompressor.compress(task.getCompressor(), task.getCompressionLevel(), subjectsManagers[mainSubjectManagerIndex].subjects, 0, subjectsManagers[mainSubjectManagerIndex].subjects.length);
-        this.outputFile.writeIntegerValue(subjectSeq.size());
+        VolumeByteStream subjectSeq = GTBCompressor.compress(task.getCompressor(), task.getCompressionLevel(), subjectsManagers[mainSubjectManagerIndex].subjects, 0, subjectsManagers[mainSubjectManagerIndex].subjects.length);
+        this.outputFile.writeIntegerValue(GTBConstant.toSubjectsSizeField(subjectSeq.size(), false, task.isChecksum(), false));
         this.outputFile.write(subjectSeq);
 
         // 返回相对索引表
@@ -231,7 +233,7 @@ class BuildKernelMultiFile extends BuildKernel {
 
                 // 创建压缩上下文
                 ShareCache caches = new ShareCache(encodedCache, new VolumeByteStream((blockSize * Math.max(20, validSubjectNum)) >> 1));
-                GTBCompressionContext ctx = new GTBCompressionContext(this.task, this.validSubjectNum, caches);
+                GTBCompressionContext ctx = new GTBCompressionContext(this.task, this.validSubjectNum, caches, this.streamExecutor);
 
                 // 染色体信息
                 byte[] chromosomeInfo;
@@ -321,6 +323,28 @@ class BuildKernelMultiFile extends BuildKernel {
         }
     }
 
+    /**
+     * 处理 基因组 block，多文件构建时块按完成顺序写出
+     */
+    void processGTBBlock(GTBCompressionContext ctx, UncompressedBlock uncompressedBlock) throws IOException {
+        // 绑定 inputBlock 数据
+        Pair<GTBNode, VolumeByteStream> processedBlock = ctx.process(uncompressedBlock);
+        int estimateSize = processedBlock.key.getEstimateDecompressedSize(validSubjectNum);
+
+        // 写入数据和节点信息
+        synchronized (this.GTBNodeCache) {
+            this.outputFile.write(processedBlock.value);
+            this.GTBNodeCache.add(processedBlock.key);
+
+            if (estimateSize > maxEstimateSize) {
+                maxEstimateSize = estimateSize;
+            }
+        }
+
+        processedBlock.value.reset();
+        uncompressedBlock.reset();
+    }
+
     /**
      * 编码基因型数据
      * @param formatter 外部格式匹配器
@@ -371,80 +395,9 @@ class BuildKernelMultiFile extends BuildKernel {
 
                 /* 根据是否仅有 GT，决定是否需要进行过滤 */
                 if (indexes == null) {
-                    int length;
-                    int seek = genotypeStart;
-                    int subjectIndex;
-
-                    for (int i = 0; i < relativeIndexes.length - 1; i++) {
-                        length = 1;
-                        seek += 2;
-                        subjectIndex = relativeIndexes[i];
-
-                        while (lineCache.cacheOf(seek) != ByteCode.TAB) {
-                            seek++;
-                            length++;
-                        }
-
-                        encodedCache[variant.encodedStart + subjectIndex] = this.begEncoder.encode(lineCache.getCache(), seek, length);
-                    }
-
-                    length = lineCache.size() - seek - 1;
-                    seek = lineCache.size();
-                    encodedCache[variant.encodedStart + relativeIndexes[relativeIndexes.length - 1]] = this.begEncoder.encode(lineCache.getCache(), seek, length);
+                    encodeGenotypes(lineCache, genotypeStart, encodedCache, variant.encodedStart, relativeIndexes, relativeIndexes.length);
                 } else {
-                    int length, mark, genotypeLength;
-                    int seek = genotypeStart;
-                    int subjectIndex;
-                    for (int i = 0; i < relativeIndexes.length - 1; i++) {
-                        length = 1;
-                        seek += 2;
-                        subjectIndex = relativeIndexes[i];
-
-                        // 当前基因型是否为 .
-                        if (lineCache.cacheOf(seek - length) == ByteCode.PERIOD) {
-                            encodedCache[variant.encodedStart + subjectIndex] = this.begEncoder.encodeMiss();
-                            seek = lineCache.indexOf(ByteCode.TAB, seek);
-                        } else {
-                            // 检测 :
-                            while (lineCache.cacheOf(seek) != ByteCode.COLON) {
-                                seek++;
-                                length++;
-                            }
-
-                            mark = seek;
-                            genotypeLength = length;
-                            // 检测 tab 分隔符
-                            while (lineCache.cacheOf(seek) != ByteCode.TAB) {
-                                seek++;
-                                length++;
-                            }
-
-                            encodedCache[variant.encodedStart + subjectIndex] = this.begEncoder.encode(formatter.filter(lineCache, seek, length, indexes), lineCache.getCache(), mark, genotypeLength);
-                        }
-                    }
-
-                    // 最后一个基因型数据
-                    genotypeLength = 1;
-                    mark = seek + 2;
-
-                    // 获取样本索引
-                    subjectIndex = relativeIndexes[relativeIndexes.length - 1];
-
-                    // 当前基因型是否为 .
-                    if (lineCache.cacheOf(mark - genotypeLength) == ByteCode.PERIOD) {
-                        encodedCache[variant.encodedStart + subjectIndex] = this.begEncoder.encodeMiss();
-                    } else {
-                        length = lineCache.size() - seek - 1;
-                        seek = lineCache.size();
-
-                        // 检测 :
-                        while (lineCache.cacheOf(mark) != ByteCode.COLON) {
-                            mark++;
-                            genotypeLength++;
-                        }
-
-                        encodedCache[variant.encodedStart + subjectIndex] = this.begEncoder.encode(formatter.filter(lineCache, seek, length, indexes), lineCache.getCache(), mark, genotypeLength);
-                    }
+                    encodeGenotypes(lineCache, genotypeStart, encodedCache, variant.encodedStart, formatter, indexes, relativeIndexes, relativeIndexes.length);
                 }
             }
 
@@ -0,0 +1,404 @@
+package edu.sysu.pmglab.gbc.core.build;
+
+import edu.sysu.pmglab.container.Pair;
+import edu.sysu.pmglab.container.ShareCache;
+import edu.sysu.pmglab.container.VolumeByteStream;
+import edu.sysu.pmglab.easytools.ByteCode;
+import edu.sysu.pmglab.gbc.constant.ChromosomeTag;
+import edu.sysu.pmglab.gbc.constant.ChromosomeTags;
+import edu.sysu.pmglab.gbc.core.gtbcomponent.GTBNode;
+import edu.sysu.pmglab.threadPool.Block;
+import edu.sysu.pmglab.threadPool.DynamicPipeline;
+import edu.sysu.pmglab.threadPool.ThreadPool;
+import edu.sysu.pmglab.unifyIO.partreader.IPartReader;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @Data        :2022/03/09
+ * @Author      :suranyi
+ * @Contact     :suranyi.sysu@gamil.com
+ * @Description :分阶段的 Build 核心任务: 解析 (文本切分、BEG 编码) -> 压缩 (重排列、MBEG 编码、压缩) -> 按输入顺序写出
+ */
+
+class BuildKernelPipeline extends BuildKernel {
+    /**
+     * 各阶段之间的有界数据管道，数据块在其中循环使用: 空闲 -> 解析 -> 压缩 -> 写出 -> 空闲
+     */
+    DynamicPipeline<Boolean, BuildSlot> idlePipeline;
+    DynamicPipeline<Boolean, BuildSlot> compressPipeline;
+    DynamicPipeline<Boolean, BuildSlot> writePipeline;
+
+    /**
+     * 输入行读取器，解析线程互斥地从中读取数据块
+     */
+    ILineReader lineReader;
+    VolumeByteStream readerCache;
+    boolean pending;
+    int sequence;
+
+    /**
+     * 首个异常，出现异常后停止读取
+     */
+    volatile Throwable error;
+
+    /**
+     * 解析线程数，以及是否已向空闲管道发送关闭信号 (某个阶段的线程异常终止时，其持有的数据块不再回收，需要唤醒等待空闲数据块的解析线程)
+     */
+    int parseThreads;
+    AtomicBoolean poisoned;
+
+    /**
+     * 对外的提交方法，将任务提交至本类，进行压缩任务
+     */
+    static void submit(final BuildTask task) throws IOException {
+        new BuildKernelPipeline(task);
+    }
+
+    /**
+     * 标准构造器，传入 BuildTask，根据该提交任务执行工作
+     *
+     * @param task 待执行任务
+     */
+    BuildKernelPipeline(final BuildTask task) throws IOException {
+        super(task);
+    }
+
+    @Override
+    void startWork() throws IOException {
+        // 未指定流水线线程数时 (如流式读取标准输入)，各阶段均使用 -t 的线程数
+        int parseThreads = this.task.isStagedPipeline() ? this.task.getParseThreads() : this.task.getThreads();
+        this.parseThreads = parseThreads;
+        this.poisoned = new AtomicBoolean(false);
+        int compressThreads = this.task.isStagedPipeline() ? this.task.getCompressThreads() : this.task.getThreads();
+
+        // 创建分块读取器，只按输入顺序读取一个分块
+        IPartReader partReader = openPartReader(this.task.getInputFileName(0));
+
+        // 检验 VCF 文件的样本名序列是否合法
+        checkVcfSubject(partReader);
+
+        if (partReader instanceof MappedVCFPartReader) {
+            MappedVCFPartReader.MappedPart[] parts = ((MappedVCFPartReader) partReader).partition(1);
+            this.lineReader = parts.length == 0 ? null : parts[0];
+        } else {
+            this.lineReader = ILineReader.of(partReader.part(1)[0]);
+        }
+        this.readerCache = new VolumeByteStream(2 << 20);
+
+        // 数据块个数决定了同时处理的数据量，每个线程持有一个数据块，另外预留写出与排队的数据块
+        int slotNum = parseThreads + compressThreads + 2;
+
+        // 管道容量为数据块个数与关闭信号个数之和，发送关闭信号时不会阻塞
+        int capacity = slotNum + parseThreads + compressThreads + 1;
+        this.idlePipeline = new DynamicPipeline<>(capacity);
+        this.compressPipeline = new DynamicPipeline<>(capacity);
+        this.writePipeline = new DynamicPipeline<>(capacity);
+        try {
+            for (int i = 0; i < slotNum; i++) {
+                this.idlePipeline.put(true, new BuildSlot(this.validSubjectNum, this.task, this.blockSize));
+            }
+        } catch (InterruptedException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+
+        // 创建线程池
+        ThreadPool threadPool = new ThreadPool(parseThreads + compressThreads + 1);
+        AtomicInteger activeParseThreads = new AtomicInteger(parseThreads);
+        AtomicInteger activeCompressThreads = new AtomicInteger(compressThreads);
+
+        threadPool.submit(() -> {
+            try {
+                parse();
+            } catch (Throwable e) {
+                fail(e);
+            } finally {
+                // 最后一个解析线程发送关闭信号
+                if (activeParseThreads.decrementAndGet() == 0) {
+                    putStatus(this.compressPipeline, compressThreads);
+                }
+            }
+        }, parseThreads);
+
+        threadPool.submit(() -> {
+            try {
+                compress();
+            } catch (Throwable e) {
+                fail(e);
+            } finally {
+                if (activeCompressThreads.decrementAndGet() == 0) {
+                    putStatus(this.writePipeline, 1);
+                }
+            }
+        }, compressThreads);
+
+        threadPool.submit(() -> {
+            try {
+                write(slotNum);
+            } catch (Throwable e) {
+                // 写出线程终止后数据块不再回收，唤醒等待空闲数据块的解析线程
+                fail(e);
+            }
+        });
+
+        // 关闭线程池，等待任务完成
+        threadPool.close();
+
+        if (this.lineReader != null) {
+            this.lineReader.close();
+        }
+
+        if (partReader instanceof MappedVCFPartReader) {
+            ((MappedVCFPartReader) partReader).close();
+        }
+
+        this.idlePipeline.clear();
+        this.compressPipeline.clear();
+        this.writePipeline.clear();
+        this.readerCache.close();
+
+        if (this.error instanceof Error) {
+            throw (Error) this.error;
+        }
+
+        if (this.error != null) {
+            throw new IOException(this.error.getMessage(), this.error);
+        }
+    }
+
+    /**
+     * 解析阶段: 读取数据行并编码为 BEG 块
+     */
+    void parse() throws Exception {
+        VolumeByteStream lineCache = new VolumeByteStream();
+
+        Block<Boolean, BuildSlot> slotBlock;
+        while ((slotBlock = this.idlePipeline.get()).getStatus()) {
+            BuildSlot slot = slotBlock.getData();
+
+            if (!read(slot)) {
+                this.idlePipeline.put(true, slot);
+                break;
+            }
+
+            try {
+                UncompressedBlock block = slot.block;
+                block.chromosomeIndex = slot.chromosomeIndex;
+                for (int i = 0; i < slot.lineNum; i++) {
+                    lineCache.wrap(slot.lines.getCache(), slot.lineEnds[i]);
+                    if (formatVariant(lineCache, slot.lineStarts[i], block.variants[block.seek], block.encodedCache.getCache(), this.genotypeQC, block.chromosomeIndex)) {
+                        block.seek++;
+                    }
+                }
+            } catch (Exception e) {
+                // 保留序列号，使写出线程能够继续推进
+                slot.block.reset();
+                setError(e);
+            }
+
+            this.compressPipeline.put(true, slot);
+        }
+    }
+
+    /**
+     * 从输入中读取下一个数据块 (同一个染色体上的至多 blockSize 行)，并分配序列号
+     *
+     * @param slot 空闲的数据块
+     * @return 输入已经读取完毕时返回 false
+     */
+    synchronized boolean read(BuildSlot slot) throws IOException {
+        if (this.lineReader == null || this.error != null) {
+            return false;
+        }
+
+        // 染色体信息
+        byte[] chromosomeInfo = null;
+
+        while (slot.lineNum < this.blockSize) {
+            if (!this.pending) {
+                this.readerCache.reset();
+                if (!this.lineReader.readLine(this.readerCache)) {
+                    this.lineReader.close();
+                    this.lineReader = null;
+                    break;
+                }
+            }
+            this.pending = false;
+            int lineStart = this.lineReader.lineStart();
+
+            if (slot.lineNum == 0) {
+                // 识别对应的染色体类型及编号
+                ChromosomeTag chromosome;
+                int ind = this.readerCache.indexOf(ByteCode.TAB, lineStart) + 1;
+                if (this.readerCache.startWith(lineStart, ByteCode.CHR_STRING)) {
+                    chromosome = ChromosomeTags.get(this.readerCache, lineStart + 3, ind - lineStart - 4);
+                } else {
+                    chromosome = ChromosomeTags.get(this.readerCache, lineStart, ind - lineStart - 1);
+                }
+
+                // 跳过该位点
+                if (chromosome == null) {
+                    continue;
+                }
+
+                slot.chromosomeIndex = chromosome.chromosomeIndex;
+                chromosomeInfo = this.readerCache.cacheOf(lineStart, ind);
+            } else if (!this.readerCache.startWith(lineStart, chromosomeInfo)) {
+                // 相邻两行染色体不一致时，该行留给下一个数据块
+                this.pending = true;
+                break;
+            }
+
+            slot.addLine(this.readerCache.getCache(), lineStart, this.readerCache.size());
+        }
+
+        if (slot.lineNum == 0) {
+            return false;
+        }
+
+        slot.sequence = this.sequence++;
+        return true;
+    }
+
+    /**
+     * 压缩阶段: 重排列、MBEG 编码并压缩数据块
+     */
+    void compress() throws Exception {
+        VolumeByteStream compressorCache = new VolumeByteStream(this.validSubjectNum * this.blockSize);
+        ShareCache caches = new ShareCache(compressorCache, new VolumeByteStream((this.blockSize * Math.max(20, this.validSubjectNum)) >> 1));
+        GTBCompressionContext ctx = new GTBCompressionContext(this.task, this.validSubjectNum, caches, this.streamExecutor);
+
+        try {
+            Block<Boolean, BuildSlot> slotBlock;
+            while ((slotBlock = this.compressPipeline.get()).getStatus()) {
+                BuildSlot slot = slotBlock.getData();
+
+                try {
+                    if (!slot.block.empty()) {
+                        Pair<GTBNode, VolumeByteStream> processedBlock = ctx.process(slot.block);
+                        slot.node = processedBlock.key;
+                        slot.compressedCache.writeSafety(processedBlock.value);
+                        processedBlock.value.reset();
+                    }
+                } catch (Exception e) {
+                    slot.node = null;
+                    setError(e);
+                }
+
+                this.writePipeline.put(true, slot);
+            }
+        } finally {
+            ctx.close();
+            caches.freeMemory();
+        }
+    }
+
+    /**
+     * 写出阶段: 按序列号的顺序写出压缩块，乱序到达的块暂存在重排缓冲区中
+     *
+     * @param slotNum 数据块个数，同时在处理的序列号不会超过该值
+     */
+    void write(int slotNum) throws Exception {
+        BuildSlot[] reorderBuffer = new BuildSlot[slotNum];
+        int nextSequence = 0;
+
+        Block<Boolean, BuildSlot> slotBlock;
+        while ((slotBlock = this.writePipeline.get()).getStatus()) {
+            BuildSlot slot = slotBlock.getData();
+            reorderBuffer[slot.sequence % slotNum] = slot;
+
+            while ((slot = reorderBuffer[nextSequence % slotNum]) != null && slot.sequence == nextSequence) {
+                reorderBuffer[nextSequence % slotNum] = null;
+
+                if (slot.node != null) {
+                    try {
+                        this.outputFile.write(slot.compressedCache);
+                        this.GTBNodeCache.add(slot.node);
+                        this.maxEstimateSize = Math.max(this.maxEstimateSize, slot.node.getEstimateDecompressedSize(this.validSubjectNum));
+                    } catch (IOException e) {
+                        // 继续回收数据块，避免其他阶段阻塞
+                        setError(e);
+                    }
+                }
+
+                slot.reset();
+                this.idlePipeline.put(true, slot);
+                nextSequence++;
+            }
+        }
+    }
+
+    /**
+     * 记录首个异常
+     */
+    synchronized void setError(Throwable e) {
+        if (this.error == null) {
+            this.error = e;
+        }
+    }
+
+    /**
+     * 某个阶段的线程异常终止: 记录异常，并向空闲管道发送关闭信号 (只发送一次)，使等待空闲数据块的解析线程退出
+     */
+    void fail(Throwable e) {
+        setError(e);
+
+        if (this.poisoned.compareAndSet(false, true)) {
+            putStatus(this.idlePipeline, this.parseThreads);
+        }
+    }
+
+    void putStatus(DynamicPipeline<Boolean, BuildSlot> pipeline, int num) {
+        try {
+            pipeline.putStatus(num, false);
+        } catch (InterruptedException e) {
+            setError(e);
+        }
+    }
+
+    /**
+     * 在各阶段之间循环使用的数据块，包含原始文本行、BEG 编码块与压缩结果
+     */
+    static class BuildSlot {
+        int sequence;
+        int chromosomeIndex;
+
+        /**
+         * 原始文本行，第 i 行位于 lines[lineStarts[i], lineEnds[i])
+         */
+        final VolumeByteStream lines = new VolumeByteStream(2 << 20);
+        final int[] lineStarts;
+        final int[] lineEnds;
+        int lineNum;
+
+        /**
+         * BEG 编码块与压缩结果
+         */
+        final UncompressedBlock block;
+        final VolumeByteStream compressedCache = new VolumeByteStream();
+        GTBNode node;
+
+        BuildSlot(int validSubjectNum, IBuildTask task, int blockSize) {
+            this.lineStarts = new int[blockSize];
+            this.lineEnds = new int[blockSize];
+            this.block = new UncompressedBlock(validSubjectNum, task, blockSize, new VolumeByteStream(validSubjectNum * blockSize));
+        }
+
+        void addLine(byte[] src, int offset, int end) {
+            this.lineStarts[this.lineNum] = this.lines.size();
+            this.lines.writeSafety(src, offset, end - offset);
+            this.lineEnds[this.lineNum] = this.lines.size();
+            this.lineNum++;
+        }
+
+        void reset() {
+            this.lines.reset();
+            this.lineNum = 0;
+            this.block.reset();
+            this.compressedCache.reset();
+            this.node = null;
+        }
+    }
+}
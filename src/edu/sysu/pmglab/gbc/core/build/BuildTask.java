@@ -2,7 +2,6 @@ package edu.sysu.pmglab.gbc.core.build;
 
 import edu.sysu.pmglab.check.Assert;
 import edu.sysu.pmglab.check.ioexception.IOExceptionOptions;
-import edu.sysu.pmglab.compressor.ICompressor;
 import edu.sysu.pmglab.container.array.StringArray;
 import edu.sysu.pmglab.easytools.ArrayUtils;
 import edu.sysu.pmglab.easytools.FileUtils;
@@ -11,6 +10,7 @@ import edu.sysu.pmglab.gbc.core.common.qualitycontrol.genotype.GenotypeGQControl
 import edu.sysu.pmglab.gbc.core.common.qualitycontrol.genotype.GenotypeQC;
 import edu.sysu.pmglab.gbc.core.common.qualitycontrol.genotype.IGenotypeQC;
 import edu.sysu.pmglab.gbc.core.common.qualitycontrol.variant.*;
+import edu.sysu.pmglab.gbc.core.gtbcomponent.GTBCompressor;
 
 import java.io.IOException;
 
@@ -22,6 +22,16 @@ import java.io.IOException;
  */
 
 public class BuildTask extends IBuildTask {
+    /**
+     * 表示从标准输入流式读取 VCF 数据的输入文件名
+     */
+    public static final String STANDARD_INPUT = "-";
+
+    /**
+     * 试压缩时每个染色体的默认抽样位点数
+     */
+    public static final int DEFAULT_TUNE_VARIANTS = 10000;
+
     final StringArray inputFileNames;
 
     /**
@@ -29,6 +39,25 @@ public class BuildTask extends IBuildTask {
      */
     GenotypeQC genotypeQC = new GenotypeQC();
 
+    /**
+     * 使用内存映射读取未压缩的 VCF 文件
+     */
+    boolean memoryMapped = false;
+
+    /**
+     * 分阶段流水线的解析线程数、压缩线程数 (0 表示不使用分阶段流水线)
+     */
+    int parseThreads = 0;
+    int compressThreads = 0;
+
+    /**
+     * 试压缩参数选择的优化目标 (null 表示不进行试压缩)、抽样位点数、是否选择压缩级别，以及试压缩的报告
+     */
+    TuneObjective tuneObjective = null;
+    int tuneVariants = DEFAULT_TUNE_VARIANTS;
+    boolean tuneCompressionLevel = true;
+    String tuneReport = null;
+
     {
         // 初始化 QC 方法
         resetVariantQC();
@@ -82,6 +111,14 @@ public class BuildTask extends IBuildTask {
         StringArray temps = new StringArray(inputFileNames);
         temps.dropDuplicated();
 
+        // 标准输入只能作为唯一的输入
+        if (temps.contains(STANDARD_INPUT)) {
+            Assert.that(temps.size() == 1, "standard input (" + STANDARD_INPUT + ") cannot be combined with other input files");
+            this.inputFileNames = temps;
+            this.outputFileName = outputFileName;
+            return;
+        }
+
         // 检验文件是否都存在
         for (String fileName : temps) {
             Assert.NotNull(fileName);
@@ -117,6 +154,125 @@ public class BuildTask extends IBuildTask {
         return this.inputFileNames.get(index);
     }
 
+    /**
+     * 是否从标准输入流式读取 VCF 数据
+     */
+    public boolean isStandardInput() {
+        return this.inputFileNames.size() == 1 && STANDARD_INPUT.equals(this.inputFileNames.get(0));
+    }
+
+    /**
+     * 获取是否使用内存映射读取未压缩的 VCF 文件
+     */
+    public boolean isMemoryMapped() {
+        return this.memoryMapped;
+    }
+
+    /**
+     * 设置是否使用内存映射读取未压缩的 VCF 文件 (压缩的输入文件仍然使用流式读取)
+     * @param memoryMapped 使用内存映射
+     */
+    public BuildTask setMemoryMapped(boolean memoryMapped) {
+        synchronized (this) {
+            this.memoryMapped = memoryMapped;
+        }
+        return this;
+    }
+
+    /**
+     * 获取分阶段流水线的解析线程数
+     */
+    public int getParseThreads() {
+        return this.parseThreads;
+    }
+
+    /**
+     * 获取分阶段流水线的压缩线程数
+     */
+    public int getCompressThreads() {
+        return this.compressThreads;
+    }
+
+    /**
+     * 是否使用分阶段流水线 (解析 -> 压缩 -> 按输入顺序写出)
+     */
+    public boolean isStagedPipeline() {
+        return this.parseThreads > 0 && this.compressThreads > 0;
+    }
+
+    /**
+     * 设置分阶段流水线的线程数，解析阶段负责文本切分与 BEG 编码，压缩阶段负责重排列、MBEG 编码与压缩
+     * @param parseThreads 解析线程数，0 表示不使用分阶段流水线
+     * @param compressThreads 压缩线程数，0 表示不使用分阶段流水线
+     */
+    public BuildTask setPipelineThreads(int parseThreads, int compressThreads) {
+        synchronized (this) {
+            if (parseThreads == 0 || compressThreads == 0) {
+                this.parseThreads = 0;
+                this.compressThreads = 0;
+            } else {
+                Assert.valueRange(parseThreads, MIN_THREADS, AVAILABLE_PROCESSORS);
+                Assert.valueRange(compressThreads, MIN_THREADS, AVAILABLE_PROCESSORS);
+                this.parseThreads = parseThreads;
+                this.compressThreads = compressThreads;
+            }
+        }
+        return this;
+    }
+
+    /**
+     * 获取试压缩参数选择的优化目标，null 表示不进行试压缩
+     */
+    public TuneObjective getTuneObjective() {
+        return this.tuneObjective;
+    }
+
+    /**
+     * 获取试压缩的抽样位点数
+     */
+    public int getTuneVariants() {
+        return this.tuneVariants;
+    }
+
+    /**
+     * 试压缩时是否选择压缩级别 (否则只选择块大小参数)
+     */
+    public boolean isTuneCompressionLevel() {
+        return this.tuneCompressionLevel;
+    }
+
+    /**
+     * 获取试压缩的报告 (所有候选参数的压缩大小、压缩与解压耗时)，未进行试压缩时返回 null
+     */
+    public String getTuneReport() {
+        return this.tuneReport;
+    }
+
+    /**
+     * 设置试压缩参数选择，构建前使用每个染色体的前 tuneVariants 个位点 (至少包含最大候选块的一个完整块) 对候选的块大小参数与压缩级别进行试压缩，按优化目标选择参数
+     * @param tuneObjective 优化目标，null 表示不进行试压缩
+     * @param tuneVariants 每个染色体的抽样位点数
+     */
+    public BuildTask setTuneObjective(TuneObjective tuneObjective, int tuneVariants) {
+        synchronized (this) {
+            Assert.that(tuneVariants > 0);
+            this.tuneObjective = tuneObjective;
+            this.tuneVariants = tuneVariants;
+        }
+        return this;
+    }
+
+    /**
+     * 设置试压缩时是否选择压缩级别，指定了压缩级别时应当关闭
+     * @param tuneCompressionLevel 是否选择压缩级别
+     */
+    public BuildTask setTuneCompressionLevel(boolean tuneCompressionLevel) {
+        synchronized (this) {
+            this.tuneCompressionLevel = tuneCompressionLevel;
+        }
+        return this;
+    }
+
     /**
      * 获取质控的基因型 DP 阈值 (0 表示不进行 dp 质控)
      */
@@ -305,10 +461,18 @@ public class BuildTask extends IBuildTask {
                 "\n\tinputFile(s): " + this.inputFileNames.toString() +
                 "\n\toutputFile: " + ((this.outputFileName != null) ? this.outputFileName : "") +
                 "\n\tthreads: " + this.threads +
+                (this.memoryMapped ? "\n\tmemoryMapped: true" : "") +
+                (isStagedPipeline() ? "\n\tpipeline: " + this.parseThreads + " parse thread(s), " + this.compressThreads + " compress thread(s)" : "") +
+                (this.parallelStreams ? "\n\tparallelStreams: true" : "") +
+                (this.trainDictionary ? "\n\ttrainDictionary: true" : "") +
+                (this.sliceSize > 0 ? "\n\tsliceSize: " + this.sliceSize : "") +
+                (this.checksum ? "\n\tchecksum: true" : "") +
+                (this.subjectReordering ? "\n\tsubjectReordering: true" : "") +
+                (this.tuneObjective != null ? "\n\ttune: " + this.tuneObjective.name().toLowerCase() + " (" + this.tuneVariants + " variants)" : "") +
                 "\n\tphased: " + this.phased +
                 "\n\treordering: " + this.reordering + (this.reordering ? " (" + this.windowSize + " - Accumulated Generating Sequence)" : "") +
                 "\n\tblockSize: " + this.blockSize + " (-bs " + this.blockSizeType + ")" +
-                "\n\tcompressionLevel: " + this.compressionLevel + " (" + ICompressor.getCompressorName(this.getCompressor()) + ")" +
+                "\n\tcompressionLevel: " + this.compressionLevel + " (" + GTBCompressor.getCompressorName(this.getCompressor()) + ")" +
                 (genotypeQC.size() == 0 ? "" : "\n\tgenotypeQC: " + genotypeQC.toString()) +
                 "\n\tvariantQC: " + this.variantQC +
                 (this.alleleQC.size() == 0 ? "" : "\n\talleleQC: " + this.alleleQC) +
@@ -329,17 +493,32 @@ public class BuildTask extends IBuildTask {
                 Assert.that(!fileName.equals(this.outputFileName), IOExceptionOptions.FileOccupiedException, "output file cannot be the same as the input file (" + this.outputFileName + ")");
             }
 
+            // 试压缩需要重新读取输入文件的头部
+            Assert.that(this.tuneObjective == null || (this.inputFileNames.size() == 1 && !isStandardInput()), "trial compression only supports a single input file");
+
+            // 样本重排需要预先读取输入文件的部分位点
+            Assert.that(!this.subjectReordering || (this.inputFileNames.size() == 1 && !isStandardInput()), "subject reordering only supports a single input file");
+
             // 构建核心任务
             if (this.inputFileNames.size() > 1) {
                 BuildKernelMultiFile.submit(this);
+            } else if (isStagedPipeline() || isStandardInput()) {
+                // 流式输入无法分块，由读取线程将数据行分发给编码线程
+                BuildKernelPipeline.submit(this);
             } else {
                 BuildKernel.submit(this);
             }
+
+            // 训练压缩字典并重新压缩
+            if (this.trainDictionary) {
+                DictionaryKernel.submit(this.outputFileName);
+            }
         }
     }
 
     @Override
     public String autoGenerateOutputFileName() {
+        Assert.that(!isStandardInput(), "output file must be specified (-o) when reading from standard input");
         return FileUtils.fixExtension(this.inputFileNames.get(0), this.phased ? ".phased.gtb" : ".unphased.gtb", ".vcf.gz", ".vcf", ".gz");
     }
 }
@@ -0,0 +1,70 @@
+package edu.sysu.pmglab.gbc.core.build;
+
+import edu.sysu.pmglab.easytools.ByteCode;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * @Data        :2022/03/05
+ * @Author      :suranyi
+ * @Contact     :suranyi.sysu@gamil.com
+ * @Description :按字 (8 字节) 检索分隔符的扫描器 (SWAR)，每次读取一个 long 并通过位运算标记其中所有匹配的字节
+ */
+
+final class ByteScanner {
+    /**
+     * 分隔符模版，每个字节都填充为对应的分隔符
+     */
+    static final long TAB = pattern(ByteCode.TAB);
+    static final long COLON = pattern(ByteCode.COLON);
+
+    private static final long LOW_SEVEN_BITS = 0x7F7F7F7F7F7F7F7FL;
+
+    private ByteScanner() {
+    }
+
+    /**
+     * 将单个字节扩展为 8 字节模版
+     * @param value 字节值
+     */
+    static long pattern(byte value) {
+        return (value & 0xFFL) * 0x0101010101010101L;
+    }
+
+    /**
+     * 以小端序包装字节数组，每行数据只需包装一次
+     * @param cache 字节数组
+     */
+    static ByteBuffer wrap(byte[] cache) {
+        return ByteBuffer.wrap(cache).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * 以小端序读取 words[index, index + 8) 的 8 个字节，调用者需要保证 index + 8 <= words.capacity()
+     * @param words  wrap 方法包装的字节数组
+     * @param index  起始位置
+     */
+    static long getLong(ByteBuffer words, int index) {
+        return words.getLong(index);
+    }
+
+    /**
+     * 标记 word 中与模版相等的字节，匹配字节的最高位为 1，其余位均为 0 (字节之间没有进位，因此所有的标记均准确)
+     * @param word    小端序读取的 8 字节
+     * @param pattern 分隔符模版
+     */
+    static long match(long word, long pattern) {
+        long value = word ^ pattern;
+        long temp = (value & LOW_SEVEN_BITS) + LOW_SEVEN_BITS;
+        return ~(temp | value | LOW_SEVEN_BITS);
+    }
+
+    /**
+     * 获取标记中最低位的匹配字节在 word 中的偏移量
+     * @param mask match 方法返回的标记
+     */
+    static int offsetOf(long mask) {
+        return Long.numberOfTrailingZeros(mask) >>> 3;
+    }
+}
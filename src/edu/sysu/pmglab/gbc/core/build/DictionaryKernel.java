@@ -0,0 +1,208 @@
+package edu.sysu.pmglab.gbc.core.build;
+
+import com.github.luben.zstd.ZstdDictTrainer;
+import com.github.luben.zstd.ZstdException;
+import edu.sysu.pmglab.compressor.ICompressor;
+import edu.sysu.pmglab.compressor.IDecompressor;
+import edu.sysu.pmglab.container.VolumeByteStream;
+import edu.sysu.pmglab.container.array.Array;
+import edu.sysu.pmglab.gbc.core.gtbcomponent.*;
+import edu.sysu.pmglab.unifyIO.FileStream;
+import edu.sysu.pmglab.unifyIO.options.FileOptions;
+
+import java.io.IOException;
+
+/**
+ * @Data        :2022/03/26
+ * @Author      :suranyi
+ * @Contact     :suranyi.sysu@gamil.com
+ * @Description :压缩字典核心任务，从已生成的 GTB 文件中均匀抽取块训练 zstd 字典，并使用字典重新压缩所有块的数据流。
+ *               仅支持 zstd 压缩器，字典不能减小文件大小时保留原文件
+ */
+
+class DictionaryKernel {
+    /**
+     * 训练样本的总大小上限 (字典大小的 128 倍)
+     */
+    static final int MAX_SAMPLES_SIZE = GTBDictionary.DEFAULT_DICTIONARY_SIZE * 128;
+
+    /**
+     * 抽样的块数上限
+     */
+    static final int MAX_SAMPLE_BLOCK_NUM = 1024;
+
+    /**
+     * 训练压缩字典并重新压缩文件
+     * @param fileName GTB 文件名
+     * @return 是否使用了压缩字典
+     */
+    static boolean submit(String fileName) throws IOException {
+        GTBRootCache.clear(fileName);
+        GTBManager manager = GTBRootCache.get(fileName);
+
+        if (!GTBDictionary.isSupported(manager.getCompressorIndex()) || manager.getGtbTree().numOfNodes() == 0) {
+            return false;
+        }
+
+        // 按文件中的顺序获取所有块
+        Array<GTBNode> nodes = new Array<>(manager.getGtbTree().numOfNodes());
+        for (GTBNodes chromosomeNodes : manager.getGtbTree()) {
+            for (GTBNode node : chromosomeNodes) {
+                nodes.add(node);
+            }
+        }
+
+        byte[] dictionary = train(manager, nodes);
+        if (dictionary == null) {
+            return false;
+        }
+
+        boolean enable = recompress(manager, nodes, dictionary);
+        GTBRootCache.clear(fileName);
+        return enable;
+    }
+
+    /**
+     * 均匀抽取块，将解压后的数据流作为训练样本
+     * @return 压缩字典，训练失败时返回 null
+     */
+    static byte[] train(GTBManager manager, Array<GTBNode> nodes) throws IOException {
+        ZstdDictTrainer trainer = new ZstdDictTrainer(MAX_SAMPLES_SIZE, GTBDictionary.DEFAULT_DICTIONARY_SIZE);
+        int step = Math.max(1, nodes.size() / MAX_SAMPLE_BLOCK_NUM);
+        boolean full = false;
+
+        GenotypeSliceCodec sliceCodec = new GenotypeSliceCodec(manager.getSubjectNum(), manager.isPhased());
+        try (FileStream in = manager.getFileStream(); IDecompressor decompressor = manager.getDecompressorInstance()) {
+            VolumeByteStream src = new VolumeByteStream(2 << 20);
+            VolumeByteStream dst = new VolumeByteStream(2 << 20);
+
+            for (int i = 0; i < nodes.size() && !full; i += step) {
+                GTBNode node = nodes.get(i);
+                in.seek(node.blockSeek);
+
+                int[] sizes = new int[]{node.compressedGenotypesSize, node.compressedPosSize, node.compressedAlleleSize};
+                for (int j = 0; j < sizes.length; j++) {
+                    int size = sizes[j];
+                    src.reset();
+                    dst.reset();
+                    src.makeSureCapacity(size);
+                    in.read(src, size);
+                    if (j == 0 && node.slicedGenotype) {
+                        // 按样本切片的基因型数据，每个切片作为一个训练样本
+                        for (byte[] slice : sliceCodec.decompressSlices(src, decompressor)) {
+                            if (!full && slice.length > 0) {
+                                full = !trainer.addSample(slice);
+                            }
+                        }
+                    } else if (j == 0 && node.framedGenotype) {
+                        // 分帧的基因型数据，每帧作为一个训练样本
+                        for (byte[] frame : GenotypeFrameCodec.decompressFrames(src, decompressor)) {
+                            if (!full && frame.length > 0) {
+                                full = !trainer.addSample(frame);
+                            }
+                        }
+                    } else if (size > 0 && decompressor.decompress(src, dst) > 0) {
+                        // 超过训练样本的总大小上限时停止抽样
+                        full |= !trainer.addSample(dst.values());
+                    }
+                }
+            }
+        }
+
+        try {
+            return trainer.trainSamples();
+        } catch (ZstdException e) {
+            // 样本过少或过小时无法训练字典
+            return null;
+        } finally {
+            sliceCodec.close();
+        }
+    }
+
+    /**
+     * 使用字典重新压缩所有块，写入临时文件后替换原文件
+     * @return 文件是否被替换
+     */
+    static boolean recompress(GTBManager manager, Array<GTBNode> nodes, byte[] dictionary) throws IOException {
+        String tempFileName = manager.getFileName() + ".~$temp";
+        VolumeByteStream headerInfo = new VolumeByteStream(nodes.size() * GTBChecksum.getNodeInfoSize(manager.hasChecksum()));
+        long originSize;
+        long newSize = -1;
+
+        GenotypeSliceCodec sliceCodec = new GenotypeSliceCodec(manager.getSubjectNum(), manager.isPhased());
+        FileStream out = new FileStream(tempFileName, FileOptions.CHANNEL_WRITER);
+        try (FileStream in = manager.getFileStream(); IDecompressor decompressor = manager.getDecompressorInstance();
+             ICompressor compressor = GTBDictionary.getCompressor(manager.getCompressorIndex(), manager.getCompressionLevel(), dictionary, new VolumeByteStream(2 << 20))) {
+            originSize = in.size();
+            out.write(manager.buildHeader(dictionary));
+
+            VolumeByteStream src = new VolumeByteStream(2 << 20);
+            VolumeByteStream dst = new VolumeByteStream(2 << 20);
+            VolumeByteStream block = new VolumeByteStream(2 << 20);
+            int[] sizes = new int[3];
+            for (GTBNode node : nodes) {
+                long blockSeek = out.tell();
+                in.seek(node.blockSeek);
+                block.reset();
+
+                // 块内数据流的顺序: 基因型、位置、等位基因
+                int[] originSizes = new int[]{node.compressedGenotypesSize, node.compressedPosSize, node.compressedAlleleSize};
+                for (int i = 0; i < originSizes.length; i++) {
+                    src.reset();
+                    dst.reset();
+                    src.makeSureCapacity(originSizes[i]);
+                    in.read(src, originSizes[i]);
+                    if (originSizes[i] == 0) {
+                        sizes[i] = 0;
+                        continue;
+                    }
+
+                    if (i == 0 && node.slicedGenotype) {
+                        // 按样本切片的基因型数据逐个切片重新压缩
+                        compressor.reset();
+                        sizes[i] = sliceCodec.recompress(src, decompressor, compressor);
+                        block.writeSafety(compressor.getCache().getCache(), 0, compressor.getCache().size());
+                        continue;
+                    }
+
+                    if (i == 0 && node.framedGenotype) {
+                        // 分帧的基因型数据逐帧重新压缩
+                        sizes[i] = GenotypeFrameCodec.recompress(src, decompressor, compressor, block);
+                        continue;
+                    }
+
+                    decompressor.decompress(src, dst);
+
+                    src.reset();
+                    sizes[i] = compressor.compress(dst, src);
+                    block.writeSafety(src.getCache(), 0, src.size());
+                }
+                out.write(block);
+
+                // 重新压缩后块数据改变，需要重新计算块校验码
+                new GTBNode(node.chromosomeIndex, node.minPos, node.maxPos, blockSeek, sizes[0], sizes[1], sizes[2], node.magicCode, node.subBlockVariantNum, node.flags)
+                        .setChecksum(manager.hasChecksum() ? GTBChecksum.of(block) : 0)
+                        .toTransFormat(headerInfo, manager.hasChecksum());
+            }
+
+            out.write(headerInfo);
+            newSize = out.tell();
+        } finally {
+            out.close();
+            sliceCodec.close();
+
+            // 重新压缩失败 (IOException、ZstdException 等) 时删除临时文件，原文件保持不变
+            if (newSize == -1) {
+                out.delete();
+            }
+        }
+
+        if (newSize >= originSize) {
+            out.delete();
+            return false;
+        }
+
+        out.rename(manager.getFileName());
+        return true;
+    }
+}
@@ -2,7 +2,14 @@ package edu.sysu.pmglab.gbc.core.build;
 
 import edu.sysu.pmglab.gbc.coder.encoder.MBEGEncoder;
 import edu.sysu.pmglab.gbc.core.common.combiner.ICodeCombiner;
+import edu.sysu.pmglab.gbc.core.gtbcomponent.AlleleCodec;
+import edu.sysu.pmglab.gbc.core.gtbcomponent.GTBChecksum;
+import edu.sysu.pmglab.gbc.core.gtbcomponent.GTBCompressor;
 import edu.sysu.pmglab.gbc.core.gtbcomponent.GTBNode;
+import edu.sysu.pmglab.gbc.core.gtbcomponent.GenotypeFrameCodec;
+import edu.sysu.pmglab.gbc.core.gtbcomponent.GenotypeSliceCodec;
+import edu.sysu.pmglab.gbc.core.gtbcomponent.PositionCodec;
+import edu.sysu.pmglab.gbc.core.gtbcomponent.TriallelicGenotypeCodec;
 import edu.sysu.pmglab.check.Assert;
 import edu.sysu.pmglab.compressor.ICompressor;
 import edu.sysu.pmglab.container.Pair;
@@ -11,6 +18,11 @@ import edu.sysu.pmglab.container.VolumeByteStream;
 import edu.sysu.pmglab.gbc.core.common.switcher.ISwitcher;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * @author suranyi
@@ -30,9 +42,21 @@ class GTBCompressionContext {
     final ISwitcher switcher;
 
     /**
-     * 编码组合器
+     * 编码组合器及有效样本个数
      */
     final ICodeCombiner codeCombiner;
+    final int validSubjectNum;
+
+    /**
+     * 基因型数据的切片样本数及切片编解码器，不切片时为 null
+     */
+    final int sliceSize;
+    private final GenotypeSliceCodec sliceCodec;
+
+    /**
+     * 是否计算块校验码
+     */
+    final boolean checksum;
 
     /**
      * 压缩器与编码器
@@ -40,28 +64,110 @@ class GTBCompressionContext {
     private final ICompressor compressor;
     private final MBEGEncoder groupEncoder;
 
+    /**
+     * 等位基因数据编码器，位置与等位基因数据流总是在同一个线程中处理
+     */
+    private final AlleleCodec alleleCodec = new AlleleCodec();
+
+    /**
+     * 数据流压缩线程池，由构建任务的 kernel 创建并在构建结束时关闭，同一构建的所有压缩上下文共享，未启用并行压缩数据流时为 null
+     */
+    private final ExecutorService streamExecutor;
+
+    /**
+     * 压缩器索引及压缩级别 (用于创建分帧压缩器)
+     */
+    private final int compressorIndex;
+    private final int compressionLevel;
+
+    /**
+     * 并行压缩位置、等位基因数据流的压缩器及其未压缩数据缓冲区，未启用并行压缩数据流时为 null
+     */
+    private final ICompressor sideCompressor;
+    private final VolumeByteStream sideCache;
+
+    /**
+     * 并行压缩数据流时，大型基因型数据分帧压缩 (见 GenotypeFrameCodec)，每帧使用独立的压缩器，按需创建
+     */
+    private ICompressor[] frameCompressors = new ICompressor[0];
+
+    /**
+     * @param task 压缩任务
+     * @param validSubjectNum 有效样本个数
+     * @param caches 传入一个长度大于或等于 2 的缓冲区，缓冲区的第一部分为压缩器缓冲区，第二部分为合并数据流缓冲区
+     * @param streamExecutor 数据流压缩线程池 (见 newStreamExecutor)，为 null 时不并行压缩数据流
+     */
+    public GTBCompressionContext(IBuildTask task, int validSubjectNum, ShareCache caches, ExecutorService streamExecutor) {
+        this(task, task.getCompressor(), task.getCompressionLevel(), validSubjectNum, caches, streamExecutor);
+    }
+
     /**
      * @param task 压缩任务
+     * @param compressorIndex 压缩器索引
+     * @param compressionLevel 压缩级别
      * @param validSubjectNum 有效样本个数
      * @param caches 传入一个长度大于或等于 2 的缓冲区，缓冲区的第一部分为压缩器缓冲区，第二部分为合并数据流缓冲区
+     * @param streamExecutor 数据流压缩线程池 (见 newStreamExecutor)，为 null 时不并行压缩数据流
      */
-    public GTBCompressionContext(IBuildTask task, int validSubjectNum, ShareCache caches) {
+    public GTBCompressionContext(IBuildTask task, int compressorIndex, int compressionLevel, int validSubjectNum, ShareCache caches, ExecutorService streamExecutor) {
         Assert.that(caches.size() >= 2);
 
         // 将 BEG-EncodedCache 作为压缩输出数据的缓冲区
-        this.compressor = ICompressor.getInstance(task.getCompressor(), task.getCompressionLevel(), caches.getCache(0));
+        this.compressorIndex = compressorIndex;
+        this.compressionLevel = compressionLevel;
+        this.compressor = GTBCompressor.getCompressor(compressorIndex, compressionLevel, caches.getCache(0));
 
         // 创建行特征交换器
         this.switcher = ISwitcher.getInstance(task.isReordering());
 
         // 创建编码组合器
-        this.codeCombiner = ICodeCombiner.getInstance(task.isPhased(), validSubjectNum);
+        this.validSubjectNum = validSubjectNum;
+        this.sliceSize = task.getSliceSize();
+        this.sliceCodec = this.sliceSize > 0 ? new GenotypeSliceCodec(validSubjectNum, task.isPhased()) : null;
+        this.codeCombiner = ICodeCombiner.getInstance(task.isPhased(), validSubjectNum, this.sliceCodec == null);
+        this.checksum = task.isChecksum();
 
         // 排序之后的合并流，大型复用容器。缓冲区大小，默认设定为 BEG 阵列的一半，该设计可以容纳 1/4 的多等位基因位点，通常情况下他不会发生扩容。
         this.unCompressedCache = caches.getCache(1);
 
         // 组合编码器
         this.groupEncoder = MBEGEncoder.getEncoder(task.isPhased());
+
+        // 并行压缩数据流时，位置与等位基因数据流使用独立的压缩器，在共享线程池中与基因型数据流同时压缩
+        this.streamExecutor = streamExecutor;
+        if (streamExecutor != null) {
+            this.sideCompressor = GTBCompressor.getCompressor(compressorIndex, compressionLevel, new VolumeByteStream());
+            this.sideCache = new VolumeByteStream();
+        } else {
+            this.sideCompressor = null;
+            this.sideCache = null;
+        }
+    }
+
+    /**
+     * 创建数据流压缩线程池，线程数为任务的并行线程数 (-t)，未启用并行压缩数据流时返回 null
+     * @param task 压缩任务
+     */
+    static ExecutorService newStreamExecutor(IBuildTask task) {
+        if (!task.isParallelStreams()) {
+            return null;
+        }
+
+        return Executors.newFixedThreadPool(task.getThreads(), runnable -> {
+            Thread thread = new Thread(runnable);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 关闭数据流压缩线程池 (压缩上下文在 process 返回前等待其提交的任务结束，因此关闭时不再有运行中的任务)
+     * @param streamExecutor 数据流压缩线程池，为 null 时不进行任何操作
+     */
+    static void shutdown(ExecutorService streamExecutor) {
+        if (streamExecutor != null) {
+            streamExecutor.shutdown();
+        }
     }
 
     /**
@@ -93,45 +199,187 @@ class GTBCompressionContext {
         // 特征交换
         this.switcher.switchingRow(this.groupEncoder, block.variants, variantsNum, block.encodedCache.getCache());
 
-        // 处理基因型数据并记录压缩流大小
-        this.codeCombiner.process(this.groupEncoder, block.variants, subBlockVariantNum, block.encodedCache.getCache(), this.unCompressedCache);
+        // 罕见变异位点移至块尾 (稀疏子块)
+        int sparseVariantNum = this.codeCombiner.partition(block.variants, subBlockVariantNum, block.encodedCache.getCache());
+
+        // 特征交换及稀疏划分后位点顺序不再改变，位置与等位基因数据流可以与基因型数据流同时压缩
+        Future<int[]> sideStreams = null;
+        Future<?>[] frames = null;
+        int frameNum = 0;
+        int compressedGenotypeSize;
+        int[] sideSizes;
+        try {
+            if (this.sideCompressor != null) {
+                int blockMinPos = minPos;
+                sideStreams = this.streamExecutor.submit(() -> compressSideStreams(block, variantsNum, blockMinPos, this.sideCache, this.sideCompressor));
+            }
+
+            // 处理基因型数据并记录压缩流大小 (多等位基因位点较多时 BEG 子块可能超出缓冲区的初始容量)
+            check(subBlockVariantNum[0] * ((this.validSubjectNum + 2) / 3) + subBlockVariantNum[1] * this.validSubjectNum, this.unCompressedCache);
+            this.codeCombiner.process(this.groupEncoder, block.variants, subBlockVariantNum, block.encodedCache.getCache(), this.unCompressedCache);
+
+            // 压缩基因型数据 (切片时每个切片独立压缩；并行压缩数据流时，超过一帧的基因型数据分帧，第一帧在当前线程中压缩，其余帧在共享线程池中压缩)
+            if (this.sliceCodec != null) {
+                compressedGenotypeSize = this.sliceCodec.compress(this.unCompressedCache, subBlockVariantNum, this.sliceSize, this.compressor);
+            } else if (this.sideCompressor != null && this.unCompressedCache.size() > GenotypeFrameCodec.FRAME_SIZE) {
+                frameNum = GenotypeFrameCodec.getFrameNum(this.unCompressedCache.size());
+                ensureFrameCompressors(frameNum);
+                frames = new Future<?>[frameNum];
+                for (int i = 1; i < frameNum; i++) {
+                    int frameIndex = i;
+                    frames[i] = this.streamExecutor.submit(() -> GenotypeFrameCodec.compressFrame(this.unCompressedCache, frameIndex, this.frameCompressors[frameIndex]));
+                }
+
+                GenotypeFrameCodec.compressFrame(this.unCompressedCache, 0, this.frameCompressors[0]);
+                for (int i = 1; i < frameNum; i++) {
+                    await(frames[i]);
+                }
+                compressedGenotypeSize = GenotypeFrameCodec.writeFrames(this.frameCompressors, frameNum, this.compressor.getCache());
+            } else {
+                compressedGenotypeSize = this.compressor.compress(this.unCompressedCache);
+            }
 
-        // 基因型数据未压缩前大小
+            // 压缩 position 数据、allele 数据，并行压缩时将辅助线程的压缩结果拼接在基因型数据之后
+            if (sideStreams == null) {
+                sideSizes = null;
+            } else {
+                sideSizes = await(sideStreams);
+                this.compressor.getCache().writeSafety(this.sideCompressor.getCache().getCache(), 0, this.sideCompressor.getCache().size());
+            }
+        } finally {
+            // 出现异常时也需要等待已提交的任务结束，避免关闭上下文时共享线程池仍在使用其压缩器
+            awaitQuietly(sideStreams);
+            if (frames != null) {
+                for (Future<?> frame : frames) {
+                    awaitQuietly(frame);
+                }
+            }
+        }
+
+        // 基因型数据未压缩前大小 (三等位基因组合子块按展开后的大小计算)
+        int triallelicVariantNum = this.codeCombiner.getTriallelicVariantNum();
         int originMBEGsSize = this.unCompressedCache.size();
+        if (triallelicVariantNum > 0) {
+            originMBEGsSize += (int) TriallelicGenotypeCodec.getSavedSize(triallelicVariantNum, this.validSubjectNum);
+        }
+        this.unCompressedCache.reset();
 
-        // 压缩基因型数据
-        int compressedGenotypeSize = compress(this.unCompressedCache, this.compressor);
+        if (sideSizes == null) {
+            sideSizes = compressSideStreams(block, variantsNum, minPos, this.unCompressedCache, this.compressor);
+        }
 
-        // 压缩 position 数据
-        for (int i = 0; i < variantsNum; i++) {
-            block.variants[i].writePosTo(this.unCompressedCache);
+        // 送出压缩完成的数据，块校验码覆盖基因型、位置、等位基因压缩数据
+        GTBNode node = new GTBNode(block.chromosomeIndex, minPos, maxPos, 0, compressedGenotypeSize, sideSizes[1], sideSizes[3],
+                originMBEGsSize, Math.max(sideSizes[2], sideSizes[0]), subBlockVariantNum,
+                GTBNode.DELTA_ENCODED_POS | GTBNode.DICT_ENCODED_ALLELE | (sparseVariantNum > 0 ? GTBNode.SPARSE_ENCODED_GENOTYPE : 0)
+                        | (this.sliceCodec != null ? GTBNode.SLICED_GENOTYPE : 0) | (triallelicVariantNum > 0 ? GTBNode.GROUPED_TRIALLELIC_GENOTYPE : 0)
+                        | (frameNum > 0 ? GTBNode.FRAMED_GENOTYPE : 0));
+        if (this.checksum) {
+            node.setChecksum(GTBChecksum.of(this.compressor.getCache()));
         }
-        int originPosSize = this.unCompressedCache.size();
-        int compressedPosSize = compress(this.unCompressedCache, this.compressor);
 
-        /* allele 处必须非常小心，有可能超过缓冲容器大小 */
-        int originAllelesSize = check(variantsNum, block);
-        for (int i = 0; i < variantsNum; i++) {
-            block.variants[i].writeAlleleTo(this.unCompressedCache);
+        return new Pair<>(node, this.compressor.getCache());
+    }
+
+    /**
+     * 依次压缩 position 数据与 allele 数据
+     * @param block 待处理的 block
+     * @param variantsNum 位点个数
+     * @param minPos 块的最小位置
+     * @param cache 未压缩数据缓冲区
+     * @param compressor 压缩器，压缩后的数据追加到其缓冲区中
+     * @return position 数据原始大小、压缩后大小，allele 数据原始大小、压缩后大小
+     */
+    int[] compressSideStreams(UncompressedBlock block, int variantsNum, int minPos, VolumeByteStream cache, ICompressor compressor) throws IOException {
+        if (compressor != this.compressor) {
+            compressor.reset();
+            cache.reset();
         }
 
+        // 压缩 position 数据 (差分 + 变长整数编码)
+        check(variantsNum * PositionCodec.MAX_ENCODED_LENGTH, cache);
+        PositionCodec.encode(block.variants, variantsNum, minPos, cache);
+        int originPosSize = cache.size();
+        int compressedPosSize = compress(cache, compressor);
+
+        /* allele 处必须非常小心，有可能超过缓冲容器大小 (字典编码) */
+        int originAllelesSize = textSizeOf(variantsNum, block);
+        check(AlleleCodec.getMaxEncodedLength(originAllelesSize, variantsNum), cache);
+        this.alleleCodec.encode(block.variants, variantsNum, cache);
+
         // 等位基因大小
-        int compressedAlleleSize = compress(this.unCompressedCache, this.compressor);
+        int compressedAlleleSize = compress(cache, compressor);
+
+        return new int[]{originPosSize, compressedPosSize, originAllelesSize, compressedAlleleSize};
+    }
 
-        // 送出压缩完成的数据
-        return new Pair<>(new GTBNode(block.chromosomeIndex, minPos, maxPos, 0, compressedGenotypeSize, compressedPosSize, compressedAlleleSize,
-                originMBEGsSize, Math.max(originAllelesSize, originPosSize), subBlockVariantNum),
-                this.compressor.getCache());
+    /**
+     * 确保分帧压缩器的个数不少于帧数
+     */
+    void ensureFrameCompressors(int frameNum) {
+        if (this.frameCompressors.length < frameNum) {
+            int oldLength = this.frameCompressors.length;
+            this.frameCompressors = Arrays.copyOf(this.frameCompressors, frameNum);
+            for (int i = oldLength; i < frameNum; i++) {
+                this.frameCompressors[i] = GTBCompressor.getCompressor(this.compressorIndex, this.compressionLevel, new VolumeByteStream());
+            }
+        }
     }
 
-    int check(int variantsNum, UncompressedBlock block) {
+    /**
+     * 等待共享线程池中的任务结束并获取结果
+     */
+    static <T> T await(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e.getMessage());
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * 等待任务结束，忽略其结果与异常
+     */
+    static void awaitQuietly(Future<?> future) {
+        if (future == null) {
+            return;
+        }
+
+        boolean interrupted = false;
+        while (true) {
+            try {
+                future.get();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            } catch (ExecutionException | RuntimeException e) {
+                break;
+            }
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    int textSizeOf(int variantsNum, UncompressedBlock block) {
         int requestSize = 0;
         for (int i = 0; i < variantsNum; i++) {
             requestSize += block.variants[i].alleleSize();
         }
 
-        if (this.unCompressedCache.getCapacity() < requestSize) {
-            this.unCompressedCache.expansionTo(Math.min(requestSize << 1, Integer.MAX_VALUE - 2));
+        return requestSize;
+    }
+
+    int check(int requestSize, VolumeByteStream cache) {
+        if (cache.getCapacity() < requestSize) {
+            cache.expansionTo(Math.min(requestSize << 1, Integer.MAX_VALUE - 2));
         }
         return requestSize;
     }
@@ -147,5 +395,18 @@ class GTBCompressionContext {
      */
     public void close() {
         this.compressor.close();
+
+        if (this.sliceCodec != null) {
+            this.sliceCodec.close();
+        }
+
+        if (this.sideCompressor != null) {
+            this.sideCompressor.close();
+            this.sideCache.close();
+        }
+
+        for (ICompressor frameCompressor : this.frameCompressors) {
+            frameCompressor.close();
+        }
     }
 }
\ No newline at end of file
@@ -1,6 +1,5 @@
 package edu.sysu.pmglab.gbc.core.build;
 
-import edu.sysu.pmglab.compressor.ICompressor;
 import edu.sysu.pmglab.gbc.coder.CoderConfig;
 import edu.sysu.pmglab.gbc.core.ITask;
 import edu.sysu.pmglab.gbc.core.common.qualitycontrol.allele.*;
@@ -11,6 +10,8 @@ import edu.sysu.pmglab.gbc.core.common.switcher.ISwitcher;
 import edu.sysu.pmglab.gbc.core.gtbcomponent.FileBaseInfoManager;
 import edu.sysu.pmglab.check.Assert;
 import edu.sysu.pmglab.easytools.ValueUtils;
+import edu.sysu.pmglab.gbc.core.gtbcomponent.GTBCompressor;
+import edu.sysu.pmglab.gbc.core.gtbcomponent.GenotypeSliceCodec;
 import edu.sysu.pmglab.unifyIO.FileStream;
 import edu.sysu.pmglab.unifyIO.options.FileOptions;
 
@@ -36,10 +37,15 @@ public abstract class IBuildTask implements ITask {
     boolean reordering = ISwitcher.DEFAULT_ENABLE;
     int windowSize = ISwitcher.DEFAULT_SIZE;
     int threads = INIT_THREADS;
-    int compressor = ICompressor.DEFAULT;
-    int compressionLevel = ICompressor.getDefaultCompressionLevel(this.compressor);
+    int compressor = GTBCompressor.DEFAULT;
+    int compressionLevel = GTBCompressor.getDefaultCompressionLevel(this.compressor);
     int blockSizeType = BlockSizeParameter.DEFAULT_BLOCK_SIZE_TYPE;
     int blockSize = BlockSizeParameter.DEFAULT_BLOCK_SIZE;
+    boolean parallelStreams = false;
+    boolean trainDictionary = false;
+    int sliceSize = 0;
+    boolean checksum = false;
+    boolean subjectReordering = false;
 
     final AlleleQC alleleQC = new AlleleQC();
     final VariantQC variantQC = new VariantQC();
@@ -106,6 +112,41 @@ public abstract class IBuildTask implements ITask {
         return this.blockSize;
     }
 
+    /**
+     * 获取是否并行压缩块内的基因型数据流与位置、等位基因数据流
+     */
+    public boolean isParallelStreams() {
+        return this.parallelStreams;
+    }
+
+    /**
+     * 获取是否训练压缩字典
+     */
+    public boolean isTrainDictionary() {
+        return this.trainDictionary;
+    }
+
+    /**
+     * 获取是否写入块校验码
+     */
+    public boolean isChecksum() {
+        return this.checksum;
+    }
+
+    /**
+     * 获取是否对样本进行全局重排
+     */
+    public boolean isSubjectReordering() {
+        return this.subjectReordering;
+    }
+
+    /**
+     * 获取基因型数据的切片样本数，0 表示不切片
+     */
+    public int getSliceSize() {
+        return this.sliceSize;
+    }
+
     /**
      * 获取等位基因过滤器
      */
@@ -191,7 +232,7 @@ public abstract class IBuildTask implements ITask {
     public IBuildTask setCompressor(int compressorIndex) {
         synchronized (this) {
             this.compressor = compressorIndex;
-            this.compressionLevel = ICompressor.getDefaultCompressionLevel(compressorIndex);
+            this.compressionLevel = GTBCompressor.getDefaultCompressionLevel(compressorIndex);
         }
 
         return this;
@@ -209,7 +250,7 @@ public abstract class IBuildTask implements ITask {
         }
 
         synchronized (this) {
-            Assert.valueRange(compressionLevel, ICompressor.getMinCompressionLevel(compressorIndex), ICompressor.getMaxCompressionLevel(compressorIndex));
+            Assert.valueRange(compressionLevel, GTBCompressor.getMinCompressionLevel(compressorIndex), GTBCompressor.getMaxCompressionLevel(compressorIndex));
 
             this.compressor = compressorIndex;
             this.compressionLevel = compressionLevel;
@@ -223,7 +264,7 @@ public abstract class IBuildTask implements ITask {
      * @param compressorName 压缩器名
      */
     public IBuildTask setCompressor(String compressorName) {
-        return setCompressor(ICompressor.getCompressorIndex(compressorName));
+        return setCompressor(GTBCompressor.getCompressorIndex(compressorName));
     }
 
     /**
@@ -232,7 +273,7 @@ public abstract class IBuildTask implements ITask {
      * @param compressionLevel 压缩参数
      */
     public IBuildTask setCompressor(String compressorName, int compressionLevel) {
-        return setCompressor(ICompressor.getCompressorIndex(compressorName), compressionLevel);
+        return setCompressor(GTBCompressor.getCompressorIndex(compressorName), compressionLevel);
     }
 
     /**
@@ -254,6 +295,69 @@ public abstract class IBuildTask implements ITask {
         return this;
     }
 
+    /**
+     * 设置是否并行压缩块内的数据流，超过一帧的基因型数据分帧 (见 GenotypeFrameCodec) 后与位置、等位基因数据流在构建创建的线程池 (线程数为 -t，构建结束时关闭) 中同时压缩
+     * @param parallelStreams 并行压缩块内的数据流
+     */
+    public IBuildTask setParallelStreams(boolean parallelStreams) {
+        synchronized (this) {
+            this.parallelStreams = parallelStreams;
+        }
+
+        return this;
+    }
+
+    /**
+     * 设置是否训练压缩字典，文件生成后从块中抽样训练 zstd 字典，并使用字典重新压缩所有块 (仅支持 zstd 压缩器)
+     * @param trainDictionary 训练压缩字典
+     */
+    public IBuildTask setTrainDictionary(boolean trainDictionary) {
+        synchronized (this) {
+            this.trainDictionary = trainDictionary;
+        }
+
+        return this;
+    }
+
+    /**
+     * 设置是否写入块校验码，每个块的 CRC32 校验码保存在块头部信息中，可以使用 verify 并行检验文件完整性
+     * @param checksum 写入块校验码
+     */
+    public IBuildTask setChecksum(boolean checksum) {
+        synchronized (this) {
+            this.checksum = checksum;
+        }
+
+        return this;
+    }
+
+    /**
+     * 设置是否对样本进行全局重排，构建前抽样部分位点，按基因型的汉明距离将相似的样本排列在相邻的位置，
+     * 样本排列保存在文件中，读取时还原为原始的样本顺序
+     * @param subjectReordering 对样本进行全局重排
+     */
+    public IBuildTask setSubjectReordering(boolean subjectReordering) {
+        synchronized (this) {
+            this.subjectReordering = subjectReordering;
+        }
+
+        return this;
+    }
+
+    /**
+     * 设置基因型数据的切片样本数，块内的基因型数据按样本划分为切片并独立压缩，提取少量样本时只需解压对应的切片。
+     * 切片样本数会向上对齐到 12 的整数倍，0 表示不切片
+     * @param sliceSize 切片样本数
+     */
+    public IBuildTask setSliceSize(int sliceSize) {
+        synchronized (this) {
+            Assert.that(sliceSize >= 0);
+            this.sliceSize = GenotypeSliceCodec.alignSliceSize(sliceSize);
+        }
+
+        return this;
+    }
+
     /**
      * 设置过滤方式
      * @param minAc 最小 allele count 计数
@@ -0,0 +1,51 @@
+package edu.sysu.pmglab.gbc.core.build;
+
+import edu.sysu.pmglab.container.VolumeByteStream;
+import edu.sysu.pmglab.unifyIO.FileStream;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * @Data        :2022/03/02
+ * @Author      :suranyi
+ * @Contact     :suranyi.sysu@gamil.com
+ * @Description :VCF 数据行读取器，行数据位于 lineCache[lineStart(), lineCache.size()) 区间
+ */
+
+interface ILineReader extends Closeable {
+    /**
+     * 读取下一行数据并绑定到 lineCache
+     * @param lineCache 行缓冲区
+     * @return 到达文件末尾时返回 false
+     */
+    boolean readLine(VolumeByteStream lineCache) throws IOException;
+
+    /**
+     * 当前行在 lineCache 中的起始位置
+     */
+    int lineStart();
+
+    /**
+     * 将文件流包装为行读取器，每一行都会被拷贝至 lineCache 的起始位置
+     * @param fileStream 文件流
+     */
+    static ILineReader of(FileStream fileStream) {
+        return new ILineReader() {
+            @Override
+            public boolean readLine(VolumeByteStream lineCache) throws IOException {
+                return fileStream.readLine(lineCache) != -1;
+            }
+
+            @Override
+            public int lineStart() {
+                return 0;
+            }
+
+            @Override
+            public void close() throws IOException {
+                fileStream.close();
+            }
+        };
+    }
+}
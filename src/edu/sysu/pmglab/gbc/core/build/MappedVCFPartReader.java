@@ -0,0 +1,293 @@
+package edu.sysu.pmglab.gbc.core.build;
+
+import edu.sysu.pmglab.container.VolumeByteStream;
+import edu.sysu.pmglab.easytools.ByteCode;
+import edu.sysu.pmglab.unifyIO.FileStream;
+import edu.sysu.pmglab.unifyIO.IFileStream;
+import edu.sysu.pmglab.unifyIO.partreader.IPartReader;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * @Data        :2022/03/02
+ * @Author      :suranyi
+ * @Contact     :suranyi.sysu@gamil.com
+ * @Description :基于内存映射的未压缩 VCF 分块读取器，数据行直接在映射窗口中切分，不再逐行拷贝
+ */
+
+class MappedVCFPartReader implements IPartReader, Closeable {
+    /**
+     * 单次映射的最大文件区域、窗口的初始大小
+     */
+    static final int MAP_SIZE = 1 << 28;
+    static final int WINDOW_SIZE = 2 << 22;
+
+    final String fileName;
+    final FileChannel channel;
+    final long fileSize;
+
+    /**
+     * 头信息读取器，覆盖整个文件
+     */
+    final MappedPart headerReader;
+    final VolumeByteStream headerLineCache = new VolumeByteStream();
+
+    MappedVCFPartReader(String fileName) throws IOException {
+        this.fileName = fileName;
+        this.channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ);
+        this.fileSize = this.channel.size();
+        this.headerReader = new MappedPart(this.channel, 0, this.fileSize);
+    }
+
+    /**
+     * 是否支持使用内存映射读取该文件 (仅支持未压缩的文件)
+     * @param fileName 文件名
+     */
+    static boolean support(String fileName) {
+        try {
+            return !BuildKernel.isGZIPFile(fileName);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public int readLine(VolumeByteStream lineCache) throws IOException {
+        if (!this.headerReader.readLine(this.headerLineCache)) {
+            return -1;
+        }
+
+        int length = this.headerLineCache.size() - this.headerReader.lineStart();
+        lineCache.writeSafety(this.headerLineCache.getCache(), this.headerReader.lineStart(), length);
+        return length;
+    }
+
+    /**
+     * 将头信息之后的数据按行边界划分为多个映射块
+     * @param partNum 分块个数
+     */
+    MappedPart[] partition(int partNum) throws IOException {
+        partNum = Math.max(1, partNum);
+
+        // 数据区域的起点: 第一个不以 # 开头的行
+        long dataStart = this.headerReader.tell();
+        while (dataStart < this.fileSize && byteAt(dataStart) == ByteCode.NUMBER_SIGN) {
+            dataStart = nextLineStart(dataStart + 1);
+        }
+
+        long[] bounds = new long[partNum + 1];
+        long partSize = (this.fileSize - dataStart) / partNum;
+        bounds[0] = dataStart;
+        bounds[partNum] = this.fileSize;
+        for (int i = 1; i < partNum; i++) {
+            bounds[i] = Math.max(bounds[i - 1], nextLineStart(dataStart + partSize * i));
+        }
+
+        int count = 0;
+        MappedPart[] parts = new MappedPart[partNum];
+        for (int i = 0; i < partNum; i++) {
+            if (bounds[i + 1] > bounds[i]) {
+                parts[count++] = new MappedPart(this.channel, bounds[i], bounds[i + 1]);
+            }
+        }
+
+        return Arrays.copyOf(parts, count);
+    }
+
+    @Override
+    public FileStream[] part(int partNum) throws IOException {
+        MappedPart[] parts = partition(partNum);
+        FileStream[] fileStreams = new FileStream[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            fileStreams[i] = new FileStream(parts[i]);
+        }
+        return fileStreams;
+    }
+
+    /**
+     * 获取 pointer 处的字节
+     */
+    byte byteAt(long pointer) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(1);
+        this.channel.read(buffer, pointer);
+        return buffer.get(0);
+    }
+
+    /**
+     * 获取从 pointer 开始 (包含 pointer) 的第一个完整行的起点
+     */
+    long nextLineStart(long pointer) throws IOException {
+        if (pointer <= 0) {
+            return 0;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        long seek = pointer - 1;
+        while (seek < this.fileSize) {
+            buffer.clear();
+            int length = this.channel.read(buffer, seek);
+            if (length <= 0) {
+                break;
+            }
+
+            for (int i = 0; i < length; i++) {
+                if (buffer.get(i) == ByteCode.NEWLINE) {
+                    return seek + i + 1;
+                }
+            }
+            seek += length;
+        }
+
+        return this.fileSize;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.headerReader.close();
+        this.channel.close();
+    }
+
+    /**
+     * 映射块, 文件区域 [start, end) 通过内存映射分段批量载入到窗口中, 数据行在窗口中原地切分
+     */
+    static class MappedPart extends IFileStream implements ILineReader {
+        final FileChannel channel;
+        final long start;
+        final long end;
+
+        /**
+         * 当前映射区域，以及下一个待载入的文件位置
+         */
+        MappedByteBuffer buffer;
+        long pointer;
+
+        /**
+         * 窗口: 有效数据为 [cursor, limit), 换行符检索从 searchFrom 开始
+         */
+        byte[] window;
+        int cursor;
+        int limit;
+        int searchFrom;
+        int lineStart;
+
+        MappedPart(FileChannel channel, long start, long end) {
+            this.channel = channel;
+            this.start = start;
+            this.end = end;
+            this.pointer = start;
+        }
+
+        @Override
+        public boolean readLine(VolumeByteStream lineCache) throws IOException {
+            while (true) {
+                for (int i = this.searchFrom; i < this.limit; i++) {
+                    if (this.window[i] == ByteCode.NEWLINE) {
+                        int lineEnd = (i > this.cursor) && (this.window[i - 1] == ByteCode.CARRIAGE_RETURN) ? i - 1 : i;
+                        this.lineStart = this.cursor;
+                        this.cursor = i + 1;
+                        this.searchFrom = this.cursor;
+                        lineCache.wrap(this.window, lineEnd);
+                        return true;
+                    }
+                }
+                this.searchFrom = this.limit;
+
+                if (!fill()) {
+                    // 文件末尾没有换行符的最后一行
+                    if (this.cursor < this.limit) {
+                        this.lineStart = this.cursor;
+                        this.cursor = this.limit;
+                        lineCache.wrap(this.window, this.limit);
+                        return true;
+                    }
+                    return false;
+                }
+            }
+        }
+
+        @Override
+        public int lineStart() {
+            return this.lineStart;
+        }
+
+        /**
+         * 将未处理的数据移动至窗口头部，并从映射区域中载入新的数据
+         */
+        boolean fill() throws IOException {
+            if (this.pointer >= this.end) {
+                return false;
+            }
+
+            if (this.window == null) {
+                this.window = new byte[(int) Math.min(WINDOW_SIZE, this.end - this.start)];
+            }
+
+            if (this.cursor > 0) {
+                int remaining = this.limit - this.cursor;
+                System.arraycopy(this.window, this.cursor, this.window, 0, remaining);
+                this.searchFrom -= this.cursor;
+                this.limit = remaining;
+                this.cursor = 0;
+            }
+
+            // 单行数据超出窗口大小时，扩容窗口
+            if (this.limit == this.window.length) {
+                this.window = Arrays.copyOf(this.window, this.window.length << 1);
+            }
+
+            if (this.buffer == null || !this.buffer.hasRemaining()) {
+                this.buffer = this.channel.map(FileChannel.MapMode.READ_ONLY, this.pointer, Math.min(MAP_SIZE, this.end - this.pointer));
+            }
+
+            int length = Math.min(this.buffer.remaining(), this.window.length - this.limit);
+            this.buffer.get(this.window, this.limit, length);
+            this.limit += length;
+            this.pointer += length;
+            return true;
+        }
+
+        @Override
+        public int read(byte[] dst, int offset, int length) throws IOException {
+            if (this.cursor == this.limit && !fill()) {
+                return -1;
+            }
+
+            length = Math.min(length, this.limit - this.cursor);
+            System.arraycopy(this.window, this.cursor, dst, offset, length);
+            this.cursor += length;
+            this.searchFrom = Math.max(this.searchFrom, this.cursor);
+            return length;
+        }
+
+        @Override
+        public int read(byte[] dst) throws IOException {
+            return read(dst, 0, dst.length);
+        }
+
+        @Override
+        public long tell() {
+            return this.pointer - (this.limit - this.cursor);
+        }
+
+        @Override
+        public long size() {
+            return this.end - this.start;
+        }
+
+        @Override
+        public void close() {
+            this.buffer = null;
+            this.window = null;
+            this.cursor = 0;
+            this.limit = 0;
+            this.searchFrom = 0;
+        }
+    }
+}
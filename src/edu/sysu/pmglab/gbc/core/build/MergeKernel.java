@@ -165,6 +165,7 @@ class MergeKernel {
                 writerBuilder.setCompressor(this.task.getCompressor(), this.task.getCompressionLevel());
                 writerBuilder.setReordering(this.task.isReordering());
                 writerBuilder.setWindowSize(this.task.getWindowSize());
+                writerBuilder.setChecksum(this.task.isChecksum());
             } else {
                 writerBuilder.setBlockSizeType(this.task.getBlockSizeType());
                 writerBuilder.setCompressor(0, 3);
@@ -437,6 +438,7 @@ class MergeKernel {
                 writerBuilder.setCompressor(this.task.getCompressor(), this.task.getCompressionLevel());
                 writerBuilder.setReordering(this.task.isReordering());
                 writerBuilder.setWindowSize(this.task.getWindowSize());
+                writerBuilder.setChecksum(this.task.isChecksum());
             } else {
                 writerBuilder.setBlockSizeType(this.task.getBlockSizeType());
                 writerBuilder.setCompressor(0, 3);
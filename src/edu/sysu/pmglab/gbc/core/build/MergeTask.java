@@ -2,13 +2,13 @@ package edu.sysu.pmglab.gbc.core.build;
 
 import edu.sysu.pmglab.check.Assert;
 import edu.sysu.pmglab.check.ioexception.IOExceptionOptions;
-import edu.sysu.pmglab.compressor.ICompressor;
 import edu.sysu.pmglab.container.array.Array;
 import edu.sysu.pmglab.container.array.BaseArray;
 import edu.sysu.pmglab.container.array.StringArray;
 import edu.sysu.pmglab.gbc.core.common.allelechecker.AlleleChecker;
 import edu.sysu.pmglab.gbc.core.common.qualitycontrol.variant.VariantAllelesNumController;
 import edu.sysu.pmglab.gbc.core.exception.GBCExceptionOptions;
+import edu.sysu.pmglab.gbc.core.gtbcomponent.GTBCompressor;
 import edu.sysu.pmglab.gbc.core.gtbcomponent.GTBManager;
 import edu.sysu.pmglab.gbc.core.gtbcomponent.GTBRootCache;
 
@@ -228,7 +228,7 @@ public class MergeTask extends IBuildTask {
                 "\n\tphased: " + this.phased +
                 "\n\treordering: " + this.reordering + (this.reordering ? " (" + this.windowSize + " - Accumulated Generating Sequence)" : "") +
                 "\n\tblockSize: " + this.blockSize + " (-bs " + this.blockSizeType + ")" +
-                "\n\tcompressionLevel: " + this.compressionLevel + " (" + ICompressor.getCompressorName(this.getCompressor()) + ")" +
+                "\n\tcompressionLevel: " + this.compressionLevel + " (" + GTBCompressor.getCompressorName(this.getCompressor()) + ")" +
                 "\n\tsite selection: " + (this.keepAll ? "union" : "intersection") +
                 "\n\tcheck allele: " + (this.alleleChecker == null ? "false" : this.alleleChecker) +
                 "\n\tsplit multiallelic: " + this.convertToBiallelic +
@@ -1,10 +1,8 @@
 package edu.sysu.pmglab.gbc.core.build;
 
-import edu.sysu.pmglab.compressor.ICompressor;
 import edu.sysu.pmglab.compressor.IDecompressor;
 import edu.sysu.pmglab.container.array.Array;
 import edu.sysu.pmglab.container.array.BaseArray;
-import edu.sysu.pmglab.container.array.StringArray;
 import edu.sysu.pmglab.gbc.coder.BEGTransfer;
 import edu.sysu.pmglab.gbc.coder.encoder.BEGEncoder;
 import edu.sysu.pmglab.gbc.constant.ChromosomeTags;
@@ -26,6 +24,7 @@ import edu.sysu.pmglab.unifyIO.options.FileOptions;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
 
 /**
  * @Data :2021/02/14
@@ -84,9 +83,10 @@ class RebuildKernel {
     final AlleleQC alleleQC;
 
     /**
-     * 线程池
+     * 线程池，及数据流压缩线程池 (未启用并行压缩数据流时为 null)
      */
     final ThreadPool threadPool;
+    final ExecutorService streamExecutor;
 
     boolean status;
 
@@ -227,35 +227,38 @@ class RebuildKernel {
         kernel.run();
     }
 
-    IndexPair[] initIndexPairs(GTBManager manager, StringArray selectedSubjects) {
-        // 初始化索引对
-        IndexPair[] pairs;
-
+    /**
+     * 初始化索引对
+     *
+     * @param manager    GTB 文件管理器
+     * @param columns    参与重构的样本在原文件中所在的列 (按输出的原始样本顺序)
+     * @param seqIndexes 样本在输出文件中的编码位置，为 null 时按样本顺序编码
+     */
+    IndexPair[] initIndexPairs(GTBManager manager, int[] columns, int[] seqIndexes) {
         // 组合编码情况下，判断其组合地址
         int eachGroupNum = manager.isPhased() ? 3 : 4;
 
-        if (selectedSubjects == null) {
-            // 没有选定样本时，索引对长度等于全样本长度
-            pairs = new IndexPair[manager.getSubjectNum()];
-
-            for (int i = 0; i < pairs.length; i++) {
-                pairs[i] = new IndexPair(i, i, i / eachGroupNum, i % eachGroupNum);
-            }
-        } else {
-            // 根据 selectSubjects 还原全局索引
-            int seek = 0;
-            int[] indexes = manager.getSubjectIndex(selectedSubjects);
-
-            // 选定了样本时，索引对长度等于选定的样本个数
-            pairs = new IndexPair[selectedSubjects.size()];
-            for (int i = 0; i < indexes.length; i++) {
-                pairs[seek++] = new IndexPair(i, indexes[i], indexes[i] / eachGroupNum, indexes[i] % eachGroupNum);
-            }
+        // 索引对长度等于参与重构的样本个数
+        IndexPair[] pairs = new IndexPair[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            pairs[i] = new IndexPair(seqIndexes == null ? i : seqIndexes[i], columns[i], columns[i] / eachGroupNum, columns[i] % eachGroupNum);
         }
 
         return pairs;
     }
 
+    /**
+     * 索引对对应的原文件样本索引
+     */
+    static int[] subjectIndexesOf(IndexPair[] pairs) {
+        int[] subjectIndexes = new int[pairs.length];
+        for (int i = 0; i < pairs.length; i++) {
+            subjectIndexes[i] = pairs[i].index;
+        }
+
+        return subjectIndexes;
+    }
+
     /**
      * 标准构造器，传入 EditTask，根据该提交任务执行工作
      *
@@ -278,11 +281,21 @@ class RebuildKernel {
         this.maxOriginMBEGsSize = this.manager.getMaxDecompressedMBEGsSize();
         this.maxOriginAllelesSize = this.manager.getMaxDecompressedAllelesSize();
 
+        // 参与重构的样本所在的列，原文件的样本排列在此处还原
+        int[] columns = task.getSubjects() == null ? this.manager.getSubjectManager().getOriginalColumns() : this.manager.getSubjectIndex(task.getSubjects());
+        byte[] subjects = String.join("\t", this.manager.getSubject(columns)).getBytes();
+
+        // 抽样计算样本排列，将相似的样本编码在相邻的位置
+        int[] order = task.isSubjectReordering() ? SubjectOrderer.of(this.manager, columns, this.manager.isPhased()) : null;
+        if (order != null) {
+            subjects = GTBSubjectOrder.reorder(subjects, order);
+        }
+
         // 设定任务索引对及样本偏移量
-        this.indexPairs = initIndexPairs(this.manager, task.getSubjects());
+        this.indexPairs = initIndexPairs(this.manager, columns, order == null ? null : GTBSubjectOrder.inverse(order));
 
         // 样本个数
-        this.validSubjectNum = task.getSubjects() == null ? manager.getSubjectNum() : task.getSubjects().size();
+        this.validSubjectNum = columns.length;
 
         // 验证块大小参数
         int blockSizeType = BlockSizeParameter.getSuggestBlockSizeType(task.getBlockSizeType(), validSubjectNum);
@@ -303,18 +316,12 @@ class RebuildKernel {
         // 写入换行符
         this.outputFile.write(ByteCode.NEWLINE);
 
-        // 压缩并写入样本名
-        if (this.task.getSubjects() == null) {
-            // 写入样本名
-            VolumeByteStream subjectSeq = ICompressor.compress(task.getCompressor(), task.getCompressionLevel(), this.manager.getSubjects(), 0, this.manager.getSubjects().length);
-            this.outputFile.writeIntegerValue(subjectSeq.size());
-            this.outputFile.write(subjectSeq);
-        } else {
-            // 写入样本名
-            byte[] subjects = String.join("\t", this.task.getSubjects()).getBytes();
-            VolumeByteStream subjectSeq = ICompressor.compress(task.getCompressor(), task.getCompressionLevel(), subjects, 0, subjects.length);
-            this.outputFile.writeIntegerValue(subjectSeq.size());
-            this.outputFile.write(subjectSeq);
+        // 压缩并写入样本名 (按排列后的顺序) 及样本排列
+        VolumeByteStream subjectSeq = GTBCompressor.compress(task.getCompressor(), task.getCompressionLevel(), subjects, 0, subjects.length);
+        this.outputFile.writeIntegerValue(GTBConstant.toSubjectsSizeField(subjectSeq.size(), false, task.isChecksum(), order != null));
+        this.outputFile.write(subjectSeq);
+        if (order != null) {
+            this.outputFile.write(GTBSubjectOrder.compress(task.getCompressor(), task.getCompressionLevel(), order));
         }
 
         // 创建数据管道
@@ -322,6 +329,7 @@ class RebuildKernel {
 
         // 创建线程池
         this.threadPool = new ThreadPool(this.task.getThreads() + 1);
+        this.streamExecutor = GTBCompressionContext.newStreamExecutor(task);
 
         // 确认是否需要进行向型转换
         this.phasedTransfer = !task.isPhased() && this.manager.isPhased();
@@ -344,7 +352,11 @@ class RebuildKernel {
         }, this.task.getThreads());
 
         // 关闭线程池，等待任务完成
-        threadPool.close();
+        try {
+            threadPool.close();
+        } finally {
+            GTBCompressionContext.shutdown(this.streamExecutor);
+        }
 
         // 生成最后的 gtb 文件
         generateGTBFile();
@@ -362,7 +374,10 @@ class RebuildKernel {
     RebuildVariant[] createRebuildTree(int chromosomeIndex) throws IOException {
         RebuildVariant[] root = new RebuildVariant[manager.getGtbTree().numOfVariants(chromosomeIndex)];
         VolumeByteStream undecompressedCache = new VolumeByteStream();
-        VolumeByteStream decompressedPosCache = new VolumeByteStream(blockSize << 2);
+        VolumeByteStream decompressedPosCache = new VolumeByteStream(blockSize * PositionCodec.MAX_ENCODED_LENGTH);
+        int[] decodedPositions = new int[blockSize];
+        int[] alleleOffsets = new int[blockSize + 1];
+        AlleleCodec alleleCodec = new AlleleCodec();
         VolumeByteStream decompressedAllelesCache = new VolumeByteStream(maxOriginAllelesSize);
         GTBNodes nodes;
 
@@ -371,7 +386,7 @@ class RebuildKernel {
 
         // 位置解压器
         FileStream fileStream = manager.getFileStream();
-        IDecompressor decompressor = IDecompressor.getInstance(manager.getCompressorIndex());
+        IDecompressor decompressor = manager.getDecompressorInstance();
 
         for (int i = 0; i < nodes.numOfNodes(); i++) {
             GTBNode node = nodes.get(i);
@@ -384,29 +399,20 @@ class RebuildKernel {
             fileStream.seek(node.blockSeek + node.compressedGenotypesSize);
             fileStream.read(undecompressedCache, node.compressedPosSize);
             decompressor.decompress(undecompressedCache, decompressedPosCache);
+            PositionCodec.decode(node, decompressedPosCache, decodedPositions);
             undecompressedCache.reset();
 
             // 读取压缩后的位置数据
             fileStream.read(undecompressedCache, node.compressedAlleleSize);
-            decompressor.decompress(undecompressedCache, decompressedAllelesCache);
-
-            int startPos;
-            int endPos = -1;
+            alleleCodec.decompress(decompressor, node, undecompressedCache, decompressedPosCache, decompressedAllelesCache, alleleOffsets);
 
             // 还原位置数据，并构建红黑树表
             for (int j = 0; j < node.numOfVariants(); j++) {
-                // 设置等位基因数据
-                startPos = endPos;
-                endPos = decompressedAllelesCache.indexOfN(ByteCode.SLASH, startPos + 1, 1);
-
                 // 还原位置值
-                int position = ValueUtils.byteArray2IntegerValue(decompressedPosCache.cacheOf(j << 2),
-                        decompressedPosCache.cacheOf(1 + (j << 2)),
-                        decompressedPosCache.cacheOf(2 + (j << 2)),
-                        decompressedPosCache.cacheOf(3 + (j << 2)));
+                int position = decodedPositions[j];
 
                 // 执行等位基因过滤
-                byte[] alleles = decompressedAllelesCache.cacheOf(startPos + 1, endPos);
+                byte[] alleles = decompressedAllelesCache.cacheOf(alleleOffsets[j], alleleOffsets[j + 1] - 1);
 
                 // 需要进行位点过滤
                 int allelesNum = 2;
@@ -443,7 +449,10 @@ class RebuildKernel {
     RebuildVariant[] createRebuildTree(int chromosomeIndex, int[] positions) throws IOException {
         RebuildVariant[] root = new RebuildVariant[manager.getGtbTree().numOfVariants(chromosomeIndex)];
         VolumeByteStream undecompressedCache = new VolumeByteStream();
-        VolumeByteStream decompressedPosCache = new VolumeByteStream(blockSize << 2);
+        VolumeByteStream decompressedPosCache = new VolumeByteStream(blockSize * PositionCodec.MAX_ENCODED_LENGTH);
+        int[] decodedPositions = new int[blockSize];
+        int[] alleleOffsets = new int[blockSize + 1];
+        AlleleCodec alleleCodec = new AlleleCodec();
         VolumeByteStream decompressedAllelesCache = new VolumeByteStream(maxOriginAllelesSize);
         HashSet<Integer> validPositions = ArrayUtils.toSet(positions);
         GTBNodes nodes;
@@ -453,7 +462,7 @@ class RebuildKernel {
 
         // 位置解压器
         FileStream fileStream = manager.getFileStream();
-        IDecompressor decompressor = IDecompressor.getInstance(manager.getCompressorIndex());
+        IDecompressor decompressor = manager.getDecompressorInstance();
 
         for (int i = 0; i < nodes.numOfNodes(); i++) {
             GTBNode node = nodes.get(i);
@@ -466,33 +475,24 @@ class RebuildKernel {
             fileStream.seek(node.blockSeek + node.compressedGenotypesSize);
             fileStream.read(undecompressedCache, node.compressedPosSize);
             decompressor.decompress(undecompressedCache, decompressedPosCache);
+            PositionCodec.decode(node, decompressedPosCache, decodedPositions);
             undecompressedCache.reset();
 
             // 读取压缩后的位置数据
             fileStream.read(undecompressedCache, node.compressedAlleleSize);
-            decompressor.decompress(undecompressedCache, decompressedAllelesCache);
-
-            int startPos;
-            int endPos = -1;
+            alleleCodec.decompress(decompressor, node, undecompressedCache, decompressedPosCache, decompressedAllelesCache, alleleOffsets);
 
             // 还原位置数据，并构建红黑树表
             for (int j = 0; j < node.numOfVariants(); j++) {
-                // 设置等位基因数据
-                startPos = endPos;
-                endPos = decompressedAllelesCache.indexOfN(ByteCode.SLASH, startPos + 1, 1);
-
                 // 还原位置值
-                int position = ValueUtils.byteArray2IntegerValue(decompressedPosCache.cacheOf(j << 2),
-                        decompressedPosCache.cacheOf(1 + (j << 2)),
-                        decompressedPosCache.cacheOf(2 + (j << 2)),
-                        decompressedPosCache.cacheOf(3 + (j << 2)));
+                int position = decodedPositions[j];
 
                 if (!validPositions.contains(position)) {
                     continue;
                 }
 
                 // 执行等位基因过滤
-                byte[] alleles = decompressedAllelesCache.cacheOf(startPos + 1, endPos);
+                byte[] alleles = decompressedAllelesCache.cacheOf(alleleOffsets[j], alleleOffsets[j + 1] - 1);
 
                 // 需要进行位点过滤
                 int allelesNum = 2;
@@ -535,13 +535,16 @@ class RebuildKernel {
 
         RebuildVariant[] root = new RebuildVariant[manager.getGtbTree().numOfVariants(chromosomeIndex)];
         VolumeByteStream undecompressedCache = new VolumeByteStream();
-        VolumeByteStream decompressedPosCache = new VolumeByteStream(blockSize << 2);
+        VolumeByteStream decompressedPosCache = new VolumeByteStream(blockSize * PositionCodec.MAX_ENCODED_LENGTH);
+        int[] decodedPositions = new int[blockSize];
+        int[] alleleOffsets = new int[blockSize + 1];
+        AlleleCodec alleleCodec = new AlleleCodec();
         VolumeByteStream decompressedAllelesCache = new VolumeByteStream(maxOriginAllelesSize);
         int variantIndex = 0;
 
         // 位置解压器
         FileStream fileStream = manager.getFileStream();
-        IDecompressor decompressor = IDecompressor.getInstance(manager.getCompressorIndex());
+        IDecompressor decompressor = manager.getDecompressorInstance();
 
         for (int i = 0; i < nodes.numOfNodes(); i++) {
             GTBNode node = nodes.get(i);
@@ -554,33 +557,24 @@ class RebuildKernel {
             fileStream.seek(node.blockSeek + node.compressedGenotypesSize);
             fileStream.read(undecompressedCache, node.compressedPosSize);
             decompressor.decompress(undecompressedCache, decompressedPosCache);
+            PositionCodec.decode(node, decompressedPosCache, decodedPositions);
             undecompressedCache.reset();
 
             // 读取压缩后的位置数据
             fileStream.read(undecompressedCache, node.compressedAlleleSize);
-            decompressor.decompress(undecompressedCache, decompressedAllelesCache);
-
-            int startPos;
-            int endPos = -1;
+            alleleCodec.decompress(decompressor, node, undecompressedCache, decompressedPosCache, decompressedAllelesCache, alleleOffsets);
 
             // 还原位置数据，并构建红黑树表
             for (int j = 0; j < node.numOfVariants(); j++) {
-                // 设置等位基因数据
-                startPos = endPos;
-                endPos = decompressedAllelesCache.indexOfN(ByteCode.SLASH, startPos + 1, 1);
-
                 // 还原位置值
-                int position = ValueUtils.byteArray2IntegerValue(decompressedPosCache.cacheOf(j << 2),
-                        decompressedPosCache.cacheOf(1 + (j << 2)),
-                        decompressedPosCache.cacheOf(2 + (j << 2)),
-                        decompressedPosCache.cacheOf(3 + (j << 2)));
+                int position = decodedPositions[j];
 
                 if (position < minPos || position > maxPos) {
                     continue;
                 }
 
                 // 执行等位基因过滤
-                byte[] alleles = decompressedAllelesCache.cacheOf(startPos + 1, endPos);
+                byte[] alleles = decompressedAllelesCache.cacheOf(alleleOffsets[j], alleleOffsets[j + 1] - 1);
 
                 // 需要进行位点过滤
                 int allelesNum = 2;
@@ -644,13 +638,19 @@ class RebuildKernel {
             // 确认为需要处理的任务块，只有需要这么一些线程的时候，才会创建容器
             if (taskBlock.getStatus()) {
                 // 块解压器
-                IDecompressor decompressor = IDecompressor.getInstance(manager.getCompressorIndex());
+                IDecompressor decompressor = manager.getDecompressorInstance();
 
                 // 未解压数据缓冲区
                 VolumeByteStream unDecompressedCache = new VolumeByteStream((blockSize * Math.max(20, validSubjectNum)) >> 1);
 
                 // 解压数据缓冲区
                 VolumeByteStream genotypeCache = new VolumeByteStream(this.maxOriginMBEGsSize);
+                SparseGenotypeCodec sparseCodec = new SparseGenotypeCodec(manager.getSubjectNum(), eachLineSize[0]);
+
+                // 样本切片的基因型数据只解压包含重构样本的切片
+                GenotypeSliceCodec sliceCodec = new GenotypeSliceCodec(manager.getSubjectNum(), manager.isPhased());
+                sliceCodec.selectSubjects(subjectIndexesOf(indexPairs));
+                TriallelicGenotypeCodec triallelicCodec = new TriallelicGenotypeCodec(manager.getSubjectNum(), manager.isPhased());
 
                 // 创建本地编码缓冲区
                 VolumeByteStream encodedCache = new VolumeByteStream(this.validSubjectNum * this.blockSize);
@@ -660,7 +660,7 @@ class RebuildKernel {
 
                 // 压缩上下文
                 ShareCache shareCaches = new ShareCache(encodedCache, unDecompressedCache);
-                GTBCompressionContext ctx = new GTBCompressionContext(this.task, this.validSubjectNum, shareCaches);
+                GTBCompressionContext ctx = new GTBCompressionContext(this.task, this.validSubjectNum, shareCaches, this.streamExecutor);
 
                 // 获取文件流
                 FileStream fileStream = this.manager.getFileStream();
@@ -691,11 +691,17 @@ class RebuildKernel {
                             decompressor.reset();
                             genotypeCache.reset();
                             node = manager.getGTBNodes(chromosomeIndex).get(candidateVariant.nodeIndex);
-                            unDecompressedCache.makeSureCapacity(node.compressedGenotypesSize);
-
-                            fileStream.seek(node.blockSeek);
-                            fileStream.read(unDecompressedCache, node.compressedGenotypesSize);
-                            decompressor.decompress(unDecompressedCache, genotypeCache);
+                            if (node.slicedGenotype) {
+                                sliceCodec.decompress(node, fileStream, decompressor, unDecompressedCache, genotypeCache);
+                            } else {
+                                unDecompressedCache.makeSureCapacity(node.compressedGenotypesSize);
+
+                                fileStream.seek(node.blockSeek);
+                                fileStream.read(unDecompressedCache, node.compressedGenotypesSize);
+                                GenotypeFrameCodec.decompress(node, unDecompressedCache, decompressor, genotypeCache);
+                            }
+                            triallelicCodec.expand(node, genotypeCache);
+                            sparseCodec.index(node, genotypeCache);
                             currentNodeIndex = candidateVariant.nodeIndex;
                             secondBlockStart = eachLineSize[0] * node.subBlockVariantNum[0];
                         }
@@ -707,11 +713,17 @@ class RebuildKernel {
                         }
 
                         // 还原基因型数据
-                        if (variant.encoderIndex == 0) {
+                        if (candidateVariant.variantIndex < node.subBlockVariantNum[0]) {
                             // 还原基因型数据
                             for (IndexPair indexPair : indexPairs) {
                                 uncompressedBlock.encodedCache.cacheWrite(variant.encodedStart + indexPair.seqIndex, BEGTransfer.groupDecode(groupDecoderIndexes, genotypeCache.cacheOf(eachLineSize[0] * candidateVariant.variantIndex + indexPair.groupIndex) & 0xFF, indexPair.codeIndex));
                             }
+                        } else if (sparseCodec.isSparse(candidateVariant.variantIndex)) {
+                            // 还原稀疏位点的基因型数据
+                            byte[] row = sparseCodec.expand(genotypeCache, candidateVariant.variantIndex);
+                            for (IndexPair indexPair : indexPairs) {
+                                uncompressedBlock.encodedCache.cacheWrite(variant.encodedStart + indexPair.seqIndex, row[indexPair.index]);
+                            }
                         } else {
                             // 还原基因型数据
                             for (IndexPair indexPair : indexPairs) {
@@ -731,6 +743,7 @@ class RebuildKernel {
                 // 关闭上下文
                 decompressor.close();
                 genotypeCache.close();
+                sliceCodec.close();
                 ctx.close();
                 fileStream.close();
                 shareCaches.freeMemory();
@@ -748,13 +761,19 @@ class RebuildKernel {
             // 确认为需要处理的任务块，只有需要这么一些线程的时候，才会创建容器
             if (taskBlock.getStatus()) {
                 // 块解压器
-                IDecompressor decompressor = IDecompressor.getInstance(manager.getCompressorIndex());
+                IDecompressor decompressor = manager.getDecompressorInstance();
 
                 // 未解压数据缓冲区
                 VolumeByteStream unDecompressedCache = new VolumeByteStream((blockSize * Math.max(20, validSubjectNum)) >> 1);
 
                 // 解压数据缓冲区
                 VolumeByteStream genotypeCache = new VolumeByteStream(this.maxOriginMBEGsSize);
+                SparseGenotypeCodec sparseCodec = new SparseGenotypeCodec(manager.getSubjectNum(), eachLineSize[0]);
+
+                // 样本切片的基因型数据只解压包含重构样本的切片
+                GenotypeSliceCodec sliceCodec = new GenotypeSliceCodec(manager.getSubjectNum(), manager.isPhased());
+                sliceCodec.selectSubjects(subjectIndexesOf(indexPairs));
+                TriallelicGenotypeCodec triallelicCodec = new TriallelicGenotypeCodec(manager.getSubjectNum(), manager.isPhased());
 
                 // 创建本地编码缓冲区
                 VolumeByteStream encodedCache = new VolumeByteStream(this.validSubjectNum * this.blockSize);
@@ -764,7 +783,7 @@ class RebuildKernel {
 
                 // 压缩上下文
                 ShareCache caches = new ShareCache(encodedCache, unDecompressedCache);
-                GTBCompressionContext ctx = new GTBCompressionContext(this.task, this.validSubjectNum, caches);
+                GTBCompressionContext ctx = new GTBCompressionContext(this.task, this.validSubjectNum, caches, this.streamExecutor);
 
                 // 获取文件流
                 FileStream fileStream = this.manager.getFileStream();
@@ -794,11 +813,17 @@ class RebuildKernel {
                             decompressor.reset();
                             genotypeCache.reset();
                             node = manager.getGTBNodes(chromosomeIndex).get(candidateVariant.nodeIndex);
-                            unDecompressedCache.makeSureCapacity(node.compressedGenotypesSize);
-
-                            fileStream.seek(node.blockSeek);
-                            fileStream.read(unDecompressedCache, node.compressedGenotypesSize);
-                            decompressor.decompress(unDecompressedCache, genotypeCache);
+                            if (node.slicedGenotype) {
+                                sliceCodec.decompress(node, fileStream, decompressor, unDecompressedCache, genotypeCache);
+                            } else {
+                                unDecompressedCache.makeSureCapacity(node.compressedGenotypesSize);
+
+                                fileStream.seek(node.blockSeek);
+                                fileStream.read(unDecompressedCache, node.compressedGenotypesSize);
+                                GenotypeFrameCodec.decompress(node, unDecompressedCache, decompressor, genotypeCache);
+                            }
+                            triallelicCodec.expand(node, genotypeCache);
+                            sparseCodec.index(node, genotypeCache);
                             currentNodeIndex = candidateVariant.nodeIndex;
                             secondBlockStart = eachLineSize[0] * node.subBlockVariantNum[0];
 
@@ -814,7 +839,7 @@ class RebuildKernel {
                         int validAllelesNum = 0;
 
                         // 还原基因型数据
-                        if (variant.encoderIndex == 0) {
+                        if (candidateVariant.variantIndex < node.subBlockVariantNum[0]) {
                             // 还原基因型数据
                             for (IndexPair indexPair : indexPairs) {
                                 code = BEGTransfer.groupDecode(groupDecoderIndexes, genotypeCache.cacheOf(eachLineSize[0] * candidateVariant.variantIndex + indexPair.groupIndex) & 0xFF, indexPair.codeIndex);
@@ -824,6 +849,17 @@ class RebuildKernel {
                                     alleleCounts += 2 - this.encoder.scoreOf(code);
                                 }
                             }
+                        } else if (sparseCodec.isSparse(candidateVariant.variantIndex)) {
+                            // 还原稀疏位点的基因型数据
+                            byte[] row = sparseCodec.expand(genotypeCache, candidateVariant.variantIndex);
+                            for (IndexPair indexPair : indexPairs) {
+                                code = row[indexPair.index];
+                                uncompressedBlock.encodedCache.cacheWrite(variant.encodedStart + indexPair.seqIndex, code);
+                                if (code != 0) {
+                                    validAllelesNum += 1;
+                                    alleleCounts += 2 - this.encoder.scoreOf(code);
+                                }
+                            }
                         } else {
                             // 还原基因型数据
                             for (IndexPair indexPair : indexPairs) {
@@ -859,6 +895,7 @@ class RebuildKernel {
                 // 关闭上下文
                 decompressor.close();
                 genotypeCache.close();
+                sliceCodec.close();
                 ctx.close();
                 fileStream.close();
                 caches.freeMemory();
@@ -910,9 +947,9 @@ class RebuildKernel {
      */
     void generateGTBFile() throws IOException {
         // 写入块头信息
-        VolumeByteStream headerInfo = new VolumeByteStream(this.GTBNodeCache.size() * 25);
+        VolumeByteStream headerInfo = new VolumeByteStream(this.GTBNodeCache.size() * GTBChecksum.getNodeInfoSize(this.task.isChecksum()));
         for (GTBNode node : this.GTBNodeCache) {
-            node.toTransFormat(headerInfo);
+            node.toTransFormat(headerInfo, this.task.isChecksum());
         }
         this.outputFile.write(headerInfo);
 
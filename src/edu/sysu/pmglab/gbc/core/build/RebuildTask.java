@@ -4,11 +4,11 @@ import edu.sysu.pmglab.container.array.StringArray;
 import edu.sysu.pmglab.gbc.constant.ChromosomeTags;
 import edu.sysu.pmglab.gbc.core.common.allelechecker.AlleleChecker;
 import edu.sysu.pmglab.gbc.core.common.qualitycontrol.variant.VariantAllelesNumController;
+import edu.sysu.pmglab.gbc.core.gtbcomponent.GTBCompressor;
 import edu.sysu.pmglab.gbc.core.gtbcomponent.GTBManager;
 import edu.sysu.pmglab.gbc.core.gtbcomponent.GTBRootCache;
 import edu.sysu.pmglab.check.Assert;
 import edu.sysu.pmglab.check.ioexception.IOExceptionOptions;
-import edu.sysu.pmglab.compressor.ICompressor;
 import edu.sysu.pmglab.easytools.FileUtils;
 import edu.sysu.pmglab.gbc.core.exception.GBCExceptionOptions;
 import edu.sysu.pmglab.unifyIO.FileStream;
@@ -291,6 +291,11 @@ public class RebuildTask extends IBuildTask {
             // 构建核心任务
             RebuildKernel.rebuildAll(this);
 
+            // 训练压缩字典并重新压缩
+            if (this.trainDictionary) {
+                DictionaryKernel.submit(this.outputFileName);
+            }
+
             // 清除缓存数据
             GTBRootCache.clear(this.outputFileName);
         }
@@ -312,6 +317,11 @@ public class RebuildTask extends IBuildTask {
             // 构建核心任务
             RebuildKernel.rebuildByChromosome(this, chromosomeIndexes);
 
+            // 训练压缩字典并重新压缩
+            if (this.trainDictionary) {
+                DictionaryKernel.submit(this.outputFileName);
+            }
+
             // 清除缓存数据
             GTBRootCache.clear(this.outputFileName);
         }
@@ -370,6 +380,11 @@ public class RebuildTask extends IBuildTask {
             // 构建核心任务
             RebuildKernel.rebuildByRange(this, chromosomeIndex, startPos, endPos);
 
+            // 训练压缩字典并重新压缩
+            if (this.trainDictionary) {
+                DictionaryKernel.submit(this.outputFileName);
+            }
+
             // 清除缓存数据
             GTBRootCache.clear(this.outputFileName);
         }
@@ -421,6 +436,11 @@ public class RebuildTask extends IBuildTask {
             // 构建核心任务
             RebuildKernel.rebuildByPosition(this, chromosomePositions);
 
+            // 训练压缩字典并重新压缩
+            if (this.trainDictionary) {
+                DictionaryKernel.submit(this.outputFileName);
+            }
+
             // 清除缓存数据
             GTBRootCache.clear(this.outputFileName);
         }
@@ -572,9 +592,13 @@ public class RebuildTask extends IBuildTask {
                 "\n\tsubjects: " + subjectInfo +
                 "\n\treordering: " + this.reordering + (this.reordering ? " (" + this.windowSize + " - Accumulated Generating Sequence)" : "") +
                 "\n\tblockSize: " + this.blockSize + " (-bs " + this.blockSizeType + ")" +
-                "\n\tcompressionLevel: " + this.compressionLevel + " (" + ICompressor.getCompressorName(this.getCompressor()) + ")" +
+                "\n\tcompressionLevel: " + this.compressionLevel + " (" + GTBCompressor.getCompressorName(this.getCompressor()) + ")" +
                 (this.variantQC.size() == 0 ? "" : "\n\tvariantQC: " + this.variantQC) +
                 (this.alleleQC.size() == 0 ? "" : "\n\talleleQC: " + this.alleleQC) +
+                (this.trainDictionary ? "\n\ttrainDictionary: true" : "") +
+                (this.sliceSize > 0 ? "\n\tsliceSize: " + this.sliceSize : "") +
+                (this.checksum ? "\n\tchecksum: true" : "") +
+                (this.subjectReordering ? "\n\tsubjectReordering: true" : "") +
                 "\n}";
     }
 
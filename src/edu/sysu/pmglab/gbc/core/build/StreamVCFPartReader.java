@@ -0,0 +1,58 @@
+package edu.sysu.pmglab.gbc.core.build;
+
+import edu.sysu.pmglab.container.VolumeByteStream;
+import edu.sysu.pmglab.unifyIO.FileStream;
+import edu.sysu.pmglab.unifyIO.InputStreamReaderStream;
+import edu.sysu.pmglab.unifyIO.partreader.IPartReader;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * @Data        :2022/03/12
+ * @Author      :suranyi
+ * @Contact     :suranyi.sysu@gamil.com
+ * @Description :不可寻址的输入流 (如标准输入) 的 VCF 读取器，只能顺序读取，因此只有一个分块
+ */
+
+class StreamVCFPartReader implements IPartReader, Closeable {
+    /**
+     * 输入流的缓冲区大小
+     */
+    static final int BUFFER_SIZE = 2 << 20;
+
+    final FileStream fileStream;
+
+    StreamVCFPartReader(InputStream inputStream) throws IOException {
+        BufferedInputStream bufferedStream = new BufferedInputStream(inputStream, BUFFER_SIZE);
+
+        // gzip 或 bgzip 格式的输入流 (多个 gzip 成员依次解压)
+        bufferedStream.mark(2);
+        boolean gzip = bufferedStream.read() == 0x1F && bufferedStream.read() == 0x8B;
+        bufferedStream.reset();
+
+        this.fileStream = new FileStream(new InputStreamReaderStream(gzip ? new BufferedInputStream(new GZIPInputStream(bufferedStream, BUFFER_SIZE), BUFFER_SIZE) : bufferedStream));
+    }
+
+    @Override
+    public int readLine(VolumeByteStream lineCache) throws IOException {
+        return this.fileStream.readLine(lineCache);
+    }
+
+    /**
+     * 输入流无法切分，忽略分块个数，返回头信息之后的剩余数据
+     * @param partNum 分块个数
+     */
+    @Override
+    public FileStream[] part(int partNum) {
+        return new FileStream[]{this.fileStream};
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.fileStream.close();
+    }
+}
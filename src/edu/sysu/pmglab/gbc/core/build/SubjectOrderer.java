@@ -0,0 +1,232 @@
+package edu.sysu.pmglab.gbc.core.build;
+
+import edu.sysu.pmglab.gbc.coder.decoder.BEGDecoder;
+import edu.sysu.pmglab.gbc.core.gtbcomponent.GTBManager;
+import edu.sysu.pmglab.gbc.core.gtbcomponent.gtbreader.GTBReader;
+import edu.sysu.pmglab.gbc.core.gtbcomponent.gtbreader.Variant;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * @Data        :2022/04/07
+ * @Author      :suranyi
+ * @Contact     :suranyi.sysu@gamil.com
+ * @Description :样本排列器，抽样部分位点，以单倍型 (是否为非参考等位基因) 的汉明距离度量样本间的相似性，
+ *               使用最近邻贪心算法将相似的样本 (如亲属、共享单倍型的个体) 排列在相邻的位置，以提高 MBEG 编码组的压缩效果
+ */
+
+class SubjectOrderer {
+    /**
+     * 抽样的位点数，样本数较多时减少抽样的位点数
+     */
+    static final int SAMPLE_VARIANTS = 10000;
+
+    /**
+     * 作为样本特征的位点数 (按次要单倍型个数选择信息量最大的位点)
+     */
+    static final int MAX_FEATURE_VARIANTS = 1024;
+
+    /**
+     * 使用最近邻贪心算法 (O(n^2)) 的最大样本数，超过该样本数时按特征的字典序排列
+     */
+    static final int MAX_NEAREST_NEIGHBOUR_SUBJECTS = 1 << 13;
+
+    /**
+     * 读取输入 VCF 文件第一个染色体的前若干个位点，计算样本排列
+     *
+     * @param kernel 构建核心 (样本按 VCF 文件中的顺序编码)
+     * @return 样本排列，order[i] 为第 i 列样本在 VCF 文件中的索引，null 表示保持原始顺序
+     */
+    static int[] of(BuildKernel kernel) throws IOException {
+        int validSubjectNum = kernel.validSubjectNum;
+        if (validSubjectNum <= 2) {
+            return null;
+        }
+
+        int sampleSize = Math.max(1, Math.min(SAMPLE_VARIANTS, BlockSizeTuner.MAX_SAMPLE_CACHE_SIZE / validSubjectNum));
+        UncompressedBlock sample = kernel.loadSample(sampleSize);
+        if (sample.empty()) {
+            return null;
+        }
+
+        int[] starts = new int[sample.seek];
+        for (int i = 0; i < starts.length; i++) {
+            starts[i] = sample.variants[i].encodedStart;
+        }
+
+        int[] order = of(sample.encodedCache.getCache(), starts, validSubjectNum);
+        sample.encodedCache.close();
+        return order;
+    }
+
+    /**
+     * 读取 GTB 文件的前若干个位点，计算样本排列
+     *
+     * @param manager GTB 文件管理器
+     * @param columns 参与排列的样本所在的列 (即输出文件的原始样本顺序)
+     * @param phased  读取的基因型向型
+     * @return 样本排列，order[i] 为第 i 列样本在 columns 中的索引，null 表示保持原始顺序
+     */
+    static int[] of(GTBManager manager, int[] columns, boolean phased) throws IOException {
+        // 无序的 GTB 文件不支持 GTBReader，保持原始顺序
+        if (columns.length <= 2 || !manager.isOrderedGTB()) {
+            return null;
+        }
+
+        int sampleSize = Math.max(1, Math.min(SAMPLE_VARIANTS, BlockSizeTuner.MAX_SAMPLE_CACHE_SIZE / columns.length));
+        byte[] codes = new byte[sampleSize * columns.length];
+        int variantNum = 0;
+
+        GTBReader reader = new GTBReader(manager, phased);
+        reader.selectSubjects(columns);
+        Variant variant;
+        while (variantNum < sampleSize && (variant = reader.readVariant()) != null) {
+            System.arraycopy(variant.BEGs, 0, codes, variantNum * columns.length, columns.length);
+            variantNum++;
+        }
+        reader.close();
+
+        int[] starts = new int[variantNum];
+        for (int i = 0; i < variantNum; i++) {
+            starts[i] = i * columns.length;
+        }
+
+        return of(codes, starts, columns.length);
+    }
+
+    /**
+     * 计算样本排列
+     *
+     * @param codes      BEG 编码的基因型数据
+     * @param starts     每个位点的起始位置
+     * @param subjectNum 样本数
+     * @return 样本排列，order[i] 为第 i 列样本的原始索引，null 表示保持原始顺序
+     */
+    static int[] of(byte[] codes, int[] starts, int subjectNum) {
+        // 按次要单倍型个数选择信息量最大的位点
+        long[] scores = new long[starts.length];
+        int featureNum = 0;
+        for (int i = 0; i < starts.length; i++) {
+            int count = 0;
+            for (int j = starts[i], end = starts[i] + subjectNum; j < end; j++) {
+                count += (BEGDecoder.decodeHaplotype(0, codes[j]) > 0 ? 1 : 0) + (BEGDecoder.decodeHaplotype(1, codes[j]) > 0 ? 1 : 0);
+            }
+
+            long minorCount = Math.min(count, 2L * subjectNum - count);
+            if (minorCount > 0) {
+                scores[featureNum++] = (minorCount << 32) | i;
+            }
+        }
+
+        if (featureNum == 0) {
+            return null;
+        }
+
+        Arrays.sort(scores, 0, featureNum);
+        int[] featureVariants = new int[Math.min(featureNum, MAX_FEATURE_VARIANTS)];
+        for (int i = 0; i < featureVariants.length; i++) {
+            featureVariants[i] = (int) scores[featureNum - 1 - i];
+        }
+        Arrays.sort(featureVariants);
+
+        // 每个样本的特征为所选位点的单倍型比特
+        int wordNum = ((featureVariants.length << 1) + 63) >> 6;
+        long[][] features = new long[subjectNum][wordNum];
+        for (int i = 0; i < featureVariants.length; i++) {
+            int start = starts[featureVariants[i]];
+            int bit = i << 1;
+            for (int j = 0; j < subjectNum; j++) {
+                byte code = codes[start + j];
+                if (BEGDecoder.decodeHaplotype(0, code) > 0) {
+                    features[j][bit >> 6] |= 1L << (bit & 63);
+                }
+
+                if (BEGDecoder.decodeHaplotype(1, code) > 0) {
+                    features[j][(bit + 1) >> 6] |= 1L << ((bit + 1) & 63);
+                }
+            }
+        }
+
+        int[] order = subjectNum <= MAX_NEAREST_NEIGHBOUR_SUBJECTS ? nearestNeighbour(features) : lexicographic(features);
+
+        // 排列不变时不保存
+        for (int i = 0; i < order.length; i++) {
+            if (order[i] != i) {
+                return order;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * 最近邻贪心排列，从第一个样本开始，每次选择与当前样本距离最小的剩余样本 (距离相同时选择索引较小的样本)
+     */
+    static int[] nearestNeighbour(long[][] features) {
+        int subjectNum = features.length;
+        int[] order = new int[subjectNum];
+
+        // 剩余的样本，按索引升序保存
+        int[] remaining = new int[subjectNum - 1];
+        for (int i = 0; i < remaining.length; i++) {
+            remaining[i] = i + 1;
+        }
+        int remainingNum = remaining.length;
+
+        int current = 0;
+        for (int i = 1; i < subjectNum; i++) {
+            long[] feature = features[current];
+            int best = 0;
+            int bestDistance = Integer.MAX_VALUE;
+            for (int j = 0; j < remainingNum; j++) {
+                long[] other = features[remaining[j]];
+                int distance = 0;
+                for (int k = 0; k < feature.length && distance < bestDistance; k++) {
+                    distance += Long.bitCount(feature[k] ^ other[k]);
+                }
+
+                if (distance < bestDistance) {
+                    bestDistance = distance;
+                    best = j;
+                }
+            }
+
+            current = remaining[best];
+            order[i] = current;
+            System.arraycopy(remaining, best + 1, remaining, best, remainingNum - best - 1);
+            remainingNum--;
+        }
+
+        return order;
+    }
+
+    /**
+     * 按特征的字典序排列 (稳定排序)
+     */
+    static int[] lexicographic(long[][] features) {
+        Integer[] indexes = new Integer[features.length];
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = i;
+        }
+
+        Arrays.sort(indexes, (o1, o2) -> {
+            long[] feature1 = features[o1];
+            long[] feature2 = features[o2];
+            for (int k = 0; k < feature1.length; k++) {
+                if (feature1[k] != feature2[k]) {
+                    return Long.compareUnsigned(Long.reverse(feature1[k]), Long.reverse(feature2[k]));
+                }
+            }
+
+            return Integer.compare(o1, o2);
+        });
+
+        int[] order = new int[indexes.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = indexes[i];
+        }
+
+        return order;
+    }
+}
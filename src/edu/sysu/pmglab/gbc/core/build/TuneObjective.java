@@ -0,0 +1,49 @@
+package edu.sysu.pmglab.gbc.core.build;
+
+/**
+ * @Data        :2022/03/16
+ * @Author      :suranyi
+ * @Contact     :suranyi.sysu@gamil.com
+ * @Description :试压缩参数选择的优化目标，代价 = Σ 权重 * (指标 / 所有候选参数中该指标的最优值)
+ */
+
+public enum TuneObjective {
+    /**
+     * 优化目标: 压缩比、均衡、压缩速度、解压速度
+     */
+    RATIO(1.0, 0, 0),
+    BALANCED(1.0, 0.5, 0.5),
+    COMPRESS(0.5, 1.0, 0),
+    DECOMPRESS(0.5, 0, 1.0);
+
+    /**
+     * 压缩后大小、压缩耗时、解压耗时的权重
+     */
+    final double sizeWeight;
+    final double compressWeight;
+    final double decompressWeight;
+
+    TuneObjective(double sizeWeight, double compressWeight, double decompressWeight) {
+        this.sizeWeight = sizeWeight;
+        this.compressWeight = compressWeight;
+        this.decompressWeight = decompressWeight;
+    }
+
+    /**
+     * 计算候选参数的代价
+     */
+    double costOf(double size, double compressTime, double decompressTime, double minSize, double minCompressTime, double minDecompressTime) {
+        return this.sizeWeight * size / Math.max(minSize, 1) + this.compressWeight * compressTime / Math.max(minCompressTime, 1) + this.decompressWeight * decompressTime / Math.max(minDecompressTime, 1);
+    }
+
+    /**
+     * 获取支持的优化目标名
+     */
+    public static String[] getObjectiveNames() {
+        String[] names = new String[values().length];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = values()[i].name().toLowerCase();
+        }
+        return names;
+    }
+}
@@ -40,6 +40,17 @@ class UncompressedBlock {
         this.encodedCache = encodedCache;
     }
 
+    /**
+     * 包装已编码的位点，位点的基因型数据位于 encodedCache 中
+     */
+    UncompressedBlock(int chromosomeIndex, VariantAbstract[] variants, VolumeByteStream encodedCache, int validSubjectNum) {
+        this.chromosomeIndex = chromosomeIndex;
+        this.variants = variants;
+        this.seek = variants.length;
+        this.encodedCache = encodedCache;
+        this.validSubjectNum = validSubjectNum;
+    }
+
     public void reset() {
         this.seek = 0;
 
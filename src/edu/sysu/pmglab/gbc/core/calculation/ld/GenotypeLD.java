@@ -4,6 +4,7 @@ import edu.sysu.pmglab.gbc.coder.decoder.BEGDecoder;
 import edu.sysu.pmglab.container.VolumeByteStream;
 import edu.sysu.pmglab.easytools.ByteCode;
 import edu.sysu.pmglab.easytools.ValueUtils;
+import edu.sysu.pmglab.gbc.core.gtbcomponent.gtbreader.PackedGenotypes;
 import edu.sysu.pmglab.gbc.core.gtbcomponent.gtbreader.Variant;
 
 /**
@@ -393,6 +394,11 @@ enum GenotypeLD implements ILDModel, ILDContext {
         return new VariantProperty(groupNum, resNum);
     }
 
+    @Override
+    public boolean supportPackedGenotypes() {
+        return true;
+    }
+
     static class VariantProperty implements IVariantProperty {
         /**
          * 位点扩展属性方法
@@ -505,6 +511,36 @@ enum GenotypeLD implements ILDModel, ILDContext {
             return this;
         }
 
+        @Override
+        public VariantProperty fillBitCodes(Variant variant, PackedGenotypes packedGenotypes) {
+            if (packedGenotypes == null || !packedGenotypes.isAvailable()) {
+                return fillBitCodes(variant);
+            }
+
+            // 2 bit 编码行直接移位得到位集，末尾不足 32 个样本的部分已补 0
+            packedGenotypes.fillBitCodes(N_ALLELE_NUM_EQ_1, N_ALLELE_NUM_EQ_2, validSampleFlags);
+
+            int validSampleNum = 0;
+            int count_ALLELE_NUM_EQ_1 = 0;
+            int count_ALLELE_NUM_EQ_2 = 0;
+            for (int i = 0; i < groupNum; i++) {
+                validSampleNum += Integer.bitCount(validSampleFlags[i]);
+                count_ALLELE_NUM_EQ_1 += Integer.bitCount(N_ALLELE_NUM_EQ_1[i]);
+                count_ALLELE_NUM_EQ_2 += Integer.bitCount(N_ALLELE_NUM_EQ_2[i]);
+            }
+
+            N_ALLELE_I_SQUARE = count_ALLELE_NUM_EQ_1 + (count_ALLELE_NUM_EQ_2 << 2);
+            N_ALT = count_ALLELE_NUM_EQ_1 + (count_ALLELE_NUM_EQ_2 << 1);
+
+            // 标记为无缺失基因型
+            hasMiss = validSampleNum != packedGenotypes.numOfSubjects();
+
+            P_ALT = (float) (N_ALT) / (validSampleNum << 1);
+            P_REF = 1 - P_ALT;
+
+            return this;
+        }
+
         /**
          * 检查 MAF 是否满足要求
          */
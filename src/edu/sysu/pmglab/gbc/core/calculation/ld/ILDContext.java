@@ -51,6 +51,15 @@ interface ILDContext {
         throw new UnsupportedOperationException("unsupported");
     }
 
+    /**
+     * 位点属性是否支持直接使用 2 bit 编码行填充位块
+     *
+     * @return 是否支持
+     */
+    default boolean supportPackedGenotypes() {
+        return false;
+    }
+
     /**
      * 获取文件扩展名
      *
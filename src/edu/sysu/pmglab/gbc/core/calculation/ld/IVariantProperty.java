@@ -1,5 +1,6 @@
 package edu.sysu.pmglab.gbc.core.calculation.ld;
 
+import edu.sysu.pmglab.gbc.core.gtbcomponent.gtbreader.PackedGenotypes;
 import edu.sysu.pmglab.gbc.core.gtbcomponent.gtbreader.Variant;
 
 /**
@@ -14,6 +15,21 @@ public interface IVariantProperty {
      */
     IVariantProperty fillBitCodes(Variant variant);
 
+    /**
+     * 填充位块。packedGenotypes 可用时 (此时位点的 BEG 编码未被填充) 先将 2 bit 编码行还原为 BEG 编码，再按 BEG 编码填充；
+     * 可以直接使用编码行的实现应覆盖该方法
+     * @param variant 待填充的位点
+     * @param packedGenotypes 2 bit 编码行视图 (由 GTBReader.readVariant(Variant, PackedGenotypes) 读取)
+     * @return 返回自身
+     */
+    default IVariantProperty fillBitCodes(Variant variant, PackedGenotypes packedGenotypes) {
+        if (packedGenotypes != null && packedGenotypes.isAvailable()) {
+            packedGenotypes.unpack(variant.BEGs);
+        }
+
+        return fillBitCodes(variant);
+    }
+
     /**
      * 检查 MAF 是否满足要求
      * @param maf 次级等位基因频率阈值
@@ -9,6 +9,7 @@ import edu.sysu.pmglab.container.Pair;
 import edu.sysu.pmglab.container.VolumeByteStream;
 import edu.sysu.pmglab.easytools.ByteCode;
 import edu.sysu.pmglab.gbc.core.gtbcomponent.gtbreader.GTBReader;
+import edu.sysu.pmglab.gbc.core.gtbcomponent.gtbreader.PackedGenotypes;
 import edu.sysu.pmglab.gbc.core.gtbcomponent.gtbreader.Variant;
 import edu.sysu.pmglab.threadPool.Block;
 import edu.sysu.pmglab.threadPool.DynamicPipeline;
@@ -254,6 +255,9 @@ class LDKernel {
                     reader.selectSubjects(task.getSubjects());
                 }
 
+                // 无向二等位基因位点直接使用 2 bit 编码行填充位块
+                PackedGenotypes packedGenotypes = this.ldModel.supportPackedGenotypes() ? new PackedGenotypes() : null;
+
                 // 创建位点缓冲区, 缓冲区大小由样本个数决定
                 Array<Variant> variants = new Array<>(this.maxCacheBlockSize);
                 Array<Variant> processedVariants = new Array<>(this.maxCacheBlockSize + 1);
@@ -273,7 +277,7 @@ class LDKernel {
                     int searchEndPosition = block.getData().maxSearchPos;
 
                     // 加载初始化位点
-                    endOfChromosome = fillCache(localId, variants, processedVariants, reader, searchEndPosition);
+                    endOfChromosome = fillCache(localId, variants, processedVariants, reader, packedGenotypes, searchEndPosition);
 
                     // 位点池不为空
                     out:
@@ -306,7 +310,7 @@ class LDKernel {
                             // 刷新缓冲区
                             int mark = variants.size();
                             variants.flush();
-                            endOfChromosome = fillCache(localId, variants, processedVariants, reader, searchEndPosition);
+                            endOfChromosome = fillCache(localId, variants, processedVariants, reader, packedGenotypes, searchEndPosition);
 
                             for (int i = mark; i < variants.size(); i++) {
                                 Variant variant2 = variants.get(i);
@@ -331,10 +335,10 @@ class LDKernel {
                                 // 创建临时位点及其附属缓冲区
                                 Variant cacheVariant = new Variant();
                                 cacheVariant.property = ldModel.getProperty(validSampleNum);
-                                while (reader.readVariant(cacheVariant) && (cacheVariant.position <= searchEndPosition) && (cacheVariant.position - variant1.position <= task.getWindowSizeBp())) {
+                                while (reader.readVariant(cacheVariant, packedGenotypes) && (cacheVariant.position <= searchEndPosition) && (cacheVariant.position - variant1.position <= task.getWindowSizeBp())) {
                                     if ((variant1.position < cacheVariant.position) && (cacheVariant.getAlternativeAlleleNum() == 2)) {
                                         IVariantProperty property = (IVariantProperty) cacheVariant.property;
-                                        property.fillBitCodes(cacheVariant);
+                                        property.fillBitCodes(cacheVariant, packedGenotypes);
 
                                         if (property.checkMaf(task.getMAF())) {
                                             if (ldModel.calculateLDR2(lineCache, variant1, cacheVariant, task.getMinR2()) != 0) {
@@ -365,7 +369,7 @@ class LDKernel {
         }
     }
 
-    public boolean fillCache(int localIndex, Array<Variant> variants, Array<Variant> processedVariants, GTBReader reader, int searchEndPosition) throws IOException, InterruptedException {
+    public boolean fillCache(int localIndex, Array<Variant> variants, Array<Variant> processedVariants, GTBReader reader, PackedGenotypes packedGenotypes, int searchEndPosition) throws IOException, InterruptedException {
         // 加载初始化位点
         Variant variant;
         while (variants.size() < variants.getCapacity()) {
@@ -376,7 +380,7 @@ class LDKernel {
                 variant = processedVariants.popFirst();
             }
 
-            if (!reader.readVariant(variant) || (variant.position > searchEndPosition)) {
+            if (!reader.readVariant(variant, packedGenotypes) || (variant.position > searchEndPosition)) {
                 processedVariants.add(variant);
                 return true;
             }
@@ -384,7 +388,7 @@ class LDKernel {
             if (variant.getAlternativeAlleleNum() == 2) {
                 // 确保所有的 input 位点都是二等位基因位点，并进行编码转换
                 IVariantProperty property = (IVariantProperty) variant.property;
-                property.fillBitCodes(variant);
+                property.fillBitCodes(variant, packedGenotypes);
 
                 if (property.checkMaf(task.getMAF())) {
                     variants.add(variant);
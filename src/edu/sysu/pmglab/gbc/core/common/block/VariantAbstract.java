@@ -30,9 +30,9 @@ public class VariantAbstract {
     public int position;
 
     /**
-     * 特征向量
+     * 特征向量的长度 (采样窗口个数) 及每个窗口覆盖的样本数
      */
-    public final int[] blockCounts;
+    public final int windowSize;
     public final int featureLength;
 
     /**
@@ -48,7 +48,7 @@ public class VariantAbstract {
     public VariantAbstract(final int validSubjectNum) {
         this.encodedStart = 0;
         this.encodedLength = validSubjectNum;
-        this.blockCounts = null;
+        this.windowSize = 0;
         this.featureLength = -1;
     }
 
@@ -61,7 +61,7 @@ public class VariantAbstract {
     public VariantAbstract(final int validSubjectNum, final int windowSize) {
         this.encodedStart = 0;
         this.encodedLength = validSubjectNum;
-        this.blockCounts = new int[windowSize];
+        this.windowSize = windowSize;
 
         // 每个特征的长度
         this.featureLength = (int) Math.ceil((float) validSubjectNum / windowSize);
@@ -77,7 +77,7 @@ public class VariantAbstract {
     public VariantAbstract(final int validSubjectNum, final int windowSize, final int featureLength) {
         this.encodedStart = 0;
         this.encodedLength = validSubjectNum;
-        this.blockCounts = new int[windowSize];
+        this.windowSize = windowSize;
         this.featureLength = featureLength;
     }
 
@@ -125,51 +125,22 @@ public class VariantAbstract {
     }
 
     /**
-     * 设置特征向量
+     * 计算特征向量，并写入到目标数组中
+     *
+     * @param dst    目标数组
+     * @param offset 目标数组的起始位置
      */
-    public void setFeatureVector(MBEGEncoder encoder, byte[] encodedCache) {
+    public void writeFeatureVector(MBEGEncoder encoder, byte[] encodedCache, int[] dst, int offset) {
         int upBound;
+        int blockCount;
 
-        for (int i = 0; i < this.blockCounts.length; i++) {
-            this.blockCounts[i] = 0;
+        for (int i = 0; i < this.windowSize; i++) {
+            blockCount = 0;
             upBound = ValueUtils.min(this.featureLength * (i + 1), this.encodedLength);
             for (int j = this.featureLength * i; j < upBound; j++) {
-                this.blockCounts[i] += encoder.scoreOf(encodedCache[encodedStart + j] & 0xFF) * (upBound - j);
+                blockCount += encoder.scoreOf(encodedCache[encodedStart + j] & 0xFF) * (upBound - j);
             }
+            dst[offset + i] = blockCount;
         }
-
-    }
-
-    /**
-     * 比对两个位点的顺序
-     *
-     * @param v1 第一个比对位点
-     * @param v2 第二个比对位点
-     */
-    public static int comparatorBaseOnFeatureVector(VariantAbstract v1, VariantAbstract v2) {
-        int status = compareEncoderIndex(v1, v2);
-
-        if (status == 0) {
-            // 若相等
-            if (v1.encoderIndex == 0) {
-                for (int i = 0; i < v1.blockCounts.length; i++) {
-                    if (v1.blockCounts[i] < v2.blockCounts[i]) {
-                        return 1;
-                    } else if (v1.blockCounts[i] > v2.blockCounts[i]) {
-                        return -1;
-                    }
-                }
-            } else {
-                for (int i = 0; i < v1.blockCounts.length; i++) {
-                    if (v1.blockCounts[i] < v2.blockCounts[i]) {
-                        return -1;
-                    } else if (v1.blockCounts[i] > v2.blockCounts[i]) {
-                        return 1;
-                    }
-                }
-            }
-        }
-
-        return status;
     }
 }
\ No newline at end of file
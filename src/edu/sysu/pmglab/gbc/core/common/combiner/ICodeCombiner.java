@@ -16,12 +16,45 @@ public interface ICodeCombiner {
      * 构造器，初始化编码组合器
      * @param phased 是否有向
      * @param validSubjectNum 有效样本数
-     * @return 根据是否组合编码信息获取对应的组合器
+     * @return 根据是否组合编码信息获取对应的组合器，罕见变异位点使用稀疏编码，三等位基因位点使用组合编码
      */
     static ICodeCombiner getInstance(boolean phased, int validSubjectNum) {
+        ICodeCombiner denseCombiner = phased ? new PhasedCodeCombiner(validSubjectNum) : new UnphasedCodeCombiner(validSubjectNum);
+        return new SparseCodeCombiner(new TriallelicCodeCombiner(denseCombiner, phased, validSubjectNum), phased, validSubjectNum);
+    }
+
+    /**
+     * 构造器，初始化编码组合器
+     * @param phased 是否有向
+     * @param validSubjectNum 有效样本数
+     * @param sparse 是否对罕见变异位点使用稀疏编码、对三等位基因位点使用组合编码 (按样本切片的基因型数据不使用稀疏子块与组合子块)
+     */
+    static ICodeCombiner getInstance(boolean phased, int validSubjectNum, boolean sparse) {
+        if (sparse) {
+            return getInstance(phased, validSubjectNum);
+        }
+
         return phased ? new PhasedCodeCombiner(validSubjectNum) : new UnphasedCodeCombiner(validSubjectNum);
     }
 
+    /**
+     * 将使用稀疏编码的位点稳定地移至块尾，并计入第二个子块，需要在写出位置、等位基因数据之前调用
+     * @param variants 变异位点列表
+     * @param subBlockVariantNum 子块各类位点计数
+     * @param encodedCache 编码缓冲区
+     * @return 稀疏位点个数
+     */
+    default int partition(VariantAbstract[] variants, short[] subBlockVariantNum, byte[] encodedCache) {
+        return 0;
+    }
+
+    /**
+     * 最近一次划分中使用组合编码的三等位基因位点个数
+     */
+    default int getTriallelicVariantNum() {
+        return 0;
+    }
+
     /**
      * 组合编码数据
      * @param encoder 组合编码器
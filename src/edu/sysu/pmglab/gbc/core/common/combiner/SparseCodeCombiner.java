@@ -0,0 +1,106 @@
+package edu.sysu.pmglab.gbc.core.common.combiner;
+
+import edu.sysu.pmglab.container.VolumeByteStream;
+import edu.sysu.pmglab.gbc.coder.encoder.MBEGEncoder;
+import edu.sysu.pmglab.gbc.core.common.block.VariantAbstract;
+import edu.sysu.pmglab.gbc.core.gtbcomponent.SparseGenotypeCodec;
+
+/**
+ * @Data        :2022/03/22
+ * @Author      :suranyi
+ * @Contact     :suranyi.sysu@gamil.com
+ * @Description :稀疏基因型编码组合器，罕见变异位点移至块尾并使用稀疏编码 (见 SparseGenotypeCodec)，其余位点交由有向/无向编码组合器处理
+ */
+
+public class SparseCodeCombiner implements ICodeCombiner {
+    final ICodeCombiner denseCombiner;
+    final int validSubjectNum;
+    final int eachLineSize;
+    final int maxNonReferenceNum;
+
+    /**
+     * 稀疏位点及其非参考纯合样本数
+     */
+    VariantAbstract[] sparseVariants = new VariantAbstract[0];
+    int[] nonReferenceNums = new int[0];
+    int sparseVariantNum;
+
+    SparseCodeCombiner(ICodeCombiner denseCombiner, boolean phased, int validSubjectNum) {
+        int eachCodeGenotypeNum = phased ? 3 : 4;
+        this.denseCombiner = denseCombiner;
+        this.validSubjectNum = validSubjectNum;
+        this.eachLineSize = (validSubjectNum / eachCodeGenotypeNum) + (validSubjectNum % eachCodeGenotypeNum == 0 ? 0 : 1);
+        this.maxNonReferenceNum = SparseGenotypeCodec.getMaxNonReferenceNum(validSubjectNum);
+    }
+
+    @Override
+    public int partition(VariantAbstract[] variants, short[] subBlockVariantNum, byte[] encodedCache) {
+        int variantsNum = subBlockVariantNum[0] + subBlockVariantNum[1];
+        if (this.sparseVariants.length < variantsNum) {
+            this.sparseVariants = new VariantAbstract[variantsNum];
+            this.nonReferenceNums = new int[variantsNum];
+        }
+
+        // 稳定划分，稀疏位点计入第二个子块
+        int denseNum = 0;
+        this.sparseVariantNum = 0;
+        for (int i = 0; i < variantsNum; i++) {
+            int nonReferenceNum = SparseGenotypeCodec.countNonReference(encodedCache, variants[i].encodedStart, this.validSubjectNum, this.maxNonReferenceNum);
+
+            // 仅当稀疏编码短于原编码时使用
+            int denseLength = variants[i].encoderIndex == 0 ? this.eachLineSize : this.validSubjectNum;
+            if (nonReferenceNum <= this.maxNonReferenceNum && SparseGenotypeCodec.getMaxEncodedLength(nonReferenceNum) < denseLength) {
+                if (variants[i].encoderIndex == 0) {
+                    subBlockVariantNum[0]--;
+                    subBlockVariantNum[1]++;
+                }
+                this.nonReferenceNums[this.sparseVariantNum] = nonReferenceNum;
+                this.sparseVariants[this.sparseVariantNum++] = variants[i];
+            } else {
+                variants[denseNum++] = variants[i];
+            }
+        }
+
+        System.arraycopy(this.sparseVariants, 0, variants, denseNum, this.sparseVariantNum);
+
+        // 非稀疏位点继续交由内部组合器划分
+        this.denseCombiner.partition(variants, new short[]{subBlockVariantNum[0], (short) (denseNum - subBlockVariantNum[0])}, encodedCache);
+        return this.sparseVariantNum;
+    }
+
+    @Override
+    public int getTriallelicVariantNum() {
+        return this.denseCombiner.getTriallelicVariantNum();
+    }
+
+    @Override
+    public void process(MBEGEncoder encoder, VariantAbstract[] variants, short[] subBlockVariantNum, byte[] encodedCache, VolumeByteStream dst) {
+        if (this.sparseVariantNum == 0) {
+            this.denseCombiner.process(encoder, variants, subBlockVariantNum, encodedCache, dst);
+            return;
+        }
+
+        int denseNum = subBlockVariantNum[0] + subBlockVariantNum[1] - this.sparseVariantNum;
+        this.denseCombiner.process(encoder, variants, new short[]{subBlockVariantNum[0], (short) (denseNum - subBlockVariantNum[0])}, encodedCache, dst);
+
+        // 稀疏子块及稀疏位点个数
+        int requestSize = 4;
+        for (int i = 0; i < this.sparseVariantNum; i++) {
+            requestSize += SparseGenotypeCodec.getMaxEncodedLength(this.nonReferenceNums[i]);
+        }
+
+        if (dst.getCapacity() - dst.size() < requestSize) {
+            dst.expansionTo(dst.size() + (requestSize << 1));
+        }
+
+        for (int i = 0; i < this.sparseVariantNum; i++) {
+            SparseGenotypeCodec.encode(encodedCache, variants[denseNum + i].encodedStart, this.validSubjectNum, this.nonReferenceNums[i], dst);
+        }
+        dst.writeIntegerValue(this.sparseVariantNum);
+    }
+
+    @Override
+    public void process(MBEGEncoder encoder, byte[] BEGs, int encoderIndex, VolumeByteStream dst) {
+        this.denseCombiner.process(encoder, BEGs, encoderIndex, dst);
+    }
+}
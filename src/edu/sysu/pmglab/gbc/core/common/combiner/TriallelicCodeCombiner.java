@@ -0,0 +1,101 @@
+package edu.sysu.pmglab.gbc.core.common.combiner;
+
+import edu.sysu.pmglab.container.VolumeByteStream;
+import edu.sysu.pmglab.gbc.coder.encoder.MBEGEncoder;
+import edu.sysu.pmglab.gbc.core.common.block.VariantAbstract;
+import edu.sysu.pmglab.gbc.core.gtbcomponent.TriallelicGenotypeCodec;
+
+/**
+ * @Data        :2022/04/02
+ * @Author      :suranyi
+ * @Contact     :suranyi.sysu@gamil.com
+ * @Description :三等位基因编码组合器，第二个子块中仅含等位基因 0, 1, 2 的位点移至子块最前面，每 2 个基因型组合为 1 byte (见 TriallelicGenotypeCodec)，
+ *               MBEG 子块及其余位点交由有向/无向编码组合器处理
+ */
+
+public class TriallelicCodeCombiner implements ICodeCombiner {
+    final ICodeCombiner denseCombiner;
+    final MBEGEncoder triallelicEncoder;
+    final int validSubjectNum;
+    final int pairNum;
+    final boolean odd;
+
+    /**
+     * 其他多等位基因位点及三等位基因位点个数
+     */
+    VariantAbstract[] otherVariants = new VariantAbstract[0];
+    int triallelicVariantNum;
+
+    TriallelicCodeCombiner(ICodeCombiner denseCombiner, boolean phased, int validSubjectNum) {
+        this.denseCombiner = denseCombiner;
+        this.triallelicEncoder = MBEGEncoder.getTriallelicEncoder(phased);
+        this.validSubjectNum = validSubjectNum;
+        this.pairNum = validSubjectNum >> 1;
+        this.odd = (validSubjectNum & 1) == 1;
+    }
+
+    @Override
+    public int partition(VariantAbstract[] variants, short[] subBlockVariantNum, byte[] encodedCache) {
+        int start = subBlockVariantNum[0];
+        int end = subBlockVariantNum[0] + subBlockVariantNum[1];
+        if (this.otherVariants.length < end - start) {
+            this.otherVariants = new VariantAbstract[end - start];
+        }
+
+        // 稳定划分，三等位基因位点移至第二个子块的最前面
+        int otherNum = 0;
+        this.triallelicVariantNum = 0;
+        for (int i = start; i < end; i++) {
+            if (TriallelicGenotypeCodec.isTriallelic(encodedCache, variants[i].encodedStart, this.validSubjectNum)) {
+                variants[start + this.triallelicVariantNum++] = variants[i];
+            } else {
+                this.otherVariants[otherNum++] = variants[i];
+            }
+        }
+        System.arraycopy(this.otherVariants, 0, variants, start + this.triallelicVariantNum, otherNum);
+
+        // 节省的空间不足以抵消位点个数字段时不使用组合编码
+        if (TriallelicGenotypeCodec.getSavedSize(this.triallelicVariantNum, this.validSubjectNum) <= 0) {
+            this.triallelicVariantNum = 0;
+        }
+
+        return 0;
+    }
+
+    @Override
+    public int getTriallelicVariantNum() {
+        return this.triallelicVariantNum;
+    }
+
+    @Override
+    public void process(MBEGEncoder encoder, VariantAbstract[] variants, short[] subBlockVariantNum, byte[] encodedCache, VolumeByteStream dst) {
+        if (this.triallelicVariantNum == 0) {
+            this.denseCombiner.process(encoder, variants, subBlockVariantNum, encodedCache, dst);
+            return;
+        }
+
+        // MBEG 子块、三等位基因位点个数、组合子块及其余位点
+        this.denseCombiner.process(encoder, variants, new short[]{subBlockVariantNum[0], 0}, encodedCache, dst);
+        dst.writeIntegerValue(this.triallelicVariantNum);
+        int triallelicEnd = subBlockVariantNum[0] + this.triallelicVariantNum;
+        for (int i = subBlockVariantNum[0]; i < triallelicEnd; i++) {
+            int start = variants[i].encodedStart;
+            for (int j = 0; j < this.pairNum; j++) {
+                dst.write(this.triallelicEncoder.encode(encodedCache[start + (j << 1)], encodedCache[start + (j << 1) + 1]));
+            }
+
+            if (this.odd) {
+                dst.write(this.triallelicEncoder.encode(encodedCache[start + this.validSubjectNum - 1]));
+            }
+        }
+
+        for (int i = triallelicEnd; i < subBlockVariantNum[0] + subBlockVariantNum[1]; i++) {
+            dst.write(encodedCache, variants[i].encodedStart, this.validSubjectNum);
+        }
+    }
+
+    @Override
+    public void process(MBEGEncoder encoder, byte[] BEGs, int encoderIndex, VolumeByteStream dst) {
+        this.denseCombiner.process(encoder, BEGs, encoderIndex, dst);
+    }
+}
@@ -21,10 +21,10 @@ public interface ISwitcher {
     /**
      * 构造器，初始化交换器
      * @param permutation 是否进行重排列
-     * @return 根据是否重排列信息获取对应的交换器
+     * @return 根据是否重排列信息获取对应的交换器，重排列交换器持有可复用的缓冲区，不能在多个线程之间共享
      */
     static ISwitcher getInstance(boolean permutation) {
-        return permutation ? Switcher.INSTANCE : EmptySwitcher.INSTANCE;
+        return permutation ? new Switcher() : EmptySwitcher.INSTANCE;
     }
 
     /**
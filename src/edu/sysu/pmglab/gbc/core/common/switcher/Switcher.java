@@ -3,27 +3,151 @@ package edu.sysu.pmglab.gbc.core.common.switcher;
 import edu.sysu.pmglab.gbc.coder.encoder.MBEGEncoder;
 import edu.sysu.pmglab.gbc.core.common.block.VariantAbstract;
 
-import java.util.Arrays;
-
 /**
  * @Data :2021/02/23
  * @Author :suranyi
  * @Contact :suranyi.sysu@gamil.com
- * @Description :特征交换器
+ * @Description :特征交换器，特征向量按块打包在一个整型数组中，对位点索引进行稳定排序后一次性重排位点。编码器索引为 0 的位点排在前面，
+ *               其中的位点按特征向量的字典序降序排列，其余位点按特征向量的字典序升序排列，特征向量相同的位点保持原有顺序
  */
 
-public enum Switcher implements ISwitcher {
+public class Switcher implements ISwitcher {
+    /**
+     * 插入排序的阈值
+     */
+    static final int INSERTION_SORT_THRESHOLD = 32;
+
+    /**
+     * 可复用的缓冲区: 打包的特征向量 (第 i 个位点的特征位于 [i * windowSize, (i + 1) * windowSize))、位点索引、归并排序的辅助索引、重排前的位点
+     */
+    int[] features = new int[0];
+    int[] indexes = new int[0];
+    int[] auxIndexes = new int[0];
+    VariantAbstract[] originVariants = new VariantAbstract[0];
+
     /**
-     * 单例模式特征交换器
+     * 当前块的特征向量长度
      */
-    INSTANCE;
+    int windowSize;
 
     @Override
     public void switchingRow(MBEGEncoder encoder, VariantAbstract[] variants, int variantsNum, byte[] encodedCache) {
+        if (variantsNum <= 1) {
+            return;
+        }
+
+        this.windowSize = variants[0].windowSize;
+        ensureCapacity(variantsNum);
+
+        // 计算特征向量，并按编码器索引稳定划分 (编码器索引 0 的位点在前)
+        int count0 = 0;
         for (int i = 0; i < variantsNum; i++) {
-            variants[i].setFeatureVector(encoder, encodedCache);
+            variants[i].writeFeatureVector(encoder, encodedCache, this.features, i * this.windowSize);
+            if (variants[i].encoderIndex == 0) {
+                count0++;
+            }
+        }
+
+        int index0 = 0;
+        int index1 = count0;
+        for (int i = 0; i < variantsNum; i++) {
+            if (variants[i].encoderIndex == 0) {
+                this.indexes[index0++] = i;
+            } else {
+                this.indexes[index1++] = i;
+            }
+        }
+
+        // 编码器索引 0 的位点按特征降序，其余位点按特征升序
+        sort(0, count0, true);
+        sort(count0, variantsNum, false);
+
+        // 一次性应用排列
+        System.arraycopy(variants, 0, this.originVariants, 0, variantsNum);
+        for (int i = 0; i < variantsNum; i++) {
+            variants[i] = this.originVariants[this.indexes[i]];
+        }
+    }
+
+    /**
+     * 扩容缓冲区
+     * @param variantsNum 位点个数
+     */
+    void ensureCapacity(int variantsNum) {
+        if (this.indexes.length < variantsNum) {
+            this.indexes = new int[variantsNum];
+            this.auxIndexes = new int[variantsNum];
+            this.originVariants = new VariantAbstract[variantsNum];
+        }
+
+        if (this.features.length < variantsNum * this.windowSize) {
+            this.features = new int[variantsNum * this.windowSize];
+        }
+    }
+
+    /**
+     * 对 indexes[from, to) 进行稳定的归并排序
+     * @param descending 是否降序
+     */
+    void sort(int from, int to, boolean descending) {
+        if (to - from <= 1) {
+            return;
+        }
+
+        System.arraycopy(this.indexes, from, this.auxIndexes, from, to - from);
+        mergeSort(this.auxIndexes, this.indexes, from, to, descending);
+    }
+
+    /**
+     * 将 src[from, to) 排序后写入 dst[from, to)，两者在调用前内容相同
+     */
+    void mergeSort(int[] src, int[] dst, int from, int to, boolean descending) {
+        if (to - from <= INSERTION_SORT_THRESHOLD) {
+            for (int i = from + 1; i < to; i++) {
+                int index = dst[i];
+                int j = i - 1;
+                while (j >= from && compare(dst[j], index, descending) > 0) {
+                    dst[j + 1] = dst[j];
+                    j--;
+                }
+                dst[j + 1] = index;
+            }
+            return;
+        }
+
+        int mid = (from + to) >>> 1;
+        mergeSort(dst, src, from, mid, descending);
+        mergeSort(dst, src, mid, to, descending);
+
+        // 两个子序列已有序，直接复制
+        if (compare(src[mid - 1], src[mid], descending) <= 0) {
+            System.arraycopy(src, from, dst, from, to - from);
+            return;
+        }
+
+        for (int i = from, p = from, q = mid; i < to; i++) {
+            if (q >= to || (p < mid && compare(src[p], src[q], descending) <= 0)) {
+                dst[i] = src[p++];
+            } else {
+                dst[i] = src[q++];
+            }
+        }
+    }
+
+    /**
+     * 按字典序比较两个位点的特征向量
+     */
+    int compare(int index1, int index2, boolean descending) {
+        int offset1 = index1 * this.windowSize;
+        int offset2 = index2 * this.windowSize;
+        for (int i = 0; i < this.windowSize; i++) {
+            int feature1 = this.features[offset1 + i];
+            int feature2 = this.features[offset2 + i];
+            if (feature1 != feature2) {
+                return (feature1 < feature2) == descending ? 1 : -1;
+            }
         }
 
-        Arrays.sort(variants, 0, variantsNum, VariantAbstract::comparatorBaseOnFeatureVector);
+        return 0;
     }
 }
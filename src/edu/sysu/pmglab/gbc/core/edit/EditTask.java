@@ -36,6 +36,11 @@ public class EditTask implements ITask {
     private final Set<Operator> operators = new HashSet<>(6);
     private String newContigFile;
 
+    /**
+     * 输出文件是否保留块校验码，合并的文件均包含块校验码时才保留
+     */
+    private boolean checksum;
+
     /**
      * 构造器，原位改变模式
      * @param inputFileName 输入文件名
@@ -53,6 +58,7 @@ public class EditTask implements ITask {
         this.mainManager = GTBRootCache.get(inputFileName);
         this.mainManagerTree = this.mainManager.getGtbTree();
         this.outputFileName = outputFileName;
+        this.checksum = this.mainManager.hasChecksum();
     }
 
     /**
@@ -322,7 +328,9 @@ public class EditTask implements ITask {
             for (GTBManager gtbManager : fromsGtb) {
                 Assert.that(mainManager.isPhased() == gtbManager.isPhased(), GBCExceptionOptions.GTBComponentException, "files with different `phased` cannot be concatenated");
                 Assert.that(mainManager.getCompressorIndex() == gtbManager.getCompressorIndex(), GBCExceptionOptions.GTBComponentException, "files with different `compressor` cannot be concatenated");
+                Assert.that(Arrays.equals(mainManager.getDictionary(), gtbManager.getDictionary()), GBCExceptionOptions.GTBComponentException, "files with different compression dictionaries cannot be concatenated (use `rebuild` to recompress them first)");
                 Assert.that((mainManager.getSubjectNum() == gtbManager.getSubjectNum()) && (ArrayUtils.equal(mainManager.getSubjects(), gtbManager.getSubjects())), GBCExceptionOptions.GTBComponentException, "files with different `subjects name` cannot be concatenated");
+                Assert.that(Arrays.equals(mainManager.getSubjectManager().getOrder(), gtbManager.getSubjectManager().getOrder()), GBCExceptionOptions.GTBComponentException, "files with different subject orders cannot be concatenated (use `rebuild` to restore the original order first)");
             }
 
             synchronized (this) {
@@ -333,6 +341,7 @@ public class EditTask implements ITask {
 
                         // 将该节点树合并至主根
                         mainManagerTree.add(otherManager.getGtbTree());
+                        this.checksum &= otherManager.hasChecksum();
                     }
                 }
 
@@ -364,7 +373,15 @@ public class EditTask implements ITask {
                     vbs.writeSafety(ByteCode.TAB);
                     vbs.write(subjects[i]);
                 }
-                mainManager.getSubjectManager().load(vbs);
+
+                // 新样本名按原始顺序给出，样本排列保持不变
+                int[] order = mainManager.getSubjectManager().getOrder();
+                if (order == null) {
+                    mainManager.getSubjectManager().load(vbs);
+                } else {
+                    mainManager.getSubjectManager().load(GTBSubjectOrder.reorder(vbs.values(), order));
+                    mainManager.getSubjectManager().setOrder(order);
+                }
 
                 this.operators.add(Operator.RESET_SUBJECT);
             }
@@ -410,16 +427,16 @@ public class EditTask implements ITask {
                         GTBManager tempManager = new GTBManager(mainManager, chromosomeIndex);
 
                         outs.put(chromosomeIndex, new FileStream(this.outputFileName + "/chr" + ChromosomeTags.getString(chromosomeIndex) + ".gtb", FileOptions.CHANNEL_WRITER));
-                        headers.put(chromosomeIndex, tempManager.getGtbTree().build());
+                        headers.put(chromosomeIndex, tempManager.getGtbTree().build(this.checksum));
 
                         // 写入头部信息
                         tempManager.checkOrderedGTB();
                         tempManager.checkSuggestToBGZF();
-                        outs.get(chromosomeIndex).write(tempManager.buildHeader());
+                        outs.get(chromosomeIndex).write(tempManager.buildHeader(tempManager.getDictionary(), this.checksum));
                     }
                 } else {
                     FileStream out = new FileStream(tempOutputFile, FileOptions.CHANNEL_WRITER);
-                    VolumeByteStream headerTemp = mainManagerTree.build();
+                    VolumeByteStream headerTemp = mainManagerTree.build(this.checksum);
                     for (int chromosomeIndex : mainManager.getChromosomeList()) {
                         outs.put(chromosomeIndex, out);
                         headers.put(chromosomeIndex, headerTemp);
@@ -428,7 +445,7 @@ public class EditTask implements ITask {
                     // 写入头部信息
                     mainManager.checkOrderedGTB();
                     mainManager.checkSuggestToBGZF();
-                    out.write(mainManager.buildHeader());
+                    out.write(mainManager.buildHeader(mainManager.getDictionary(), this.checksum));
                 }
 
                 if (operators.contains(Operator.CONCAT)) {
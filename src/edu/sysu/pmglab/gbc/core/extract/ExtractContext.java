@@ -2,9 +2,15 @@ package edu.sysu.pmglab.gbc.core.extract;
 
 import edu.sysu.pmglab.compressor.IDecompressor;
 import edu.sysu.pmglab.container.ShareCache;
-import edu.sysu.pmglab.easytools.ByteCode;
+import edu.sysu.pmglab.container.VolumeByteStream;
+import edu.sysu.pmglab.gbc.core.gtbcomponent.AlleleCodec;
+import edu.sysu.pmglab.gbc.core.gtbcomponent.GTBChecksum;
 import edu.sysu.pmglab.gbc.core.gtbcomponent.GTBManager;
 import edu.sysu.pmglab.gbc.core.gtbcomponent.GTBNode;
+import edu.sysu.pmglab.gbc.core.gtbcomponent.GenotypeFrameCodec;
+import edu.sysu.pmglab.gbc.core.gtbcomponent.GenotypeSliceCodec;
+import edu.sysu.pmglab.gbc.core.gtbcomponent.PositionCodec;
+import edu.sysu.pmglab.gbc.core.gtbcomponent.TriallelicGenotypeCodec;
 import edu.sysu.pmglab.unifyIO.FileStream;
 
 import java.io.IOException;
@@ -30,6 +36,27 @@ class ExtractContext {
     final TaskVariant[] tasks;
     final TaskVariant[] realTasks;
 
+    /**
+     * 解码后的位置值
+     */
+    final int[] positions;
+
+    /**
+     * 等位基因解码器及每个位点的等位基因偏移量
+     */
+    final AlleleCodec alleleCodec;
+    final int[] alleleOffsets;
+
+    /**
+     * 样本切片的基因型数据解码器，只解压包含提取样本的切片
+     */
+    final GenotypeSliceCodec sliceCodec;
+
+    /**
+     * 三等位基因组合子块解码器
+     */
+    final TriallelicGenotypeCodec triallelicCodec;
+
     /**
      * 未解压数据暂存缓冲区、解压后数据暂存缓冲区
      */
@@ -45,11 +72,19 @@ class ExtractContext {
      */
     final IVCFFormatter rebuild;
 
+    /**
+     * 是否检验块校验码及块数据缓冲区，检验时整个块只读取一次到 blockCache 中，各数据流直接从中解压
+     */
+    final boolean verifyChecksum;
+    final VolumeByteStream blockCache = new VolumeByteStream(0);
+
     /**
      * 标准解压缩
      * @param gtbManager 当前任务对应的 gtb 文件
+     * @param verifyChecksum 是否检验块校验码
+     * @param memoryMapped 是否从共享的数据区映射中读取块数据
      */
-    ExtractContext(final GTBManager gtbManager, final IVCFFormatter rebuild, ShareCache globalCache) throws IOException {
+    ExtractContext(final GTBManager gtbManager, final IVCFFormatter rebuild, ShareCache globalCache, boolean verifyChecksum, boolean memoryMapped) throws IOException {
         // 设置文件重构器
         this.rebuild = rebuild;
 
@@ -62,12 +97,25 @@ class ExtractContext {
         // 变异位点列表及实位点列表
         this.tasks = new TaskVariant[gtbManager.getBlockSize()];
         this.realTasks = new TaskVariant[gtbManager.getBlockSize()];
+        this.positions = new int[gtbManager.getBlockSize()];
+        this.alleleCodec = new AlleleCodec();
+        this.alleleOffsets = new int[gtbManager.getBlockSize() + 1];
         for (int i = 0; i < tasks.length; i++) {
             this.tasks[i] = new TaskVariant();
         }
 
+        // 提取的样本
+        int[] subjectIndexes = new int[rebuild.pairs.length];
+        for (int i = 0; i < subjectIndexes.length; i++) {
+            subjectIndexes[i] = rebuild.pairs[i].index;
+        }
+        this.sliceCodec = new GenotypeSliceCodec(gtbManager.getSubjectNum(), gtbManager.isPhased());
+        this.sliceCodec.selectSubjects(subjectIndexes);
+        this.triallelicCodec = new TriallelicGenotypeCodec(gtbManager.getSubjectNum(), gtbManager.isPhased());
+
         // 打开 gtb 文件
-        this.gtbFile = gtbManager.getFileStream();
+        this.gtbFile = gtbManager.getBlockStream(memoryMapped);
+        this.verifyChecksum = verifyChecksum;
     }
 
     /**
@@ -77,15 +125,19 @@ class ExtractContext {
         // 解压的任务节点
         GTBNode node = block.node;
 
+        // 检验块校验码
+        if (this.verifyChecksum && !GTBChecksum.check(node, this.gtbFile, this.blockCache)) {
+            throw new IOException("checksum mismatch in block (" + node + ")");
+        }
+
         // 校验临时缓冲区大小
         this.globalCache.getCache(0).makeSureCapacity(node.compressedAlleleSize, node.compressedGenotypesSize, node.compressedPosSize);
 
         /* 读取位置数据并解压 */
-        this.globalCache.getCache(0).reset();
         this.globalCache.getCache(2).reset();
-        gtbFile.seek(node.blockSeek + node.compressedGenotypesSize);
-        gtbFile.read(this.globalCache.getCache(0), node.compressedPosSize);
-        decompressor.decompress(this.globalCache.getCache(0), this.globalCache.getCache(2));
+        int offset = readStream(node, node.compressedGenotypesSize, node.compressedPosSize);
+        decompressor.decompress(streamCache(), offset, node.compressedPosSize, this.globalCache.getCache(2));
+        PositionCodec.decode(node, this.globalCache.getCache(2), this.positions);
 
         /* 设置位置数据、当前索引 */
         // 实际的任务数量
@@ -94,8 +146,7 @@ class ExtractContext {
             // 解压所有数据
             taskNums = node.numOfVariants();
             for (int i = 0; i < taskNums; i++) {
-                this.tasks[i].setPosition(this.globalCache.getCache(2).cacheOf(i << 2), this.globalCache.getCache(2).cacheOf(1 + (i << 2)),
-                        this.globalCache.getCache(2).cacheOf(2 + (i << 2)), this.globalCache.getCache(2).cacheOf(3 + (i << 2)))
+                this.tasks[i].setPosition(this.positions[i])
                         .setIndex(i)
                         .setDecoderIndex(i < node.subBlockVariantNum[0] ? 0 : 1);
                 this.realTasks[i] = this.tasks[i].setPositionInfo();
@@ -103,8 +154,7 @@ class ExtractContext {
         } else if (block.taskType == 1) {
             // 解压指定范围数据
             for (int i = 0; i < node.numOfVariants(); i++) {
-                this.tasks[i].setPosition(this.globalCache.getCache(2).cacheOf(i << 2), this.globalCache.getCache(2).cacheOf(1 + (i << 2)),
-                        this.globalCache.getCache(2).cacheOf(2 + (i << 2)), this.globalCache.getCache(2).cacheOf(3 + (i << 2)))
+                this.tasks[i].setPosition(this.positions[i])
                         .checkBounds(block.minPos, block.maxPos, i);
                 if (this.tasks[i].index != -1) {
                     // 如果该任务是有效任务
@@ -115,8 +165,7 @@ class ExtractContext {
         } else if (block.taskType == 2) {
             // 解压指定任务列表的数据
             for (int i = 0; i < node.numOfVariants(); i++) {
-                this.tasks[i].setPosition(this.globalCache.getCache(2).cacheOf(i << 2), this.globalCache.getCache(2).cacheOf(1 + (i << 2)),
-                        this.globalCache.getCache(2).cacheOf(2 + (i << 2)), this.globalCache.getCache(2).cacheOf(3 + (i << 2)))
+                this.tasks[i].setPosition(this.positions[i])
                         .checkBounds(block.taskPos, i);
                 if (this.tasks[i].index != -1) {
                     // 如果该任务是有效任务
@@ -132,45 +181,66 @@ class ExtractContext {
         }
 
         /* 读取 allele 数据并解压 */
-        this.globalCache.getCache(0).reset();
         this.globalCache.getCache(2).reset();
-        gtbFile.read(this.globalCache.getCache(0), node.compressedAlleleSize);
-        decompressor.decompress(this.globalCache.getCache(0), this.globalCache.getCache(2));
+        offset = readStream(node, node.compressedGenotypesSize + node.compressedPosSize, node.compressedAlleleSize);
+        this.alleleCodec.decompress(decompressor, node, streamCache(), offset, node.compressedAlleleSize, this.globalCache.getCache(1), this.globalCache.getCache(2), this.alleleOffsets);
 
         /* 捕获 allele 数据 */
-        int lastIndex = 0;
-        int startPos;
-        int endPos = this.realTasks[0].index == 0 ? -1 : 0;
-
         for (int i = 0; i < taskNums; i++) {
-            startPos = this.globalCache.getCache(2).indexOfN(ByteCode.SLASH, endPos, this.realTasks[i].index - lastIndex);
-            endPos = this.globalCache.getCache(2).indexOfN(ByteCode.SLASH, startPos + 1, 1);
-            this.realTasks[i].setAlleleInfo(startPos + 1, endPos);
-
-            // 更新 lastIndex 信息
-            lastIndex = this.realTasks[i].index + 1;
+            int index = this.realTasks[i].index;
+            this.realTasks[i].setAlleleInfo(this.alleleOffsets[index], this.alleleOffsets[index + 1] - 1);
         }
 
         /* 按照 position 进行局部重排序 */
         Arrays.sort(this.realTasks, 0, taskNums, TaskVariant::compareVariant);
 
         /* 读取 genotype 数据并解压 */
-        this.globalCache.getCache(0).reset();
         this.globalCache.getCache(1).reset();
-        gtbFile.seek(node.blockSeek);
-        gtbFile.read(this.globalCache.getCache(0), node.compressedGenotypesSize);
-        decompressor.decompress(this.globalCache.getCache(0), this.globalCache.getCache(1));
+        if (node.slicedGenotype && this.verifyChecksum) {
+            this.sliceCodec.decompress(node, this.blockCache.getCache(), 0, decompressor, this.globalCache.getCache(1));
+        } else if (node.slicedGenotype) {
+            // 按样本切片的基因型数据只读取并解压包含提取样本的切片
+            this.sliceCodec.decompress(node, gtbFile, decompressor, this.globalCache.getCache(0), this.globalCache.getCache(1));
+        } else {
+            offset = readStream(node, 0, node.compressedGenotypesSize);
+            GenotypeFrameCodec.decompress(node, streamCache(), offset, node.compressedGenotypesSize, decompressor, this.globalCache.getCache(1));
+        }
+        this.triallelicCodec.expand(node, this.globalCache.getCache(1));
 
         /* 编码基因型数据 */
         return this.rebuild.decode(this.globalCache.getCache(1), this.globalCache.getCache(2), node, this.realTasks, taskNums);
     }
 
+    /**
+     * 读取块内 [offset, offset + length) 的数据流，检验校验码时块已整体读入 blockCache，无需再次读取
+     * @return 数据流在 streamCache() 中的起始位置
+     */
+    int readStream(GTBNode node, int offset, int length) throws IOException {
+        if (this.verifyChecksum) {
+            return offset;
+        }
+
+        this.globalCache.getCache(0).reset();
+        gtbFile.seek(node.blockSeek + offset);
+        gtbFile.read(this.globalCache.getCache(0), length);
+        return 0;
+    }
+
+    /**
+     * 数据流所在的缓冲区
+     */
+    byte[] streamCache() {
+        return this.verifyChecksum ? this.blockCache.getCache() : this.globalCache.getCache(0).getCache();
+    }
+
     /**
      * 关闭压缩器
      */
     public void close() throws IOException {
         this.gtbFile.close();
+        this.blockCache.close();
         this.decompressor.close();
         this.rebuild.close();
+        this.sliceCodec.close();
     }
 }
@@ -183,8 +183,14 @@ class ExtractKernel {
         // 创建线程池
         this.threadPool = new ThreadPool(this.task.getThreads() + 1);
 
-        // 重构器加载数据，为 null 说明没有指定顺序
-        this.subjectIndexes = this.task.getSubjects() == null ? null : this.gtbManager.getSubjectIndex(this.task.getSubjects());
+        // 重构器加载数据，为 null 说明没有指定顺序 (样本经过重排时按原始顺序提取)
+        if (this.task.getSubjects() != null) {
+            this.subjectIndexes = this.gtbManager.getSubjectIndex(this.task.getSubjects());
+        } else if (this.gtbManager.getSubjectManager().isReordered()) {
+            this.subjectIndexes = this.gtbManager.getSubjectManager().getOriginalColumns();
+        } else {
+            this.subjectIndexes = null;
+        }
 
         // 设定任务索引对
         IndexPair[] pairs;
@@ -272,7 +278,7 @@ class ExtractKernel {
                 globalCache.alloc(maxOriginMBEGsSize);
                 globalCache.alloc(maxOriginAllelesSize);
 
-                ExtractContext ctx = new ExtractContext(this.gtbManager, this.rebuilder.getInstance(), globalCache);
+                ExtractContext ctx = new ExtractContext(this.gtbManager, this.rebuilder.getInstance(), globalCache, this.task.isChecksumVerification(), this.task.isMemoryMapped());
 
                 // 提取 input 数据
                 do {
@@ -34,6 +34,8 @@ public class ExtractTask implements ITask {
     boolean phased;
     StringArray subjects;
     boolean hideGenotype = false;
+    boolean verifyChecksum = true;
+    boolean memoryMapped = false;
     final AlleleQC alleleQC = new AlleleQC();
     BGZOutputParam outputParam = new BGZOutputParam();
 
@@ -298,6 +300,29 @@ public class ExtractTask implements ITask {
         return hideGenotype(true);
     }
 
+    /**
+     * 解压时检验块校验码，默认对包含块校验码的文件进行检验
+     */
+    public ExtractTask setChecksumVerification(boolean verifyChecksum) {
+        synchronized (this) {
+            this.verifyChecksum = verifyChecksum;
+        }
+
+        return this;
+    }
+
+    /**
+     * 设置是否从 GTB 文件数据区的内存映射中读取块数据 (所有解压线程共享同一个映射)
+     * @param memoryMapped 使用内存映射
+     */
+    public ExtractTask setMemoryMapped(boolean memoryMapped) {
+        synchronized (this) {
+            this.memoryMapped = memoryMapped;
+        }
+
+        return this;
+    }
+
     /**
      * 获取设置的过滤器
      */
@@ -363,6 +388,20 @@ public class ExtractTask implements ITask {
         return this.hideGenotype;
     }
 
+    /**
+     * 是否检验块校验码
+     */
+    public boolean isChecksumVerification() {
+        return this.verifyChecksum && this.manager.hasChecksum();
+    }
+
+    /**
+     * 是否从内存映射中读取块数据
+     */
+    public boolean isMemoryMapped() {
+        return this.memoryMapped;
+    }
+
     /**
      * 获取输入文件名
      */
@@ -608,6 +647,8 @@ public class ExtractTask implements ITask {
                 "\n\tthreads: " + this.threads +
                 "\n\t" + this.outputParam +
                 "\n\thideGenotype: " + this.hideGenotype +
+                (this.manager.hasChecksum() ? "\n\tverifyChecksum: " + this.verifyChecksum : "") +
+                (this.memoryMapped ? "\n\tmemoryMapped: true" : "") +
                 "\n\tphased: " + this.phased +
                 "\n\tsubjects: " + subjectInfo +
                 (this.alleleQC.size() == 0 ? "" : "\n\tfilter: " + this.alleleQC) +
@@ -8,6 +8,7 @@ import edu.sysu.pmglab.gbc.coder.decoder.MBEGDecoder;
 import edu.sysu.pmglab.gbc.constant.ChromosomeTags;
 import edu.sysu.pmglab.gbc.core.common.qualitycontrol.allele.AlleleQC;
 import edu.sysu.pmglab.gbc.core.gtbcomponent.GTBNode;
+import edu.sysu.pmglab.gbc.core.gtbcomponent.SparseGenotypeCodec;
 import edu.sysu.pmglab.unifyIO.partwriter.BGZOutputParam;
 import edu.sysu.pmglab.unifyIO.partwriter.IBlockWriter;
 
@@ -26,6 +27,7 @@ abstract class IVCFFormatter {
     final int totalSubjectNum;
     final byte[][] AN_TEMP;
     final int eachLineSize;
+    final SparseGenotypeCodec sparseCodec;
     BEGDecoder decoder;
     MBEGDecoder groupDecoder;
     IBlockWriter<ByteBuffer> outputStream;
@@ -42,6 +44,7 @@ abstract class IVCFFormatter {
         int eachCodeGenotypeNum = originPhased ? 3 : 4;
         int resBlockCodeGenotypeNum = totalSubjectNum % eachCodeGenotypeNum;
         this.eachLineSize = (this.totalSubjectNum / eachCodeGenotypeNum) + (resBlockCodeGenotypeNum == 0 ? 0 : 1);
+        this.sparseCodec = new SparseGenotypeCodec(this.totalSubjectNum, this.eachLineSize);
     }
 
     ByteBuffer decode(VolumeByteStream genotypeEncodedStream, VolumeByteStream alleleStream, GTBNode node, TaskVariant[] task, int validTasksNum) {
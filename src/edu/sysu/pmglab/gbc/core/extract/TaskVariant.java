@@ -2,7 +2,6 @@ package edu.sysu.pmglab.gbc.core.extract;
 
 import edu.sysu.pmglab.container.VolumeByteStream;
 import edu.sysu.pmglab.easytools.ByteCode;
-import edu.sysu.pmglab.easytools.ValueUtils;
 
 import java.util.HashSet;
 
@@ -25,8 +24,8 @@ class TaskVariant {
     /**
      * 设置该位点任务的 position
      */
-    public TaskVariant setPosition(byte byte1, byte byte2, byte byte3, byte byte4) {
-        this.position = ValueUtils.byteArray2IntegerValue(byte1, byte2, byte3, byte4);
+    public TaskVariant setPosition(int position) {
+        this.position = position;
         return this;
     }
 
@@ -39,6 +39,7 @@ class VCFFormatter extends IVCFFormatter {
         int validAllelesNum;
         int secondBlockStart = this.eachLineSize * node.subBlockVariantNum[0];
         int ploidy = ChromosomeTags.getPloidy(node.chromosomeIndex);
+        this.sparseCodec.index(node, genotypeEncodedStream);
 
         // 先统计 allele 信息
         for (int i = 0; i < validTasksNum; i++) {
@@ -57,6 +58,20 @@ class VCFFormatter extends IVCFFormatter {
                     // 计算等位基因个数
                     alleleCounts += BEGDecoder.alternativeAlleleNumOf(ploidy, this.genotypeEncodedCache[j]);
 
+                    // 计算 missGenotype 个数
+                    missSubjectNum += BEGDecoder.isMiss(this.genotypeEncodedCache[j]) ? 1 : 0;
+                }
+            } else if (this.sparseCodec.isSparse(task[i].index)) {
+                // 稀疏位点，展开后按样本索引读取
+                byte[] row = this.sparseCodec.expand(genotypeEncodedStream, task[i].index);
+
+                for (int j = 0; j < pairs.length; j++) {
+                    // 向缓冲区写入数据
+                    this.genotypeEncodedCache[j] = row[this.pairs[j].index] & 0xFF;
+
+                    // 计算等位基因个数
+                    alleleCounts += BEGDecoder.alternativeAlleleNumOf(ploidy, this.genotypeEncodedCache[j]);
+
                     // 计算 missGenotype 个数
                     missSubjectNum += BEGDecoder.isMiss(this.genotypeEncodedCache[j]) ? 1 : 0;
                 }
@@ -36,6 +36,7 @@ class VCFFormatterHideGT extends IVCFFormatter {
         int validAllelesNum;
         int secondBlockStart = this.eachLineSize * node.subBlockVariantNum[0];
         int ploidy = ChromosomeTags.getPloidy(node.chromosomeIndex);
+        this.sparseCodec.index(node, genotypeEncodedStream);
 
         // 先统计 allele 信息
         for (int i = 0; i < validTasksNum; i++) {
@@ -53,6 +54,19 @@ class VCFFormatterHideGT extends IVCFFormatter {
                     // 计算等位基因个数
                     alleleCounts += BEGDecoder.alternativeAlleleNumOf(ploidy, code);
 
+                    // 计算 missGenotype 个数
+                    missSubjectNum += BEGDecoder.isMiss(code) ? 1 : 0;
+                }
+            } else if (this.sparseCodec.isSparse(task[i].index)) {
+                // 稀疏位点，展开后按样本索引读取
+                byte[] row = this.sparseCodec.expand(genotypeEncodedStream, task[i].index);
+
+                for (IndexPair pair : this.pairs) {
+                    code = row[pair.index] & 0xFF;
+
+                    // 计算等位基因个数
+                    alleleCounts += BEGDecoder.alternativeAlleleNumOf(ploidy, code);
+
                     // 计算 missGenotype 个数
                     missSubjectNum += BEGDecoder.isMiss(code) ? 1 : 0;
                 }
@@ -0,0 +1,265 @@
+package edu.sysu.pmglab.gbc.core.gtbcomponent;
+
+import edu.sysu.pmglab.compressor.IDecompressor;
+import edu.sysu.pmglab.container.VolumeByteStream;
+import edu.sysu.pmglab.easytools.ByteCode;
+import edu.sysu.pmglab.gbc.core.common.block.VariantAbstract;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * @Data        :2022/03/20
+ * @Author      :suranyi
+ * @Contact     :suranyi.sysu@gamil.com
+ * @Description :块内等位基因数据的编解码器。旧格式的等位基因数据为 "REF\tALT/" 文本；新格式由三部分组成:
+ *               每个位点 4 bit 的编码 (单碱基 SNV 的 REF/ALT 组合，0 表示查字典)、不重复的其他等位基因文本字典、查字典位点的字典索引。
+ *               解码后还原为旧格式的文本，并给出每个位点的偏移量，无需逐个查找分隔符
+ */
+
+public class AlleleCodec {
+    /**
+     * 查字典的编码，REF 与 ALT 相同的其他编码 (5, 10, 15) 不会出现
+     */
+    static final int DICTIONARY_CODE = 0;
+
+    /**
+     * 碱基与 2 bit 编码的对应关系
+     */
+    static final byte[] BASES = {'A', 'C', 'G', 'T'};
+    static final int[] BASE_CODES = new int[256];
+
+    static {
+        Arrays.fill(BASE_CODES, -1);
+        for (int i = 0; i < BASES.length; i++) {
+            BASE_CODES[BASES[i]] = i;
+        }
+    }
+
+    /**
+     * 编码器缓冲区: 字典 (文本 -> 索引)、字典数据、查字典位点的索引
+     */
+    final HashMap<String, Integer> dictionary = new HashMap<>();
+    final VolumeByteStream dictionaryCache = new VolumeByteStream(1 << 10);
+    final VolumeByteStream indexCache = new VolumeByteStream(1 << 10);
+
+    /**
+     * 解码器缓冲区: 字典文本的起始位置与长度
+     */
+    int[] entryStarts = new int[0];
+    int[] entryLengths = new int[0];
+
+    /**
+     * 解码器读指针
+     */
+    int readOffset;
+
+    /**
+     * 编码后的最大长度
+     * @param originAllelesSize 等位基因文本大小
+     * @param variantsNum 位点个数
+     */
+    public static int getMaxEncodedLength(int originAllelesSize, int variantsNum) {
+        return originAllelesSize + variantsNum * (PositionCodec.MAX_ENCODED_LENGTH << 1) + (variantsNum >> 1) + PositionCodec.MAX_ENCODED_LENGTH + 1;
+    }
+
+    /**
+     * 编码等位基因数据，目标容器至少需要 getMaxEncodedLength 的剩余空间
+     * @param variants 位点
+     * @param variantsNum 位点个数
+     * @param dst 目标容器
+     */
+    public void encode(VariantAbstract[] variants, int variantsNum, VolumeByteStream dst) {
+        this.dictionary.clear();
+        this.dictionaryCache.reset();
+        this.indexCache.reset();
+
+        // 每个字节保存两个位点的编码，高 4 位为前一个位点
+        int codes = 0;
+        for (int i = 0; i < variantsNum; i++) {
+            int code = codeOf(variants[i].allele);
+
+            if (code == DICTIONARY_CODE) {
+                VolumeByteStream allele = variants[i].allele;
+                String key = new String(allele.getCache(), 0, allele.size(), StandardCharsets.ISO_8859_1);
+                Integer index = this.dictionary.get(key);
+                if (index == null) {
+                    index = this.dictionary.size();
+                    this.dictionary.put(key, index);
+                    ensureRemaining(this.dictionaryCache, allele.size() + PositionCodec.MAX_ENCODED_LENGTH);
+                    PositionCodec.writeVarint(this.dictionaryCache, allele.size());
+                    this.dictionaryCache.write(allele);
+                }
+                ensureRemaining(this.indexCache, PositionCodec.MAX_ENCODED_LENGTH);
+                PositionCodec.writeVarint(this.indexCache, index);
+            }
+
+            if ((i & 1) == 0) {
+                codes = code << 4;
+            } else {
+                dst.write((byte) (codes | code));
+            }
+        }
+
+        if ((variantsNum & 1) == 1) {
+            dst.write((byte) codes);
+        }
+
+        PositionCodec.writeVarint(dst, this.dictionary.size());
+        dst.write(this.dictionaryCache);
+        dst.write(this.indexCache);
+    }
+
+    /**
+     * 获取单碱基 SNV 的编码，其他等位基因返回 DICTIONARY_CODE
+     */
+    static int codeOf(VolumeByteStream allele) {
+        if (allele.size() != 3 || allele.cacheOf(1) != ByteCode.TAB) {
+            return DICTIONARY_CODE;
+        }
+
+        int ref = BASE_CODES[allele.cacheOf(0) & 0xFF];
+        int alt = BASE_CODES[allele.cacheOf(2) & 0xFF];
+        if (ref == -1 || alt == -1 || ref == alt) {
+            return DICTIONARY_CODE;
+        }
+
+        return (ref << 2) | alt;
+    }
+
+    /**
+     * 解压块的等位基因数据，并还原为 "REF\tALT/" 文本
+     * @param decompressor 解压器
+     * @param node 块节点
+     * @param src 压缩的等位基因数据
+     * @param cache 新格式数据的解压缓冲区，不能与 dst 相同
+     * @param dst 还原的文本，解压前需要清空
+     * @param offsets 位点的偏移量，第 i 个位点的等位基因为 dst[offsets[i], offsets[i + 1] - 1)，长度不小于块的位点个数 + 1
+     */
+    public void decompress(IDecompressor decompressor, GTBNode node, VolumeByteStream src, VolumeByteStream cache, VolumeByteStream dst, int[] offsets) throws IOException {
+        decompress(decompressor, node, src.getCache(), 0, src.size(), cache, dst, offsets);
+    }
+
+    /**
+     * 解压块的等位基因数据，并还原为 "REF\tALT/" 文本
+     * @param decompressor 解压器
+     * @param node 块节点
+     * @param src 压缩数据所在的缓冲区
+     * @param offset 等位基因数据在缓冲区中的起始位置
+     * @param length 等位基因数据的长度
+     * @param cache 新格式数据的解压缓冲区，不能与 dst 相同
+     * @param dst 还原的文本，解压前需要清空
+     * @param offsets 位点的偏移量，第 i 个位点的等位基因为 dst[offsets[i], offsets[i + 1] - 1)，长度不小于块的位点个数 + 1
+     */
+    public void decompress(IDecompressor decompressor, GTBNode node, byte[] src, int offset, int length, VolumeByteStream cache, VolumeByteStream dst, int[] offsets) throws IOException {
+        if (node.dictEncodedAllele) {
+            cache.reset();
+            decompressor.decompress(src, offset, length, cache);
+            decode(node, cache, dst, offsets);
+        } else {
+            decompressor.decompress(src, offset, length, dst);
+            index(node, dst, offsets);
+        }
+    }
+
+    /**
+     * 解码新格式的等位基因数据
+     */
+    void decode(GTBNode node, VolumeByteStream src, VolumeByteStream dst, int[] offsets) {
+        byte[] cache = src.getCache();
+        int variantsNum = node.numOfVariants();
+
+        // 读取字典
+        this.readOffset = (variantsNum + 1) >> 1;
+        int entryNum = readVarint(cache);
+        if (this.entryStarts.length < entryNum) {
+            this.entryStarts = new int[entryNum];
+            this.entryLengths = new int[entryNum];
+        }
+
+        for (int i = 0; i < entryNum; i++) {
+            this.entryLengths[i] = readVarint(cache);
+            this.entryStarts[i] = this.readOffset;
+            this.readOffset += this.entryLengths[i];
+        }
+
+        // 还原文本所需的大小
+        int indexOffset = this.readOffset;
+        int requestSize = 0;
+        for (int i = 0; i < variantsNum; i++) {
+            if (codeOf(cache, i) == DICTIONARY_CODE) {
+                requestSize += this.entryLengths[readVarint(cache)] + 1;
+            } else {
+                requestSize += 4;
+            }
+        }
+
+        ensureRemaining(dst, requestSize);
+
+        // 还原文本
+        this.readOffset = indexOffset;
+        for (int i = 0; i < variantsNum; i++) {
+            int code = codeOf(cache, i);
+            offsets[i] = dst.size();
+            if (code == DICTIONARY_CODE) {
+                int index = readVarint(cache);
+                dst.write(cache, this.entryStarts[index], this.entryLengths[index]);
+            } else {
+                dst.write(BASES[code >> 2]);
+                dst.write(ByteCode.TAB);
+                dst.write(BASES[code & 0x3]);
+            }
+            dst.write(ByteCode.SLASH);
+        }
+        offsets[variantsNum] = dst.size();
+    }
+
+    /**
+     * 为旧格式的等位基因文本建立偏移量
+     */
+    static void index(GTBNode node, VolumeByteStream src, int[] offsets) {
+        byte[] cache = src.getCache();
+        int variantsNum = node.numOfVariants();
+        int offset = 0;
+        offsets[0] = 0;
+        for (int i = 1; i <= variantsNum; i++) {
+            while (cache[offset] != ByteCode.SLASH) {
+                offset++;
+            }
+            offsets[i] = ++offset;
+        }
+    }
+
+    /**
+     * 确保容器的剩余空间
+     */
+    static void ensureRemaining(VolumeByteStream cache, int size) {
+        if (cache.getCapacity() - cache.size() < size) {
+            cache.expansionTo(Math.max(cache.getCapacity() << 1, cache.size() + size));
+        }
+    }
+
+    /**
+     * 获取第 index 个位点的编码
+     */
+    static int codeOf(byte[] cache, int index) {
+        return (index & 1) == 0 ? (cache[index >> 1] >> 4) & 0xF : cache[index >> 1] & 0xF;
+    }
+
+    /**
+     * 读取变长整数
+     */
+    int readVarint(byte[] cache) {
+        int value = 0;
+        int shift = 0;
+        byte code;
+        do {
+            code = cache[this.readOffset++];
+            value |= (code & 0x7F) << shift;
+            shift += 7;
+        } while (code < 0);
+        return value;
+    }
+}
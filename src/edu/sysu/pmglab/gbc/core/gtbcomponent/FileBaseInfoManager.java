@@ -16,7 +16,7 @@ import java.util.Arrays;
 public class FileBaseInfoManager {
     private int estimateDecompressedBlockSizeFlag; // 4 bit
     private boolean orderedGTB;  // 1 bit
-    private int compressorIndex;  // 2 bit, 0 means zstd, 1 means lzma
+    private int compressorIndex;  // 2 bit, 0 means zstd, 1 means lzma, 2 means gzip, 3 means lz4
     private boolean phased; // 1 bit
     private int blockSizeType;  // 3 bit
     private int compressionLevel;  // 5 bit
@@ -0,0 +1,136 @@
+package edu.sysu.pmglab.gbc.core.gtbcomponent;
+
+import edu.sysu.pmglab.container.VolumeByteStream;
+import edu.sysu.pmglab.container.array.Array;
+import edu.sysu.pmglab.threadPool.ThreadPool;
+import edu.sysu.pmglab.unifyIO.FileStream;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+
+/**
+ * @Data        :2022/04/05
+ * @Author      :suranyi
+ * @Contact     :suranyi.sysu@gamil.com
+ * @Description :GTB 块校验码。每个块 (基因型、位置、等位基因压缩数据) 的 CRC32 校验码保存在块头部信息的末尾 (4 byte)，
+ *               文件包含块校验码时 (见 GTBConstant.CHECKSUM_FLAG) 每个块头部信息为 30 byte
+ */
+
+public class GTBChecksum {
+    /**
+     * 块头部信息的大小 (旧文件的块头部信息不包含 1 byte 的块特征标记)、块校验码的大小
+     */
+    public static final int NODE_INFO_SIZE = 26;
+    public static final int LEGACY_NODE_INFO_SIZE = 25;
+    public static final int CHECKSUM_SIZE = 4;
+
+    /**
+     * 当前版本写出的每个块头部信息的大小
+     * @param checksum 是否包含块校验码
+     */
+    public static int getNodeInfoSize(boolean checksum) {
+        return getNodeInfoSize(checksum, true);
+    }
+
+    /**
+     * 每个块头部信息的大小
+     * @param checksum 是否包含块校验码
+     * @param blockFlags 是否包含块特征标记 (见 GTBConstant.BLOCK_FLAGS_FLAG)
+     */
+    public static int getNodeInfoSize(boolean checksum, boolean blockFlags) {
+        int nodeInfoSize = blockFlags ? NODE_INFO_SIZE : LEGACY_NODE_INFO_SIZE;
+        return checksum ? nodeInfoSize + CHECKSUM_SIZE : nodeInfoSize;
+    }
+
+    /**
+     * 计算校验码
+     * @param src 块数据
+     * @param offset 块数据的起始位置
+     * @param length 块数据的长度
+     */
+    public static int of(byte[] src, int offset, int length) {
+        CRC32 crc32 = new CRC32();
+        crc32.update(src, offset, length);
+        return (int) crc32.getValue();
+    }
+
+    /**
+     * 计算校验码
+     * @param src 块数据
+     */
+    public static int of(VolumeByteStream src) {
+        return of(src.getCache(), 0, src.size());
+    }
+
+    /**
+     * 读取块数据并检验校验码
+     * @param node 块节点
+     * @param fileStream GTB 文件流
+     * @param cache 块数据缓冲区
+     * @return 校验码是否一致
+     */
+    public static boolean check(GTBNode node, FileStream fileStream, VolumeByteStream cache) throws IOException {
+        cache.reset();
+        if (cache.getCapacity() < node.blockSize) {
+            cache.expansionTo(node.blockSize);
+        }
+
+        fileStream.seek(node.blockSeek);
+        if (fileStream.read(cache, node.blockSize) != node.blockSize) {
+            return false;
+        }
+
+        return of(cache) == node.getChecksum();
+    }
+
+    /**
+     * 并行检验文件中所有块的校验码
+     * @param manager GTB 文件管理器
+     * @param threads 并行线程数
+     * @return 校验码不一致的块节点
+     */
+    public static Array<GTBNode> verify(GTBManager manager, int threads) throws IOException {
+        if (!manager.hasChecksum()) {
+            throw new IOException(manager.getFileName() + " has no block checksums (use `md5` to check the whole file)");
+        }
+
+        // 按文件中的存储顺序分配块，每个线程使用独立的文件流
+        Array<GTBNode> nodes = new Array<>(manager.getGtbTree().numOfNodes(), true);
+        for (GTBNodes chromosomeNodes : manager.getGtbTree()) {
+            for (GTBNode node : chromosomeNodes) {
+                nodes.add(node);
+            }
+        }
+        nodes.sort((o1, o2) -> Long.compare(o1.blockSeek, o2.blockSeek));
+
+        Array<GTBNode> brokenNodes = new Array<>(true);
+        AtomicInteger nodeIndex = new AtomicInteger(0);
+        ThreadPool threadPool = new ThreadPool(threads);
+        threadPool.submit(() -> {
+            try (FileStream fileStream = manager.getBlockStream()) {
+                VolumeByteStream cache = new VolumeByteStream(2 << 20);
+                int index;
+                while ((index = nodeIndex.getAndIncrement()) < nodes.size()) {
+                    GTBNode node = nodes.get(index);
+                    if (!check(node, fileStream, cache)) {
+                        synchronized (brokenNodes) {
+                            brokenNodes.add(node);
+                        }
+                    }
+                }
+                cache.close();
+            } catch (IOException e) {
+                throw new UnsupportedOperationException(e.getMessage());
+            }
+        }, threads);
+        threadPool.close();
+
+        if (threadPool.isError()) {
+            throw new IOException("failed to verify " + manager.getFileName());
+        }
+
+        brokenNodes.sort(GTBNode::compareTo);
+        return brokenNodes;
+    }
+}
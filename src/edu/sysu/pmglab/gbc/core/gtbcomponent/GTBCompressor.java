@@ -0,0 +1,138 @@
+package edu.sysu.pmglab.gbc.core.gtbcomponent;
+
+import edu.sysu.pmglab.compressor.ICompressor;
+import edu.sysu.pmglab.compressor.IDecompressor;
+import edu.sysu.pmglab.container.VolumeByteStream;
+
+import java.io.IOException;
+
+/**
+ * @Data        :2022/03/28
+ * @Author      :suranyi
+ * @Contact     :suranyi.sysu@gamil.com
+ * @Description :GTB 文件支持的压缩器。文件头部的压缩器索引为 2 bit，0~2 为基础压缩器 (ZSTD, LZMA, GZIP)，3 为 LZ4 (解压速度优先)
+ */
+
+public class GTBCompressor {
+    /**
+     * 默认压缩器
+     */
+    public static final int DEFAULT = ICompressor.DEFAULT;
+
+    /**
+     * LZ4 压缩器的索引
+     */
+    public static final int LZ4_INDEX = 3;
+
+    /**
+     * 基础压缩器的个数
+     */
+    static final int BASIC_COMPRESSOR_NUM = ICompressor.getCompressorNames().length;
+
+    /**
+     * 获取所有压缩器名
+     */
+    public static String[] getCompressorNames() {
+        String[] basicNames = ICompressor.getCompressorNames();
+        String[] names = new String[LZ4_INDEX + 1];
+        System.arraycopy(basicNames, 0, names, 0, BASIC_COMPRESSOR_NUM);
+        names[LZ4_INDEX] = LZ4Compressor.COMPRESSOR_NAME;
+        return names;
+    }
+
+    /**
+     * 获取压缩器索引
+     * @param compressorName 压缩器名
+     */
+    public static int getCompressorIndex(String compressorName) {
+        if (LZ4Compressor.COMPRESSOR_NAME.equalsIgnoreCase(compressorName)) {
+            return LZ4_INDEX;
+        }
+
+        return ICompressor.getCompressorIndex(compressorName);
+    }
+
+    /**
+     * 获取压缩器名
+     * @param compressorIndex 压缩器索引
+     */
+    public static String getCompressorName(int compressorIndex) {
+        return compressorIndex == LZ4_INDEX ? LZ4Compressor.COMPRESSOR_NAME : ICompressor.getCompressorName(compressorIndex);
+    }
+
+    public static int getMinCompressionLevel(int compressorIndex) {
+        return compressorIndex == LZ4_INDEX ? LZ4Compressor.MIN_LEVEL : ICompressor.getMinCompressionLevel(compressorIndex);
+    }
+
+    public static int getMaxCompressionLevel(int compressorIndex) {
+        return compressorIndex == LZ4_INDEX ? LZ4Compressor.MAX_LEVEL : ICompressor.getMaxCompressionLevel(compressorIndex);
+    }
+
+    public static int getDefaultCompressionLevel(int compressorIndex) {
+        return compressorIndex == LZ4_INDEX ? LZ4Compressor.DEFAULT_LEVEL : ICompressor.getDefaultCompressionLevel(compressorIndex);
+    }
+
+    /**
+     * 压缩数据的最大长度
+     * @param compressorIndex 压缩器索引
+     * @param length 源数据的长度
+     */
+    public static int getCompressBound(int compressorIndex, int length) {
+        return compressorIndex == LZ4_INDEX ? LZ4Compressor.compressBound(length) : ICompressor.getCompressBound(compressorIndex, length);
+    }
+
+    /**
+     * 获取压缩器实例
+     * @param compressorIndex 压缩器索引
+     * @param compressionLevel 压缩级别
+     * @param cache 压缩器的缓冲区
+     */
+    public static ICompressor getCompressor(int compressorIndex, int compressionLevel, VolumeByteStream cache) {
+        if (compressorIndex == LZ4_INDEX) {
+            return new LZ4Compressor(compressionLevel, cache);
+        }
+
+        return ICompressor.getInstance(compressorIndex, compressionLevel, cache);
+    }
+
+    /**
+     * 获取解压器实例
+     * @param compressorIndex 压缩器索引
+     */
+    public static IDecompressor getDecompressor(int compressorIndex) {
+        if (compressorIndex == LZ4_INDEX) {
+            return new LZ4Decompressor();
+        }
+
+        return IDecompressor.getInstance(compressorIndex);
+    }
+
+    /**
+     * 压缩数据
+     * @param compressorIndex 压缩器索引
+     * @param compressionLevel 压缩级别
+     * @param src 源数据
+     * @param offset 源数据的起始位置
+     * @param length 源数据的长度
+     */
+    public static VolumeByteStream compress(int compressorIndex, int compressionLevel, byte[] src, int offset, int length) throws IOException {
+        if (compressorIndex == LZ4_INDEX) {
+            return LZ4Compressor.compress(compressionLevel, src, offset, length);
+        }
+
+        return ICompressor.compress(compressorIndex, compressionLevel, src, offset, length);
+    }
+
+    /**
+     * 解压数据
+     * @param compressorIndex 压缩器索引
+     * @param src 压缩数据
+     */
+    public static VolumeByteStream decompress(int compressorIndex, VolumeByteStream src) throws IOException {
+        if (compressorIndex == LZ4_INDEX) {
+            return LZ4Decompressor.decompress(src.getCache(), 0, src.size());
+        }
+
+        return IDecompressor.decompress(compressorIndex, src);
+    }
+}
@@ -25,4 +25,47 @@ public class GTBConstant {
             "    +----+---------------+------+------------+-----+-----------------------+\n" +
             "    | \\n | Subjects Information | Block Data | Block Abstract Information  |\n" +
             "    +----+----------------------+------------+-----------------------------+";
+
+    /**
+     * 文件头部的样本名数据大小字段 (4 byte) 中的文件特征标记，旧文件中这些位始终为 0:
+     * 第 31 位 - 包含压缩字典 (见 GTBDictionary)，第 30 位 - 包含块校验码 (见 GTBChecksum)，第 29 位 - 包含样本排列 (见 GTBSubjectOrder)，
+     * 第 28 位 - 块头部信息包含块特征标记 (见 GTBNode.flags，当前版本写出的文件总是设置该位)
+     */
+    public final static int DICTIONARY_FLAG = 1 << 31;
+    public final static int CHECKSUM_FLAG = 1 << 30;
+    public final static int SUBJECT_ORDER_FLAG = 1 << 29;
+    public final static int BLOCK_FLAGS_FLAG = 1 << 28;
+    public final static int SUBJECTS_SIZE_MASK = BLOCK_FLAGS_FLAG - 1;
+
+    /**
+     * 获取写入文件头部的样本名数据大小字段
+     * @param subjectsSize 压缩的样本名数据大小
+     * @param dictionary 是否包含压缩字典
+     * @param checksum 是否包含块校验码
+     * @param subjectOrder 是否包含样本排列
+     */
+    public static int toSubjectsSizeField(int subjectsSize, boolean dictionary, boolean checksum, boolean subjectOrder) {
+        int field = subjectsSize | BLOCK_FLAGS_FLAG;
+        field |= dictionary ? DICTIONARY_FLAG : 0;
+        field |= checksum ? CHECKSUM_FLAG : 0;
+        field |= subjectOrder ? SUBJECT_ORDER_FLAG : 0;
+        return field;
+    }
+
+    /**
+     * 从文件头部的样本名数据大小字段中获取样本名数据的压缩大小
+     * @param subjectsSizeField 样本名数据大小字段
+     */
+    public static int getSubjectsSize(int subjectsSizeField) {
+        return subjectsSizeField & SUBJECTS_SIZE_MASK;
+    }
+
+    /**
+     * 文件头部的样本名数据大小字段中是否包含指定的文件特征标记
+     * @param subjectsSizeField 样本名数据大小字段
+     * @param flag 文件特征标记
+     */
+    public static boolean hasFlag(int subjectsSizeField, int flag) {
+        return (subjectsSizeField & flag) != 0;
+    }
 }
\ No newline at end of file
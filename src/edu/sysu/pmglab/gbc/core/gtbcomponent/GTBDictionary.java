@@ -0,0 +1,137 @@
+package edu.sysu.pmglab.gbc.core.gtbcomponent;
+
+import com.github.luben.zstd.ZstdCompressCtx;
+import com.github.luben.zstd.ZstdDecompressCtx;
+import edu.sysu.pmglab.compressor.ICompressor;
+import edu.sysu.pmglab.compressor.IDecompressor;
+import edu.sysu.pmglab.compressor.zstd.ZstdCompressor;
+import edu.sysu.pmglab.compressor.zstd.ZstdDecompressor;
+import edu.sysu.pmglab.container.VolumeByteStream;
+
+/**
+ * @Data        :2022/03/26
+ * @Author      :suranyi
+ * @Contact     :suranyi.sysu@gamil.com
+ * @Description :GTB 文件的压缩字典。小块 (及每个块的位置、等位基因数据) 为独立的小 zstd 帧，使用从文件自身的块中训练得到的字典压缩，
+ *               字典保存在文件头部的样本名数据之后: 字典大小 (4 byte) + 字典数据，样本名数据大小字段的最高位标记文件包含字典
+ */
+
+public class GTBDictionary {
+    /**
+     * 字典的最大大小
+     */
+    public static final int DEFAULT_DICTIONARY_SIZE = 1 << 16;
+
+    /**
+     * 仅 zstd 支持压缩字典
+     */
+    public static final int SUPPORTED_COMPRESSOR_INDEX = GTBCompressor.getCompressorIndex(ZstdCompressor.COMPRESSOR_NAME);
+
+    /**
+     * 压缩器是否支持压缩字典
+     * @param compressorIndex 压缩器索引
+     */
+    public static boolean isSupported(int compressorIndex) {
+        return compressorIndex == SUPPORTED_COMPRESSOR_INDEX;
+    }
+
+    /**
+     * 获取压缩器实例
+     * @param compressorIndex 压缩器索引
+     * @param compressionLevel 压缩级别
+     * @param dictionary 压缩字典，null 表示不使用字典
+     * @param cache 压缩器的缓冲区
+     */
+    public static ICompressor getCompressor(int compressorIndex, int compressionLevel, byte[] dictionary, VolumeByteStream cache) {
+        if (dictionary == null) {
+            return GTBCompressor.getCompressor(compressorIndex, compressionLevel, cache);
+        }
+
+        return new DictionaryZstdCompressor(compressionLevel, dictionary, cache);
+    }
+
+    /**
+     * 获取解压器实例
+     * @param compressorIndex 压缩器索引
+     * @param dictionary 压缩字典，null 表示不使用字典
+     */
+    public static IDecompressor getDecompressor(int compressorIndex, byte[] dictionary) {
+        if (dictionary == null) {
+            return GTBCompressor.getDecompressor(compressorIndex);
+        }
+
+        return new DictionaryZstdDecompressor(dictionary);
+    }
+
+    /**
+     * 加载字典的 zstd 压缩器
+     */
+    static class DictionaryZstdCompressor extends ICompressor {
+        final ZstdCompressCtx compressor;
+
+        DictionaryZstdCompressor(int compressionLevel, byte[] dictionary, VolumeByteStream cache) {
+            super(compressionLevel, cache);
+            this.compressor = new ZstdCompressCtx();
+            this.compressor.setLevel(compressionLevel);
+            this.compressor.loadDict(dictionary);
+        }
+
+        @Override
+        public int getCompressBound(int length) {
+            return ZstdCompressor.compressBound(length);
+        }
+
+        @Override
+        public int getMinCompressionLevel() {
+            return ZstdCompressor.MIN_LEVEL;
+        }
+
+        @Override
+        public int getDefaultCompressionLevel() {
+            return ZstdCompressor.DEFAULT_LEVEL;
+        }
+
+        @Override
+        public int getMaxCompressionLevel() {
+            return ZstdCompressor.MAX_LEVEL;
+        }
+
+        @Override
+        public int compress(byte[] src, int srcOffset, int srcLength, byte[] dst, int dstOffset, int dstLength) {
+            return this.compressor.compressByteArray(dst, dstOffset, dstLength, src, srcOffset, srcLength);
+        }
+
+        @Override
+        public void close() {
+            this.compressor.close();
+        }
+    }
+
+    /**
+     * 加载字典的 zstd 解压器
+     */
+    static class DictionaryZstdDecompressor extends IDecompressor {
+        final ZstdDecompressCtx decompressor;
+
+        DictionaryZstdDecompressor(byte[] dictionary) {
+            super();
+            this.decompressor = new ZstdDecompressCtx();
+            this.decompressor.loadDict(dictionary);
+        }
+
+        @Override
+        public int getDecompressBound(byte[] src, int offset, int length) {
+            return ZstdDecompressor.decompressBound(src, offset, length);
+        }
+
+        @Override
+        public int decompress(byte[] src, int srcOffset, int srcLength, byte[] dst, int dstOffset, int dstLength) {
+            return this.decompressor.decompressByteArray(dst, dstOffset, dstLength, src, srcOffset, srcLength);
+        }
+
+        @Override
+        public void close() {
+            this.decompressor.close();
+        }
+    }
+}
@@ -1,7 +1,6 @@
 package edu.sysu.pmglab.gbc.core.gtbcomponent;
 
 import edu.sysu.pmglab.check.Assert;
-import edu.sysu.pmglab.compressor.ICompressor;
 import edu.sysu.pmglab.compressor.IDecompressor;
 import edu.sysu.pmglab.container.VolumeByteInputStream;
 import edu.sysu.pmglab.container.VolumeByteStream;
@@ -34,6 +33,22 @@ public class GTBManager {
     private final GTBSubjectManager subjectManager = new GTBSubjectManager();
     private final GTBTree gtbTree = new GTBTree();
 
+    /**
+     * 压缩字典，null 表示文件不包含字典
+     */
+    private byte[] dictionary;
+
+    /**
+     * 是否包含块校验码
+     */
+    private boolean checksum;
+
+    /**
+     * 读取块数据时是否使用内存映射，及共享的数据区映射 (首次打开映射的块数据流时创建)
+     */
+    private boolean memoryMapped;
+    private GTBMappedFile mappedFile;
+
     /**
      * 标准构造器，统一调用 load 进行构造
      */
@@ -56,6 +71,9 @@ public class GTBManager {
         this.reference.load(manager.getReference());
         this.fileBaseInfo.load(manager.getFileBaseInfo());
         this.subjectManager.load(manager.getSubjects());
+        this.subjectManager.setOrder(manager.getSubjectManager().getOrder());
+        this.dictionary = manager.dictionary;
+        this.checksum = manager.checksum;
         this.gtbTree.clear();
         this.gtbTree.add(manager.getGTBNodes(chromosome));
     }
@@ -82,6 +100,48 @@ public class GTBManager {
         return FileStream.of(this.fileName, FileOptions.CHANNEL_READER);
     }
 
+    /**
+     * 获取块数据流，启用内存映射时从共享的数据区映射中读取块数据
+     */
+    public FileStream getBlockStream() throws IOException {
+        return getBlockStream(this.memoryMapped);
+    }
+
+    /**
+     * 获取块数据流
+     * @param memoryMapped 是否从共享的数据区映射中读取块数据 (否则打开独立的文件流)
+     */
+    public FileStream getBlockStream(boolean memoryMapped) throws IOException {
+        if (!memoryMapped) {
+            return getFileStream();
+        }
+
+        synchronized (this) {
+            if (this.mappedFile == null) {
+                this.mappedFile = new GTBMappedFile(this);
+            }
+        }
+
+        return new FileStream(this.mappedFile.open());
+    }
+
+    /**
+     * 设置读取块数据时是否使用内存映射 (对之后打开的块数据流生效)
+     * @param memoryMapped 使用内存映射
+     */
+    public void setMemoryMapped(boolean memoryMapped) {
+        synchronized (this) {
+            this.memoryMapped = memoryMapped;
+        }
+    }
+
+    /**
+     * 获取读取块数据时是否使用内存映射
+     */
+    public boolean isMemoryMapped() {
+        return this.memoryMapped;
+    }
+
     /**
      * 获取文件大小 (单位: 字节)
      */
@@ -246,7 +306,21 @@ public class GTBManager {
     }
 
     public IDecompressor getDecompressorInstance() {
-        return IDecompressor.getInstance(getCompressorIndex());
+        return GTBDictionary.getDecompressor(getCompressorIndex(), this.dictionary);
+    }
+
+    /**
+     * 获取压缩字典，null 表示文件不包含字典
+     */
+    public byte[] getDictionary() {
+        return this.dictionary;
+    }
+
+    /**
+     * 是否包含块校验码
+     */
+    public boolean hasChecksum() {
+        return this.checksum;
     }
 
     /**
@@ -414,8 +488,27 @@ public class GTBManager {
      * @return 保存在定容字节流中的数据
      */
     public VolumeByteStream buildHeader() throws IOException {
+        return buildHeader(this.dictionary, this.checksum);
+    }
+
+    /**
+     * 重建 GTB 文件头部信息，包含压缩字典时字典写在样本名之后
+     * @param dictionary 压缩字典，null 表示不包含字典
+     * @return 保存在定容字节流中的数据
+     */
+    public VolumeByteStream buildHeader(byte[] dictionary) throws IOException {
+        return buildHeader(dictionary, this.checksum);
+    }
+
+    /**
+     * 重建 GTB 文件头部信息，包含压缩字典时字典写在样本名之后，样本经过重排时样本排列写在最后
+     * @param dictionary 压缩字典，null 表示不包含字典
+     * @param checksum 块头部信息是否包含块校验码
+     * @return 保存在定容字节流中的数据
+     */
+    public VolumeByteStream buildHeader(byte[] dictionary, boolean checksum) throws IOException {
         // 构建头部信息
-        VolumeByteStream fileHeader = new VolumeByteStream(this.reference.size() + ICompressor.getCompressBound(getCompressorIndex(), this.getSubjects().length) + 10);
+        VolumeByteStream fileHeader = new VolumeByteStream(this.reference.size() + GTBCompressor.getCompressBound(getCompressorIndex(), this.getSubjects().length) + 14 + (dictionary == null ? 0 : dictionary.length));
 
         // 重新检验文件基本信息
         fileHeader.write(getFileBaseInfo());
@@ -430,10 +523,23 @@ public class GTBManager {
         fileHeader.write(ByteCode.NEWLINE);
 
         // 写入样本名
-        VolumeByteStream subjects = ICompressor.compress(getCompressorIndex(), getCompressionLevel(), this.subjectManager.getSubjects(), 0, this.subjectManager.getSubjects().length);
-        fileHeader.writeIntegerValue(subjects.size());
+        VolumeByteStream subjects = GTBCompressor.compress(getCompressorIndex(), getCompressionLevel(), this.subjectManager.getSubjects(), 0, this.subjectManager.getSubjects().length);
+        int[] order = this.subjectManager.getOrder();
+        fileHeader.writeIntegerValue(GTBConstant.toSubjectsSizeField(subjects.size(), dictionary != null, checksum, order != null));
         fileHeader.write(subjects);
 
+        // 写入压缩字典
+        if (dictionary != null) {
+            fileHeader.writeIntegerValue(dictionary.length);
+            fileHeader.write(dictionary);
+        }
+
+        // 写入样本排列
+        if (order != null) {
+            VolumeByteStream orderSeq = GTBSubjectOrder.compress(getCompressorIndex(), getCompressionLevel(), order);
+            fileHeader.writeSafety(orderSeq.getCache(), 0, orderSeq.size());
+        }
+
         return fileHeader;
     }
 
@@ -478,18 +584,32 @@ public class GTBManager {
 
         // 写入样本名
         lineCache.reset();
-        gtbFile.read(lineCache, gtbFile.readIntegerValue());
+        int subjectsSizeField = gtbFile.readIntegerValue();
+        gtbFile.read(lineCache, GTBConstant.getSubjectsSize(subjectsSizeField));
 
         // 解压样本序列
-        VolumeByteStream subjects = IDecompressor.decompress(getCompressorIndex(), lineCache);
+        VolumeByteStream subjects = GTBCompressor.decompress(getCompressorIndex(), lineCache);
         this.subjectManager.load(subjects);
+
+        // 读取压缩字典
+        this.dictionary = GTBConstant.hasFlag(subjectsSizeField, GTBConstant.DICTIONARY_FLAG) ? gtbFile.read(gtbFile.readIntegerValue()) : null;
+        this.checksum = GTBConstant.hasFlag(subjectsSizeField, GTBConstant.CHECKSUM_FLAG);
+        boolean blockFlags = GTBConstant.hasFlag(subjectsSizeField, GTBConstant.BLOCK_FLAGS_FLAG);
+
+        // 读取样本排列
+        if (GTBConstant.hasFlag(subjectsSizeField, GTBConstant.SUBJECT_ORDER_FLAG)) {
+            lineCache.reset();
+            gtbFile.read(lineCache, gtbFile.readIntegerValue());
+            this.subjectManager.setOrder(GTBSubjectOrder.decompress(getCompressorIndex(), lineCache));
+        }
         long seek = gtbFile.tell();
 
         // 一次性载入所有的块头数据，并包装为 FileStream
-        gtbFile.seek(gtbFile.size() - 25L * gtbNodeNum);
+        int nodeInfoSize = GTBChecksum.getNodeInfoSize(this.checksum, blockFlags);
+        gtbFile.seek(gtbFile.size() - (long) nodeInfoSize * gtbNodeNum);
 
         // 将字节数组包装
-        VolumeByteInputStream blockHeader = new VolumeByteInputStream(gtbFile.read(gtbNodeNum * 25));
+        VolumeByteInputStream blockHeader = new VolumeByteInputStream(gtbFile.read(gtbNodeNum * nodeInfoSize));
         gtbFile.close();
 
         for (int i = 0; i < gtbNodeNum; i++) {
@@ -502,7 +622,12 @@ public class GTBManager {
             int alleleSize = ValueUtils.byteArray2IntegerValue(blockHeader.read(4));
             byte magicCode = (byte) blockHeader.read();
 
-            this.gtbTree.add(new GTBNode(chromosomeIndex, minPos, maxPos, seek, genotypeSize, posSize, alleleSize, magicCode, subBlockVariantNum));
+            // 旧文件的块不包含块特征标记
+            int flags = blockFlags ? blockHeader.read() & 0xFF : 0;
+            int checksum = this.checksum ? ValueUtils.byteArray2IntegerValue(blockHeader.read(4)) : 0;
+
+            this.gtbTree.add(new GTBNode(chromosomeIndex, minPos, maxPos, seek, genotypeSize, posSize, alleleSize, magicCode, subBlockVariantNum, flags)
+                    .setChecksum(checksum));
             seek += posSize + alleleSize + genotypeSize;
         }
 
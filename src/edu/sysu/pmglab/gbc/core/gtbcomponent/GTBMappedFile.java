@@ -0,0 +1,158 @@
+package edu.sysu.pmglab.gbc.core.gtbcomponent;
+
+import edu.sysu.pmglab.unifyIO.IFileStream;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * @Data        :2022/04/12
+ * @Author      :suranyi
+ * @Contact     :suranyi.sysu@gamil.com
+ * @Description :GTB 文件数据区 (第一个块至文件末尾) 的只读内存映射，每个 GTBManager 只映射一次，由所有读取器共享。
+ *               映射按 1 GB 分段，每个读取流持有各分段的独立视图，块数据直接从映射中复制到解压缓冲区，无需文件句柄及系统调用
+ */
+
+public class GTBMappedFile {
+    /**
+     * 每个映射分段的大小
+     */
+    static final int SEGMENT_SIZE = 1 << 30;
+
+    final String fileName;
+    final long start;
+    final long end;
+    final MappedByteBuffer[] segments;
+
+    /**
+     * 映射 GTB 文件的数据区
+     * @param manager GTB 文件管理器
+     */
+    GTBMappedFile(GTBManager manager) throws IOException {
+        long start = Long.MAX_VALUE;
+        for (GTBNodes nodes : manager.getGtbTree()) {
+            for (GTBNode node : nodes) {
+                start = Math.min(start, node.blockSeek);
+            }
+        }
+
+        this.fileName = manager.getFileName();
+        try (FileChannel channel = FileChannel.open(Paths.get(this.fileName), StandardOpenOption.READ)) {
+            this.end = channel.size();
+            this.start = Math.min(start, this.end);
+
+            long length = this.end - this.start;
+            this.segments = new MappedByteBuffer[(int) ((length + SEGMENT_SIZE - 1) / SEGMENT_SIZE)];
+            for (int i = 0; i < this.segments.length; i++) {
+                long offset = (long) i * SEGMENT_SIZE;
+                this.segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, this.start + offset, Math.min(SEGMENT_SIZE, length - offset));
+            }
+        }
+    }
+
+    /**
+     * 映射的数据区大小 (byte)
+     */
+    public long size() {
+        return this.end - this.start;
+    }
+
+    /**
+     * 打开映射数据区的读取流 (文件指针以文件起点为原点)，每个读取流只能在一个线程中使用
+     */
+    public IFileStream open() {
+        return new MappedReaderStream(this);
+    }
+
+    /**
+     * 映射数据区的读取流
+     */
+    static class MappedReaderStream extends IFileStream {
+        final GTBMappedFile file;
+        final ByteBuffer[] views;
+        long pointer;
+
+        MappedReaderStream(GTBMappedFile file) {
+            this.file = file;
+            this.views = new ByteBuffer[file.segments.length];
+            for (int i = 0; i < this.views.length; i++) {
+                this.views[i] = file.segments[i].duplicate();
+            }
+            this.pointer = file.start;
+        }
+
+        @Override
+        public byte read() throws IOException {
+            byte[] value = new byte[1];
+            if (read(value, 0, 1) != 1) {
+                throw new IOException("end of file " + this.file.fileName);
+            }
+
+            return value[0];
+        }
+
+        @Override
+        public int read(byte[] dst) throws IOException {
+            return read(dst, 0, dst.length);
+        }
+
+        @Override
+        public int read(byte[] dst, int offset, int length) throws IOException {
+            if (this.pointer < this.file.start) {
+                throw new IOException("position " + this.pointer + " is outside the mapped data region of " + this.file.fileName);
+            }
+
+            if (this.pointer >= this.file.end) {
+                return length == 0 ? 0 : -1;
+            }
+
+            // 跨越分段时分多次复制
+            int readLength = (int) Math.min(length, this.file.end - this.pointer);
+            int remaining = readLength;
+            while (remaining > 0) {
+                long relative = this.pointer - this.file.start;
+                ByteBuffer view = this.views[(int) (relative / SEGMENT_SIZE)];
+                int position = (int) (relative % SEGMENT_SIZE);
+                int copyLength = Math.min(remaining, view.capacity() - position);
+
+                ((Buffer) view).position(position);
+                view.get(dst, offset, copyLength);
+                offset += copyLength;
+                remaining -= copyLength;
+                this.pointer += copyLength;
+            }
+
+            return readLength;
+        }
+
+        @Override
+        public void seek(long pos) {
+            this.pointer = pos;
+        }
+
+        @Override
+        public long tell() {
+            return this.pointer;
+        }
+
+        @Override
+        public long size() {
+            return this.file.end;
+        }
+
+        @Override
+        public boolean seekAvailable() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+            // 映射由 GTBManager 持有，关闭读取流时不释放
+        }
+    }
+}
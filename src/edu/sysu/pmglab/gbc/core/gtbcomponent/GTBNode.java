@@ -37,11 +37,40 @@ public class GTBNode implements Comparable<GTBNode> {
      */
     public final byte magicCode;
 
+    /**
+     * 块特征标记 (构造器的 flags 参数按位组合)，旧文件中的块不包含任何特征标记:
+     * 位置数据使用差分 + 变长整数编码 (见 PositionCodec)、等位基因数据使用字典编码 (见 AlleleCodec)、包含稀疏子块 (见 SparseGenotypeCodec)、
+     * 基因型数据按样本切片 (见 GenotypeSliceCodec)、包含三等位基因组合子块 (见 TriallelicGenotypeCodec)、基因型数据分帧压缩 (见 GenotypeFrameCodec)
+     */
+    public static final int DELTA_ENCODED_POS = 1;
+    public static final int DICT_ENCODED_ALLELE = 1 << 1;
+    public static final int SPARSE_ENCODED_GENOTYPE = 1 << 2;
+    public static final int SLICED_GENOTYPE = 1 << 3;
+    public static final int GROUPED_TRIALLELIC_GENOTYPE = 1 << 4;
+    public static final int FRAMED_GENOTYPE = 1 << 5;
+
+    /**
+     * 块特征标记，及按标记展开的特征。标记以 1 byte 保存在块头部信息的魔术码之后 (见 GTBConstant.BLOCK_FLAGS_FLAG)，
+     * 块数据的大小字段保存完整的数值
+     */
+    public final int flags;
+    public final boolean deltaEncodedPos;
+    public final boolean dictEncodedAllele;
+    public final boolean sparseEncodedGenotype;
+    public final boolean slicedGenotype;
+    public final boolean groupedTriallelicGenotype;
+    public final boolean framedGenotype;
+
     /**
      * 根结点编号，用于合并不同来源的GTB文件
      */
     private int rootIndex;
 
+    /**
+     * 块数据的校验码 (见 GTBChecksum)，文件不包含块校验码时为 0
+     */
+    private int checksum;
+
     /**
      * 构造器方法
      * @param chromosomeIndex 染色体编号 (索引)
@@ -56,6 +85,24 @@ public class GTBNode implements Comparable<GTBNode> {
      */
     public GTBNode(int chromosomeIndex, int minPos, int maxPos, long blockSeek, int genotypeSize, int posSize, int alleleSize,
                    byte magicCode, short[] subBlockVariantNum) {
+        this(chromosomeIndex, minPos, maxPos, blockSeek, genotypeSize, posSize, alleleSize, magicCode, subBlockVariantNum, 0);
+    }
+
+    /**
+     * 构造器方法
+     * @param chromosomeIndex 染色体编号 (索引)
+     * @param minPos 最小位置
+     * @param maxPos 最大位置
+     * @param blockSeek 块数据段指针
+     * @param genotypeSize 基因型压缩块大小
+     * @param posSize 位置压缩块大小
+     * @param alleleSize 等位基因压缩块大小
+     * @param magicCode 原始数据大小的魔术码
+     * @param subBlockVariantNum 子块变异位点数量
+     * @param flags 块特征标记 (DELTA_ENCODED_POS 等按位组合)
+     */
+    public GTBNode(int chromosomeIndex, int minPos, int maxPos, long blockSeek, int genotypeSize, int posSize, int alleleSize,
+                   byte magicCode, short[] subBlockVariantNum, int flags) {
         this.chromosomeIndex = chromosomeIndex;
         this.minPos = minPos;
         this.maxPos = maxPos;
@@ -65,6 +112,13 @@ public class GTBNode implements Comparable<GTBNode> {
         this.compressedAlleleSize = alleleSize;
         this.subBlockVariantNum = subBlockVariantNum;
         this.magicCode = magicCode;
+        this.flags = flags;
+        this.deltaEncodedPos = (flags & DELTA_ENCODED_POS) != 0;
+        this.dictEncodedAllele = (flags & DICT_ENCODED_ALLELE) != 0;
+        this.sparseEncodedGenotype = (flags & SPARSE_ENCODED_GENOTYPE) != 0;
+        this.slicedGenotype = (flags & SLICED_GENOTYPE) != 0;
+        this.groupedTriallelicGenotype = (flags & GROUPED_TRIALLELIC_GENOTYPE) != 0;
+        this.framedGenotype = (flags & FRAMED_GENOTYPE) != 0;
         this.blockSize = alleleSize + genotypeSize + posSize;
     }
 
@@ -98,7 +152,24 @@ public class GTBNode implements Comparable<GTBNode> {
      */
     public GTBNode(int chromosomeIndex, int minPos, int maxPos, long blockSeek, int genotypeSize, int posSize, int alleleSize,
                    int originMBEGsSize, int originAllelesSize, short[] subBlockVariantNum) {
-        this(chromosomeIndex, minPos, maxPos, blockSeek, genotypeSize, posSize, alleleSize, calculateMagicCode(originMBEGsSize, originAllelesSize), subBlockVariantNum);
+        this(chromosomeIndex, minPos, maxPos, blockSeek, genotypeSize, posSize, alleleSize, originMBEGsSize, originAllelesSize, subBlockVariantNum, 0);
+    }
+
+    /**
+     * 构造器方法
+     * @param chromosomeIndex 染色体编号
+     * @param minPos 最小位置
+     * @param maxPos 最大位置
+     * @param blockSeek 块数据段指针
+     * @param genotypeSize 基因型压缩块大小
+     * @param posSize 位置压缩块大小
+     * @param alleleSize 等位基因压缩块大小
+     * @param subBlockVariantNum 子块变异位点数量
+     * @param flags 块特征标记 (DELTA_ENCODED_POS 等按位组合)
+     */
+    public GTBNode(int chromosomeIndex, int minPos, int maxPos, long blockSeek, int genotypeSize, int posSize, int alleleSize,
+                   int originMBEGsSize, int originAllelesSize, short[] subBlockVariantNum, int flags) {
+        this(chromosomeIndex, minPos, maxPos, blockSeek, genotypeSize, posSize, alleleSize, calculateMagicCode(originMBEGsSize, originAllelesSize), subBlockVariantNum, flags);
     }
 
     /**
@@ -117,7 +188,6 @@ public class GTBNode implements Comparable<GTBNode> {
         this(ChromosomeTags.getIndex(chromosome), minPos, maxPos, blockSeek, genotypeSize, posSize, alleleSize, calculateMagicCode(originMBEGsSize, originAllelesSize), subBlockVariantNum);
     }
 
-
     /**
      * 获取根索引
      * @return 所属根索引
@@ -134,6 +204,22 @@ public class GTBNode implements Comparable<GTBNode> {
         this.rootIndex = rootIndex;
     }
 
+    /**
+     * 获取块数据的校验码
+     */
+    public int getChecksum() {
+        return this.checksum;
+    }
+
+    /**
+     * 设置块数据的校验码
+     * @param checksum 块数据的校验码
+     */
+    public GTBNode setChecksum(int checksum) {
+        this.checksum = checksum;
+        return this;
+    }
+
     /**
      * 获取块总变异位点数量
      * @return 当前块组织的变异位点总数
@@ -155,7 +241,8 @@ public class GTBNode implements Comparable<GTBNode> {
     public GTBNode clone() {
         // 克隆方法
         return new GTBNode(this.chromosomeIndex, this.minPos, this.maxPos, this.blockSeek, this.compressedGenotypesSize, this.compressedPosSize, this.compressedAlleleSize, this.magicCode,
-                new short[]{subBlockVariantNum[0], subBlockVariantNum[1]});
+                new short[]{subBlockVariantNum[0], subBlockVariantNum[1]}, this.flags)
+                .setChecksum(this.checksum);
     }
 
     /**
@@ -165,7 +252,8 @@ public class GTBNode implements Comparable<GTBNode> {
     GTBNode resetChromosome(int newChromosomeIndex) {
         // 克隆方法
         return new GTBNode(newChromosomeIndex, this.minPos, this.maxPos, this.blockSeek, this.compressedGenotypesSize, this.compressedPosSize, this.compressedAlleleSize, this.magicCode,
-                new short[]{subBlockVariantNum[0], subBlockVariantNum[1]});
+                new short[]{subBlockVariantNum[0], subBlockVariantNum[1]}, this.flags)
+                .setChecksum(this.checksum);
     }
 
     @Override
@@ -185,6 +273,7 @@ public class GTBNode implements Comparable<GTBNode> {
                 compressedAlleleSize == gtbNode.compressedAlleleSize &&
                 compressedGenotypesSize == gtbNode.compressedGenotypesSize &&
                 magicCode == gtbNode.magicCode &&
+                flags == gtbNode.flags &&
                 Arrays.equals(subBlockVariantNum, gtbNode.subBlockVariantNum);
     }
 
@@ -206,6 +295,15 @@ public class GTBNode implements Comparable<GTBNode> {
      * @param cache 输出容器
      */
     public int toTransFormat(VolumeByteStream cache) {
+        return toTransFormat(cache, false);
+    }
+
+    /**
+     * 转换为易于传输、储存的格式
+     * @param cache 输出容器
+     * @param checksum 是否在块头部信息末尾写入块校验码
+     */
+    public int toTransFormat(VolumeByteStream cache, boolean checksum) {
         cache.write(this.chromosomeIndex);
         cache.writeIntegerValue(this.minPos);
         cache.writeIntegerValue(this.maxPos);
@@ -215,7 +313,12 @@ public class GTBNode implements Comparable<GTBNode> {
         cache.write(ValueUtils.value2ByteArray(this.compressedPosSize, 3));
         cache.writeIntegerValue(this.compressedAlleleSize);
         cache.write(this.magicCode);
-        return 25;
+        cache.write((byte) this.flags);
+
+        if (checksum) {
+            cache.writeIntegerValue(this.checksum);
+        }
+        return GTBChecksum.getNodeInfoSize(checksum);
     }
 
     /**
@@ -20,6 +20,11 @@ public class GTBNodes implements Iterable<GTBNode> {
     public final int chromosomeIndex;
     private Array<GTBNode> nodes;
 
+    /**
+     * 节点是否按位置有序 (null 表示未检查)，节点变动时重置
+     */
+    private Boolean ordered;
+
     /**
      * 构造器方法，该方法是不安全的，外部需要保证 nodes 的染色体编号都是一致的，同时该对象不应被外部修改
      * @param nodes 指定节点群设置节点集群
@@ -83,6 +88,7 @@ public class GTBNodes implements Iterable<GTBNode> {
     public void add(GTBNode node) {
         checkChromosome(node.chromosomeIndex);
         this.nodes.add(node);
+        this.ordered = null;
     }
 
     /**
@@ -92,6 +98,7 @@ public class GTBNodes implements Iterable<GTBNode> {
     public void add(GTBNodes otherNodes) {
         checkChromosome(otherNodes.chromosomeIndex);
         this.nodes.addAll(otherNodes.nodes);
+        this.ordered = null;
     }
 
     /**
@@ -103,6 +110,7 @@ public class GTBNodes implements Iterable<GTBNode> {
 
         // 替换数据
         this.nodes = otherNodes.nodes;
+        this.ordered = null;
     }
 
     /**
@@ -169,6 +177,7 @@ public class GTBNodes implements Iterable<GTBNode> {
      */
     public void removeAll() {
         this.nodes.clear();
+        this.ordered = null;
     }
 
     /**
@@ -195,6 +204,7 @@ public class GTBNodes implements Iterable<GTBNode> {
     public void flush() {
         this.nodes.remove(null);
         this.nodes.sort(GTBNode::compare);
+        this.ordered = null;
     }
 
     /**
@@ -272,9 +282,14 @@ public class GTBNodes implements Iterable<GTBNode> {
     }
 
     /**
-     * 查找包含 pos 的块索引
+     * 查找包含 pos 的块索引，有序的节点使用二分查找
      */
     public int find(int pos) {
+        if (checkOrdered()) {
+            int index = search(pos);
+            return index < this.nodes.size() && get(index).contain(pos) ? index : -1;
+        }
+
         int index = 0;
 
         for (GTBNode node : this) {
@@ -287,17 +302,41 @@ public class GTBNodes implements Iterable<GTBNode> {
         return -1;
     }
 
+    /**
+     * 二分查找第一个 maxPos >= pos 的块索引，不存在时返回块的个数，需要保证节点按位置有序
+     */
+    public int search(int pos) {
+        int low = 0;
+        int high = this.nodes.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (get(mid).maxPos < pos) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        return low;
+    }
+
     /**
      * 检查该文件是否为有序文件 (可快速随机访问)
      */
     boolean checkOrdered() {
-        for (int i = 0; i < this.nodes.size() - 1; i++) {
-            if (get(i).maxPos > get(i + 1).minPos) {
-                return false;
+        if (this.ordered == null) {
+            boolean ordered = true;
+            for (int i = 0; i < this.nodes.size() - 1; i++) {
+                if (get(i).maxPos > get(i + 1).minPos) {
+                    ordered = false;
+                    break;
+                }
             }
+
+            this.ordered = ordered;
         }
 
-        return true;
+        return this.ordered;
     }
 
     GTBNodes resetChromosome(int newChromosomeIndex) {
@@ -2,6 +2,7 @@ package edu.sysu.pmglab.gbc.core.gtbcomponent;
 
 import edu.sysu.pmglab.check.Assert;
 import edu.sysu.pmglab.container.array.BaseArray;
+import edu.sysu.pmglab.gbc.core.gtbcomponent.gtbreader.GTBBlockCache;
 
 import java.util.HashMap;
 
@@ -9,7 +10,7 @@ import java.util.HashMap;
  * @Data        :2020/06/22
  * @Author      :suranyi
  * @Contact     :suranyi.sysu@gamil.com
- * @Description :全局单例模式 gtb 根节点缓存器
+ * @Description :全局单例模式 gtb 根节点缓存器，清除管理器时一并清除该文件的解压块缓存
  */
 
 public enum GTBRootCache {
@@ -67,6 +68,7 @@ public enum GTBRootCache {
     public static void clear() {
         synchronized (INSTANCE.cache) {
             INSTANCE.cache.clear();
+            GTBBlockCache.clear();
         }
     }
 
@@ -77,6 +79,7 @@ public enum GTBRootCache {
         synchronized (INSTANCE.cache) {
             for (String fileName : fileNames) {
                 INSTANCE.cache.remove(fileName);
+                GTBBlockCache.clear(fileName);
             }
         }
     }
@@ -88,6 +91,7 @@ public enum GTBRootCache {
         synchronized (INSTANCE.cache) {
             for (GTBManager manager : managers) {
                 INSTANCE.cache.remove(manager.getFileName());
+                GTBBlockCache.clear(manager.getFileName());
             }
         }
     }
@@ -100,8 +104,10 @@ public enum GTBRootCache {
             for (ManagerType managerUnknownType : managers) {
                 if (managerUnknownType instanceof String) {
                     INSTANCE.cache.remove((String) managerUnknownType);
+                    GTBBlockCache.clear((String) managerUnknownType);
                 } else if (managerUnknownType instanceof GTBManager) {
                     INSTANCE.cache.remove(((GTBManager) managerUnknownType).getFileName());
+                    GTBBlockCache.clear(((GTBManager) managerUnknownType).getFileName());
                 }
             }
         }
@@ -22,6 +22,12 @@ public class GTBSubjectManager {
     private int subjectNum;
     private BiDict<String, Integer> subjectsIndexBiDict;
 
+    /**
+     * 样本排列 (order[i] 为第 i 列样本的原始索引) 及原始顺序的样本所在的列，null 表示样本按原始顺序保存
+     */
+    private int[] order;
+    private int[] originalColumns;
+
     /**
      * 构造器方法
      */
@@ -74,6 +80,7 @@ public class GTBSubjectManager {
         }
 
         this.subjectNum = this.subjectsIndexBiDict.size();
+        setOrder(null);
     }
 
     /**
@@ -90,9 +97,55 @@ public class GTBSubjectManager {
         }
 
         this.subjectNum = this.subjectsIndexBiDict.size();
+        setOrder(null);
         return this;
     }
 
+    /**
+     * 设置样本排列，样本名序列需按排列后的顺序保存
+     * @param order 样本排列，order[i] 为第 i 列样本的原始索引，null 表示样本按原始顺序保存
+     */
+    public GTBSubjectManager setOrder(int[] order) {
+        if (order == null) {
+            this.order = null;
+            this.originalColumns = null;
+        } else {
+            if (order.length != this.subjectNum) {
+                throw new GTBComponentException("the length of subject order (" + order.length + ") does not match the number of subjects (" + this.subjectNum + ")");
+            }
+
+            this.order = order;
+            this.originalColumns = GTBSubjectOrder.inverse(order);
+        }
+
+        return this;
+    }
+
+    /**
+     * 获取样本排列，null 表示样本按原始顺序保存
+     */
+    public int[] getOrder() {
+        return this.order;
+    }
+
+    /**
+     * 样本是否经过重排
+     */
+    public boolean isReordered() {
+        return this.order != null;
+    }
+
+    /**
+     * 获取原始顺序的样本所在的列 (即样本索引)，读取所有样本时按此顺序还原
+     */
+    public int[] getOriginalColumns() {
+        if (this.originalColumns == null) {
+            return this.subjectNum == 0 ? new int[0] : ArrayUtils.range(this.subjectNum - 1);
+        }
+
+        return this.originalColumns;
+    }
+
     /**
      * 获取样本名序列
      */
@@ -202,10 +255,14 @@ public class GTBSubjectManager {
     }
 
     /**
-     * 获取所有的样本名
+     * 获取所有的样本名 (原始顺序)
      */
     public String[] getAllSubjects() {
-        return new String(subjects).split("\t");
+        if (this.subjectNum == 0) {
+            return new String[0];
+        }
+
+        return this.originalColumns == null ? new String(subjects).split("\t") : getSubjects(this.originalColumns);
     }
 
     /**
@@ -279,6 +336,7 @@ public class GTBSubjectManager {
     public int hashCode() {
         int result = Objects.hash(subjectNum, subjectsIndexBiDict);
         result = 31 * result + Arrays.hashCode(subjects);
+        result = 31 * result + Arrays.hashCode(order);
         return result;
     }
 
@@ -295,11 +353,11 @@ public class GTBSubjectManager {
             return "";
         }
 
-        String[] subjectArray = new String(subjects).split("\t");
+        int[] columns = getOriginalColumns();
         StringBuilder builder = new StringBuilder(subjects.length);
         String prefix = StringUtils.copyN(" ", prefixNum);
-        for (int i = 0; i < subjectArray.length; i++) {
-            builder.append(subjectsIndexBiDict.keyOf(i));
+        for (int i = 0; i < columns.length; i++) {
+            builder.append(subjectsIndexBiDict.keyOf(columns[i]));
             if ((i + 1) % eachLineNumber != 0) {
                 builder.append(" ");
             } else {
@@ -0,0 +1,82 @@
+package edu.sysu.pmglab.gbc.core.gtbcomponent;
+
+import edu.sysu.pmglab.container.VolumeByteStream;
+import edu.sysu.pmglab.easytools.ValueUtils;
+
+import java.io.IOException;
+
+/**
+ * @Data        :2022/04/07
+ * @Author      :suranyi
+ * @Contact     :suranyi.sysu@gamil.com
+ * @Description :GTB 样本排列。构建时可将相似的样本排列在相邻的位置 (同一个 MBEG 编码组中)，样本名按排列后的顺序保存，
+ *               排列保存在文件头部的样本名数据 (及压缩字典) 之后: 排列数据大小 (4 byte) + 压缩的排列数据，样本名数据大小字段的第 29 位标记文件包含样本排列
+ */
+
+public class GTBSubjectOrder {
+    /**
+     * 压缩样本排列
+     * @param compressorIndex 压缩器索引
+     * @param compressionLevel 压缩级别
+     * @param order 样本排列，order[i] 为第 i 列样本的原始索引
+     * @return 排列数据大小 (4 byte) + 压缩的排列数据
+     */
+    public static VolumeByteStream compress(int compressorIndex, int compressionLevel, int[] order) throws IOException {
+        VolumeByteStream values = new VolumeByteStream(order.length << 2);
+        for (int index : order) {
+            values.writeIntegerValue(index);
+        }
+
+        VolumeByteStream compressed = GTBCompressor.compress(compressorIndex, compressionLevel, values.getCache(), 0, values.size());
+        VolumeByteStream out = new VolumeByteStream(compressed.size() + 4);
+        out.writeIntegerValue(compressed.size());
+        out.write(compressed);
+        return out;
+    }
+
+    /**
+     * 解压样本排列
+     * @param compressorIndex 压缩器索引
+     * @param compressed 压缩的排列数据 (不含排列数据大小)
+     * @return 样本排列，order[i] 为第 i 列样本的原始索引
+     */
+    public static int[] decompress(int compressorIndex, VolumeByteStream compressed) throws IOException {
+        VolumeByteStream values = GTBCompressor.decompress(compressorIndex, compressed);
+        byte[] cache = values.getCache();
+        int[] order = new int[values.size() >> 2];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = ValueUtils.byteArray2IntegerValue(cache[i << 2], cache[(i << 2) + 1], cache[(i << 2) + 2], cache[(i << 2) + 3]);
+        }
+
+        return order;
+    }
+
+    /**
+     * 获取排列的逆排列，即原始顺序的样本所在的列
+     * @param order 样本排列
+     */
+    public static int[] inverse(int[] order) {
+        int[] columns = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            columns[order[i]] = i;
+        }
+
+        return columns;
+    }
+
+    /**
+     * 按样本排列重排样本名
+     * @param subjects 原始顺序的样本名 (\t 分隔)
+     * @param order 样本排列
+     * @return 按列顺序排列的样本名 (\t 分隔)
+     */
+    public static byte[] reorder(byte[] subjects, int[] order) {
+        String[] names = new String(subjects).split("\t");
+        String[] reordered = new String[names.length];
+        for (int i = 0; i < order.length; i++) {
+            reordered[i] = names[order[i]];
+        }
+
+        return String.join("\t", reordered).getBytes();
+    }
+}
@@ -6,7 +6,6 @@ import edu.sysu.pmglab.container.array.Array;
 import edu.sysu.pmglab.container.array.BaseArray;
 import edu.sysu.pmglab.easytools.ArrayUtils;
 import edu.sysu.pmglab.easytools.ByteCode;
-import edu.sysu.pmglab.easytools.ValueUtils;
 import edu.sysu.pmglab.gbc.constant.ChromosomeTags;
 import edu.sysu.pmglab.gbc.core.exception.GBCExceptionOptions;
 import edu.sysu.pmglab.gbc.core.exception.GTBComponentException;
@@ -552,24 +551,24 @@ public class GTBTree implements Iterable<GTBNodes> {
      * 构建块头部信息
      */
     public VolumeByteStream build() {
+        return build(false);
+    }
+
+    /**
+     * 构建块头部信息
+     * @param checksum 是否在每个块头部信息末尾写入块校验码
+     */
+    public VolumeByteStream build(boolean checksum) {
         // 获取总块数
         int nodeNum = numOfNodes();
 
         // 创建头部信息容器
-        VolumeByteStream header = new VolumeByteStream(nodeNum * 25);
+        VolumeByteStream header = new VolumeByteStream(nodeNum * GTBChecksum.getNodeInfoSize(checksum));
 
-        // 写入块头部信息 25 byte
+        // 写入块头部信息 26 byte (包含块校验码时为 30 byte)
         for (GTBNodes nodes : this) {
             for (GTBNode node : nodes) {
-                header.write(node.chromosomeIndex);
-                header.writeIntegerValue(node.minPos);
-                header.writeIntegerValue(node.maxPos);
-                header.writeShortValue(node.subBlockVariantNum[0]);
-                header.writeShortValue(node.subBlockVariantNum[1]);
-                header.writeIntegerValue(node.compressedGenotypesSize);
-                header.write(ValueUtils.value2ByteArray(node.compressedPosSize, 3));
-                header.writeIntegerValue(node.compressedAlleleSize);
-                header.write(node.magicCode);
+                node.toTransFormat(header, checksum);
             }
         }
 
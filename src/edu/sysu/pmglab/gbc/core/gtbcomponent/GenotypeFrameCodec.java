@@ -0,0 +1,162 @@
+package edu.sysu.pmglab.gbc.core.gtbcomponent;
+
+import edu.sysu.pmglab.compressor.ICompressor;
+import edu.sysu.pmglab.compressor.IDecompressor;
+import edu.sysu.pmglab.container.VolumeByteStream;
+import edu.sysu.pmglab.container.array.Array;
+import edu.sysu.pmglab.easytools.ValueUtils;
+
+import java.io.IOException;
+
+/**
+ * @Data        :2022/04/14
+ * @Author      :suranyi
+ * @Contact     :suranyi.sysu@gamil.com
+ * @Description :分帧 (按行) 的基因型数据编解码器。未压缩的基因型数据 (MBEG 子块 | BEG 子块) 按 FRAME_SIZE 字节依次划分为若干帧，每帧独立压缩，
+ *               以便大型块的基因型数据在多个线程中同时压缩。块的基因型数据为: 帧数 (4 byte) + 每帧的压缩大小 (4 byte) + 各帧的压缩数据，
+ *               依次解压各帧并拼接即得到完整的基因型数据
+ */
+
+public class GenotypeFrameCodec {
+    /**
+     * 每帧的未压缩数据大小 (最后一帧可能更小)，基因型数据不超过该大小时不分帧
+     */
+    public static final int FRAME_SIZE = 1 << 20;
+
+    /**
+     * 帧数
+     * @param genotypesSize 未压缩的基因型数据大小
+     */
+    public static int getFrameNum(int genotypesSize) {
+        return (genotypesSize + FRAME_SIZE - 1) / FRAME_SIZE;
+    }
+
+    /**
+     * 压缩一帧，压缩器先被重置，压缩后的数据保存在压缩器的缓冲区中
+     * @param genotypes 未压缩的基因型数据
+     * @param frameIndex 帧索引
+     * @param compressor 该帧的压缩器
+     * @return 该帧的压缩大小
+     */
+    public static int compressFrame(VolumeByteStream genotypes, int frameIndex, ICompressor compressor) throws IOException {
+        int start = frameIndex * FRAME_SIZE;
+        compressor.reset();
+        return compressor.compress(genotypes.getCache(), start, Math.min(FRAME_SIZE, genotypes.size() - start));
+    }
+
+    /**
+     * 将各帧的压缩数据按布局写入 dst
+     * @param frameCompressors 各帧的压缩器 (帧 i 的压缩数据位于第 i 个压缩器的缓冲区中)
+     * @param frameNum 帧数
+     * @param dst 输出缓冲区
+     * @return 基因型数据的总大小
+     */
+    public static int writeFrames(ICompressor[] frameCompressors, int frameNum, VolumeByteStream dst) {
+        int start = dst.size();
+        dst.writeSafety(ValueUtils.intValue2ByteArray(frameNum));
+        for (int i = 0; i < frameNum; i++) {
+            dst.writeSafety(ValueUtils.intValue2ByteArray(frameCompressors[i].getCache().size()));
+        }
+
+        for (int i = 0; i < frameNum; i++) {
+            dst.writeSafety(frameCompressors[i].getCache().getCache(), 0, frameCompressors[i].getCache().size());
+        }
+
+        return dst.size() - start;
+    }
+
+    /**
+     * 按块的基因型数据布局解压内存中的基因型数据 (分帧时依次解压各帧)
+     * @param node 块节点
+     * @param src 压缩的基因型数据
+     * @param decompressor 解压器
+     * @param genotypes 解压后的基因型数据 (MBEG 子块 | BEG 子块)，追加写入
+     */
+    public static void decompress(GTBNode node, VolumeByteStream src, IDecompressor decompressor, VolumeByteStream genotypes) throws IOException {
+        decompress(node, src.getCache(), 0, src.size(), decompressor, genotypes);
+    }
+
+    /**
+     * 按块的基因型数据布局解压内存中的基因型数据 (分帧时依次解压各帧)
+     * @param node 块节点
+     * @param src 压缩数据所在的缓冲区
+     * @param offset 基因型数据在缓冲区中的起始位置
+     * @param length 基因型数据的长度
+     * @param decompressor 解压器
+     * @param genotypes 解压后的基因型数据 (MBEG 子块 | BEG 子块)，追加写入
+     */
+    public static void decompress(GTBNode node, byte[] src, int offset, int length, IDecompressor decompressor, VolumeByteStream genotypes) throws IOException {
+        if (!node.framedGenotype) {
+            decompressor.decompress(src, offset, length, genotypes);
+            return;
+        }
+
+        int frameNum = GenotypeSliceCodec.readInt(src, offset);
+        int frameOffset = offset + 4 + (frameNum << 2);
+        for (int i = 0; i < frameNum; i++) {
+            int compressedSize = GenotypeSliceCodec.readInt(src, offset + 4 + (i << 2));
+            decompressor.decompress(src, frameOffset, compressedSize, genotypes);
+            frameOffset += compressedSize;
+        }
+    }
+
+    /**
+     * 逐帧解压 (用于训练压缩字典)
+     * @param src 压缩的基因型数据
+     * @param decompressor 解压器
+     * @return 每帧解压后的数据
+     */
+    public static Array<byte[]> decompressFrames(VolumeByteStream src, IDecompressor decompressor) throws IOException {
+        byte[] cache = src.getCache();
+        int frameNum = GenotypeSliceCodec.readInt(cache, 0);
+        Array<byte[]> frames = new Array<>(frameNum);
+        VolumeByteStream frameCache = new VolumeByteStream(FRAME_SIZE);
+
+        int offset = 4 + (frameNum << 2);
+        for (int i = 0; i < frameNum; i++) {
+            int compressedSize = GenotypeSliceCodec.readInt(cache, 4 + (i << 2));
+            frameCache.reset();
+            decompressor.decompress(cache, offset, compressedSize, frameCache);
+            frames.add(frameCache.values());
+            offset += compressedSize;
+        }
+
+        frameCache.close();
+        return frames;
+    }
+
+    /**
+     * 使用新的压缩器逐帧重新压缩，帧的划分不变
+     * @param src 压缩的基因型数据
+     * @param decompressor 解压器
+     * @param compressor 压缩器
+     * @param dst 输出缓冲区，重新压缩后的数据追加到其中
+     * @return 基因型数据的总大小
+     */
+    public static int recompress(VolumeByteStream src, IDecompressor decompressor, ICompressor compressor, VolumeByteStream dst) throws IOException {
+        byte[] cache = src.getCache();
+        int frameNum = GenotypeSliceCodec.readInt(cache, 0);
+        int start = dst.size();
+        VolumeByteStream frameCache = new VolumeByteStream(FRAME_SIZE);
+        VolumeByteStream compressedCache = new VolumeByteStream(FRAME_SIZE);
+
+        // 帧数与帧大小表，压缩后回填
+        dst.writeSafety(cache, 0, 4 + (frameNum << 2));
+
+        int offset = 4 + (frameNum << 2);
+        for (int i = 0; i < frameNum; i++) {
+            int compressedSize = GenotypeSliceCodec.readInt(cache, 4 + (i << 2));
+            frameCache.reset();
+            compressedCache.reset();
+            decompressor.decompress(cache, offset, compressedSize, frameCache);
+            int newSize = compressor.compress(frameCache, compressedCache);
+            dst.cacheWrite(start + 4 + (i << 2), ValueUtils.intValue2ByteArray(newSize), 0, 4);
+            dst.writeSafety(compressedCache.getCache(), 0, newSize);
+            offset += compressedSize;
+        }
+
+        frameCache.close();
+        compressedCache.close();
+        return dst.size() - start;
+    }
+}
@@ -0,0 +1,357 @@
+package edu.sysu.pmglab.gbc.core.gtbcomponent;
+
+import edu.sysu.pmglab.compressor.ICompressor;
+import edu.sysu.pmglab.compressor.IDecompressor;
+import edu.sysu.pmglab.container.VolumeByteStream;
+import edu.sysu.pmglab.container.array.Array;
+import edu.sysu.pmglab.easytools.ValueUtils;
+import edu.sysu.pmglab.unifyIO.FileStream;
+
+import java.io.IOException;
+
+/**
+ * @Data        :2022/03/30
+ * @Author      :suranyi
+ * @Contact     :suranyi.sysu@gamil.com
+ * @Description :样本切片 (按列) 的基因型数据编解码器。解压后的基因型数据 (MBEG 子块 | BEG 子块) 按样本划分为若干切片，每个切片包含所有位点在这些样本上的编码，
+ *               并独立压缩。块的基因型数据为: 切片样本数 (4 byte) + 每个切片的压缩大小 (4 byte) + 各切片的压缩数据，
+ *               提取少量样本时仅读取并解压这些样本所在的切片，再写回完整布局中对应的列，未选择的列不被更新
+ */
+
+public class GenotypeSliceCodec {
+    /**
+     * 切片样本数的单位，为有向 (每字节 3 个样本) 与无向 (每字节 4 个样本) MBEG 编码的公倍数，切片的边界总是对齐到 MBEG 编码的字节
+     */
+    public static final int SLICE_UNIT = 12;
+
+    /**
+     * 样本数、MBEG 编码每字节的样本数、MBEG 子块每个位点的编码长度
+     */
+    final int subjectNum;
+    final int eachCodeGenotypeNum;
+    final int eachLineSize;
+
+    /**
+     * 切片数据及切片大小表的缓冲区
+     */
+    final VolumeByteStream sliceCache = new VolumeByteStream();
+    final VolumeByteStream tableCache = new VolumeByteStream();
+
+    /**
+     * 选择的样本 (null 表示所有样本)，及按切片样本数计算的切片选择结果
+     */
+    int[] selectedSubjects;
+    boolean[] selectedSlices;
+    int selectedSliceSize = -1;
+
+    /**
+     * 构造器方法
+     * @param subjectNum 样本数
+     * @param phased 是否有向
+     */
+    public GenotypeSliceCodec(int subjectNum, boolean phased) {
+        this.subjectNum = subjectNum;
+        this.eachCodeGenotypeNum = phased ? 3 : 4;
+        this.eachLineSize = (subjectNum / this.eachCodeGenotypeNum) + (subjectNum % this.eachCodeGenotypeNum == 0 ? 0 : 1);
+    }
+
+    /**
+     * 将切片样本数向上对齐到 SLICE_UNIT 的整数倍，0 表示不切片
+     * @param sliceSize 切片样本数
+     */
+    public static int alignSliceSize(int sliceSize) {
+        return sliceSize <= 0 ? 0 : ((sliceSize + SLICE_UNIT - 1) / SLICE_UNIT) * SLICE_UNIT;
+    }
+
+    /**
+     * 切片个数
+     * @param subjectNum 样本数
+     * @param sliceSize 切片样本数
+     */
+    public static int getSliceNum(int subjectNum, int sliceSize) {
+        return subjectNum == 0 ? 0 : (subjectNum + sliceSize - 1) / sliceSize;
+    }
+
+    /**
+     * 选择需要解压的样本，只有包含这些样本的切片会被解压
+     * @param subjectIndexes 样本索引，null 表示所有样本
+     */
+    public void selectSubjects(int[] subjectIndexes) {
+        this.selectedSubjects = coversAllSubjects(subjectIndexes) ? null : subjectIndexes;
+        this.selectedSliceSize = -1;
+    }
+
+    /**
+     * 是否选择了所有样本 (此时切片块解压得到完整的基因型数据)
+     */
+    public boolean isAllSubjectsSelected() {
+        return this.selectedSubjects == null;
+    }
+
+    /**
+     * 样本索引是否覆盖所有样本，此时一次性读取整个基因型数据
+     */
+    boolean coversAllSubjects(int[] subjectIndexes) {
+        if (subjectIndexes == null) {
+            return true;
+        }
+
+        if (subjectIndexes.length < this.subjectNum) {
+            return false;
+        }
+
+        boolean[] selected = new boolean[this.subjectNum];
+        int selectedNum = 0;
+        for (int subjectIndex : subjectIndexes) {
+            if (!selected[subjectIndex]) {
+                selected[subjectIndex] = true;
+                selectedNum++;
+            }
+        }
+
+        return selectedNum == this.subjectNum;
+    }
+
+    /**
+     * 按样本切片压缩基因型数据，压缩后的数据追加到压缩器的缓冲区中
+     * @param genotypes 未压缩的基因型数据 (MBEG 子块 | BEG 子块)
+     * @param subBlockVariantNum 子块变异位点数量
+     * @param sliceSize 切片样本数，需要为 SLICE_UNIT 的整数倍
+     * @param compressor 压缩器
+     * @return 基因型数据的总大小
+     */
+    public int compress(VolumeByteStream genotypes, short[] subBlockVariantNum, int sliceSize, ICompressor compressor) throws IOException {
+        VolumeByteStream dst = compressor.getCache();
+        int start = dst.size();
+        int sliceNum = getSliceNum(this.subjectNum, sliceSize);
+
+        // 切片大小表，压缩后回填
+        dst.writeSafety(ValueUtils.intValue2ByteArray(sliceSize));
+        for (int i = 0; i < sliceNum; i++) {
+            dst.writeSafety(ValueUtils.intValue2ByteArray(0));
+        }
+
+        for (int i = 0; i < sliceNum; i++) {
+            this.sliceCache.reset();
+            gather(genotypes, subBlockVariantNum, i * sliceSize, Math.min(this.subjectNum, (i + 1) * sliceSize));
+            int compressedSize = compressor.compress(this.sliceCache);
+            dst.cacheWrite(start + 4 + (i << 2), ValueUtils.intValue2ByteArray(compressedSize), 0, 4);
+        }
+
+        return dst.size() - start;
+    }
+
+    /**
+     * 从文件中读取并解压块的基因型数据，只解压包含选择样本的切片
+     * @param node 块节点
+     * @param file GTB 文件
+     * @param decompressor 解压器
+     * @param undecompressedCache 未解压数据缓冲区
+     * @param genotypes 解压后的基因型数据 (MBEG 子块 | BEG 子块)
+     */
+    public void decompress(GTBNode node, FileStream file, IDecompressor decompressor, VolumeByteStream undecompressedCache, VolumeByteStream genotypes) throws IOException {
+        if (this.selectedSubjects == null) {
+            // 解压所有切片时，一次性读取整个基因型数据
+            undecompressedCache.reset();
+            undecompressedCache.makeSureCapacity(node.compressedGenotypesSize);
+            file.seek(node.blockSeek);
+            file.read(undecompressedCache, node.compressedGenotypesSize);
+            decompress(node, undecompressedCache, decompressor, genotypes);
+            return;
+        }
+
+        file.seek(node.blockSeek);
+        int sliceSize = file.readIntegerValue();
+        int sliceNum = getSliceNum(this.subjectNum, sliceSize);
+        this.tableCache.reset();
+        this.tableCache.makeSureCapacity(sliceNum << 2);
+        file.read(this.tableCache, sliceNum << 2);
+
+        initGenotypes(node, genotypes);
+        boolean[] slices = selectSlices(sliceSize, sliceNum);
+        long seek = node.blockSeek + 4 + ((long) sliceNum << 2);
+        for (int i = 0; i < sliceNum; i++) {
+            int compressedSize = readInt(this.tableCache.getCache(), i << 2);
+            if (slices[i]) {
+                undecompressedCache.reset();
+                undecompressedCache.makeSureCapacity(compressedSize);
+                file.seek(seek);
+                file.read(undecompressedCache, compressedSize);
+                decompressSlice(undecompressedCache.getCache(), 0, compressedSize, decompressor, node, genotypes, i * sliceSize, Math.min(this.subjectNum, (i + 1) * sliceSize));
+            }
+            seek += compressedSize;
+        }
+    }
+
+    /**
+     * 解压内存中块的基因型数据，只解压包含选择样本的切片
+     * @param node 块节点
+     * @param src 压缩的基因型数据
+     * @param decompressor 解压器
+     * @param genotypes 解压后的基因型数据 (MBEG 子块 | BEG 子块)
+     */
+    public void decompress(GTBNode node, VolumeByteStream src, IDecompressor decompressor, VolumeByteStream genotypes) throws IOException {
+        decompress(node, src.getCache(), 0, decompressor, genotypes);
+    }
+
+    /**
+     * 解压内存中块的基因型数据，只解压包含选择样本的切片
+     * @param node 块节点
+     * @param src 压缩数据所在的缓冲区
+     * @param offset 基因型数据在缓冲区中的起始位置
+     * @param decompressor 解压器
+     * @param genotypes 解压后的基因型数据 (MBEG 子块 | BEG 子块)
+     */
+    public void decompress(GTBNode node, byte[] src, int offset, IDecompressor decompressor, VolumeByteStream genotypes) throws IOException {
+        int sliceSize = readInt(src, offset);
+        int sliceNum = getSliceNum(this.subjectNum, sliceSize);
+
+        initGenotypes(node, genotypes);
+        boolean[] slices = this.selectedSubjects == null ? null : selectSlices(sliceSize, sliceNum);
+        int sliceOffset = offset + 4 + (sliceNum << 2);
+        for (int i = 0; i < sliceNum; i++) {
+            int compressedSize = readInt(src, offset + 4 + (i << 2));
+            if (slices == null || slices[i]) {
+                decompressSlice(src, sliceOffset, compressedSize, decompressor, node, genotypes, i * sliceSize, Math.min(this.subjectNum, (i + 1) * sliceSize));
+            }
+            sliceOffset += compressedSize;
+        }
+    }
+
+    /**
+     * 逐个解压切片，不写回完整布局 (用于训练压缩字典)
+     * @param src 压缩的基因型数据
+     * @param decompressor 解压器
+     * @return 每个切片解压后的数据
+     */
+    public Array<byte[]> decompressSlices(VolumeByteStream src, IDecompressor decompressor) throws IOException {
+        byte[] cache = src.getCache();
+        int sliceNum = getSliceNum(this.subjectNum, readInt(cache, 0));
+        Array<byte[]> slices = new Array<>(sliceNum);
+
+        int offset = 4 + (sliceNum << 2);
+        for (int i = 0; i < sliceNum; i++) {
+            int compressedSize = readInt(cache, 4 + (i << 2));
+            this.sliceCache.reset();
+            decompressor.decompress(cache, offset, compressedSize, this.sliceCache);
+            slices.add(this.sliceCache.values());
+            offset += compressedSize;
+        }
+
+        return slices;
+    }
+
+    /**
+     * 使用新的压缩器逐个重新压缩切片，切片样本数不变，压缩后的数据追加到压缩器的缓冲区中
+     * @param src 压缩的基因型数据
+     * @param decompressor 解压器
+     * @param compressor 压缩器
+     * @return 基因型数据的总大小
+     */
+    public int recompress(VolumeByteStream src, IDecompressor decompressor, ICompressor compressor) throws IOException {
+        byte[] cache = src.getCache();
+        int sliceNum = getSliceNum(this.subjectNum, readInt(cache, 0));
+        VolumeByteStream dst = compressor.getCache();
+        int start = dst.size();
+
+        // 切片样本数与切片大小表，压缩后回填
+        dst.writeSafety(cache, 0, 4 + (sliceNum << 2));
+
+        int offset = 4 + (sliceNum << 2);
+        for (int i = 0; i < sliceNum; i++) {
+            int compressedSize = readInt(cache, 4 + (i << 2));
+            this.sliceCache.reset();
+            decompressor.decompress(cache, offset, compressedSize, this.sliceCache);
+            dst.cacheWrite(start + 4 + (i << 2), ValueUtils.intValue2ByteArray(compressor.compress(this.sliceCache)), 0, 4);
+            offset += compressedSize;
+        }
+
+        return dst.size() - start;
+    }
+
+    /**
+     * 设置解压后基因型数据的大小
+     */
+    void initGenotypes(GTBNode node, VolumeByteStream genotypes) {
+        int length = this.eachLineSize * node.subBlockVariantNum[0] + this.subjectNum * node.subBlockVariantNum[1];
+        if (genotypes.getCapacity() < length) {
+            genotypes.expansionTo(length);
+        }
+        genotypes.reset(length);
+    }
+
+    /**
+     * 计算需要解压的切片
+     */
+    boolean[] selectSlices(int sliceSize, int sliceNum) {
+        if (this.selectedSliceSize != sliceSize) {
+            this.selectedSlices = new boolean[sliceNum];
+            for (int subjectIndex : this.selectedSubjects) {
+                this.selectedSlices[subjectIndex / sliceSize] = true;
+            }
+            this.selectedSliceSize = sliceSize;
+        }
+
+        return this.selectedSlices;
+    }
+
+    /**
+     * 收集样本 [startSubject, endSubject) 的编码至切片缓冲区
+     */
+    void gather(VolumeByteStream genotypes, short[] subBlockVariantNum, int startSubject, int endSubject) {
+        int startByte = startSubject / this.eachCodeGenotypeNum;
+        int endByte = (endSubject + this.eachCodeGenotypeNum - 1) / this.eachCodeGenotypeNum;
+        int length = (endByte - startByte) * subBlockVariantNum[0] + (endSubject - startSubject) * subBlockVariantNum[1];
+        if (this.sliceCache.getCapacity() < length) {
+            this.sliceCache.expansionTo(length);
+        }
+
+        byte[] cache = genotypes.getCache();
+        for (int i = 0; i < subBlockVariantNum[0]; i++) {
+            this.sliceCache.write(cache, this.eachLineSize * i + startByte, endByte - startByte);
+        }
+
+        int secondBlockStart = this.eachLineSize * subBlockVariantNum[0];
+        for (int i = 0; i < subBlockVariantNum[1]; i++) {
+            this.sliceCache.write(cache, secondBlockStart + this.subjectNum * i + startSubject, endSubject - startSubject);
+        }
+    }
+
+    /**
+     * 解压一个切片，并将样本 [startSubject, endSubject) 的编码写回完整布局
+     */
+    void decompressSlice(byte[] src, int offset, int length, IDecompressor decompressor, GTBNode node, VolumeByteStream genotypes,
+                         int startSubject, int endSubject) throws IOException {
+        this.sliceCache.reset();
+        decompressor.decompress(src, offset, length, this.sliceCache);
+
+        int startByte = startSubject / this.eachCodeGenotypeNum;
+        int byteNum = (endSubject + this.eachCodeGenotypeNum - 1) / this.eachCodeGenotypeNum - startByte;
+        byte[] slice = this.sliceCache.getCache();
+        byte[] cache = genotypes.getCache();
+        int readOffset = 0;
+        for (int i = 0; i < node.subBlockVariantNum[0]; i++) {
+            System.arraycopy(slice, readOffset, cache, this.eachLineSize * i + startByte, byteNum);
+            readOffset += byteNum;
+        }
+
+        int secondBlockStart = this.eachLineSize * node.subBlockVariantNum[0];
+        int subjectNum = endSubject - startSubject;
+        for (int i = 0; i < node.subBlockVariantNum[1]; i++) {
+            System.arraycopy(slice, readOffset, cache, secondBlockStart + this.subjectNum * i + startSubject, subjectNum);
+            readOffset += subjectNum;
+        }
+    }
+
+    /**
+     * 读取 4 byte 整数 (小端)
+     */
+    static int readInt(byte[] cache, int offset) {
+        return ValueUtils.byteArray2IntegerValue(cache[offset], cache[offset + 1], cache[offset + 2], cache[offset + 3]);
+    }
+
+    public void close() {
+        this.sliceCache.close();
+        this.tableCache.close();
+    }
+}
@@ -0,0 +1,250 @@
+package edu.sysu.pmglab.gbc.core.gtbcomponent;
+
+import edu.sysu.pmglab.compressor.ICompressor;
+import edu.sysu.pmglab.container.VolumeByteStream;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * @Data        :2022/03/28
+ * @Author      :suranyi
+ * @Contact     :suranyi.sysu@gamil.com
+ * @Description :LZ4 块格式压缩器 (纯 Java 实现)。压缩数据为: 原始数据大小 (4 byte, 小端) + LZ4 块，解压时无需熵解码，适合反复读取的 GTB 文件；
+ *               压缩级别为匹配搜索的哈希链深度 (2^level)，仅影响压缩速度与压缩比，不影响解压速度
+ */
+
+public class LZ4Compressor extends ICompressor {
+    public static final int MIN_LEVEL = 0;
+    public static final int MAX_LEVEL = 9;
+    public static final int DEFAULT_LEVEL = 3;
+    public static final String COMPRESSOR_NAME = "LZ4";
+
+    /**
+     * LZ4 块格式的约束: 最短匹配长度、块尾必须保留的字面量长度、最后一个匹配与块尾的最小距离、最大匹配距离
+     */
+    static final int MIN_MATCH = 4;
+    static final int LAST_LITERALS = 5;
+    static final int MF_LIMIT = 12;
+    static final int MAX_DISTANCE = 65535;
+
+    /**
+     * 哈希表大小的上下限 (log2)
+     */
+    static final int MIN_HASH_LOG = 10;
+    static final int MAX_HASH_LOG = 16;
+
+    final int searchDepth;
+    final int[] hashTable = new int[1 << MAX_HASH_LOG];
+    final int[] chainTable = new int[MAX_DISTANCE + 1];
+
+    public LZ4Compressor() {
+        this(DEFAULT_LEVEL);
+    }
+
+    public LZ4Compressor(int compressionLevel) {
+        this(compressionLevel, new VolumeByteStream(0));
+    }
+
+    public LZ4Compressor(int compressionLevel, VolumeByteStream cache) {
+        super(compressionLevel, cache);
+        this.searchDepth = 1 << compressionLevel;
+    }
+
+    /**
+     * 压缩数据
+     * @param compressionLevel 压缩级别
+     * @param src 源数据
+     * @param offset 源数据的起始位置
+     * @param length 源数据的长度
+     */
+    public static VolumeByteStream compress(int compressionLevel, byte[] src, int offset, int length) throws IOException {
+        try (LZ4Compressor compressor = new LZ4Compressor(compressionLevel)) {
+            VolumeByteStream dst = new VolumeByteStream(compressBound(length));
+            compressor.compress(src, offset, length, dst);
+            return dst;
+        }
+    }
+
+    /**
+     * 压缩数据的最大长度
+     * @param length 源数据的长度
+     */
+    public static int compressBound(int length) {
+        return 4 + length + length / 255 + 16;
+    }
+
+    @Override
+    public int getCompressBound(int length) {
+        return compressBound(length);
+    }
+
+    @Override
+    public int getMinCompressionLevel() {
+        return MIN_LEVEL;
+    }
+
+    @Override
+    public int getDefaultCompressionLevel() {
+        return DEFAULT_LEVEL;
+    }
+
+    @Override
+    public int getMaxCompressionLevel() {
+        return MAX_LEVEL;
+    }
+
+    @Override
+    public int compress(byte[] src, int srcOffset, int srcLength, byte[] dst, int dstOffset, int dstLength) throws IOException {
+        if (dstLength < compressBound(srcLength)) {
+            throw new IOException("the destination buffer of LZ4 compressor is too small");
+        }
+
+        writeIntLE(dst, dstOffset, srcLength);
+        int op = dstOffset + 4;
+        int end = srcOffset + srcLength;
+        int anchor = srcOffset;
+
+        if (srcLength > MF_LIMIT) {
+            // 哈希表大小随数据大小调整，避免小数据流 (位置、等位基因) 反复清空整个哈希表
+            int hashLog = Math.max(MIN_HASH_LOG, Math.min(MAX_HASH_LOG, 32 - Integer.numberOfLeadingZeros(srcLength)));
+            Arrays.fill(this.hashTable, 0, 1 << hashLog, -1);
+
+            int matchLimit = end - LAST_LITERALS;
+            int ipLimit = end - MF_LIMIT;
+            int ip = srcOffset;
+
+            while (ip < ipLimit) {
+                int sequence = readInt(src, ip);
+                int bestLength = 0;
+                int bestPos = -1;
+
+                // 沿哈希链查找最长匹配
+                int candidate = this.hashTable[hash(sequence, hashLog)];
+                for (int depth = this.searchDepth; depth > 0 && candidate >= 0 && ip - candidate <= MAX_DISTANCE; depth--) {
+                    if (readInt(src, candidate) == sequence) {
+                        int matchLength = MIN_MATCH + countMatch(src, candidate + MIN_MATCH, ip + MIN_MATCH, matchLimit);
+                        if (matchLength > bestLength) {
+                            bestLength = matchLength;
+                            bestPos = candidate;
+                        }
+                    }
+
+                    int next = this.chainTable[candidate & MAX_DISTANCE];
+                    if (next >= candidate) {
+                        break;
+                    }
+                    candidate = next;
+                }
+
+                if (bestLength == 0) {
+                    insert(src, ip, hashLog);
+                    ip++;
+                    continue;
+                }
+
+                op = writeSequence(src, anchor, ip - anchor, ip - bestPos, bestLength, dst, op);
+                for (int i = ip, insertEnd = Math.min(ip + bestLength, ipLimit); i < insertEnd; i++) {
+                    insert(src, i, hashLog);
+                }
+                ip += bestLength;
+                anchor = ip;
+            }
+        }
+
+        // 最后的字面量
+        int literalLength = end - anchor;
+        int token = op++;
+        if (literalLength >= 15) {
+            dst[token] = (byte) 0xF0;
+            op = writeLength(dst, op, literalLength - 15);
+        } else {
+            dst[token] = (byte) (literalLength << 4);
+        }
+        System.arraycopy(src, anchor, dst, op, literalLength);
+        op += literalLength;
+
+        return op - dstOffset;
+    }
+
+    /**
+     * 将位置 pos 加入哈希表与哈希链
+     */
+    void insert(byte[] src, int pos, int hashLog) {
+        int h = hash(readInt(src, pos), hashLog);
+        this.chainTable[pos & MAX_DISTANCE] = this.hashTable[h];
+        this.hashTable[h] = pos;
+    }
+
+    /**
+     * 写入一个序列: token + 字面量长度 + 字面量 + 匹配距离 (2 byte, 小端) + 匹配长度
+     */
+    static int writeSequence(byte[] src, int literalStart, int literalLength, int offset, int matchLength, byte[] dst, int op) {
+        int token = op++;
+        int tokenValue;
+        if (literalLength >= 15) {
+            tokenValue = 0xF0;
+            op = writeLength(dst, op, literalLength - 15);
+        } else {
+            tokenValue = literalLength << 4;
+        }
+        System.arraycopy(src, literalStart, dst, op, literalLength);
+        op += literalLength;
+
+        dst[op++] = (byte) offset;
+        dst[op++] = (byte) (offset >>> 8);
+
+        matchLength -= MIN_MATCH;
+        if (matchLength >= 15) {
+            tokenValue |= 0x0F;
+            op = writeLength(dst, op, matchLength - 15);
+        } else {
+            tokenValue |= matchLength;
+        }
+        dst[token] = (byte) tokenValue;
+        return op;
+    }
+
+    /**
+     * 写入长度的扩展字节
+     */
+    static int writeLength(byte[] dst, int op, int length) {
+        while (length >= 255) {
+            dst[op++] = (byte) 0xFF;
+            length -= 255;
+        }
+        dst[op++] = (byte) length;
+        return op;
+    }
+
+    /**
+     * 从 matchStart 与 ip 开始比较，返回相同的字节数 (不超过 limit)
+     */
+    static int countMatch(byte[] src, int matchStart, int ip, int limit) {
+        int start = ip;
+        while (ip < limit && src[matchStart] == src[ip]) {
+            matchStart++;
+            ip++;
+        }
+        return ip - start;
+    }
+
+    static int hash(int sequence, int hashLog) {
+        return (sequence * -1640531535) >>> (32 - hashLog);
+    }
+
+    static int readInt(byte[] src, int offset) {
+        return (src[offset] & 0xFF) | ((src[offset + 1] & 0xFF) << 8) | ((src[offset + 2] & 0xFF) << 16) | ((src[offset + 3] & 0xFF) << 24);
+    }
+
+    static void writeIntLE(byte[] dst, int offset, int value) {
+        dst[offset] = (byte) value;
+        dst[offset + 1] = (byte) (value >>> 8);
+        dst[offset + 2] = (byte) (value >>> 16);
+        dst[offset + 3] = (byte) (value >>> 24);
+    }
+
+    @Override
+    public void close() {
+    }
+}
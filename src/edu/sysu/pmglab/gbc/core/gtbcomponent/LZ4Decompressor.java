@@ -0,0 +1,122 @@
+package edu.sysu.pmglab.gbc.core.gtbcomponent;
+
+import edu.sysu.pmglab.compressor.IDecompressor;
+import edu.sysu.pmglab.container.VolumeByteStream;
+
+import java.io.IOException;
+
+/**
+ * @Data        :2022/03/28
+ * @Author      :suranyi
+ * @Contact     :suranyi.sysu@gamil.com
+ * @Description :LZ4 块格式解压器，对应 LZ4Compressor
+ */
+
+public class LZ4Decompressor extends IDecompressor {
+    public LZ4Decompressor() {
+        super();
+    }
+
+    public LZ4Decompressor(VolumeByteStream cache) {
+        super(cache);
+    }
+
+    /**
+     * 解压数据
+     * @param src 压缩数据
+     * @param offset 压缩数据的起始位置
+     * @param length 压缩数据的长度
+     */
+    public static VolumeByteStream decompress(byte[] src, int offset, int length) throws IOException {
+        try (LZ4Decompressor decompressor = new LZ4Decompressor()) {
+            VolumeByteStream dst = new VolumeByteStream(decompressor.getDecompressBound(src, offset, length));
+            decompressor.decompress(src, offset, length, dst);
+            return dst;
+        }
+    }
+
+    @Override
+    public int getDecompressBound(byte[] src, int offset, int length) {
+        return LZ4Compressor.readInt(src, offset);
+    }
+
+    @Override
+    public int decompress(byte[] src, int srcOffset, int srcLength, byte[] dst, int dstOffset, int dstLength) throws IOException {
+        int originLength = LZ4Compressor.readInt(src, srcOffset);
+        if (originLength > dstLength) {
+            throw new IOException("the destination buffer of LZ4 decompressor is too small");
+        }
+
+        int ip = srcOffset + 4;
+        int end = srcOffset + srcLength;
+        int op = dstOffset;
+        int opEnd = dstOffset + originLength;
+
+        try {
+            while (ip < end) {
+                int token = src[ip++] & 0xFF;
+
+                // 字面量
+                int literalLength = token >>> 4;
+                if (literalLength == 15) {
+                    int code;
+                    do {
+                        code = src[ip++] & 0xFF;
+                        literalLength += code;
+                    } while (code == 255);
+                }
+                System.arraycopy(src, ip, dst, op, literalLength);
+                ip += literalLength;
+                op += literalLength;
+
+                // 最后一个序列只包含字面量
+                if (ip >= end) {
+                    break;
+                }
+
+                // 匹配
+                int offset = (src[ip] & 0xFF) | ((src[ip + 1] & 0xFF) << 8);
+                ip += 2;
+                int matchLength = token & 0x0F;
+                if (matchLength == 15) {
+                    int code;
+                    do {
+                        code = src[ip++] & 0xFF;
+                        matchLength += code;
+                    } while (code == 255);
+                }
+                matchLength += LZ4Compressor.MIN_MATCH;
+
+                int matchStart = op - offset;
+                if (offset == 0 || matchStart < dstOffset || op + matchLength > opEnd) {
+                    throw new IOException("corrupted LZ4 block");
+                }
+
+                if (offset >= matchLength) {
+                    System.arraycopy(dst, matchStart, dst, op, matchLength);
+                    op += matchLength;
+                } else {
+                    // 重叠匹配为周期重复，每次复制的长度翻倍
+                    int matchEnd = op + matchLength;
+                    while (op < matchEnd) {
+                        int copyLength = Math.min(op - matchStart, matchEnd - op);
+                        System.arraycopy(dst, matchStart, dst, op, copyLength);
+                        op += copyLength;
+                    }
+                }
+            }
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException("corrupted LZ4 block");
+        }
+
+        if (op != opEnd) {
+            throw new IOException("corrupted LZ4 block");
+        }
+
+        return originLength;
+    }
+
+    @Override
+    public void close() {
+    }
+}
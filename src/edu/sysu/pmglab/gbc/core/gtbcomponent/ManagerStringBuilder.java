@@ -3,7 +3,6 @@ package edu.sysu.pmglab.gbc.core.gtbcomponent;
 import edu.sysu.pmglab.gbc.constant.ChromosomeTags;
 import edu.sysu.pmglab.easytools.FileUtils;
 import edu.sysu.pmglab.easytools.MD5;
-import edu.sysu.pmglab.compressor.ICompressor;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -44,7 +43,16 @@ public class ManagerStringBuilder {
             add("phased", "Phased: " + info.isPhased());
             add("ordered GTB", "Ordered GTB: " + info.orderedGTB());
             add("blockSize", "BlockSize: " + info.getBlockSize() + (" (-bs " + info.getBlockSizeType() + ")"));
-            add("compressionLevel", "Compression Level: " + (info.getCompressionLevel()) + " (" + ICompressor.getCompressorName(info.getCompressorIndex()) + ")");
+            add("compressionLevel", "Compression Level: " + (info.getCompressionLevel()) + " (" + GTBCompressor.getCompressorName(info.getCompressorIndex()) + ")");
+            if (this.manager.getDictionary() != null) {
+                add("dictionary", "Compression Dictionary: " + FileUtils.sizeTransformer(this.manager.getDictionary().length, 3));
+            }
+            if (this.manager.hasChecksum()) {
+                add("checksum", "Block Checksum: CRC32");
+            }
+            if (this.manager.getSubjectManager().isReordered()) {
+                add("subjectOrder", "Subject Order: reordered (restored to the original order when decompressing)");
+            }
         } else {
             add("phased", "Phased: " + info.isPhased());
             add("ordered GTB", "Ordered GTB: " + info.orderedGTB());
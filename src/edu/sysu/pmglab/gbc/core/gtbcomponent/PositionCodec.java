@@ -0,0 +1,84 @@
+package edu.sysu.pmglab.gbc.core.gtbcomponent;
+
+import edu.sysu.pmglab.container.VolumeByteStream;
+import edu.sysu.pmglab.gbc.core.common.block.VariantAbstract;
+
+/**
+ * @Data        :2022/03/18
+ * @Author      :suranyi
+ * @Contact     :suranyi.sysu@gamil.com
+ * @Description :块内位置数据的编解码器。旧格式的位置数据为 4 字节小端整数；新格式以块的最小位置为起点，
+ *               将相邻位置的差值 (重排列后位置不一定有序，因此使用 zigzag 编码) 写为变长整数
+ */
+
+public class PositionCodec {
+    /**
+     * 单个位置值编码后的最大长度
+     */
+    public static final int MAX_ENCODED_LENGTH = 5;
+
+    /**
+     * 编码位置数据，目标容器至少需要 variantsNum * MAX_ENCODED_LENGTH 的剩余空间
+     * @param variants 位点
+     * @param variantsNum 位点个数
+     * @param minPos 块的最小位置
+     * @param dst 目标容器
+     */
+    public static void encode(VariantAbstract[] variants, int variantsNum, int minPos, VolumeByteStream dst) {
+        int lastPos = minPos;
+        for (int i = 0; i < variantsNum; i++) {
+            int delta = variants[i].position - lastPos;
+            lastPos = variants[i].position;
+
+            // zigzag 编码
+            writeVarint(dst, (delta << 1) ^ (delta >> 31));
+        }
+    }
+
+    /**
+     * 写入变长整数，按 7 bit 分组写出，最高位表示后续仍有数据
+     * @param dst 目标容器，至少需要 MAX_ENCODED_LENGTH 的剩余空间
+     * @param value 非负整数 (按无符号处理)
+     */
+    static void writeVarint(VolumeByteStream dst, int value) {
+        while ((value & ~0x7F) != 0) {
+            dst.write((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        dst.write((byte) value);
+    }
+
+    /**
+     * 解码块的位置数据
+     * @param node 块节点
+     * @param src 解压后的位置数据
+     * @param dst 位置值的目标数组，长度不小于块的位点个数
+     */
+    public static void decode(GTBNode node, VolumeByteStream src, int[] dst) {
+        byte[] cache = src.getCache();
+        int variantsNum = node.numOfVariants();
+
+        if (node.deltaEncodedPos) {
+            int lastPos = node.minPos;
+            int offset = 0;
+            for (int i = 0; i < variantsNum; i++) {
+                int value = 0;
+                int shift = 0;
+                byte code;
+                do {
+                    code = cache[offset++];
+                    value |= (code & 0x7F) << shift;
+                    shift += 7;
+                } while (code < 0);
+
+                lastPos += (value >>> 1) ^ -(value & 1);
+                dst[i] = lastPos;
+            }
+        } else {
+            for (int i = 0; i < variantsNum; i++) {
+                int offset = i << 2;
+                dst[i] = (cache[offset] & 0xFF) | ((cache[offset + 1] & 0xFF) << 8) | ((cache[offset + 2] & 0xFF) << 16) | ((cache[offset + 3] & 0xFF) << 24);
+            }
+        }
+    }
+}
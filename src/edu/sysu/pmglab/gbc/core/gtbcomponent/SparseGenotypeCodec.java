@@ -0,0 +1,237 @@
+package edu.sysu.pmglab.gbc.core.gtbcomponent;
+
+import edu.sysu.pmglab.container.VolumeByteStream;
+
+import java.util.Arrays;
+
+/**
+ * @Data        :2022/03/22
+ * @Author      :suranyi
+ * @Contact     :suranyi.sysu@gamil.com
+ * @Description :稀疏基因型编解码器。罕见变异位点几乎所有样本均为参考纯合 (0|0)，此类位点仅记录非参考纯合 (含缺失) 样本的索引及其 BEG 编码；
+ *               稀疏位点排列在块的最后 (计入第二个子块)，解压后的基因型数据为: MBEG 子块 | BEG 子块 | 稀疏子块 | 稀疏位点个数 (4 byte)
+ */
+
+public class SparseGenotypeCodec {
+    /**
+     * 参考纯合基因型 (0|0, 0/0, 0) 的 BEG 编码
+     */
+    public static final byte REFERENCE_CODE = 1;
+
+    /**
+     * 罕见变异的判定比例，非参考纯合样本数不超过 1/1000 的位点使用稀疏编码
+     */
+    static final int RARE_VARIANT_RATIO = 1000;
+
+    /**
+     * 样本数、MBEG 子块每个位点的编码长度
+     */
+    final int subjectNum;
+    final int eachLineSize;
+
+    /**
+     * 解码器缓冲区: 第一个稀疏位点的索引、每个稀疏位点的数据起始位置、解码的样本索引及编码
+     */
+    int sparseStart;
+    int[] offsets = new int[0];
+    final int[] entrySubjects;
+    final byte[] entryCodes;
+
+    /**
+     * 展开的基因型行及其非参考纯合样本
+     */
+    byte[] row;
+    int[] expandedSubjects;
+    int expandedNum;
+
+    /**
+     * 解码器读指针
+     */
+    int readOffset;
+
+    /**
+     * 构造器方法
+     * @param subjectNum 样本数
+     * @param eachLineSize MBEG 子块每个位点的编码长度
+     */
+    public SparseGenotypeCodec(int subjectNum, int eachLineSize) {
+        this.subjectNum = subjectNum;
+        this.eachLineSize = eachLineSize;
+        this.entrySubjects = new int[subjectNum];
+        this.entryCodes = new byte[subjectNum];
+    }
+
+    /**
+     * 使用稀疏编码时，非参考纯合样本数的上限
+     * @param subjectNum 样本数
+     */
+    public static int getMaxNonReferenceNum(int subjectNum) {
+        return subjectNum / RARE_VARIANT_RATIO;
+    }
+
+    /**
+     * 统计位点的非参考纯合样本数，超过 limit 时提前返回
+     * @param BEGs 编码缓冲区
+     * @param start 位点的起始位置
+     * @param subjectNum 样本数
+     * @param limit 计数上限
+     * @return 非参考纯合样本数，超过 limit 时返回 limit + 1
+     */
+    public static int countNonReference(byte[] BEGs, int start, int subjectNum, int limit) {
+        int count = 0;
+        for (int i = start, end = start + subjectNum; i < end; i++) {
+            if (BEGs[i] != REFERENCE_CODE && ++count > limit) {
+                break;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * 编码后的最大长度
+     * @param nonReferenceNum 非参考纯合样本数
+     */
+    public static int getMaxEncodedLength(int nonReferenceNum) {
+        return (nonReferenceNum + 1) * PositionCodec.MAX_ENCODED_LENGTH + nonReferenceNum;
+    }
+
+    /**
+     * 编码稀疏位点: 非参考纯合样本数，每个样本与前一个样本的索引差值及其 BEG 编码，目标容器至少需要 getMaxEncodedLength 的剩余空间
+     * @param BEGs 编码缓冲区
+     * @param start 位点的起始位置
+     * @param subjectNum 样本数
+     * @param nonReferenceNum 非参考纯合样本数
+     * @param dst 目标容器
+     */
+    public static void encode(byte[] BEGs, int start, int subjectNum, int nonReferenceNum, VolumeByteStream dst) {
+        PositionCodec.writeVarint(dst, nonReferenceNum);
+
+        int lastSubject = 0;
+        for (int i = 0; i < subjectNum; i++) {
+            if (BEGs[start + i] != REFERENCE_CODE) {
+                PositionCodec.writeVarint(dst, i - lastSubject);
+                dst.write(BEGs[start + i]);
+                lastSubject = i;
+            }
+        }
+    }
+
+    /**
+     * 为解压后的基因型数据建立稀疏位点索引
+     * @param node 块节点
+     * @param genotypes 解压后的基因型数据
+     */
+    public void index(GTBNode node, VolumeByteStream genotypes) {
+        int variantsNum = node.numOfVariants();
+        if (!node.sparseEncodedGenotype) {
+            this.sparseStart = variantsNum;
+            return;
+        }
+
+        // 稀疏位点个数 (小端)
+        byte[] cache = genotypes.getCache();
+        int size = genotypes.size();
+        int sparseNum = (cache[size - 4] & 0xFF) | ((cache[size - 3] & 0xFF) << 8) | ((cache[size - 2] & 0xFF) << 16) | ((cache[size - 1] & 0xFF) << 24);
+        this.sparseStart = variantsNum - sparseNum;
+
+        if (this.offsets.length < sparseNum) {
+            this.offsets = new int[sparseNum];
+        }
+
+        this.readOffset = this.eachLineSize * node.subBlockVariantNum[0] + this.subjectNum * (this.sparseStart - node.subBlockVariantNum[0]);
+        for (int i = 0; i < sparseNum; i++) {
+            this.offsets[i] = this.readOffset;
+            int nonReferenceNum = readVarint(cache);
+            for (int j = 0; j < nonReferenceNum; j++) {
+                readVarint(cache);
+                this.readOffset++;
+            }
+        }
+    }
+
+    /**
+     * 该位点是否为稀疏位点，需要先调用 index 建立索引
+     * @param variantIndex 位点在块中的索引
+     */
+    public boolean isSparse(int variantIndex) {
+        return variantIndex >= this.sparseStart;
+    }
+
+    /**
+     * 解码稀疏位点的非参考纯合样本，结果通过 subjectOf 与 codeOf 获取
+     * @param genotypes 解压后的基因型数据
+     * @param variantIndex 位点在块中的索引
+     * @return 非参考纯合样本数
+     */
+    public int decode(VolumeByteStream genotypes, int variantIndex) {
+        byte[] cache = genotypes.getCache();
+        this.readOffset = this.offsets[variantIndex - this.sparseStart];
+
+        int nonReferenceNum = readVarint(cache);
+        int subject = 0;
+        for (int i = 0; i < nonReferenceNum; i++) {
+            subject += readVarint(cache);
+            this.entrySubjects[i] = subject;
+            this.entryCodes[i] = cache[this.readOffset++];
+        }
+
+        return nonReferenceNum;
+    }
+
+    /**
+     * 获取 decode 结果中第 index 个非参考纯合样本的索引
+     */
+    public int subjectOf(int index) {
+        return this.entrySubjects[index];
+    }
+
+    /**
+     * 获取 decode 结果中第 index 个非参考纯合样本的 BEG 编码
+     */
+    public byte codeOf(int index) {
+        return this.entryCodes[index];
+    }
+
+    /**
+     * 将稀疏位点展开为所有样本的 BEG 编码，返回的数组在下一次展开时复用
+     * @param genotypes 解压后的基因型数据
+     * @param variantIndex 位点在块中的索引
+     * @return 长度为样本数的 BEG 编码
+     */
+    public byte[] expand(VolumeByteStream genotypes, int variantIndex) {
+        if (this.row == null) {
+            this.row = new byte[this.subjectNum];
+            this.expandedSubjects = new int[this.subjectNum];
+            Arrays.fill(this.row, REFERENCE_CODE);
+        }
+
+        // 还原上一次展开的样本
+        for (int i = 0; i < this.expandedNum; i++) {
+            this.row[this.expandedSubjects[i]] = REFERENCE_CODE;
+        }
+
+        this.expandedNum = decode(genotypes, variantIndex);
+        for (int i = 0; i < this.expandedNum; i++) {
+            this.row[this.entrySubjects[i]] = this.entryCodes[i];
+            this.expandedSubjects[i] = this.entrySubjects[i];
+        }
+
+        return this.row;
+    }
+
+    /**
+     * 读取变长整数
+     */
+    int readVarint(byte[] cache) {
+        int value = 0;
+        int shift = 0;
+        byte code;
+        do {
+            code = cache[this.readOffset++];
+            value |= (code & 0x7F) << shift;
+            shift += 7;
+        } while (code < 0);
+        return value;
+    }
+}
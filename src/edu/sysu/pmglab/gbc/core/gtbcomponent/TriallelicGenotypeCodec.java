@@ -0,0 +1,131 @@
+package edu.sysu.pmglab.gbc.core.gtbcomponent;
+
+import edu.sysu.pmglab.container.VolumeByteStream;
+import edu.sysu.pmglab.easytools.ValueUtils;
+import edu.sysu.pmglab.gbc.coder.CoderConfig;
+import edu.sysu.pmglab.gbc.coder.decoder.MBEGDecoder;
+
+/**
+ * @Data        :2022/04/02
+ * @Author      :suranyi
+ * @Contact     :suranyi.sysu@gamil.com
+ * @Description :三等位基因组合编解码器。仅含等位基因 0, 1, 2 的多等位基因位点排列在第二个子块的最前面，每 2 个 BEG 编码组合为 1 byte；
+ *               解压后的基因型数据为: MBEG 子块 | 三等位基因位点个数 (4 byte) | 三等位基因组合子块 | BEG 子块 | 稀疏子块，
+ *               读取时先将组合子块展开为 BEG 编码，展开后的布局与不使用组合编码的块相同
+ */
+
+public class TriallelicGenotypeCodec {
+    /**
+     * 样本数、MBEG 子块每个位点的编码长度、三等位基因组合子块每个位点的编码长度
+     */
+    final int subjectNum;
+    final int eachLineSize;
+    final int groupedLineSize;
+
+    /**
+     * 三等位基因组合解码器
+     */
+    final MBEGDecoder groupDecoder;
+
+    /**
+     * 组合子块的暂存缓冲区
+     */
+    byte[] groupedCache = new byte[0];
+
+    /**
+     * 构造器方法
+     * @param subjectNum 样本数
+     * @param phased 是否有向
+     */
+    public TriallelicGenotypeCodec(int subjectNum, boolean phased) {
+        int eachCodeGenotypeNum = phased ? 3 : 4;
+        this.subjectNum = subjectNum;
+        this.eachLineSize = (subjectNum / eachCodeGenotypeNum) + (subjectNum % eachCodeGenotypeNum == 0 ? 0 : 1);
+        this.groupedLineSize = getGroupedLineSize(subjectNum);
+        this.groupDecoder = MBEGDecoder.getTriallelicDecoder(phased);
+    }
+
+    /**
+     * 三等位基因组合子块每个位点的编码长度
+     * @param subjectNum 样本数
+     */
+    public static int getGroupedLineSize(int subjectNum) {
+        return (subjectNum >> 1) + (subjectNum & 1);
+    }
+
+    /**
+     * 判断位点的所有 BEG 编码是否都可以使用三等位基因组合编码
+     * @param BEGs 编码缓冲区
+     * @param start 位点的起始位置
+     * @param subjectNum 样本数
+     */
+    public static boolean isTriallelic(byte[] BEGs, int start, int subjectNum) {
+        for (int i = start, end = start + subjectNum; i < end; i++) {
+            if ((BEGs[i] & 0xFF) >= CoderConfig.TRIALLELIC_CODE_NUM) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * 组合编码相比 BEG 编码节省的字节数 (含位点个数字段)
+     * @param triallelicVariantNum 三等位基因位点个数
+     * @param subjectNum 样本数
+     */
+    public static long getSavedSize(int triallelicVariantNum, int subjectNum) {
+        return (long) triallelicVariantNum * (subjectNum - getGroupedLineSize(subjectNum)) - 4;
+    }
+
+    /**
+     * 将三等位基因组合子块展开为 BEG 编码，展开后的数据与不使用组合编码的块布局相同
+     * @param node 块节点
+     * @param genotypes 解压后的基因型数据
+     */
+    public void expand(GTBNode node, VolumeByteStream genotypes) {
+        if (!node.groupedTriallelicGenotype) {
+            return;
+        }
+
+        byte[] cache = genotypes.getCache();
+        int start = this.eachLineSize * node.subBlockVariantNum[0];
+        int triallelicVariantNum = ValueUtils.byteArray2IntegerValue(cache[start], cache[start + 1], cache[start + 2], cache[start + 3]);
+
+        // 暂存组合子块，并将其后的数据移至展开后的位置
+        int groupedLength = triallelicVariantNum * this.groupedLineSize;
+        if (this.groupedCache.length < groupedLength) {
+            this.groupedCache = new byte[groupedLength];
+        }
+        System.arraycopy(cache, start + 4, this.groupedCache, 0, groupedLength);
+
+        int tailStart = start + 4 + groupedLength;
+        int tailLength = genotypes.size() - tailStart;
+        int expandedStart = start + triallelicVariantNum * this.subjectNum;
+        int expandedSize = expandedStart + tailLength;
+        if (genotypes.getCapacity() < expandedSize) {
+            genotypes.expansionTo(expandedSize);
+            cache = genotypes.getCache();
+        }
+        System.arraycopy(cache, tailStart, cache, expandedStart, tailLength);
+
+        // 展开组合编码
+        int pairNum = this.subjectNum >> 1;
+        boolean odd = (this.subjectNum & 1) == 1;
+        int readOffset = 0;
+        int writeOffset = start;
+        for (int i = 0; i < triallelicVariantNum; i++) {
+            for (int j = 0; j < pairNum; j++) {
+                int code = this.groupedCache[readOffset++] & 0xFF;
+                cache[writeOffset++] = this.groupDecoder.decode(code, 0);
+                cache[writeOffset++] = this.groupDecoder.decode(code, 1);
+            }
+
+            if (odd) {
+                cache[writeOffset++] = this.groupDecoder.decode(this.groupedCache[readOffset++], 0);
+            }
+        }
+
+        genotypes.reset(expandedSize);
+    }
+}
@@ -0,0 +1,202 @@
+package edu.sysu.pmglab.gbc.core.gtbcomponent.gtbreader;
+
+import edu.sysu.pmglab.gbc.core.gtbcomponent.GTBManager;
+import edu.sysu.pmglab.gbc.core.gtbcomponent.GTBNode;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @Data        :2022/04/11
+ * @Author      :suranyi
+ * @Contact     :suranyi.sysu@gamil.com
+ * @Description :块预读器，辅助线程使用独立的文件流与解压器，按指针 (包括限定指针) 的顺序提前读取并解压当前块之后的若干个块，
+ *               每个预读的块解压到一组独立的解压缓冲区中，读取器切换到已预读的块时与该组缓冲区交换块数据 (预读 1 个块时即双缓冲)，
+ *               使顺序读取时的 I/O 与解压和调用者的计算重叠，且不复制块数据
+ */
+
+class BlockPrefetcher {
+    /**
+     * 预读的块个数
+     */
+    final int depth;
+
+    /**
+     * 辅助线程及空闲的解压缓冲区，解压缓冲区只在辅助线程中使用，交换块数据后归还
+     */
+    private final ExecutorService executor;
+    private final DecompressionCache[] workers;
+    private final ArrayDeque<DecompressionCache> idleWorkers = new ArrayDeque<>();
+
+    /**
+     * 已提交的预读任务，按指针顺序排列
+     */
+    private final ArrayDeque<Task> tasks = new ArrayDeque<>();
+
+    BlockPrefetcher(GTBManager manager, int depth, boolean decompressGT, int[] subjectIndexes, boolean verifyChecksum) throws IOException {
+        this.depth = depth;
+        this.workers = new DecompressionCache[depth];
+        for (int i = 0; i < depth; i++) {
+            this.workers[i] = new DecompressionCache(manager, decompressGT);
+            this.workers[i].selectSubjects(subjectIndexes);
+            this.workers[i].setChecksumVerification(verifyChecksum);
+            this.workers[i].publishShared = false;
+            this.idleWorkers.addLast(this.workers[i]);
+        }
+
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 将指针所在块的预读数据交换到读取器的解压缓冲区，并提交该块之后的预读任务
+     * @param pointer 读取器的指针
+     * @param decompressGT 是否需要基因型数据
+     * @param cache 读取器的解压缓冲区
+     * @return 该块是否已被预读 (未被预读时 cache 不变)
+     */
+    boolean take(Pointer pointer, boolean decompressGT, DecompressionCache cache) throws IOException {
+        // 丢弃当前块之前的任务 (跳转后不再需要)，当前块未被预读时丢弃所有任务
+        Task current = null;
+        for (Task task : this.tasks) {
+            if (task.matches(pointer, decompressGT)) {
+                current = task;
+                break;
+            }
+        }
+
+        while (!this.tasks.isEmpty() && this.tasks.peekFirst() != current) {
+            cancel(this.tasks.pollFirst());
+        }
+        this.tasks.pollFirst();
+
+        boolean prefetched = false;
+        if (current != null) {
+            try {
+                current.future.get();
+                cache.swap(current.worker);
+                prefetched = true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+            } finally {
+                this.idleWorkers.addLast(current.worker);
+            }
+        }
+
+        // 提交之后的块
+        Pointer next = this.tasks.isEmpty() ? pointer.clone() : this.tasks.peekLast().pointer.clone();
+        while (!this.idleWorkers.isEmpty() && nextNode(next)) {
+            Task task = new Task(next.clone(), decompressGT, this.idleWorkers.pollFirst());
+            task.future = this.executor.submit(() -> {
+                task.worker.nodeIndex = -2;
+                task.worker.chromosomeIndex = -2;
+                task.worker.fill(task.pointer, task.decompressGT);
+                return null;
+            });
+            this.tasks.addLast(task);
+        }
+
+        return prefetched;
+    }
+
+    /**
+     * 将指针移动到下一个块的起点
+     * @return 是否存在下一个块
+     */
+    private static boolean nextNode(Pointer pointer) throws IOException {
+        if (pointer.chromosomeIndex == -1) {
+            return false;
+        }
+
+        pointer.variantIndex = -1;
+        return pointer.next();
+    }
+
+    /**
+     * 丢弃任务并归还其解压缓冲区 (辅助线程按提交顺序执行任务，正在执行的任务结束前不会开始使用该缓冲区的新任务)
+     */
+    private void cancel(Task task) {
+        task.future.cancel(false);
+        this.idleWorkers.addLast(task.worker);
+    }
+
+    /**
+     * 设置需要解压的样本，丢弃已提交的任务
+     */
+    void selectSubjects(int[] subjectIndexes) {
+        clear();
+        this.executor.submit(() -> {
+            for (DecompressionCache worker : this.workers) {
+                worker.selectSubjects(subjectIndexes);
+            }
+        });
+    }
+
+    /**
+     * 设置是否检验块校验码，丢弃已提交的任务
+     */
+    void setChecksumVerification(boolean verifyChecksum) {
+        clear();
+        this.executor.submit(() -> {
+            for (DecompressionCache worker : this.workers) {
+                worker.setChecksumVerification(verifyChecksum);
+            }
+        });
+    }
+
+    /**
+     * 丢弃已提交的任务 (正在执行的任务不被中断，以免中断辅助线程的文件流)
+     */
+    void clear() {
+        while (!this.tasks.isEmpty()) {
+            cancel(this.tasks.pollFirst());
+        }
+    }
+
+    void close() throws IOException {
+        clear();
+        this.executor.shutdown();
+        try {
+            this.executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        for (DecompressionCache worker : this.workers) {
+            worker.close();
+        }
+    }
+
+    /**
+     * 预读任务
+     */
+    static final class Task {
+        final Pointer pointer;
+        final GTBNode node;
+        final boolean decompressGT;
+        final DecompressionCache worker;
+        Future<?> future;
+
+        Task(Pointer pointer, boolean decompressGT, DecompressionCache worker) {
+            this.pointer = pointer;
+            this.node = pointer.getNode();
+            this.decompressGT = decompressGT;
+            this.worker = worker;
+        }
+
+        boolean matches(Pointer pointer, boolean decompressGT) {
+            return this.node == pointer.getNode() && this.pointer.nodeIndex == pointer.nodeIndex && (this.decompressGT || !decompressGT);
+        }
+    }
+}
@@ -9,9 +9,15 @@ package edu.sysu.pmglab.gbc.core.gtbcomponent.gtbreader;
 
 import edu.sysu.pmglab.compressor.IDecompressor;
 import edu.sysu.pmglab.container.VolumeByteStream;
-import edu.sysu.pmglab.easytools.ByteCode;
+import edu.sysu.pmglab.gbc.core.gtbcomponent.AlleleCodec;
+import edu.sysu.pmglab.gbc.core.gtbcomponent.GTBChecksum;
 import edu.sysu.pmglab.gbc.core.gtbcomponent.GTBManager;
 import edu.sysu.pmglab.gbc.core.gtbcomponent.GTBNode;
+import edu.sysu.pmglab.gbc.core.gtbcomponent.GenotypeFrameCodec;
+import edu.sysu.pmglab.gbc.core.gtbcomponent.GenotypeSliceCodec;
+import edu.sysu.pmglab.gbc.core.gtbcomponent.PositionCodec;
+import edu.sysu.pmglab.gbc.core.gtbcomponent.SparseGenotypeCodec;
+import edu.sysu.pmglab.gbc.core.gtbcomponent.TriallelicGenotypeCodec;
 import edu.sysu.pmglab.unifyIO.FileStream;
 
 import java.io.IOException;
@@ -22,13 +28,48 @@ class DecompressionCache {
     int nodeIndex = -2;
 
     final VolumeByteStream undecompressedCache;
-    final VolumeByteStream genotypesCache;
-    final VolumeByteStream allelesPosCache;
     final FileStream fileStream;
     final IDecompressor decompressor;
-    final TaskVariant[] taskVariants;
+    final int[] positions;
+    final AlleleCodec alleleCodec;
+    final int[] alleleOffsets;
+
+    /**
+     * 当前块的数据 (载入预读的块时与预读器的解压缓冲区交换，见 swap)
+     */
+    VolumeByteStream genotypesCache;
+    VolumeByteStream allelesPosCache;
+    TaskVariant[] taskVariants;
+    SparseGenotypeCodec sparseCodec;
+    final GenotypeSliceCodec sliceCodec;
+    final TriallelicGenotypeCodec triallelicCodec;
     boolean isGTDecompress;
 
+    /**
+     * 切换块数据时是否检验块校验码 (仅包含块校验码的文件可用)，检验时整个块只读取一次到 blockCache 中，各数据流直接从中解压
+     */
+    final String fileName;
+    final boolean hasChecksum;
+    final VolumeByteStream blockCache = new VolumeByteStream(0);
+    boolean verifyChecksum;
+
+    /**
+     * 文件管理器、是否可解压基因型数据及选择的样本 (创建块预读器时使用)
+     */
+    final GTBManager manager;
+    final boolean genotypeEnable;
+    int[] subjectIndexes;
+
+    /**
+     * 块预读器，未启用预读时为 null
+     */
+    BlockPrefetcher prefetcher;
+
+    /**
+     * 是否将解压的块放入全局解压块缓存 (预读器的解压缓冲区不放入，避免复制块数据)
+     */
+    boolean publishShared = true;
+
     public DecompressionCache(GTBManager manager) throws IOException {
         this(manager, true);
     }
@@ -38,27 +79,45 @@ class DecompressionCache {
             this.genotypesCache = new VolumeByteStream(manager.getMaxDecompressedMBEGsSize());
             this.allelesPosCache = new VolumeByteStream(manager.getMaxDecompressedAllelesSize());
             this.undecompressedCache = new VolumeByteStream(2 << 20);
-            this.decompressor = IDecompressor.getInstance(manager.getCompressorIndex());
+            this.decompressor = manager.getDecompressorInstance();
 
             this.taskVariants = new TaskVariant[manager.getBlockSize()];
+            this.positions = new int[manager.getBlockSize()];
+            this.alleleCodec = new AlleleCodec();
+            this.alleleOffsets = new int[manager.getBlockSize() + 1];
+            this.sparseCodec = new SparseGenotypeCodec(manager.getSubjectNum(), eachLineSizeOf(manager));
+            this.sliceCodec = new GenotypeSliceCodec(manager.getSubjectNum(), manager.isPhased());
+            this.triallelicCodec = new TriallelicGenotypeCodec(manager.getSubjectNum(), manager.isPhased());
             for (int i = 0; i < taskVariants.length; i++) {
                 this.taskVariants[i] = new TaskVariant();
             }
 
-            this.fileStream = manager.getFileStream();
+            this.fileStream = manager.getBlockStream();
         } else {
             this.genotypesCache = new VolumeByteStream(0);
             this.allelesPosCache = new VolumeByteStream(manager.getMaxDecompressedAllelesSize());
             this.undecompressedCache = new VolumeByteStream(2 << 20);
-            this.decompressor = IDecompressor.getInstance(manager.getCompressorIndex());
+            this.decompressor = manager.getDecompressorInstance();
 
             this.taskVariants = new TaskVariant[manager.getBlockSize()];
+            this.positions = new int[manager.getBlockSize()];
+            this.alleleCodec = new AlleleCodec();
+            this.alleleOffsets = new int[manager.getBlockSize() + 1];
+            this.sparseCodec = new SparseGenotypeCodec(manager.getSubjectNum(), eachLineSizeOf(manager));
+            this.sliceCodec = new GenotypeSliceCodec(manager.getSubjectNum(), manager.isPhased());
+            this.triallelicCodec = new TriallelicGenotypeCodec(manager.getSubjectNum(), manager.isPhased());
             for (int i = 0; i < taskVariants.length; i++) {
                 this.taskVariants[i] = new TaskVariant();
             }
 
-            this.fileStream = manager.getFileStream();
+            this.fileStream = manager.getBlockStream();
         }
+
+        this.manager = manager;
+        this.genotypeEnable = decompressGT;
+        this.fileName = manager.getFileName();
+        this.hasChecksum = manager.hasChecksum();
+        this.verifyChecksum = this.hasChecksum;
     }
 
     public void fill(Pointer pointer) throws IOException {
@@ -72,71 +131,268 @@ class DecompressionCache {
             this.chromosomeIndex = pointer.node.chromosomeIndex;
             GTBNode node = pointer.getNode();
 
+            /* 块已被预读时，直接交换预读器中解压后的块数据 */
+            if (this.prefetcher != null) {
+                boolean prefetched;
+                try {
+                    prefetched = this.prefetcher.take(pointer, decompressGT, this);
+                } catch (IOException e) {
+                    this.nodeIndex = -2;
+                    this.chromosomeIndex = -2;
+                    throw e;
+                }
+
+                if (prefetched) {
+                    return;
+                }
+            }
+
+            /* 全局解压块缓存命中时，直接复制缓存的块数据 */
+            boolean shared = GTBBlockCache.isEnable();
+            if (shared) {
+                GTBBlockCache.Entry entry = GTBBlockCache.get(this.fileName, this.chromosomeIndex, this.nodeIndex, node, decompressGT, this.verifyChecksum);
+                if (entry != null) {
+                    load(node, entry, decompressGT);
+                    return;
+                }
+            }
+
+            /* 检验块校验码 */
+            boolean buffered = this.verifyChecksum;
+            if (buffered && !GTBChecksum.check(node, this.fileStream, this.blockCache)) {
+                this.nodeIndex = -2;
+                this.chromosomeIndex = -2;
+                throw new IOException("checksum mismatch in block (" + node + ") of " + this.fileName);
+            }
+
             undecompressedCache.makeSureCapacity(node.compressedAlleleSize, node.compressedGenotypesSize, node.compressedPosSize);
 
             /* 读取位置数据并解压 */
-            undecompressedCache.reset();
             allelesPosCache.reset();
-            this.fileStream.seek(node.blockSeek + node.compressedGenotypesSize);
-            this.fileStream.read(undecompressedCache, node.compressedPosSize);
-            decompressor.decompress(undecompressedCache, allelesPosCache);
+            int offset = readStream(node, buffered, node.compressedGenotypesSize, node.compressedPosSize);
+            decompressor.decompress(streamCache(buffered), offset, node.compressedPosSize, allelesPosCache);
+            PositionCodec.decode(node, allelesPosCache, this.positions);
 
             /* 设置位置数据、当前索引 */
             int taskNums = node.numOfVariants();
             for (int i = 0; i < taskNums; i++) {
-                this.taskVariants[i].setPosition(allelesPosCache.cacheOf(i << 2), allelesPosCache.cacheOf(1 + (i << 2)),
-                                allelesPosCache.cacheOf(2 + (i << 2)), allelesPosCache.cacheOf(3 + (i << 2)))
+                this.taskVariants[i].setPosition(this.positions[i])
                         .setIndex(i)
                         .setDecoderIndex(i < node.subBlockVariantNum[0] ? 0 : 1);
             }
 
             /* 读取 allele 数据并解压 */
-            undecompressedCache.reset();
             allelesPosCache.reset();
-            this.fileStream.read(undecompressedCache, node.compressedAlleleSize);
-            decompressor.decompress(undecompressedCache, allelesPosCache);
+            offset = readStream(node, buffered, node.compressedGenotypesSize + node.compressedPosSize, node.compressedAlleleSize);
 
-            /* 捕获 allele 数据 */
-            int lastIndex = 0;
-            int startPos;
-            int endPos = this.taskVariants[0].index == 0 ? -1 : 0;
+            // 基因型数据在等位基因数据之后解压，此处借用其缓冲区解压字典编码的等位基因数据
+            this.alleleCodec.decompress(decompressor, node, streamCache(buffered), offset, node.compressedAlleleSize, genotypesCache, allelesPosCache, this.alleleOffsets);
 
+            /* 捕获 allele 数据 */
             for (int i = 0; i < taskNums; i++) {
-                startPos = allelesPosCache.indexOfN(ByteCode.SLASH, endPos, this.taskVariants[i].index - lastIndex);
-                endPos = allelesPosCache.indexOfN(ByteCode.SLASH, startPos + 1, 1);
-                this.taskVariants[i].setAlleleInfo(startPos + 1, endPos);
-
-                // 更新 lastIndex 信息
-                lastIndex = this.taskVariants[i].index + 1;
+                int index = this.taskVariants[i].index;
+                this.taskVariants[i].setAlleleInfo(this.alleleOffsets[index], this.alleleOffsets[index + 1] - 1);
             }
 
             /* 按照 position 进行局部重排序 */
             Arrays.sort(this.taskVariants, 0, taskNums, TaskVariant::compareVariant);
 
             /* 读取 genotype 数据并解压 */
-            decompressGT(node, pointer, decompressGT);
+            decompressGT(node, buffered, decompressGT);
+
+            /* 放入全局解压块缓存 (只解压了部分切片的基因型数据、超出缓存容量的块不缓存，此时不复制块数据) */
+            if (shared && this.publishShared && (!decompressGT || !node.slicedGenotype || this.sliceCodec.isAllSubjectsSelected())
+                    && GTBBlockCache.accepts(GTBBlockCache.Entry.sizeOf(taskNums, this.allelesPosCache.size(), decompressGT ? this.genotypesCache.size() : 0))) {
+                GTBBlockCache.put(this.fileName, this.chromosomeIndex, this.nodeIndex, toEntry(node, taskNums, decompressGT));
+            }
+        }
+    }
+
+    /**
+     * 与另一个解压缓冲区交换当前的块数据，交换后另一个解压缓冲区不再持有有效的块 (用于载入预读的块，无需复制块数据)
+     * @param other 块数据来源，其样本选择、是否解压基因型等设置必须与当前解压缓冲区一致
+     */
+    void swap(DecompressionCache other) {
+        VolumeByteStream genotypesCache = this.genotypesCache;
+        this.genotypesCache = other.genotypesCache;
+        other.genotypesCache = genotypesCache;
+
+        VolumeByteStream allelesPosCache = this.allelesPosCache;
+        this.allelesPosCache = other.allelesPosCache;
+        other.allelesPosCache = allelesPosCache;
+
+        TaskVariant[] taskVariants = this.taskVariants;
+        this.taskVariants = other.taskVariants;
+        other.taskVariants = taskVariants;
+
+        SparseGenotypeCodec sparseCodec = this.sparseCodec;
+        this.sparseCodec = other.sparseCodec;
+        other.sparseCodec = sparseCodec;
+
+        this.isGTDecompress = other.isGTDecompress;
+        this.chromosomeIndex = other.chromosomeIndex;
+        this.nodeIndex = other.nodeIndex;
+        other.chromosomeIndex = -2;
+        other.nodeIndex = -2;
+    }
+
+    /**
+     * 将当前的块数据打包为缓存块
+     */
+    private GTBBlockCache.Entry toEntry(GTBNode node, int taskNums, boolean decompressGT) {
+        int[] variants = new int[taskNums * 5];
+        for (int i = 0; i < taskNums; i++) {
+            TaskVariant taskVariant = this.taskVariants[i];
+            variants[i * 5] = taskVariant.index;
+            variants[i * 5 + 1] = taskVariant.position;
+            variants[i * 5 + 2] = taskVariant.decoderIndex;
+            variants[i * 5 + 3] = taskVariant.alleleStart;
+            variants[i * 5 + 4] = taskVariant.alleleLength;
+        }
+
+        return new GTBBlockCache.Entry(node, variants, this.allelesPosCache.values(), decompressGT ? this.genotypesCache.values() : null, this.verifyChecksum);
+    }
+
+    /**
+     * 从缓存块中载入块数据
+     */
+    private void load(GTBNode node, GTBBlockCache.Entry entry, boolean decompressGT) {
+        int taskNums = entry.taskVariants.length / 5;
+        for (int i = 0; i < taskNums; i++) {
+            this.taskVariants[i].setIndex(entry.taskVariants[i * 5])
+                    .setPosition(entry.taskVariants[i * 5 + 1])
+                    .setDecoderIndex(entry.taskVariants[i * 5 + 2]);
+            this.taskVariants[i].alleleStart = entry.taskVariants[i * 5 + 3];
+            this.taskVariants[i].alleleLength = entry.taskVariants[i * 5 + 4];
+        }
+
+        this.allelesPosCache.reset();
+        this.allelesPosCache.writeSafety(entry.alleles);
+
+        if (decompressGT) {
+            this.genotypesCache.reset();
+            this.genotypesCache.writeSafety(entry.genotypes);
+            this.sparseCodec.index(node, this.genotypesCache);
+            this.isGTDecompress = true;
+        } else {
+            this.isGTDecompress = false;
         }
     }
 
-    private void decompressGT(GTBNode node, Pointer pointer, boolean decompressGT) throws IOException {
+    /**
+     * 读取块内 [offset, offset + length) 的数据流
+     * @param buffered 块是否已整体读入 blockCache
+     * @return 数据流在 streamCache(buffered) 中的起始位置
+     */
+    private int readStream(GTBNode node, boolean buffered, int offset, int length) throws IOException {
+        if (buffered) {
+            return offset;
+        }
+
+        undecompressedCache.reset();
+        this.fileStream.seek(node.blockSeek + offset);
+        this.fileStream.read(undecompressedCache, length);
+        return 0;
+    }
+
+    /**
+     * 数据流所在的缓冲区
+     */
+    private byte[] streamCache(boolean buffered) {
+        return buffered ? this.blockCache.getCache() : this.undecompressedCache.getCache();
+    }
+
+    private void decompressGT(GTBNode node, boolean buffered, boolean decompressGT) throws IOException {
         /* 读取 genotype 数据并解压 */
         if (decompressGT) {
-            undecompressedCache.reset();
             genotypesCache.reset();
-            this.fileStream.seek(node.blockSeek);
-            this.fileStream.read(undecompressedCache, node.compressedGenotypesSize);
-            decompressor.decompress(undecompressedCache, genotypesCache);
+            if (node.slicedGenotype && buffered) {
+                this.sliceCodec.decompress(node, this.blockCache.getCache(), 0, decompressor, genotypesCache);
+            } else if (node.slicedGenotype) {
+                // 按样本切片的基因型数据只读取并解压包含选择样本的切片
+                this.sliceCodec.decompress(node, this.fileStream, decompressor, undecompressedCache, genotypesCache);
+            } else {
+                int offset = readStream(node, buffered, 0, node.compressedGenotypesSize);
+                GenotypeFrameCodec.decompress(node, streamCache(buffered), offset, node.compressedGenotypesSize, decompressor, genotypesCache);
+            }
+            this.triallelicCodec.expand(node, genotypesCache);
+            this.sparseCodec.index(node, genotypesCache);
             isGTDecompress = true;
         } else {
             isGTDecompress = false;
         }
     }
 
+    /**
+     * 设置需要解压的样本，按样本切片的块只解压包含这些样本的切片，并使已缓存的块失效
+     * @param subjectIndexes 样本索引，null 表示所有样本
+     */
+    public void selectSubjects(int[] subjectIndexes) {
+        this.sliceCodec.selectSubjects(subjectIndexes);
+        this.subjectIndexes = subjectIndexes;
+        this.nodeIndex = -2;
+        this.chromosomeIndex = -2;
+
+        if (this.prefetcher != null) {
+            this.prefetcher.selectSubjects(subjectIndexes);
+        }
+    }
+
+    /**
+     * 设置切换块数据时是否检验块校验码，文件不包含块校验码时该设置无效
+     * @param verifyChecksum 是否检验块校验码
+     */
+    public void setChecksumVerification(boolean verifyChecksum) {
+        this.verifyChecksum = verifyChecksum && this.hasChecksum;
+
+        if (this.prefetcher != null) {
+            this.prefetcher.setChecksumVerification(this.verifyChecksum);
+        }
+    }
+
+    /**
+     * 设置预读的块个数，0 表示不预读
+     * @param depth 预读的块个数
+     */
+    public void setPrefetchDepth(int depth) throws IOException {
+        if (depth < 0) {
+            throw new IllegalArgumentException("prefetch depth must be >= 0");
+        }
+
+        if (this.prefetcher != null && this.prefetcher.depth == depth) {
+            return;
+        }
+
+        if (this.prefetcher != null) {
+            this.prefetcher.close();
+            this.prefetcher = null;
+        }
+
+        if (depth > 0) {
+            this.prefetcher = new BlockPrefetcher(this.manager, depth, this.genotypeEnable, this.subjectIndexes, this.verifyChecksum);
+        }
+    }
+
+    /**
+     * MBEG 子块每个位点的编码长度
+     */
+    static int eachLineSizeOf(GTBManager manager) {
+        int eachCodeGenotypeNum = manager.isPhased() ? 3 : 4;
+        return (manager.getSubjectNum() / eachCodeGenotypeNum) + (manager.getSubjectNum() % eachCodeGenotypeNum == 0 ? 0 : 1);
+    }
+
     public void close() throws IOException {
+        if (prefetcher != null) {
+            prefetcher.close();
+            prefetcher = null;
+        }
+
         undecompressedCache.close();
         genotypesCache.close();
         allelesPosCache.close();
+        blockCache.close();
         fileStream.close();
         decompressor.close();
+        sliceCodec.close();
     }
 }
\ No newline at end of file
@@ -0,0 +1,324 @@
+package edu.sysu.pmglab.gbc.core.gtbcomponent.gtbreader;
+
+import edu.sysu.pmglab.gbc.core.gtbcomponent.GTBNode;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * @Data        :2022/04/09
+ * @Author      :suranyi
+ * @Contact     :suranyi.sysu@gamil.com
+ * @Description :全局单例模式的解压块缓存器，所有 GTBReader 共享，按 (文件名, 染色体编号, 块索引) 缓存解压后的块数据，
+ *               缓存的总大小受容量限制，超出容量时按最近最少使用 (LRU) 的顺序淘汰。缓存默认关闭 (容量为 0)，
+ *               需要多个读取器重复访问同一文件时使用 setCapacity() 开启
+ */
+
+public enum GTBBlockCache {
+    /* 单例模式解压块缓存 */
+    INSTANCE;
+
+    /**
+     * 默认容量 (byte)，默认不缓存
+     */
+    public static final long DEFAULT_CAPACITY = 0;
+
+    /**
+     * 每个缓存块的固定开销估计 (byte)
+     */
+    static final int ENTRY_OVERHEAD = 128;
+
+    private final LinkedHashMap<Key, Entry> cache = new LinkedHashMap<>(64, 0.75f, true);
+    private long capacity = DEFAULT_CAPACITY;
+    private long size = 0;
+    private long hitCount = 0;
+    private long missCount = 0;
+    private long evictionCount = 0;
+
+    /**
+     * 设置缓存容量，容量减小时立即淘汰超出的块
+     * @param capacity 缓存容量 (byte)，0 表示不缓存
+     */
+    public static void setCapacity(long capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("capacity of block cache must be >= 0");
+        }
+
+        synchronized (INSTANCE.cache) {
+            INSTANCE.capacity = capacity;
+            INSTANCE.evict();
+        }
+    }
+
+    /**
+     * 获取缓存容量 (byte)
+     */
+    public static long getCapacity() {
+        synchronized (INSTANCE.cache) {
+            return INSTANCE.capacity;
+        }
+    }
+
+    /**
+     * 是否启用缓存
+     */
+    static boolean isEnable() {
+        synchronized (INSTANCE.cache) {
+            return INSTANCE.capacity > 0;
+        }
+    }
+
+    /**
+     * 指定大小的缓存块是否可被缓存 (启用缓存且不超过容量)，用于在打包缓存块前跳过数据复制
+     * @param entrySize 缓存块大小 (byte)，见 Entry.sizeOf
+     */
+    static boolean accepts(long entrySize) {
+        synchronized (INSTANCE.cache) {
+            return INSTANCE.capacity > 0 && entrySize <= INSTANCE.capacity;
+        }
+    }
+
+    /**
+     * 获取缓存块
+     * @param fileName 文件名
+     * @param chromosomeIndex 染色体编号
+     * @param nodeIndex 块索引
+     * @param node 块节点，缓存块与该节点的数据段不一致时 (如文件已被重写) 视为未命中
+     * @param requireGenotypes 是否需要基因型数据
+     * @param requireVerified 是否需要已检验块校验码
+     * @return 缓存块，未命中时返回 null
+     */
+    static Entry get(String fileName, int chromosomeIndex, int nodeIndex, GTBNode node, boolean requireGenotypes, boolean requireVerified) {
+        synchronized (INSTANCE.cache) {
+            Entry entry = INSTANCE.cache.get(new Key(fileName, chromosomeIndex, nodeIndex));
+            if (entry != null && entry.blockSeek == node.blockSeek && entry.blockSize == node.blockSize
+                    && (!requireGenotypes || entry.genotypes != null) && (!requireVerified || entry.verified)) {
+                INSTANCE.hitCount++;
+                return entry;
+            }
+
+            INSTANCE.missCount++;
+            return null;
+        }
+    }
+
+    /**
+     * 缓存块，已有的同名缓存块将被替换
+     * @param fileName 文件名
+     * @param chromosomeIndex 染色体编号
+     * @param nodeIndex 块索引
+     * @param entry 缓存块
+     */
+    static void put(String fileName, int chromosomeIndex, int nodeIndex, Entry entry) {
+        synchronized (INSTANCE.cache) {
+            if (entry.size() > INSTANCE.capacity) {
+                return;
+            }
+
+            Entry old = INSTANCE.cache.put(new Key(fileName, chromosomeIndex, nodeIndex), entry);
+            if (old != null) {
+                INSTANCE.size -= old.size();
+            }
+
+            INSTANCE.size += entry.size();
+            INSTANCE.evict();
+        }
+    }
+
+    /**
+     * 淘汰最近最少使用的块，直到缓存大小不超过容量
+     */
+    private void evict() {
+        Iterator<Entry> iterator = this.cache.values().iterator();
+        while (this.size > this.capacity && iterator.hasNext()) {
+            this.size -= iterator.next().size();
+            iterator.remove();
+            this.evictionCount++;
+        }
+    }
+
+    /**
+     * 获取命中次数
+     */
+    public static long getHitCount() {
+        synchronized (INSTANCE.cache) {
+            return INSTANCE.hitCount;
+        }
+    }
+
+    /**
+     * 获取未命中次数
+     */
+    public static long getMissCount() {
+        synchronized (INSTANCE.cache) {
+            return INSTANCE.missCount;
+        }
+    }
+
+    /**
+     * 获取淘汰次数
+     */
+    public static long getEvictionCount() {
+        synchronized (INSTANCE.cache) {
+            return INSTANCE.evictionCount;
+        }
+    }
+
+    /**
+     * 获取当前缓存的块个数
+     */
+    public static int numOfBlocks() {
+        synchronized (INSTANCE.cache) {
+            return INSTANCE.cache.size();
+        }
+    }
+
+    /**
+     * 获取当前缓存的大小 (byte)
+     */
+    public static long size() {
+        synchronized (INSTANCE.cache) {
+            return INSTANCE.size;
+        }
+    }
+
+    /**
+     * 重置命中、未命中及淘汰次数
+     */
+    public static void resetStatistics() {
+        synchronized (INSTANCE.cache) {
+            INSTANCE.hitCount = 0;
+            INSTANCE.missCount = 0;
+            INSTANCE.evictionCount = 0;
+        }
+    }
+
+    /**
+     * 清除所有缓存块
+     */
+    public static void clear() {
+        synchronized (INSTANCE.cache) {
+            INSTANCE.cache.clear();
+            INSTANCE.size = 0;
+        }
+    }
+
+    /**
+     * 清除指定文件的缓存块
+     */
+    public static void clear(String... fileNames) {
+        synchronized (INSTANCE.cache) {
+            for (String fileName : fileNames) {
+                Iterator<Map.Entry<Key, Entry>> iterator = INSTANCE.cache.entrySet().iterator();
+                while (iterator.hasNext()) {
+                    Map.Entry<Key, Entry> item = iterator.next();
+                    if (item.getKey().fileName.equals(fileName)) {
+                        INSTANCE.size -= item.getValue().size();
+                        iterator.remove();
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        synchronized (INSTANCE.cache) {
+            return "GTBBlockCache{" +
+                    "blocks=" + this.cache.size() +
+                    ", size=" + this.size +
+                    ", capacity=" + this.capacity +
+                    ", hit=" + this.hitCount +
+                    ", miss=" + this.missCount +
+                    ", eviction=" + this.evictionCount +
+                    '}';
+        }
+    }
+
+    /**
+     * 缓存键
+     */
+    static final class Key {
+        final String fileName;
+        final int chromosomeIndex;
+        final int nodeIndex;
+
+        Key(String fileName, int chromosomeIndex, int nodeIndex) {
+            this.fileName = fileName;
+            this.chromosomeIndex = chromosomeIndex;
+            this.nodeIndex = nodeIndex;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+
+            if (!(o instanceof Key)) {
+                return false;
+            }
+
+            Key key = (Key) o;
+            return this.chromosomeIndex == key.chromosomeIndex && this.nodeIndex == key.nodeIndex && this.fileName.equals(key.fileName);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.fileName, this.chromosomeIndex, this.nodeIndex);
+        }
+    }
+
+    /**
+     * 缓存块，保存按位置排序后的位点任务、等位基因数据及 (完整的) 基因型数据，创建后不再修改
+     */
+    static final class Entry {
+        final long blockSeek;
+        final int blockSize;
+
+        /**
+         * 按位置排序后的位点任务 (index, position, decoderIndex, alleleStart, alleleLength)
+         */
+        final int[] taskVariants;
+
+        /**
+         * 等位基因数据
+         */
+        final byte[] alleles;
+
+        /**
+         * 基因型数据 (已展开三等位基因子块)，未解压基因型时为 null
+         */
+        final byte[] genotypes;
+
+        /**
+         * 是否已检验块校验码
+         */
+        final boolean verified;
+
+        Entry(GTBNode node, int[] taskVariants, byte[] alleles, byte[] genotypes, boolean verified) {
+            this.blockSeek = node.blockSeek;
+            this.blockSize = node.blockSize;
+            this.taskVariants = taskVariants;
+            this.alleles = alleles;
+            this.genotypes = genotypes;
+            this.verified = verified;
+        }
+
+        long size() {
+            return sizeOf(this.taskVariants.length / 5, this.alleles.length, this.genotypes == null ? 0 : this.genotypes.length);
+        }
+
+        /**
+         * 缓存块大小的估计 (byte)
+         * @param taskNums 位点个数
+         * @param allelesSize 等位基因数据大小
+         * @param genotypesSize 基因型数据大小
+         */
+        static long sizeOf(int taskNums, int allelesSize, int genotypesSize) {
+            return ENTRY_OVERHEAD + ((long) taskNums * 5 << 2) + allelesSize + genotypesSize;
+        }
+    }
+}
@@ -8,6 +8,7 @@ import edu.sysu.pmglab.container.array.BaseArray;
 import edu.sysu.pmglab.easytools.ArrayUtils;
 import edu.sysu.pmglab.easytools.ByteCode;
 import edu.sysu.pmglab.gbc.coder.BEGTransfer;
+import edu.sysu.pmglab.gbc.coder.decoder.BEGDecoder;
 import edu.sysu.pmglab.gbc.coder.decoder.MBEGDecoder;
 import edu.sysu.pmglab.gbc.constant.ChromosomeTags;
 import edu.sysu.pmglab.gbc.core.exception.GBCExceptionOptions;
@@ -32,11 +33,24 @@ import java.util.Set;
 
 public class GTBReader implements Closeable, AutoCloseable, Iterable<Variant> {
     private final GTBManager manager;
-    private final MBEGDecoder groupDecoder;
-    private final boolean phased;
-    private IndexPair[] pairs;
+    final MBEGDecoder groupDecoder;
+    final boolean phased;
+    IndexPair[] pairs;
     private int[] subjectIndexes;
-    private final boolean phasedTransfer;
+    final boolean phasedTransfer;
+
+    /**
+     * 统计等位基因计数时使用: 每个样本被选中的次数、选中样本的编码缓冲区
+     */
+    private int[] subjectWeights;
+    private byte[] countCache = new byte[0];
+
+    /**
+     * 选中全部样本且保持原顺序的无向数据可直接使用 2 bit 编码行 (PackedGenotypes)
+     */
+    private boolean packedAccessible;
+    private final PackedGenotypes packedCache = new PackedGenotypes();
+    private final int[] genotypeCounts = new int[4];
 
     /**
      * 当前解压信息
@@ -216,22 +230,35 @@ public class GTBReader implements Closeable, AutoCloseable, Iterable<Variant> {
     }
 
     private void initPairs(boolean decompressGT) {
+        this.subjectWeights = null;
         if (decompressGT) {
             int eachGroupNum = this.manager.isPhased() ? 3 : 4;
-            if (this.subjectIndexes == null) {
-                pairs = new IndexPair[this.manager.getSubjectNum()];
 
-                for (int i = 0; i < pairs.length; i++) {
-                    pairs[i] = new IndexPair(i, i / eachGroupNum, i % eachGroupNum);
-                }
+            // 按原始顺序读取所有样本 (样本经过重排时，还原为构建时的样本顺序)
+            int[] columns = this.manager.getSubjectManager().getOriginalColumns();
+            pairs = new IndexPair[columns.length];
+            for (int i = 0; i < pairs.length; i++) {
+                pairs[i] = new IndexPair(columns[i], columns[i] / eachGroupNum, columns[i] % eachGroupNum);
             }
 
-            this.subjectIndexes = pairs.length == 0 ? new int[0] : ArrayUtils.range(pairs.length - 1);
+            this.subjectIndexes = columns;
         } else {
             this.subjectIndexes = new int[]{};
 
             pairs = new IndexPair[0];
         }
+
+        updatePackedAccessible();
+    }
+
+    /**
+     * 更新是否可直接使用 2 bit 编码行
+     */
+    private void updatePackedAccessible() {
+        this.packedAccessible = !this.manager.isPhased() && this.pairs.length > 0 && this.pairs.length == this.manager.getSubjectNum();
+        for (int i = 0; this.packedAccessible && i < this.pairs.length; i++) {
+            this.packedAccessible = this.pairs[i].index == i;
+        }
     }
 
     /**
@@ -254,6 +281,62 @@ public class GTBReader implements Closeable, AutoCloseable, Iterable<Variant> {
         }
     }
 
+    /**
+     * 读取下一个位点的可替代等位基因计数与有效等位基因总数，不构建位点对象，稀疏编码的位点仅遍历非参考纯合样本
+     * @return {AC, AN}，不存在下一个位点时返回 null
+     */
+    public int[] readAlleleCounts() throws IOException {
+        if (pointer.chromosomeIndex == -1) {
+            return null;
+        }
+
+        this.cache.fill(pointer, this.pairs.length > 0);
+        TaskVariant taskVariant = this.cache.taskVariants[pointer.variantIndex];
+        GTBNode node = pointer.getNode();
+        int ploidy = ChromosomeTags.getPloidy(node.chromosomeIndex);
+        int alleleCounts = 0;
+        int missSubjectNum = 0;
+
+        if (this.cache.isGTDecompress && taskVariant.decoderIndex == 1 && this.cache.sparseCodec.isSparse(taskVariant.index)) {
+            if (this.subjectWeights == null) {
+                this.subjectWeights = new int[this.manager.getSubjectNum()];
+                for (IndexPair pair : this.pairs) {
+                    this.subjectWeights[pair.index]++;
+                }
+            }
+
+            // 参考纯合基因型不贡献可替代等位基因，也不是缺失基因型
+            int nonReferenceNum = this.cache.sparseCodec.decode(this.cache.genotypesCache, taskVariant.index);
+            for (int i = 0; i < nonReferenceNum; i++) {
+                int weight = this.subjectWeights[this.cache.sparseCodec.subjectOf(i)];
+                byte code = this.cache.sparseCodec.codeOf(i);
+                alleleCounts += weight * BEGDecoder.alternativeAlleleNumOf(ploidy, code);
+                missSubjectNum += BEGDecoder.isMiss(code & 0xFF) ? weight : 0;
+            }
+        } else if (isPackedRow(taskVariant)) {
+            // 2 bit 编码行，按位集统计各编码的样本数
+            this.packedCache.set(this.cache.genotypesCache.getCache(), this.eachLineSize * taskVariant.index, this.pairs.length);
+            this.packedCache.countGenotypes(this.genotypeCounts);
+            for (int code = 1; code < this.genotypeCounts.length; code++) {
+                alleleCounts += this.genotypeCounts[code] * BEGDecoder.alternativeAlleleNumOf(ploidy, code);
+            }
+            missSubjectNum = this.genotypeCounts[0];
+        } else {
+            if (this.countCache.length != this.pairs.length) {
+                this.countCache = new byte[this.pairs.length];
+            }
+
+            fillBEGs(taskVariant, node, this.countCache, false);
+            for (byte code : this.countCache) {
+                alleleCounts += BEGDecoder.alternativeAlleleNumOf(ploidy, code);
+                missSubjectNum += BEGDecoder.isMiss(code & 0xFF) ? 1 : 0;
+            }
+        }
+
+        pointer.next();
+        return new int[]{alleleCounts, (this.pairs.length - missSubjectNum) * ploidy};
+    }
+
     /**
      * 读取下一个位点，带有位点位置约束
      */
@@ -438,6 +521,17 @@ public class GTBReader implements Closeable, AutoCloseable, Iterable<Variant> {
      * 读取下一个位点
      */
     public boolean readVariant(Variant variant) throws IOException {
+        return readVariant(variant, (PackedGenotypes) null);
+    }
+
+    /**
+     * 读取下一个位点，无向二等位基因位点的基因型以 2 bit 编码行的形式写入 packedGenotypes，此时位点的 BEG 编码不被填充；
+     * 其他位点 (或 packedGenotypes 为 null 时) 填充 BEG 编码，packedGenotypes.isAvailable() 为 false。编码行在读取下一个位点前有效
+     *
+     * @param variant         位点
+     * @param packedGenotypes 2 bit 编码行视图
+     */
+    public boolean readVariant(Variant variant, PackedGenotypes packedGenotypes) throws IOException {
         if (pointer.chromosomeIndex != -1) {
             this.cache.fill(pointer, this.pairs.length > 0);
             TaskVariant taskVariant = this.cache.taskVariants[pointer.variantIndex];
@@ -447,9 +541,15 @@ public class GTBReader implements Closeable, AutoCloseable, Iterable<Variant> {
                 variant.BEGs = new byte[this.pairs.length];
             }
 
-            byte[] BEGs = variant.BEGs;
+            if (packedGenotypes != null && isPackedRow(taskVariant)) {
+                packedGenotypes.set(this.cache.genotypesCache.getCache(), this.eachLineSize * taskVariant.index, this.pairs.length);
+            } else {
+                if (packedGenotypes != null) {
+                    packedGenotypes.available = false;
+                }
 
-            fillBEGs(taskVariant, node, BEGs, this.phasedTransfer);
+                fillBEGs(taskVariant, node, variant.BEGs, this.phasedTransfer);
+            }
 
             variant.chromosome = ChromosomeTags.getString(node.chromosomeIndex);
             variant.position = taskVariant.position;
@@ -471,6 +571,10 @@ public class GTBReader implements Closeable, AutoCloseable, Iterable<Variant> {
             variant.REF = null;
             variant.ALT = null;
             variant.phased = this.phased;
+
+            if (packedGenotypes != null) {
+                packedGenotypes.available = false;
+            }
             return false;
         }
     }
@@ -781,7 +885,14 @@ public class GTBReader implements Closeable, AutoCloseable, Iterable<Variant> {
         }
     }
 
-    private void fillBEGs(TaskVariant taskVariant, GTBNode node, byte[] BEGs, boolean phasedTransfer) {
+    /**
+     * 该位点是否可直接使用 2 bit 编码行
+     */
+    boolean isPackedRow(TaskVariant taskVariant) {
+        return this.packedAccessible && this.cache.isGTDecompress && taskVariant.decoderIndex == 0;
+    }
+
+    void fillBEGs(TaskVariant taskVariant, GTBNode node, byte[] BEGs, boolean phasedTransfer) {
         if (taskVariant.decoderIndex == 0) {
             // 二等位基因位点
             int start = this.eachLineSize * taskVariant.index;
@@ -795,6 +906,19 @@ public class GTBReader implements Closeable, AutoCloseable, Iterable<Variant> {
                     BEGs[j] = this.groupDecoder.decode(this.cache.genotypesCache.cacheOf(start + this.pairs[j].groupIndex) & 0xFF, this.pairs[j].codeIndex);
                 }
             }
+        } else if (this.cache.isGTDecompress && this.cache.sparseCodec.isSparse(taskVariant.index)) {
+            // 稀疏位点
+            byte[] row = this.cache.sparseCodec.expand(this.cache.genotypesCache, taskVariant.index);
+
+            if (phasedTransfer) {
+                for (int j = 0; j < pairs.length; j++) {
+                    BEGs[j] = BEGTransfer.toUnphased(row[this.pairs[j].index]);
+                }
+            } else {
+                for (int j = 0; j < pairs.length; j++) {
+                    BEGs[j] = row[this.pairs[j].index];
+                }
+            }
         } else {
             // 多等位基因位点
             int start = this.eachLineSize * node.subBlockVariantNum[0] + (taskVariant.index - node.subBlockVariantNum[0]) * this.manager.getSubjectNum();
@@ -811,6 +935,13 @@ public class GTBReader implements Closeable, AutoCloseable, Iterable<Variant> {
         }
     }
 
+    /**
+     * 获取位点游标，游标直接访问当前块的解压数据，逐位点遍历时不创建新的对象
+     */
+    public VariantCursor cursor() {
+        return new VariantCursor(this);
+    }
+
     public void skip(int variantNums) throws IOException {
         for (int i = 0; i < variantNums; i++) {
             pointer.next();
@@ -866,83 +997,65 @@ public class GTBReader implements Closeable, AutoCloseable, Iterable<Variant> {
             return pointer.seek(chromosomeIndex, 0, 0);
         }
 
-        // 优先在本块中查找, 因为该方式无需解压数据
-        if (pointer.node.contain(position)) {
-            this.cache.fill(pointer, this.pairs.length > 0);
-
-            if (this.cache.taskVariants[0].position == position) {
-                return pointer.seek(chromosomeIndex, pointer.nodeIndex, 0);
-            }
-
-            for (int j = 0; j < pointer.variantLength - 1; j++) {
-                if ((this.cache.taskVariants[j].position < position) && (position <= this.cache.taskVariants[j + 1].position)) {
-                    return pointer.seek(chromosomeIndex, pointer.nodeIndex, j + 1);
-                }
-            }
+        // 二分查找第一个 maxPos >= position 的块 (GTBReader 只支持有序 GTB，块按位置排列)
+        int nodeIndex = nodes.search(position);
+        if (nodes.get(nodeIndex).minPos >= position) {
+            // 位置为块的第一个位点，或在两个块的间隔区
+            return pointer.seek(chromosomeIndex, nodeIndex, 0);
         }
 
-        // 使用类似二分搜索的方法
-        if (pointer.node.minPos > position) {
-            for (int i = 0; i < pointer.nodeIndex; i++) {
-                if (nodes.get(i).contain(position)) {
-                    pointer.seek(chromosomeIndex, i);
-                    this.cache.fill(pointer, this.pairs.length > 0);
-
-                    if (this.cache.taskVariants[0].position == position) {
-                        return pointer.seek(chromosomeIndex, i, 0);
-                    }
+        // 在块内二分查找第一个 position >= 位置值的位点
+        pointer.seek(chromosomeIndex, nodeIndex);
+        this.cache.fill(pointer, this.pairs.length > 0);
 
-                    for (int j = 0; j < pointer.variantLength - 1; j++) {
-                        if ((this.cache.taskVariants[j].position < position) && (position <= this.cache.taskVariants[j + 1].position)) {
-                            return pointer.seek(chromosomeIndex, i, j + 1);
-                        }
-                    }
-                }
-
-                // 在两个块的间隔区
-                if ((i < nodes.numOfNodes() - 1) && (nodes.get(i).maxPos < position) && (nodes.get(i + 1).minPos >= position)) {
-                    return pointer.seek(chromosomeIndex, i + 1, 0);
-                }
-            }
-        } else {
-            for (int i = pointer.nodeIndex; i < nodes.numOfNodes(); i++) {
-                if (nodes.get(i).contain(position)) {
-                    pointer.seek(chromosomeIndex, i);
-                    this.cache.fill(pointer, this.pairs.length > 0);
-
-                    if (this.cache.taskVariants[0].position == position) {
-                        return pointer.seek(chromosomeIndex, i, 0);
-                    }
-
-                    for (int j = 0; j < pointer.variantLength - 1; j++) {
-                        if ((this.cache.taskVariants[j].position < position) && (position <= this.cache.taskVariants[j + 1].position)) {
-                            return pointer.seek(chromosomeIndex, i, j + 1);
-                        }
-                    }
-                }
-
-                // 在两个块的间隔区
-                if ((i < nodes.numOfNodes() - 1) && (nodes.get(i).maxPos < position) && (nodes.get(i + 1).minPos >= position)) {
-                    return pointer.seek(chromosomeIndex, i + 1, 0);
-                }
+        int low = 0;
+        int high = pointer.variantLength - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (this.cache.taskVariants[mid].position < position) {
+                low = mid + 1;
+            } else {
+                high = mid;
             }
         }
 
-        throw new IOException();
+        return pointer.seek(chromosomeIndex, nodeIndex, low);
     }
 
     public Pointer tell() {
         return pointer.clone();
     }
 
+    /**
+     * 设置读取时是否检验块校验码 (默认对包含块校验码的文件进行检验，关闭后可减少一次块数据的读取)
+     * @param verifyChecksum 是否检验块校验码
+     */
+    public void setChecksumVerification(boolean verifyChecksum) {
+        this.cache.setChecksumVerification(verifyChecksum);
+    }
+
+    /**
+     * 设置预读的块个数 (默认为 0，即不预读)。启用预读时，辅助线程按读取顺序提前读取并解压当前块之后的 depth 个块，适用于顺序读取
+     * @param depth 预读的块个数
+     */
+    public void setPrefetchDepth(int depth) throws IOException {
+        this.cache.setPrefetchDepth(depth);
+    }
+
     public void selectSubjects(int... subjectIndexes) {
         int eachGroupNum = this.manager.isPhased() ? 3 : 4;
         this.subjectIndexes = subjectIndexes;
+        this.subjectWeights = null;
 
         pairs = new IndexPair[this.subjectIndexes.length];
         for (int i = 0; i < pairs.length; i++) {
             pairs[i] = new IndexPair(this.subjectIndexes[i], this.subjectIndexes[i] / eachGroupNum, this.subjectIndexes[i] % eachGroupNum);
         }
+
+        updatePackedAccessible();
+
+        // 按样本切片的块只解压包含选择样本的切片
+        this.cache.selectSubjects(this.subjectIndexes);
     }
 
     public void selectSubjects(String... subjects) {
@@ -954,12 +1067,16 @@ public class GTBReader implements Closeable, AutoCloseable, Iterable<Variant> {
     }
 
     public void removeAllSubjects() {
+        this.subjectWeights = null;
+        this.packedAccessible = false;
         this.pairs = new IndexPair[0];
         this.subjectIndexes = new int[0];
+        this.cache.selectSubjects(this.subjectIndexes);
     }
 
     public void selectAllSubjects() {
         initPairs(true);
+        this.cache.selectSubjects(null);
     }
 
     public String[] getAllSubjects() {
@@ -0,0 +1,147 @@
+package edu.sysu.pmglab.gbc.core.gtbcomponent.gtbreader;
+
+/**
+ * @Data        :2022/03/24
+ * @Author      :suranyi
+ * @Contact     :suranyi.sysu@gamil.com
+ * @Description :无向二等位基因位点的 2 bit 编码行视图。无向 MBEG 子块中每个字节按高位到低位依次保存 4 个样本的 BEG 编码 (0: 缺失, 1: 0/0, 2: 0/1, 3: 1/1)，
+ *               即本身就是每个基因型 2 bit 的紧凑布局，低位与高位即为缺失位图与可替代等位基因位图。该视图以 64 bit (32 个样本) 为单位进行移位，
+ *               直接得到位集，无需逐个样本查表还原 BEG 编码
+ */
+
+public class PackedGenotypes {
+    /**
+     * 2 bit 编码的低位与高位掩码
+     */
+    static final long LOW_BITS_MASK = 0x5555555555555555L;
+
+    /**
+     * 编码行所在的缓冲区 (解压后的基因型数据) 及起始位置，仅在读取下一个位点前有效
+     */
+    byte[] cache;
+    int start;
+    int subjectNum;
+    boolean available;
+
+    /**
+     * 当前位点是否以 2 bit 编码行的形式读取 (此时位点的 BEG 编码不被填充)
+     */
+    public boolean isAvailable() {
+        return this.available;
+    }
+
+    /**
+     * 编码行的样本数
+     */
+    public int numOfSubjects() {
+        return this.subjectNum;
+    }
+
+    /**
+     * 设置当前位点的编码行
+     */
+    void set(byte[] cache, int start, int subjectNum) {
+        this.cache = cache;
+        this.start = start;
+        this.subjectNum = subjectNum;
+        this.available = true;
+    }
+
+    /**
+     * 以 32 个样本为一组，将编码行转换为位集，第一个样本位于最高位，末尾不足 32 个样本的部分补 0
+     * @param alleleNumEq1 携带 1 个可替代等位基因的样本 (0/1)
+     * @param alleleNumEq2 携带 2 个可替代等位基因的样本 (1/1)
+     * @param validFlags 非缺失样本
+     * @return 位集的组数
+     */
+    public int fillBitCodes(int[] alleleNumEq1, int[] alleleNumEq2, int[] validFlags) {
+        int groupNum = getGroupNum();
+        for (int i = 0; i < groupNum; i++) {
+            long word = wordOf(i);
+            int low = compact(word & LOW_BITS_MASK);
+            int high = compact((word >>> 1) & LOW_BITS_MASK);
+
+            alleleNumEq1[i] = high & ~low;
+            alleleNumEq2[i] = high & low;
+            validFlags[i] = high | low;
+        }
+
+        return groupNum;
+    }
+
+    /**
+     * 将编码行还原为 BEG 编码
+     * @param BEGs 长度不小于样本数的 BEG 编码数组
+     */
+    public void unpack(byte[] BEGs) {
+        for (int i = 0; i < this.subjectNum; i++) {
+            BEGs[i] = (byte) ((this.cache[this.start + (i >> 2)] >>> (6 - ((i & 3) << 1))) & 0x03);
+        }
+    }
+
+    /**
+     * 统计各 BEG 编码 (0~3) 的样本数
+     * @param counts 长度不小于 4 的计数数组
+     */
+    public void countGenotypes(int[] counts) {
+        int groupNum = getGroupNum();
+        int heterozygousNum = 0;
+        int homozygousNum = 0;
+        int validNum = 0;
+        for (int i = 0; i < groupNum; i++) {
+            long word = wordOf(i);
+            int low = compact(word & LOW_BITS_MASK);
+            int high = compact((word >>> 1) & LOW_BITS_MASK);
+
+            heterozygousNum += Integer.bitCount(high & ~low);
+            homozygousNum += Integer.bitCount(high & low);
+            validNum += Integer.bitCount(high | low);
+        }
+
+        counts[0] = this.subjectNum - validNum;
+        counts[1] = validNum - heterozygousNum - homozygousNum;
+        counts[2] = heterozygousNum;
+        counts[3] = homozygousNum;
+    }
+
+    /**
+     * 位集的组数
+     */
+    int getGroupNum() {
+        return (this.subjectNum >> 5) + ((this.subjectNum & 31) == 0 ? 0 : 1);
+    }
+
+    /**
+     * 读取第 groupIndex 组的 8 个字节 (大端)，末尾不足 32 个样本时，多余的编码 (MBEG 以最后一个基因型填充) 置 0
+     */
+    long wordOf(int groupIndex) {
+        int offset = this.start + (groupIndex << 3);
+        int resNum = this.subjectNum - (groupIndex << 5);
+
+        if (resNum >= 32) {
+            return ((long) (this.cache[offset] & 0xFF) << 56) | ((long) (this.cache[offset + 1] & 0xFF) << 48) |
+                    ((long) (this.cache[offset + 2] & 0xFF) << 40) | ((long) (this.cache[offset + 3] & 0xFF) << 32) |
+                    ((long) (this.cache[offset + 4] & 0xFF) << 24) | ((this.cache[offset + 5] & 0xFF) << 16) |
+                    ((this.cache[offset + 6] & 0xFF) << 8) | (this.cache[offset + 7] & 0xFF);
+        }
+
+        long word = 0;
+        for (int i = 0, byteNum = (resNum + 3) >> 2; i < byteNum; i++) {
+            word |= (long) (this.cache[offset + i] & 0xFF) << (56 - (i << 3));
+        }
+
+        return word & (-1L << (64 - (resNum << 1)));
+    }
+
+    /**
+     * 将偶数位 (第 2k 位) 压缩至低 32 位 (第 k 位)
+     */
+    static int compact(long bits) {
+        bits = (bits | (bits >>> 1)) & 0x3333333333333333L;
+        bits = (bits | (bits >>> 2)) & 0x0F0F0F0F0F0F0F0FL;
+        bits = (bits | (bits >>> 4)) & 0x00FF00FF00FF00FFL;
+        bits = (bits | (bits >>> 8)) & 0x0000FFFF0000FFFFL;
+        bits = (bits | (bits >>> 16)) & 0x00000000FFFFFFFFL;
+        return (int) bits;
+    }
+}
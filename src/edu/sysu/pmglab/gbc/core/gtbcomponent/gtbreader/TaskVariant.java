@@ -1,6 +1,5 @@
 package edu.sysu.pmglab.gbc.core.gtbcomponent.gtbreader;
 
-import edu.sysu.pmglab.easytools.ValueUtils;
 
 /**
  * @Data        :2021/03/10
@@ -20,8 +19,8 @@ class TaskVariant {
     /**
      * 设置该位点任务的 position
      */
-    public TaskVariant setPosition(byte byte1, byte byte2, byte byte3, byte byte4) {
-        this.position = ValueUtils.byteArray2IntegerValue(byte1, byte2, byte3, byte4);
+    public TaskVariant setPosition(int position) {
+        this.position = position;
         return this;
     }
 
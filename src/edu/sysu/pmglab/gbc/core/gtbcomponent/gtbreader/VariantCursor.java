@@ -0,0 +1,215 @@
+package edu.sysu.pmglab.gbc.core.gtbcomponent.gtbreader;
+
+import edu.sysu.pmglab.easytools.ArrayUtils;
+import edu.sysu.pmglab.easytools.ByteCode;
+import edu.sysu.pmglab.gbc.coder.BEGTransfer;
+import edu.sysu.pmglab.gbc.coder.decoder.MBEGDecoder;
+import edu.sysu.pmglab.gbc.constant.ChromosomeTags;
+import edu.sysu.pmglab.gbc.core.gtbcomponent.GTBNode;
+
+import java.io.IOException;
+
+/**
+ * @Data        :2022/04/10
+ * @Author      :suranyi
+ * @Contact     :suranyi.sysu@gamil.com
+ * @Description :位点游标 (享元模式)，当前位点的染色体、位置、等位基因及基因型均直接访问 GTBReader 解压缓冲区中的数据，
+ *               逐位点遍历时不创建 Variant、BEG 数组及等位基因数组。当前位点的数据在调用 next() 或 GTBReader 的其他读取、跳转方法前有效
+ */
+
+public class VariantCursor {
+    private final GTBReader reader;
+    private final MBEGDecoder groupDecoder;
+    private final boolean phasedTransfer;
+
+    /**
+     * 当前位点
+     */
+    private TaskVariant taskVariant;
+    private GTBNode node;
+    private int ploidy;
+    private int sepIndex;
+
+    /**
+     * 当前位点的基因型数据 (所在缓冲区及起始位置)、选中的样本，稀疏位点在首次访问基因型时展开
+     */
+    private byte[] genotypes;
+    private int genotypeStart;
+    private IndexPair[] pairs;
+    private byte[] sparseRow;
+    private boolean biallelic;
+    private boolean sparse;
+
+    VariantCursor(GTBReader reader) {
+        this.reader = reader;
+        this.groupDecoder = reader.groupDecoder;
+        this.phasedTransfer = reader.phasedTransfer;
+    }
+
+    /**
+     * 移动到下一个位点
+     * @return 是否存在下一个位点
+     */
+    public boolean next() throws IOException {
+        Pointer pointer = this.reader.pointer;
+        if (pointer.chromosomeIndex == -1) {
+            this.taskVariant = null;
+            this.node = null;
+            return false;
+        }
+
+        DecompressionCache cache = this.reader.cache;
+        cache.fill(pointer, this.reader.pairs.length > 0);
+        this.taskVariant = cache.taskVariants[pointer.variantIndex];
+        this.node = pointer.getNode();
+        this.ploidy = ChromosomeTags.getPloidy(this.node.chromosomeIndex);
+        this.sepIndex = cache.allelesPosCache.indexOf(ByteCode.TAB, this.taskVariant.alleleStart, this.taskVariant.alleleStart + this.taskVariant.alleleLength);
+
+        this.biallelic = this.taskVariant.decoderIndex == 0;
+        if (this.biallelic) {
+            this.genotypeStart = this.reader.eachLineSize * this.taskVariant.index;
+            this.sparse = false;
+        } else {
+            this.genotypeStart = this.reader.eachLineSize * this.node.subBlockVariantNum[0] + (this.taskVariant.index - this.node.subBlockVariantNum[0]) * this.reader.getManager().getSubjectNum();
+            this.sparse = cache.isGTDecompress && cache.sparseCodec.isSparse(this.taskVariant.index);
+        }
+        this.genotypes = cache.genotypesCache.getCache();
+        this.pairs = this.reader.pairs;
+        this.sparseRow = null;
+
+        pointer.next();
+        return true;
+    }
+
+    /**
+     * 游标是否指向一个位点
+     */
+    public boolean isValid() {
+        return this.taskVariant != null;
+    }
+
+    public int getChromosomeIndex() {
+        return this.node.chromosomeIndex;
+    }
+
+    public String getChromosome() {
+        return ChromosomeTags.getString(this.node.chromosomeIndex);
+    }
+
+    public int getPosition() {
+        return this.taskVariant.position;
+    }
+
+    public int getPloidy() {
+        return this.ploidy;
+    }
+
+    public boolean isPhased() {
+        return this.reader.phased;
+    }
+
+    /**
+     * 等位基因数据所在的缓冲区 (REF\tALT)，不可修改，使用 getREFStart() 等方法获取当前位点的等位基因区间
+     */
+    public byte[] getAlleleCache() {
+        return this.reader.cache.allelesPosCache.getCache();
+    }
+
+    public int getREFStart() {
+        return this.taskVariant.alleleStart;
+    }
+
+    public int getREFEnd() {
+        return this.sepIndex;
+    }
+
+    public int getALTStart() {
+        return this.sepIndex + 1;
+    }
+
+    public int getALTEnd() {
+        return this.taskVariant.alleleStart + this.taskVariant.alleleLength;
+    }
+
+    /**
+     * 等位基因个数 (包括参考等位基因)
+     */
+    public int getAlleleNum() {
+        byte[] alleles = getAlleleCache();
+        int num = 2;
+        for (int i = getALTStart(), end = getALTEnd(); i < end; i++) {
+            if (alleles[i] == ByteCode.COMMA) {
+                num++;
+            }
+        }
+
+        return num;
+    }
+
+    /**
+     * 选中的样本数
+     */
+    public int numOfSubjects() {
+        return this.pairs.length;
+    }
+
+    /**
+     * 获取第 index 个选中样本的 BEG 编码
+     */
+    public byte getBEG(int index) {
+        IndexPair pair = this.pairs[index];
+        byte code;
+        if (this.biallelic) {
+            code = this.groupDecoder.decode(this.genotypes[this.genotypeStart + pair.groupIndex] & 0xFF, pair.codeIndex);
+        } else if (this.sparse) {
+            if (this.sparseRow == null) {
+                this.sparseRow = this.reader.cache.sparseCodec.expand(this.reader.cache.genotypesCache, this.taskVariant.index);
+            }
+            code = this.sparseRow[pair.index];
+        } else {
+            code = this.genotypes[this.genotypeStart + pair.index];
+        }
+
+        return this.phasedTransfer ? BEGTransfer.toUnphased(code) : code;
+    }
+
+    /**
+     * 将选中样本的 BEG 编码写入 BEGs (长度不小于选中的样本数)
+     */
+    public void fillBEGs(byte[] BEGs) {
+        this.reader.fillBEGs(this.taskVariant, this.node, BEGs, this.phasedTransfer);
+    }
+
+    /**
+     * 当前位点为无向二等位基因位点且选中全部样本 (保持原顺序) 时，将 2 bit 编码行写入 packedGenotypes
+     * @return 是否可使用 2 bit 编码行，否则 packedGenotypes.isAvailable() 为 false
+     */
+    public boolean getPackedGenotypes(PackedGenotypes packedGenotypes) {
+        if (this.reader.isPackedRow(this.taskVariant)) {
+            packedGenotypes.set(this.genotypes, this.genotypeStart, this.pairs.length);
+            return true;
+        }
+
+        packedGenotypes.available = false;
+        return false;
+    }
+
+    /**
+     * 复制当前位点为 Variant 对象
+     */
+    public Variant toVariant() {
+        byte[] alleles = getAlleleCache();
+        byte[] BEGs = new byte[numOfSubjects()];
+        fillBEGs(BEGs);
+
+        Variant variant = new Variant();
+        variant.chromosome = getChromosome();
+        variant.position = getPosition();
+        variant.ploidy = this.ploidy;
+        variant.REF = ArrayUtils.copyOfRange(alleles, getREFStart(), getREFEnd());
+        variant.ALT = ArrayUtils.copyOfRange(alleles, getALTStart(), getALTEnd());
+        variant.BEGs = BEGs;
+        variant.phased = this.reader.phased;
+        return variant;
+    }
+}
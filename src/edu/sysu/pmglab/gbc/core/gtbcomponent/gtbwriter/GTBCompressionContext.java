@@ -2,7 +2,12 @@ package edu.sysu.pmglab.gbc.core.gtbcomponent.gtbwriter;
 
 import edu.sysu.pmglab.gbc.coder.encoder.MBEGEncoder;
 import edu.sysu.pmglab.gbc.core.common.combiner.ICodeCombiner;
+import edu.sysu.pmglab.gbc.core.gtbcomponent.AlleleCodec;
+import edu.sysu.pmglab.gbc.core.gtbcomponent.GTBChecksum;
+import edu.sysu.pmglab.gbc.core.gtbcomponent.GTBCompressor;
 import edu.sysu.pmglab.gbc.core.gtbcomponent.GTBNode;
+import edu.sysu.pmglab.gbc.core.gtbcomponent.PositionCodec;
+import edu.sysu.pmglab.gbc.core.gtbcomponent.TriallelicGenotypeCodec;
 import edu.sysu.pmglab.check.Assert;
 import edu.sysu.pmglab.compressor.ICompressor;
 import edu.sysu.pmglab.container.Pair;
@@ -31,9 +36,15 @@ class GTBCompressionContext {
     final ISwitcher switcher;
 
     /**
-     * 编码组合器
+     * 编码组合器及有效样本个数
      */
     final ICodeCombiner codeCombiner;
+    final int validSubjectNum;
+
+    /**
+     * 是否计算块校验码
+     */
+    final boolean checksum;
 
     /**
      * 压缩器与编码器
@@ -41,6 +52,11 @@ class GTBCompressionContext {
     private final ICompressor compressor;
     private final MBEGEncoder groupEncoder;
 
+    /**
+     * 等位基因数据编码器
+     */
+    private final AlleleCodec alleleCodec = new AlleleCodec();
+
     /**
      * @param task 压缩任务
      * @param validSubjectNum 有效样本个数
@@ -50,13 +66,15 @@ class GTBCompressionContext {
         Assert.that(caches.size() >= 2);
 
         // 将 BEG-EncodedCache 作为压缩输出数据的缓冲区
-        this.compressor = ICompressor.getInstance(task.getCompressor(), task.getCompressionLevel(), caches.getCache(0));
+        this.compressor = GTBCompressor.getCompressor(task.getCompressor(), task.getCompressionLevel(), caches.getCache(0));
 
         // 创建行特征交换器
         this.switcher = ISwitcher.getInstance(task.isReordering());
 
         // 创建编码组合器
+        this.validSubjectNum = validSubjectNum;
         this.codeCombiner = ICodeCombiner.getInstance(task.isPhased(), validSubjectNum);
+        this.checksum = task.isChecksum();
 
         // 排序之后的合并流，大型复用容器。缓冲区大小，默认设定为 BEG 阵列的一半，该设计可以容纳 1/4 的多等位基因位点，通常情况下他不会发生扩容。
         this.unCompressedCache = caches.getCache(1);
@@ -94,35 +112,48 @@ class GTBCompressionContext {
         // 特征交换
         this.switcher.switchingRow(this.groupEncoder, block.variants, variantsNum, block.encodedCache.getCache());
 
-        // 处理基因型数据并记录压缩流大小
+        // 罕见变异位点移至块尾 (稀疏子块)
+        int sparseVariantNum = this.codeCombiner.partition(block.variants, subBlockVariantNum, block.encodedCache.getCache());
+
+        // 处理基因型数据并记录压缩流大小 (多等位基因位点较多时 BEG 子块可能超出缓冲区的初始容量)
+        int requestSize = subBlockVariantNum[0] * ((this.validSubjectNum + 2) / 3) + subBlockVariantNum[1] * this.validSubjectNum;
+        if (this.unCompressedCache.getCapacity() < requestSize) {
+            this.unCompressedCache.expansionTo(requestSize);
+        }
         this.codeCombiner.process(this.groupEncoder, block.variants, subBlockVariantNum, block.encodedCache.getCache(), this.unCompressedCache);
 
-        // 基因型数据未压缩前大小
+        // 基因型数据未压缩前大小 (三等位基因组合子块按展开后的大小计算)
+        int triallelicVariantNum = this.codeCombiner.getTriallelicVariantNum();
         int originMBEGsSize = this.unCompressedCache.size();
+        if (triallelicVariantNum > 0) {
+            originMBEGsSize += (int) TriallelicGenotypeCodec.getSavedSize(triallelicVariantNum, this.validSubjectNum);
+        }
 
         // 压缩基因型数据
         int compressedGenotypeSize = compress(this.unCompressedCache, this.compressor);
 
-        // 压缩 position 数据
-        for (int i = 0; i < variantsNum; i++) {
-            block.variants[i].writePosTo(this.unCompressedCache);
-        }
+        // 压缩 position 数据 (差分 + 变长整数编码)
+        PositionCodec.encode(block.variants, variantsNum, minPos, this.unCompressedCache);
         int originPosSize = this.unCompressedCache.size();
         int compressedPosSize = compress(this.unCompressedCache, this.compressor);
 
-        /* allele 处必须非常小心，有可能超过缓冲容器大小 */
+        /* allele 处必须非常小心，有可能超过缓冲容器大小 (字典编码) */
         int originAllelesSize = check(variantsNum, block);
-        for (int i = 0; i < variantsNum; i++) {
-            block.variants[i].writeAlleleTo(this.unCompressedCache);
-        }
+        this.alleleCodec.encode(block.variants, variantsNum, this.unCompressedCache);
 
         // 等位基因大小
         int compressedAlleleSize = compress(this.unCompressedCache, this.compressor);
 
-        // 送出压缩完成的数据
-        return new Pair<>(new GTBNode(block.chromosomeIndex, minPos, maxPos, 0, compressedGenotypeSize, compressedPosSize, compressedAlleleSize,
-                originMBEGsSize, Math.max(originAllelesSize, originPosSize), subBlockVariantNum),
-                this.compressor.getCache());
+        // 送出压缩完成的数据，块校验码覆盖基因型、位置、等位基因压缩数据
+        GTBNode node = new GTBNode(block.chromosomeIndex, minPos, maxPos, 0, compressedGenotypeSize, compressedPosSize, compressedAlleleSize,
+                originMBEGsSize, Math.max(originAllelesSize, originPosSize), subBlockVariantNum,
+                GTBNode.DELTA_ENCODED_POS | GTBNode.DICT_ENCODED_ALLELE | (sparseVariantNum > 0 ? GTBNode.SPARSE_ENCODED_GENOTYPE : 0)
+                        | (triallelicVariantNum > 0 ? GTBNode.GROUPED_TRIALLELIC_GENOTYPE : 0));
+        if (this.checksum) {
+            node.setChecksum(GTBChecksum.of(this.compressor.getCache()));
+        }
+
+        return new Pair<>(node, this.compressor.getCache());
     }
 
     int check(int variantsNum, UncompressedBlock block) {
@@ -131,8 +162,9 @@ class GTBCompressionContext {
             requestSize += block.variants[i].alleleSize();
         }
 
-        if (this.unCompressedCache.getCapacity() < requestSize) {
-            this.unCompressedCache.expansionTo(Math.min(requestSize << 1, Integer.MAX_VALUE - 2));
+        int encodedSize = AlleleCodec.getMaxEncodedLength(requestSize, variantsNum);
+        if (this.unCompressedCache.getCapacity() < encodedSize) {
+            this.unCompressedCache.expansionTo(Math.min(encodedSize << 1, Integer.MAX_VALUE - 2));
         }
         return requestSize;
     }
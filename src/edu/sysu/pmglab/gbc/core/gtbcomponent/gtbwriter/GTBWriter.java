@@ -1,6 +1,5 @@
 package edu.sysu.pmglab.gbc.core.gtbcomponent.gtbwriter;
 
-import edu.sysu.pmglab.compressor.ICompressor;
 import edu.sysu.pmglab.container.Pair;
 import edu.sysu.pmglab.container.VolumeByteStream;
 import edu.sysu.pmglab.container.array.Array;
@@ -13,6 +12,9 @@ import edu.sysu.pmglab.gbc.core.common.block.VariantAbstract;
 import edu.sysu.pmglab.gbc.core.common.qualitycontrol.allele.AlleleQC;
 import edu.sysu.pmglab.gbc.core.exception.GTBComponentException;
 import edu.sysu.pmglab.gbc.core.gtbcomponent.FileBaseInfoManager;
+import edu.sysu.pmglab.gbc.core.gtbcomponent.GTBChecksum;
+import edu.sysu.pmglab.gbc.core.gtbcomponent.GTBConstant;
+import edu.sysu.pmglab.gbc.core.gtbcomponent.GTBCompressor;
 import edu.sysu.pmglab.gbc.core.gtbcomponent.GTBNode;
 import edu.sysu.pmglab.gbc.core.gtbcomponent.GTBTree;
 import edu.sysu.pmglab.gbc.core.gtbcomponent.gtbreader.Variant;
@@ -121,8 +123,8 @@ public class GTBWriter implements AutoCloseable {
         this.outputFile.write(ByteCode.NEWLINE);
 
         // 写入样本名
-        VolumeByteStream subjectsSeq = ICompressor.compress(task.getCompressor(), task.getCompressionLevel(), subjects, 0, subjects.length);
-        this.outputFile.writeIntegerValue(subjectsSeq.size());
+        VolumeByteStream subjectsSeq = GTBCompressor.compress(task.getCompressor(), task.getCompressionLevel(), subjects, 0, subjects.length);
+        this.outputFile.writeIntegerValue(GTBConstant.toSubjectsSizeField(subjectsSeq.size(), false, task.isChecksum(), false));
         this.outputFile.write(subjectsSeq);
 
         // 创建线程池
@@ -201,9 +203,9 @@ public class GTBWriter implements AutoCloseable {
      */
     void generateGTBFile() throws IOException {
         // 写入块头信息
-        VolumeByteStream headerInfo = new VolumeByteStream(this.GTBNodeCache.size() * 25);
+        VolumeByteStream headerInfo = new VolumeByteStream(this.GTBNodeCache.size() * GTBChecksum.getNodeInfoSize(this.task.isChecksum()));
         for (GTBNode node : this.GTBNodeCache) {
-            node.toTransFormat(headerInfo);
+            node.toTransFormat(headerInfo, this.task.isChecksum());
         }
 
         this.outputFile.write(headerInfo);
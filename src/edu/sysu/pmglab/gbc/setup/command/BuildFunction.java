@@ -5,6 +5,7 @@ import edu.sysu.pmglab.commandParser.CommandMatcher;
 import edu.sysu.pmglab.commandParser.CommandParser;
 import edu.sysu.pmglab.easytools.FileUtils;
 import edu.sysu.pmglab.gbc.core.build.BuildTask;
+import edu.sysu.pmglab.gbc.core.build.TuneObjective;
 
 import java.io.IOException;
 import java.util.Scanner;
@@ -45,18 +46,44 @@ enum BuildFunction {
                     .setWindowSize((int) options.get("-ws"))
                     .setBlockSizeType((int) options.get("-bs"))
                     .setCompressor((String) options.get("-c"), (int) options.get("-l"))
+                    .setTrainDictionary(options.isPassedIn("--train-dict"))
+                    .setChecksum(options.isPassedIn("--checksum"))
+                    .setSubjectReordering(options.isPassedIn("--reorder-subjects"))
+                    .setSliceSize((int) options.get("--slice-subjects"))
+                    .setParallelStreams(options.isPassedIn("--parallel-streams"))
                     .readyParas((String) options.get("-rp"));
+            task.setMemoryMapped(options.isPassedIn("--mmap"));
+
+            // 分阶段流水线, 未指定的阶段使用 -t 的线程数
+            if (options.isPassedIn("-pt") || options.isPassedIn("-ct")) {
+                int threads = (int) options.get("-t");
+                task.setPipelineThreads(options.isPassedIn("-pt") ? (int) options.get("-pt") : threads, options.isPassedIn("-ct") ? (int) options.get("-ct") : threads);
+            }
+
+            // 试压缩选择参数，指定了压缩级别时只选择块大小参数
+            if (options.isPassedIn("--tune")) {
+                task.setTuneObjective(TuneObjective.valueOf(((String) options.get("--tune")).toUpperCase()), (int) options.get("--tune-variants"))
+                        .setTuneCompressionLevel(!options.isPassedIn("-l"));
+            }
 
             // 设置输入文件名
             if (options.isPassedIn("-o")) {
                 task.setOutputFileName((String) options.get("-o"));
             } else {
+                if (task.isStandardInput()) {
+                    throw new IOException("GBC can't generate the output file name for standard input, please specify it by -o");
+                }
                 task.setOutputFileName(task.autoGenerateOutputFileName());
             }
 
             // 判断输出文件是否存在
             if (!options.isPassedIn("-y")) {
                 if (FileUtils.exists(task.getOutputFileName())) {
+                    // 标准输入用于读取 VCF 数据，无法进行交互
+                    if (task.isStandardInput()) {
+                        throw new IOException("GBC can't create " + task.getOutputFileName() + ": file exists (use -y to overwrite it when reading from standard input)");
+                    }
+
                     Scanner scanner = new Scanner(System.in);
                     System.out.print("WARN    " + task.getOutputFileName() + " already exists, do you wish to overwrite? (y or n) ");
 
@@ -103,6 +130,9 @@ enum BuildFunction {
             long jobEnd = System.currentTimeMillis();
 
             // 结束任务，输出日志信息
+            if (task.getTuneReport() != null) {
+                System.out.println("INFO    Trial compression: " + task.getTuneReport());
+            }
             System.out.printf("INFO    Total Processing time: %.3f s; GTB size: %s%n", (float) (jobEnd - jobStart) / 1000,
                     FileUtils.sizeTransformer(FileUtils.sizeOf(task.getOutputFileName()), 3));
             System.out.printf("INFO    You can use command `show %s` to view all the information.%n", task.getOutputFileName());
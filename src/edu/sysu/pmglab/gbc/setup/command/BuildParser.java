@@ -1,5 +1,6 @@
 package edu.sysu.pmglab.gbc.setup.command;
 
+import edu.sysu.pmglab.check.Assert;
 import edu.sysu.pmglab.commandParser.CommandMatcher;
 import edu.sysu.pmglab.commandParser.CommandParser;
 import edu.sysu.pmglab.commandParser.converter.array.StringArrayConverter;
@@ -11,12 +12,14 @@ import edu.sysu.pmglab.commandParser.converter.value.StringConverter;
 import edu.sysu.pmglab.commandParser.validator.ElementValidator;
 import edu.sysu.pmglab.commandParser.validator.EnsureFileExistsValidator;
 import edu.sysu.pmglab.commandParser.validator.EnsureFileIsNotDirectoryValidator;
+import edu.sysu.pmglab.commandParser.validator.IValidator;
 import edu.sysu.pmglab.commandParser.validator.RangeValidator;
-import edu.sysu.pmglab.compressor.ICompressor;
 import edu.sysu.pmglab.gbc.coder.CoderConfig;
 import edu.sysu.pmglab.gbc.constant.ChromosomeTags;
 import edu.sysu.pmglab.gbc.core.ITask;
 import edu.sysu.pmglab.gbc.core.build.BlockSizeParameter;
+import edu.sysu.pmglab.gbc.core.build.BuildTask;
+import edu.sysu.pmglab.gbc.core.build.TuneObjective;
 import edu.sysu.pmglab.gbc.core.common.qualitycontrol.allele.AlleleACController;
 import edu.sysu.pmglab.gbc.core.common.qualitycontrol.allele.AlleleAFController;
 import edu.sysu.pmglab.gbc.core.common.qualitycontrol.allele.AlleleANController;
@@ -27,6 +30,7 @@ import edu.sysu.pmglab.gbc.core.common.qualitycontrol.variant.VariantDPControlle
 import edu.sysu.pmglab.gbc.core.common.qualitycontrol.variant.VariantMQController;
 import edu.sysu.pmglab.gbc.core.common.qualitycontrol.variant.VariantPhredQualityScoreController;
 import edu.sysu.pmglab.gbc.core.common.switcher.ISwitcher;
+import edu.sysu.pmglab.gbc.core.gtbcomponent.GTBCompressor;
 
 import static edu.sysu.pmglab.commandParser.CommandOptions.*;
 import static edu.sysu.pmglab.commandParser.CommandRuleType.AT_MOST_ONE;
@@ -70,7 +74,15 @@ enum BuildParser {
                 .addOptions(REQUEST, HIDDEN)
                 .arity(-1)
                 .convertTo(new StringArrayConverter())
-                .validateWith(EnsureFileExistsValidator.INSTANCE)
+                .validateWith(new IValidator() {
+                    @Override
+                    public void validate(String commandKey, Object params) {
+                        // "-" 表示从标准输入读取
+                        if (!(params instanceof String[] && ((String[]) params).length == 1 && BuildTask.STANDARD_INPUT.equals(((String[]) params)[0]))) {
+                            EnsureFileExistsValidator.INSTANCE.validate(commandKey, params);
+                        }
+                    }
+                })
                 .setOptionGroup("Options");
         parser.register("--contig")
                 .arity(1)
@@ -94,6 +106,20 @@ enum BuildParser {
                 .setOptionGroup("Compressor Options")
                 .setDescription("Set the number of threads.")
                 .setFormat("'-t <int, " + ITask.MIN_THREADS + "~" + ITask.AVAILABLE_PROCESSORS + ">'");
+        parser.register("--parse-threads", "-pt")
+                .arity(1)
+                .convertTo(new IntConverter())
+                .validateWith(new RangeValidator(ITask.MIN_THREADS, ITask.AVAILABLE_PROCESSORS))
+                .setOptionGroup("Compressor Options")
+                .setDescription("Use the staged pipeline and set the number of threads for parsing and BEG encoding (-t as default).")
+                .setFormat("'-pt <int, " + ITask.MIN_THREADS + "~" + ITask.AVAILABLE_PROCESSORS + ">'");
+        parser.register("--compress-threads", "-ct")
+                .arity(1)
+                .convertTo(new IntConverter())
+                .validateWith(new RangeValidator(ITask.MIN_THREADS, ITask.AVAILABLE_PROCESSORS))
+                .setOptionGroup("Compressor Options")
+                .setDescription("Use the staged pipeline and set the number of threads for reordering, MBEG encoding and compressing (-t as default).")
+                .setFormat("'-ct <int, " + ITask.MIN_THREADS + "~" + ITask.AVAILABLE_PROCESSORS + ">'");
         parser.register("--phased", "-p")
                 .arity(0)
                 .convertTo(new PassedInConverter())
@@ -126,7 +152,7 @@ enum BuildParser {
                     @Override
                     public String convert(String... params) {
                         String param = super.convert(params);
-                        ElementValidator validator = new ElementValidator(ICompressor.getCompressorNames());
+                        ElementValidator validator = new ElementValidator(GTBCompressor.getCompressorNames());
                         validator.validate("--compressor", param);
                         if (validator.indexOf(param) == -1) {
                             return validator.valueOf(Integer.parseInt(param));
@@ -135,10 +161,10 @@ enum BuildParser {
                         }
                     }
                 })
-                .defaultTo(ICompressor.getCompressorName(ICompressor.DEFAULT))
+                .defaultTo(GTBCompressor.getCompressorName(GTBCompressor.DEFAULT))
                 .setOptionGroup("Compressor Options")
                 .setDescription("Set the basic compressor for compressing processed data.")
-                .setFormat("'-c [0/1]' or '-c [ZSTD/LZMA]'");
+                .setFormat("'-c [0/1/2/3]' or '-c [ZSTD/LZMA/GZIP/LZ4]'");
         parser.register("--level", "-l")
                 .arity(1)
                 .convertTo(new IntConverter())
@@ -146,7 +172,7 @@ enum BuildParser {
                 .validateWith(new RangeValidator(-1.0, 31.0))
                 .setOptionGroup("Compressor Options")
                 .setDescription("Compression level to use when basic compressor works.")
-                .setFormat("'-l <int>' (ZSTD: 0~22, 16 as default; LZMA: 0~9, 3 as default)");
+                .setFormat("'-l <int>' (ZSTD: 0~22, 16 as default; LZMA: 0~9, 3 as default; LZ4: 0~9, 3 as default)");
         parser.register("--readyParas", "-rp")
                 .arity(1)
                 .convertTo(new StringConverter())
@@ -154,6 +180,60 @@ enum BuildParser {
                 .setOptionGroup("Compressor Options")
                 .setDescription("Import the template parameters (-p, -bs, -c, -l) from an external GTB file.")
                 .setFormat("'-rp <file>'");
+        parser.register("--tune")
+                .arity(1)
+                .convertTo(params -> {
+                    Assert.that(params.length == 1);
+
+                    ElementValidator validator = new ElementValidator(TuneObjective.getObjectiveNames());
+                    validator.setAllowIndex(false);
+                    validator.validate("--tune", params[0]);
+                    return params[0].toLowerCase();
+                })
+                .setOptionGroup("Compressor Options")
+                .setDescription("Trial-compress the first variants of each chromosome with candidate -bs and -l (unless specified), and pick the parameters with the lowest cost under the objective (never worse than the defaults on the sample).")
+                .setFormat("'--tune [ratio/balanced/compress/decompress]'");
+        parser.register("--tune-variants")
+                .arity(1)
+                .convertTo(new IntConverter())
+                .defaultTo(BuildTask.DEFAULT_TUNE_VARIANTS)
+                .validateWith(new RangeValidator(1, Integer.MAX_VALUE))
+                .setOptionGroup("Compressor Options")
+                .setDescription("Set the number of variants sampled from each chromosome for trial compression (at least one full block).")
+                .setFormat("'--tune-variants <int>' (>=1)");
+        parser.register("--mmap")
+                .arity(0)
+                .convertTo(new PassedInConverter())
+                .setOptionGroup("Compressor Options")
+                .setDescription("Read the uncompressed input file through memory-mapped partitions (compressed input is still read as a stream).");
+        parser.register("--parallel-streams")
+                .arity(0)
+                .convertTo(new PassedInConverter())
+                .setOptionGroup("Compressor Options")
+                .setDescription("Compress the streams of each block concurrently on a pool of `-t` threads owned by the build: genotype streams larger than 1 MB are split into independently compressed frames, and the position and allele streams are compressed alongside them.");
+        parser.register("--slice-subjects")
+                .arity(1)
+                .convertTo(new IntConverter())
+                .defaultTo(0)
+                .validateWith(new RangeValidator(0, Integer.MAX_VALUE))
+                .setOptionGroup("Compressor Options")
+                .setDescription("Split the genotypes of each block into column slices of the given number of subjects (rounded up to a multiple of 12) and compress them independently, so that extracting a few subjects only decompresses their slices. 0 disables slicing.")
+                .setFormat("'--slice-subjects <int>'");
+        parser.register("--train-dict")
+                .arity(0)
+                .convertTo(new PassedInConverter())
+                .setOptionGroup("Compressor Options")
+                .setDescription("Train a zstd dictionary from a sample of blocks, store it in the GTB header and recompress all blocks with it (ZSTD only, recommended for small blocks).");
+        parser.register("--checksum")
+                .arity(0)
+                .convertTo(new PassedInConverter())
+                .setOptionGroup("Compressor Options")
+                .setDescription("Store a CRC32 checksum of each block in the GTB node table, which can be checked in parallel by `verify` and is checked when blocks are decompressed.");
+        parser.register("--reorder-subjects")
+                .arity(0)
+                .convertTo(new PassedInConverter())
+                .setOptionGroup("Compressor Options")
+                .setDescription("Reorder subjects so that similar haplotypes are encoded in the same MBEG groups (greedy nearest neighbour on a sample of variants). The permutation is stored in the GTB header and the original order is restored when decompressing. Single input file only.");
         parser.register("--yes", "-y")
                 .arity(0)
                 .convertTo(new PassedInConverter())
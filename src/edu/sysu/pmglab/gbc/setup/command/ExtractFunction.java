@@ -41,7 +41,9 @@ enum ExtractFunction {
             // 预处理工作
             ExtractTask task = new ExtractTask((String) options.get("extract"))
                     .setParallel((int) options.get("-t"))
-                    .hideGenotype(options.isPassedIn("-hg"));
+                    .hideGenotype(options.isPassedIn("-hg"))
+                    .setChecksumVerification(!options.isPassedIn("--skip-checksum"))
+                    .setMemoryMapped(options.isPassedIn("--mmap"));
 
             // 设置向型
             if (options.isPassedIn("-p")) {
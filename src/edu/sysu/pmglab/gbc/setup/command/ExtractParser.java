@@ -123,6 +123,16 @@ enum ExtractParser {
                 .convertTo(new PassedInConverter())
                 .setOptionGroup("Output Options")
                 .setDescription("Do not output the sample genotypes (only CHROM, POS, REF, ALT, AC, AN, AF).");
+        parser.register("--skip-checksum")
+                .arity(0)
+                .convertTo(new PassedInConverter())
+                .setOptionGroup("Output Options")
+                .setDescription("Do not check the block checksums (if stored in the GTB file) while decompressing.");
+        parser.register("--mmap")
+                .arity(0)
+                .convertTo(new PassedInConverter())
+                .setOptionGroup("Output Options")
+                .setDescription("Read the compressed blocks through a memory mapping of the GTB file shared by all threads.");
         parser.register("--yes", "-y")
                 .arity(0)
                 .convertTo(new PassedInConverter())
@@ -50,6 +50,8 @@ public enum GBCFunction {
                     BGZIPCommandEntry.submit(args);
                 } else if (options.isPassedIn("md5")) {
                     MD5Function.submit(args);
+                } else if (options.isPassedIn("verify")) {
+                    VerifyFunction.submit(args);
                 } else if (options.isPassedIn("version")) {
                     System.out.println("Version: GBC-1.1 (last edited on 2022.01.15)");
                 } else if (options.isPassedIn("-h")) {
@@ -99,5 +99,10 @@ enum GBCParser {
               .convertTo(new StringArrayConverter())
               .setOptionGroup("Tool")
               .setDescription("Calculate a message-digest fingerprint (checksum) for file.");
+        parser.register("verify")
+              .arity(-1)
+              .convertTo(new StringArrayConverter())
+              .setOptionGroup("Tool")
+              .setDescription("Verify the block checksums of GTB file(s) in parallel.");
     }
 }
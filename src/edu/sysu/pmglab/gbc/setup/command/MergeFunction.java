@@ -49,6 +49,7 @@ enum MergeFunction {
                     .setWindowSize((int) options.get("-ws"))
                     .setBlockSizeType((int) options.get("-bs"))
                     .setCompressor((String) options.get("-c"), (int) options.get("-l"))
+                    .setChecksum(options.isPassedIn("--checksum"))
                     .readyParas((String) options.get("-rp"));
 
             // 设置输入文件名
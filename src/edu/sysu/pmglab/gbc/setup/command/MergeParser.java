@@ -19,7 +19,6 @@ import edu.sysu.pmglab.commandParser.validator.ElementValidator;
 import edu.sysu.pmglab.commandParser.validator.EnsureFileExistsValidator;
 import edu.sysu.pmglab.commandParser.validator.EnsureFileIsNotDirectoryValidator;
 import edu.sysu.pmglab.commandParser.validator.RangeValidator;
-import edu.sysu.pmglab.compressor.ICompressor;
 import edu.sysu.pmglab.gbc.core.build.BlockSizeParameter;
 import edu.sysu.pmglab.gbc.core.common.allelechecker.Chi2TestChecker;
 import edu.sysu.pmglab.gbc.core.common.allelechecker.LDTestChecker;
@@ -27,6 +26,7 @@ import edu.sysu.pmglab.gbc.core.common.qualitycontrol.allele.AlleleACController;
 import edu.sysu.pmglab.gbc.core.common.qualitycontrol.allele.AlleleAFController;
 import edu.sysu.pmglab.gbc.core.common.qualitycontrol.allele.AlleleANController;
 import edu.sysu.pmglab.gbc.core.common.switcher.ISwitcher;
+import edu.sysu.pmglab.gbc.core.gtbcomponent.GTBCompressor;
 
 import static edu.sysu.pmglab.commandParser.CommandOptions.*;
 import static edu.sysu.pmglab.commandParser.CommandRuleType.AT_MOST_ONE;
@@ -146,7 +146,7 @@ enum MergeParser {
                     @Override
                     public String convert(String... params) {
                         String param = super.convert(params);
-                        ElementValidator validator = new ElementValidator(ICompressor.getCompressorNames());
+                        ElementValidator validator = new ElementValidator(GTBCompressor.getCompressorNames());
                         validator.validate("--compressor", param);
                         if (validator.indexOf(param) == -1) {
                             return validator.valueOf(Integer.parseInt(param));
@@ -155,10 +155,10 @@ enum MergeParser {
                         }
                     }
                 })
-                .defaultTo(ICompressor.getCompressorName(ICompressor.DEFAULT))
+                .defaultTo(GTBCompressor.getCompressorName(GTBCompressor.DEFAULT))
                 .setOptionGroup("Compressor Options")
                 .setDescription("Set the basic compressor for compressing processed data.")
-                .setFormat("'-c [0/1]' or '-c [ZSTD/LZMA]'");
+                .setFormat("'-c [0/1/2/3]' or '-c [ZSTD/LZMA/GZIP/LZ4]'");
         parser.register("--level", "-l")
                 .arity(1)
                 .convertTo(new IntConverter())
@@ -166,7 +166,7 @@ enum MergeParser {
                 .validateWith(new RangeValidator(-1.0, 31.0))
                 .setOptionGroup("Compressor Options")
                 .setDescription("Compression level to use when basic compressor works.")
-                .setFormat("'-l <int>' (ZSTD: 0~22, 16 as default; LZMA: 0~9, 3 as default)");
+                .setFormat("'-l <int>' (ZSTD: 0~22, 16 as default; LZMA: 0~9, 3 as default; LZ4: 0~9, 3 as default)");
         parser.register("--readyParas", "-rp")
                 .arity(1)
                 .convertTo(new StringConverter())
@@ -174,6 +174,11 @@ enum MergeParser {
                 .setOptionGroup("Compressor Options")
                 .setDescription("Import the template parameters (-p, -bs, -c, -l) from an external GTB file.")
                 .setFormat("'-rp <file>'");
+        parser.register("--checksum")
+                .arity(0)
+                .convertTo(new PassedInConverter())
+                .setOptionGroup("Compressor Options")
+                .setDescription("Store a CRC32 checksum of each block in the GTB node table, which can be checked in parallel by `verify` and is checked when blocks are decompressed.");
         parser.register("--yes", "-y")
                 .arity(0)
                 .convertTo(new PassedInConverter())
@@ -50,6 +50,10 @@ enum RebuildFunction {
                     .setWindowSize((int) options.get("-ws"))
                     .setBlockSizeType((int) options.get("-bs"))
                     .setCompressor((String) options.get("-c"), (int) options.get("-l"))
+                    .setTrainDictionary(options.isPassedIn("--train-dict"))
+                    .setChecksum(options.isPassedIn("--checksum"))
+                    .setSubjectReordering(options.isPassedIn("--reorder-subjects"))
+                    .setSliceSize((int) options.get("--slice-subjects"))
                     .readyParas((String) options.get("-rp"));
 
             // 设置输入文件名
@@ -17,7 +17,6 @@ import edu.sysu.pmglab.commandParser.validator.ElementValidator;
 import edu.sysu.pmglab.commandParser.validator.EnsureFileExistsValidator;
 import edu.sysu.pmglab.commandParser.validator.EnsureFileIsNotDirectoryValidator;
 import edu.sysu.pmglab.commandParser.validator.RangeValidator;
-import edu.sysu.pmglab.compressor.ICompressor;
 import edu.sysu.pmglab.container.array.BaseArray;
 import edu.sysu.pmglab.container.array.IntArray;
 import edu.sysu.pmglab.gbc.coder.CoderConfig;
@@ -32,6 +31,7 @@ import edu.sysu.pmglab.gbc.core.common.qualitycontrol.allele.AlleleAFController;
 import edu.sysu.pmglab.gbc.core.common.qualitycontrol.allele.AlleleANController;
 import edu.sysu.pmglab.gbc.core.common.qualitycontrol.variant.VariantAllelesNumController;
 import edu.sysu.pmglab.gbc.core.common.switcher.ISwitcher;
+import edu.sysu.pmglab.gbc.core.gtbcomponent.GTBCompressor;
 import edu.sysu.pmglab.unifyIO.FileStream;
 
 import java.io.IOException;
@@ -136,7 +136,7 @@ enum RebuildParser {
                     @Override
                     public String convert(String... params) {
                         String param = super.convert(params);
-                        ElementValidator validator = new ElementValidator(ICompressor.getCompressorNames());
+                        ElementValidator validator = new ElementValidator(GTBCompressor.getCompressorNames());
                         validator.validate("--compressor", param);
                         if (validator.indexOf(param) == -1) {
                             return validator.valueOf(Integer.parseInt(param));
@@ -145,10 +145,10 @@ enum RebuildParser {
                         }
                     }
                 })
-                .defaultTo(ICompressor.getCompressorName(ICompressor.DEFAULT))
+                .defaultTo(GTBCompressor.getCompressorName(GTBCompressor.DEFAULT))
                 .setOptionGroup("Compressor Options")
                 .setDescription("Set the basic compressor for compressing processed data.")
-                .setFormat("'-c [0/1]' or '-c [ZSTD/LZMA]'");
+                .setFormat("'-c [0/1/2/3]' or '-c [ZSTD/LZMA/GZIP/LZ4]'");
         parser.register("--level", "-l")
                 .arity(1)
                 .convertTo(new IntConverter())
@@ -156,7 +156,7 @@ enum RebuildParser {
                 .validateWith(new RangeValidator(-1.0, 31.0))
                 .setOptionGroup("Compressor Options")
                 .setDescription("Compression level to use when basic compressor works.")
-                .setFormat("'-l <int>' (ZSTD: 0~22, 16 as default; LZMA: 0~9, 3 as default)");
+                .setFormat("'-l <int>' (ZSTD: 0~22, 16 as default; LZMA: 0~9, 3 as default; LZ4: 0~9, 3 as default)");
         parser.register("--readyParas", "-rp")
                 .arity(1)
                 .convertTo(new StringConverter())
@@ -164,6 +164,29 @@ enum RebuildParser {
                 .setOptionGroup("Compressor Options")
                 .setDescription("Import the template parameters (-p, -bs, -c, -l) from an external GTB file.")
                 .setFormat("'-rp <file>'");
+        parser.register("--slice-subjects")
+                .arity(1)
+                .convertTo(new IntConverter())
+                .defaultTo(0)
+                .validateWith(new RangeValidator(0, Integer.MAX_VALUE))
+                .setOptionGroup("Compressor Options")
+                .setDescription("Split the genotypes of each block into column slices of the given number of subjects (rounded up to a multiple of 12) and compress them independently, so that extracting a few subjects only decompresses their slices. 0 disables slicing.")
+                .setFormat("'--slice-subjects <int>'");
+        parser.register("--train-dict")
+                .arity(0)
+                .convertTo(new PassedInConverter())
+                .setOptionGroup("Compressor Options")
+                .setDescription("Train a zstd dictionary from a sample of blocks, store it in the GTB header and recompress all blocks with it (ZSTD only, recommended for small blocks).");
+        parser.register("--checksum")
+                .arity(0)
+                .convertTo(new PassedInConverter())
+                .setOptionGroup("Compressor Options")
+                .setDescription("Store a CRC32 checksum of each block in the GTB node table, which can be checked in parallel by `verify` and is checked when blocks are decompressed.");
+        parser.register("--reorder-subjects")
+                .arity(0)
+                .convertTo(new PassedInConverter())
+                .setOptionGroup("Compressor Options")
+                .setDescription("Reorder subjects so that similar haplotypes are encoded in the same MBEG groups (greedy nearest neighbour on a sample of variants). The permutation is stored in the GTB header and the original order is restored when decompressing. Without this option, a reordered input file is rebuilt in the original order.");
         parser.register("--yes", "-y")
                 .arity(0)
                 .convertTo(new PassedInConverter())
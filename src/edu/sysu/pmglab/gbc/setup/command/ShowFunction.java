@@ -43,7 +43,7 @@ enum ShowFunction {
 
             // 仅打印样本信息
             if (options.isPassedIn("--list-subject-only")) {
-                System.out.println(new String(GTBRootCache.get((String) options.get("show")).getSubjects()).replace("\t", ","));
+                System.out.println(String.join(",", GTBRootCache.get((String) options.get("show")).getSubjectManager().getAllSubjects()));
                 return 0;
             }
 
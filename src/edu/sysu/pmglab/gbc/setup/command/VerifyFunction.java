@@ -0,0 +1,64 @@
+package edu.sysu.pmglab.gbc.setup.command;
+
+import edu.sysu.pmglab.commandParser.CommandMatcher;
+import edu.sysu.pmglab.commandParser.CommandParser;
+import edu.sysu.pmglab.container.array.Array;
+import edu.sysu.pmglab.gbc.constant.ChromosomeTags;
+import edu.sysu.pmglab.gbc.core.gtbcomponent.GTBChecksum;
+import edu.sysu.pmglab.gbc.core.gtbcomponent.GTBManager;
+import edu.sysu.pmglab.gbc.core.gtbcomponent.GTBNode;
+import edu.sysu.pmglab.gbc.core.gtbcomponent.GTBRootCache;
+
+import java.io.IOException;
+
+/**
+ * @author suranyi
+ * @description 块校验码检验模式解析器
+ */
+
+enum VerifyFunction {
+    /**
+     * 单例模式
+     */
+    INSTANCE;
+
+    private final CommandParser parser = VerifyParser.getParser();
+
+    public static int submit(String... args) throws IOException {
+        if (args.length == INSTANCE.parser.getOffset() + 1) {
+            // 参数长度和偏移量相等，此时打印 help 文档
+            System.out.println(INSTANCE.parser);
+            return 0;
+        }
+
+        CommandMatcher options = parse(args);
+
+        if (options.isPassedIn("-h")) {
+            System.out.println(usage());
+        } else {
+            // 解析命令
+            for (String fileName : (String[]) options.get("verify")) {
+                GTBManager manager = GTBRootCache.get(fileName);
+                Array<GTBNode> brokenNodes = GTBChecksum.verify(manager, (int) options.get("-t"));
+                if (brokenNodes.size() == 0) {
+                    System.out.printf("Verify (%s) = OK (%d blocks)%n", fileName, manager.getGtbTree().numOfNodes());
+                } else {
+                    System.out.printf("Verify (%s) = FAILED (%d of %d blocks)%n", fileName, brokenNodes.size(), manager.getGtbTree().numOfNodes());
+                    for (GTBNode node : brokenNodes) {
+                        System.out.println("  chrom=" + ChromosomeTags.getString(node.chromosomeIndex) + ", " + node);
+                    }
+                }
+            }
+        }
+
+        return 0;
+    }
+
+    public static CommandMatcher parse(String... args) {
+        return INSTANCE.parser.parse(args);
+    }
+
+    public static String usage() {
+        return INSTANCE.parser.toString();
+    }
+}
@@ -0,0 +1,65 @@
+package edu.sysu.pmglab.gbc.setup.command;
+
+import edu.sysu.pmglab.commandParser.CommandMatcher;
+import edu.sysu.pmglab.commandParser.CommandParser;
+import edu.sysu.pmglab.commandParser.converter.array.StringArrayConverter;
+import edu.sysu.pmglab.commandParser.converter.value.IntConverter;
+import edu.sysu.pmglab.commandParser.converter.value.PassedInConverter;
+import edu.sysu.pmglab.commandParser.validator.EnsureFileExistsValidator;
+import edu.sysu.pmglab.commandParser.validator.EnsureFileIsNotDirectoryValidator;
+import edu.sysu.pmglab.commandParser.validator.RangeValidator;
+import edu.sysu.pmglab.gbc.core.ITask;
+
+import static edu.sysu.pmglab.commandParser.CommandOptions.*;
+
+enum VerifyParser {
+    /**
+     * single instance
+     */
+    INSTANCE;
+
+    final CommandParser parser;
+
+    public static CommandParser getParser() {
+        return INSTANCE.parser;
+    }
+
+    public static CommandMatcher parse(String... args) {
+        return INSTANCE.parser.parse(args);
+    }
+
+    public static void toFile(String fileName) {
+        INSTANCE.parser.toFile(fileName);
+    }
+
+    VerifyParser() {
+        // global options
+        parser = new CommandParser(false);
+        parser.setProgramName("verify <input(s)>");
+        parser.offset(0);
+        parser.debug(false);
+        parser.usingAt(true);
+        parser.registerGlobalRule(null);
+
+        // add commandItems
+        parser.register("--help", "-help", "-h")
+                .addOptions(HIDDEN, HELP)
+                .arity(0)
+                .convertTo(new PassedInConverter())
+                .setOptionGroup("Options");
+        parser.register("verify")
+                .addOptions(REQUEST, HIDDEN)
+                .arity(-1)
+                .convertTo(new StringArrayConverter())
+                .validateWith(EnsureFileExistsValidator.INSTANCE, EnsureFileIsNotDirectoryValidator.INSTANCE)
+                .setOptionGroup("Options");
+        parser.register("--threads", "-t")
+                .arity(1)
+                .convertTo(new IntConverter())
+                .defaultTo(ITask.INIT_THREADS)
+                .validateWith(new RangeValidator(ITask.MIN_THREADS, ITask.AVAILABLE_PROCESSORS))
+                .setOptionGroup("Options")
+                .setDescription("Set the number of threads.")
+                .setFormat("'-t <int, " + ITask.MIN_THREADS + "~" + ITask.AVAILABLE_PROCESSORS + ">'");
+    }
+}
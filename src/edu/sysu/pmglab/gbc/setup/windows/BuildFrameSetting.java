@@ -1,6 +1,5 @@
 package edu.sysu.pmglab.gbc.setup.windows;
 
-import edu.sysu.pmglab.compressor.ICompressor;
 import edu.sysu.pmglab.container.array.BaseArray;
 import edu.sysu.pmglab.container.array.StringArray;
 import edu.sysu.pmglab.easytools.FileUtils;
@@ -8,6 +7,7 @@ import edu.sysu.pmglab.easytools.StringUtils;
 import edu.sysu.pmglab.gbc.coder.CoderConfig;
 import edu.sysu.pmglab.gbc.core.build.BlockSizeParameter;
 import edu.sysu.pmglab.gbc.core.common.switcher.ISwitcher;
+import edu.sysu.pmglab.gbc.core.gtbcomponent.GTBCompressor;
 
 import javax.swing.*;
 import javax.swing.filechooser.FileNameExtensionFilter;
@@ -27,11 +27,11 @@ public class BuildFrameSetting {
     public static void init(MainFrame frame) {
         // 初始化参数
         frame.buildBlockSizeComboBox.setModel(new DefaultComboBoxModel<>(BlockSizeParameter.getSupportedBlockSizes()));
-        frame.buildCompressorComboBox.setModel(new DefaultComboBoxModel<>(ICompressor.getCompressorNames()));
+        frame.buildCompressorComboBox.setModel(new DefaultComboBoxModel<>(GTBCompressor.getCompressorNames()));
         frame.buildPhasedComboBox.setModel(new DefaultComboBoxModel<>(new Boolean[]{CoderConfig.DEFAULT_PHASED_STATUS, !CoderConfig.DEFAULT_PHASED_STATUS}));
         frame.buildReorderingComboBox.setModel(new DefaultComboBoxModel<>(new Boolean[]{ISwitcher.DEFAULT_ENABLE, !ISwitcher.DEFAULT_ENABLE}));
         frame.buildBlockSizeComboBox.setSelectedItem(BlockSizeParameter.DEFAULT_BLOCK_SIZE_TYPE);
-        frame.buildCompressorComboBox.setSelectedIndex(ICompressor.DEFAULT);
+        frame.buildCompressorComboBox.setSelectedIndex(GTBCompressor.DEFAULT);
 
         // 选项监听
         frame.buildCompressorComboBox.addActionListener(e -> setCompressionLevelModel(frame, e));
@@ -76,8 +76,8 @@ public class BuildFrameSetting {
     static void resetButtonClicked(MainFrame frame, ActionEvent e) {
         frame.buildPhasedComboBox.setSelectedItem(CoderConfig.DEFAULT_PHASED_STATUS);
         frame.buildThreadsSpinner.setValue(Math.min(Runtime.getRuntime().availableProcessors(), 4));
-        frame.buildCompressorComboBox.setSelectedIndex(ICompressor.DEFAULT);
-        frame.buildCompressionLevelSpinner.setValue(ICompressor.getDefaultCompressionLevel(ICompressor.DEFAULT));
+        frame.buildCompressorComboBox.setSelectedIndex(GTBCompressor.DEFAULT);
+        frame.buildCompressionLevelSpinner.setValue(GTBCompressor.getDefaultCompressionLevel(GTBCompressor.DEFAULT));
         frame.buildBlockSizeComboBox.setSelectedItem(-1);
         frame.buildReorderingComboBox.setSelectedItem(ISwitcher.DEFAULT_ENABLE);
         frame.buildWindowSizeSpinner.setValue(ISwitcher.DEFAULT_SIZE);
@@ -183,11 +183,11 @@ public class BuildFrameSetting {
      * 设置压缩器级别
      */
     static void setCompressionLevelModel(MainFrame frame, ActionEvent e) {
-        int compressorIndex = ICompressor.getCompressorIndex((String) frame.buildCompressorComboBox.getSelectedItem());
+        int compressorIndex = GTBCompressor.getCompressorIndex((String) frame.buildCompressorComboBox.getSelectedItem());
 
-        frame.buildCompressionLevelSpinner.setModel(new SpinnerNumberModel(ICompressor.getDefaultCompressionLevel(compressorIndex),
-                ICompressor.getMinCompressionLevel(compressorIndex),
-                ICompressor.getMaxCompressionLevel(compressorIndex),
+        frame.buildCompressionLevelSpinner.setModel(new SpinnerNumberModel(GTBCompressor.getDefaultCompressionLevel(compressorIndex),
+                GTBCompressor.getMinCompressionLevel(compressorIndex),
+                GTBCompressor.getMaxCompressionLevel(compressorIndex),
                 1));
     }
 }
\ No newline at end of file
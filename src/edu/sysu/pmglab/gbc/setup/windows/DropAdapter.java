@@ -1,7 +1,7 @@
 package edu.sysu.pmglab.gbc.setup.windows;
 
-import edu.sysu.pmglab.compressor.ICompressor;
 import edu.sysu.pmglab.gbc.core.build.BlockSizeParameter;
+import edu.sysu.pmglab.gbc.core.gtbcomponent.GTBCompressor;
 import edu.sysu.pmglab.gbc.core.gtbcomponent.GTBManager;
 import edu.sysu.pmglab.gbc.core.gtbcomponent.GTBRootCache;
 import edu.sysu.pmglab.unifyIO.FileStream;
@@ -197,7 +197,7 @@ public class DropAdapter {
 
                                 frame.buildPhasedComboBox.setSelectedItem(manager.isPhased());
                                 frame.buildBlockSizeComboBox.setSelectedItem(BlockSizeParameter.getBlockSize(manager.getBlockSizeType()));
-                                frame.buildCompressorComboBox.setSelectedItem(ICompressor.getCompressorName(manager.getCompressorIndex()));
+                                frame.buildCompressorComboBox.setSelectedItem(GTBCompressor.getCompressorName(manager.getCompressorIndex()));
                                 frame.buildCompressionLevelSpinner.setValue(manager.getCompressionLevel());
                                 frame.info("Succeeded to load!");
                             } catch (Exception | Error exception) {
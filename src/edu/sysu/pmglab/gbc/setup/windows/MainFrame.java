@@ -1,6 +1,5 @@
 package edu.sysu.pmglab.gbc.setup.windows;
 
-import edu.sysu.pmglab.compressor.ICompressor;
 import edu.sysu.pmglab.container.VolumeByteSafeOutputStream;
 import edu.sysu.pmglab.gbc.core.ITask;
 import edu.sysu.pmglab.gbc.core.common.qualitycontrol.allele.AlleleACController;
@@ -13,6 +12,7 @@ import edu.sysu.pmglab.gbc.core.common.qualitycontrol.variant.VariantDPControlle
 import edu.sysu.pmglab.gbc.core.common.qualitycontrol.variant.VariantMQController;
 import edu.sysu.pmglab.gbc.core.common.qualitycontrol.variant.VariantPhredQualityScoreController;
 import edu.sysu.pmglab.gbc.core.common.switcher.ISwitcher;
+import edu.sysu.pmglab.gbc.core.gtbcomponent.GTBCompressor;
 import edu.sysu.pmglab.unifyIO.partwriter.BGZOutputParam;
 import edu.sysu.pmglab.gbc.setup.command.GBCFunction;
 import edu.sysu.pmglab.threadPool.ThreadPool;
@@ -399,7 +399,7 @@ public class MainFrame extends JFrame {
     void createUIComponents() {
         // build 参数
         buildThreadsSpinner = new JSpinner(new SpinnerNumberModel(ITask.INIT_THREADS, 1,ITask.AVAILABLE_PROCESSORS, 1));
-        buildCompressionLevelSpinner = new JSpinner(new SpinnerNumberModel(ICompressor.getDefaultCompressionLevel(ICompressor.DEFAULT), ICompressor.getMinCompressionLevel(ICompressor.DEFAULT), ICompressor.getMaxCompressionLevel(ICompressor.DEFAULT), 1));
+        buildCompressionLevelSpinner = new JSpinner(new SpinnerNumberModel(GTBCompressor.getDefaultCompressionLevel(GTBCompressor.DEFAULT), GTBCompressor.getMinCompressionLevel(GTBCompressor.DEFAULT), GTBCompressor.getMaxCompressionLevel(GTBCompressor.DEFAULT), 1));
         buildWindowSizeSpinner = new JSpinner(new SpinnerNumberModel(ISwitcher.DEFAULT_SIZE, ISwitcher.MIN, ISwitcher.MAX, 1));
 
         // 质控参数